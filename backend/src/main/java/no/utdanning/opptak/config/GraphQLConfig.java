@@ -0,0 +1,45 @@
+package no.utdanning.opptak.config;
+
+import no.utdanning.opptak.controller.GraphQLHttpController;
+import no.utdanning.opptak.graphql.DokumentCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.graphql.GraphQlSourceBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.function.RequestPredicates;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerResponse;
+
+/** Tilpasninger av GraphQL-oppsettet utover det Spring Boot konfigurerer automatisk. */
+@Configuration
+public class GraphQLConfig {
+
+  /** Gjenbruker parsede og validerte dokumenter, og aktiverer Automatic Persisted Queries */
+  @Bean
+  public GraphQlSourceBuilderCustomizer dokumentCacheCustomizer(DokumentCache dokumentCache) {
+    return builder ->
+        builder.configureGraphQl(graphQl -> graphQl.preparsedDocumentProvider(dokumentCache));
+  }
+
+  /**
+   * Ruter GET og POST på GraphQL-stien til GraphQLHttpController. Sorteres foran Spring Boot sin
+   * ruter, som kun tar POST med query-tekst.
+   */
+  @Bean
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public RouterFunction<ServerResponse> graphQlHttpRouter(
+      GraphQLHttpController controller, @Value("${spring.graphql.path:/graphql}") String path) {
+    return RouterFunctions.route()
+        .GET(path, controller::get)
+        .POST(
+            path,
+            RequestPredicates.contentType(MediaType.APPLICATION_JSON)
+                .and(RequestPredicates.accept(MediaType.APPLICATION_JSON, MediaType.ALL)),
+            controller::post)
+        .build();
+  }
+}
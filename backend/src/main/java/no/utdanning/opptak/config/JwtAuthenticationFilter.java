@@ -5,11 +5,10 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.List;
 import no.utdanning.opptak.service.JwtService;
+import no.utdanning.opptak.service.security.InnloggetBruker;
+import no.utdanning.opptak.service.security.JwtAuthentication;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -23,6 +22,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
   @Autowired private JwtService jwtService;
+  @Autowired private Sporringsbudsjett sporringsbudsjett;
 
   @Override
   protected void doFilterInternal(
@@ -32,28 +32,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     String token = extractTokenFromRequest(request);
     logger.debug("JWT Filter - Token extracted: " + (token != null ? "present" : "missing"));
 
-    if (token != null && jwtService.isTokenValid(token)) {
+    if (token != null) {
       try {
-        String userId = jwtService.extractUserId(token);
-        List<String> roles = jwtService.extractRoles(token);
+        // Tokenet verifiseres kun her; tjenestene leser InnloggetBruker fra SecurityContext
+        InnloggetBruker bruker = jwtService.verifiser(token);
+        logger.debug(
+            "JWT Authentication - UserId: " + bruker.brukerId() + ", Roles: " + bruker.roller());
 
-        logger.debug("JWT Authentication - UserId: " + userId + ", Roles: " + roles);
+        JwtAuthentication authentication = new JwtAuthentication(bruker);
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
 
-        // Convert roles to Spring Security authorities with ROLE_ prefix
-        List<SimpleGrantedAuthority> authorities =
-            roles.stream().map(role -> new SimpleGrantedAuthority("ROLE_" + role)).toList();
+        logger.debug("JWT Authentication - SecurityContext set for user: " + bruker.brukerId());
 
-        logger.debug("JWT Authentication - Authorities: " + authorities);
-
-        // Create authentication token
-        UsernamePasswordAuthenticationToken authToken =
-            new UsernamePasswordAuthenticationToken(userId, null, authorities);
-        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-        // Set authentication in security context
-        SecurityContextHolder.getContext().setAuthentication(authToken);
-
-        logger.debug("JWT Authentication - SecurityContext set for user: " + userId);
+        // Kostnadsbudsjett for GraphQL-operasjoner, leses av SporringskostnadInstrumentation
+        request.setAttribute(
+            Sporringsbudsjett.REQUEST_ATTRIBUTT, sporringsbudsjett.forRoller(bruker.roller()));
 
       } catch (SecurityException e) {
         // Log security exception but don't block request - Spring Security will handle unauthorized
@@ -0,0 +1,25 @@
+package no.utdanning.opptak.config;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** Felles oppsett for Micrometer-metrikker. */
+@Configuration
+public class MetrikkConfig {
+
+  /** Maks antall ulike operasjonsnavn; navnene kommer fra klienten og må ikke vokse ubegrenset */
+  static final int MAKS_OPERASJONER = 200;
+
+  @Bean
+  public MeterFilter begrensGraphQLOperasjoner() {
+    return MeterFilter.maximumAllowableTags(
+        "graphql.operasjon", "operasjon", MAKS_OPERASJONER, MeterFilter.deny());
+  }
+
+  @Bean
+  public MeterFilter begrensGraphQLFeil() {
+    return MeterFilter.maximumAllowableTags(
+        "graphql.feil", "operasjon", MAKS_OPERASJONER, MeterFilter.deny());
+  }
+}
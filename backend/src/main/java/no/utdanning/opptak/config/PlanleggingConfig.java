@@ -0,0 +1,9 @@
+package no.utdanning.opptak.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/** Slår på @Scheduled-jobber, f.eks. avstemming av OpptakTilgangIndeks. */
+@Configuration
+@EnableScheduling
+public class PlanleggingConfig {}
@@ -0,0 +1,43 @@
+package no.utdanning.opptak.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Måler tiden for hvert kall til repository-laget (metrikken repository.kall), tagget med
+ * repository og metode. Gjør det mulig å skille databasetid fra tiden i resolvere og tjenester.
+ */
+@Aspect
+@Component
+public class RepositoryMetrikkAspect {
+
+  private final MeterRegistry meterRegistry;
+
+  public RepositoryMetrikkAspect(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Around("execution(public * no.utdanning.opptak.repository..*Repository.*(..))")
+  public Object mal(ProceedingJoinPoint joinPoint) throws Throwable {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String utfall = "suksess";
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable t) {
+      utfall = "feil";
+      throw t;
+    } finally {
+      sample.stop(
+          Timer.builder("repository.kall")
+              .description("Tid per kall til repository-metode")
+              .tag("repository", joinPoint.getSignature().getDeclaringType().getSimpleName())
+              .tag("metode", joinPoint.getSignature().getName())
+              .tag("utfall", utfall)
+              .register(meterRegistry));
+    }
+  }
+}
@@ -3,23 +3,25 @@ package no.utdanning.opptak.config;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.header.writers.CacheControlHeadersWriter;
+import org.springframework.security.web.header.writers.DelegatingRequestMatcherHeaderWriter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.NegatedRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 /**
- * Spring Security configuration that enables JWT-based authentication and method-level
- * authorization for GraphQL endpoints.
+ * Spring Security configuration that enables JWT-based authentication. Method-level authorization
+ * for the GraphQL resolvers is handled by @Tilgang and TilgangAspect.
  */
 @Configuration
 @EnableWebSecurity
-@EnableMethodSecurity(prePostEnabled = true) // Enable @PreAuthorize annotations
 public class SecurityConfig {
 
   @Autowired private JwtAuthenticationFilter jwtAuthenticationFilter;
@@ -28,6 +30,15 @@ public class SecurityConfig {
   public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
     return http.csrf(csrf -> csrf.disable()) // Disable CSRF for stateless JWT authentication
         .cors(cors -> cors.configurationSource(corsConfigurationSource())) // Enable CORS
+        .headers(
+            headers ->
+                headers
+                    .cacheControl(cache -> cache.disable())
+                    .addHeaderWriter(
+                        new DelegatingRequestMatcherHeaderWriter(
+                            new NegatedRequestMatcher(
+                                new AntPathRequestMatcher("/graphql", "GET")),
+                            new CacheControlHeadersWriter()))) // GET /graphql styrer caching selv
         .sessionManagement(
             session ->
                 session.sessionCreationPolicy(
@@ -38,6 +49,10 @@ public class SecurityConfig {
                     // Allow login mutation (needed for authentication)
                     .requestMatchers("/graphql")
                     .permitAll() // GraphQL endpoint (authorization handled at method level)
+                    .requestMatchers("/actuator/health")
+                    .permitAll() // Helsesjekk
+                    .requestMatchers("/actuator/prometheus")
+                    .hasRole("ADMINISTRATOR") // Metrikker avslører operasjonsnavn og trafikk
                     .requestMatchers("/graphiql", "/graphiql/**", "/api-tester", "/custom-graphiql.html")
                     .permitAll() // GraphiQL development tools
                     .requestMatchers("/", "/index.html", "/assets/**", "/owl-logo.png", "/vite.svg", "/graphiql.html")
@@ -0,0 +1,89 @@
+package no.utdanning.opptak.config;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import no.utdanning.opptak.domain.Rolle;
+import no.utdanning.opptak.repository.RolleRepository;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Kostnadsbudsjett for GraphQL-operasjoner per rolle. Budsjettene konfigureres under
+ * app.graphql.kostnad og slås opp mot rollene i rolle-tabellen; roller uten eget budsjett får
+ * standardbudsjettet. En bruker med flere roller får det største budsjettet blant dem.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.graphql.kostnad")
+public class Sporringsbudsjett {
+
+  /** Request-attributt som JwtAuthenticationFilter setter med budsjettet for innlogget bruker */
+  public static final String REQUEST_ATTRIBUTT = Sporringsbudsjett.class.getName();
+
+  private final RolleRepository rolleRepository;
+
+  /** Budsjett per rolle-ID, f.eks. ADMINISTRATOR: 50000 */
+  private Map<String, Integer> budsjett = new HashMap<>();
+
+  /** Budsjett for roller i rolle-tabellen uten eget budsjett */
+  private int standardBudsjett = 2000;
+
+  /** Budsjett for uautentiserte kall (login, testbrukere) */
+  private int anonymtBudsjett = 200;
+
+  private volatile Map<String, Integer> budsjettPerRolle;
+
+  public Sporringsbudsjett(RolleRepository rolleRepository) {
+    this.rolleRepository = rolleRepository;
+  }
+
+  /** Største budsjett blant rollene, eller standardbudsjettet hvis ingen rolle er kjent */
+  public int forRoller(Collection<String> roller) {
+    if (roller == null || roller.isEmpty()) {
+      return anonymtBudsjett;
+    }
+    Map<String, Integer> perRolle = budsjettPerRolle();
+    return roller.stream()
+        .mapToInt(rolle -> perRolle.getOrDefault(rolle, standardBudsjett))
+        .max()
+        .orElse(standardBudsjett);
+  }
+
+  public int getAnonymtBudsjett() {
+    return anonymtBudsjett;
+  }
+
+  public void setAnonymtBudsjett(int anonymtBudsjett) {
+    this.anonymtBudsjett = anonymtBudsjett;
+  }
+
+  public int getStandardBudsjett() {
+    return standardBudsjett;
+  }
+
+  public void setStandardBudsjett(int standardBudsjett) {
+    this.standardBudsjett = standardBudsjett;
+  }
+
+  public Map<String, Integer> getBudsjett() {
+    return budsjett;
+  }
+
+  public void setBudsjett(Map<String, Integer> budsjett) {
+    this.budsjett = budsjett;
+    this.budsjettPerRolle = null;
+  }
+
+  /** Leser rollene fra databasen første gang; rolle-tabellen endres kun via migreringer */
+  private Map<String, Integer> budsjettPerRolle() {
+    Map<String, Integer> perRolle = budsjettPerRolle;
+    if (perRolle == null) {
+      perRolle = new HashMap<>();
+      for (Rolle rolle : rolleRepository.findAll()) {
+        perRolle.put(rolle.getId(), budsjett.getOrDefault(rolle.getId(), standardBudsjett));
+      }
+      budsjettPerRolle = perRolle;
+    }
+    return perRolle;
+  }
+}
@@ -0,0 +1,81 @@
+package no.utdanning.opptak.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import no.utdanning.opptak.service.security.InnloggetBruker;
+import no.utdanning.opptak.service.security.Rolletype;
+import no.utdanning.opptak.service.security.Tilgang;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Håndhever @Tilgang på resolverne. Kravet for hver metode leses fra annotasjonene én gang og
+ * lagres som en rollemaske, så selve sjekken er et oppslag i et kart og én AND mot rollemasken til
+ * InnloggetBruker, uten SpEL-evaluering eller nye GrantedAuthority-objekter per kall.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TilgangAspect {
+
+  private final ConcurrentHashMap<Method, Tilgangskrav> krav = new ConcurrentHashMap<>();
+
+  @Around(
+      "execution(public * *(..)) && (@within(no.utdanning.opptak.service.security.Tilgang)"
+          + " || @annotation(no.utdanning.opptak.service.security.Tilgang))")
+  public Object sjekk(ProceedingJoinPoint joinPoint) throws Throwable {
+    Method metode = ((MethodSignature) joinPoint.getSignature()).getMethod();
+    Tilgangskrav tilgangskrav =
+        krav.computeIfAbsent(metode, m -> kompiler(m, joinPoint.getTarget().getClass()));
+    if (!tilgangskrav.oppfyltAv(SecurityContextHolder.getContext().getAuthentication())) {
+      throw new AccessDeniedException("Access Denied");
+    }
+    return joinPoint.proceed();
+  }
+
+  /** Finner gjeldende @Tilgang (metodens før klassens) og regner ut rollemasken */
+  static Tilgangskrav kompiler(Method metode, Class<?> klasse) {
+    Tilgang tilgang = AnnotatedElementUtils.findMergedAnnotation(metode, Tilgang.class);
+    if (tilgang == null) {
+      tilgang = AnnotatedElementUtils.findMergedAnnotation(klasse, Tilgang.class);
+    }
+    Rolletype[] roller = tilgang != null ? tilgang.value() : new Rolletype[0];
+    return new Tilgangskrav(Rolletype.maske(roller), roller);
+  }
+
+  /**
+   * Forhåndsberegnet krav for én metode. Maske 0 betyr at det holder å være innlogget.
+   *
+   * @param roller samme roller som i masken, for Authentication-typer uten InnloggetBruker
+   */
+  record Tilgangskrav(int maske, Rolletype[] roller) {
+
+    boolean oppfyltAv(Authentication auth) {
+      if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+        return false;
+      }
+      if (maske == 0) {
+        return true;
+      }
+      if (auth.getPrincipal() instanceof InnloggetBruker bruker) {
+        return bruker.harEnAvRollene(maske);
+      }
+      for (Rolletype rolle : roller) {
+        if (rolle.tilhorer(auth)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
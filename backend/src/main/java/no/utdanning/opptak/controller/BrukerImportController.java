@@ -0,0 +1,47 @@
+package no.utdanning.opptak.controller;
+
+import static no.utdanning.opptak.service.Filformat.CSV_TYPE;
+import static no.utdanning.opptak.service.Filformat.NDJSON_TYPE;
+import static no.utdanning.opptak.service.security.Rolletype.ADMINISTRATOR;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import no.utdanning.opptak.service.BrukerImportRapport;
+import no.utdanning.opptak.service.BrukerImportService;
+import no.utdanning.opptak.service.security.InnloggetBruker;
+import no.utdanning.opptak.service.security.Tilgang;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Masseimport av brukere for administratorer. Filen sendes som body med Content-Type text/csv
+ * eller application/x-ndjson og leses strømmende; svaret er en BrukerImportRapport med antall
+ * opprettede og avviste brukere.
+ */
+@RestController
+@Tilgang(ADMINISTRATOR)
+public class BrukerImportController {
+
+  private final BrukerImportService importService;
+
+  public BrukerImportController(BrukerImportService importService) {
+    this.importService = importService;
+  }
+
+  @PostMapping(
+      path = "/api/brukere/import",
+      consumes = {CSV_TYPE, NDJSON_TYPE},
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public BrukerImportRapport importer(
+      @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, HttpServletRequest request)
+      throws IOException {
+    String importertAv = InnloggetBruker.gjeldende().brukerId();
+    return ImportForesporsel.les(
+        contentType,
+        request,
+        (reader, format) -> importService.importer(reader, format, importertAv));
+  }
+}
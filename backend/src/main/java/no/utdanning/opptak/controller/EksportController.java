@@ -0,0 +1,108 @@
+package no.utdanning.opptak.controller;
+
+import static no.utdanning.opptak.service.security.Rolletype.ADMINISTRATOR;
+
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.zip.GZIPOutputStream;
+import no.utdanning.opptak.repository.JdbcEksportRepository.Datasett;
+import no.utdanning.opptak.service.EksportService;
+import no.utdanning.opptak.service.Filformat;
+import no.utdanning.opptak.service.security.Tilgang;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Eksport av hele datasett (utdanninger, opptak, utdanninger-i-opptak) som NDJSON eller CSV.
+ * Svaret strømmes mens radene leses, og gzippes når klienten sender Accept-Encoding: gzip. Radene
+ * kommer i id-rekkefølge; en avbrutt eksport fortsettes med etter=id til siste mottatte rad.
+ *
+ * <p>opprettetFra filtrerer på når radene ble opprettet. Tabellene har ikke endringstidspunkt, så
+ * eksporten kan ikke brukes til å hente bare endringer; rader som er endret må hentes med en full
+ * eksport.
+ */
+@RestController
+@Tilgang(ADMINISTRATOR)
+public class EksportController {
+
+  private final EksportService eksportService;
+
+  public EksportController(EksportService eksportService) {
+    this.eksportService = eksportService;
+  }
+
+  /**
+   * @param format ndjson (standard) eller csv
+   * @param etter bare rader med id etter denne (cursor fra en avbrutt eksport)
+   * @param opprettetFra bare rader opprettet fra og med dette tidspunktet, ISO-8601 dato eller
+   *     dato-tid
+   */
+  @GetMapping("/api/eksport/{datasett}")
+  public void eksporter(
+      @PathVariable String datasett,
+      @RequestParam(defaultValue = "ndjson") String format,
+      @RequestParam(required = false) String etter,
+      @RequestParam(required = false) String opprettetFra,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+      HttpServletResponse response)
+      throws IOException {
+    Datasett valgt = Datasett.fraSti(datasett);
+    if (valgt == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Ukjent datasett: " + datasett);
+    }
+    Filformat filformat = filformat(format);
+    LocalDateTime fra = tidspunkt(opprettetFra);
+
+    response.setContentType(filformat.getMedietype() + ";charset=UTF-8");
+    response.setHeader(
+        HttpHeaders.CONTENT_DISPOSITION,
+        "attachment; filename=\"" + valgt.sti() + "." + filformat.getFilendelse() + "\"");
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+    if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+      // syncFlush, så hver side når klienten med en gang
+      GZIPOutputStream gzip = new GZIPOutputStream(response.getOutputStream(), 8192, true);
+      eksportService.eksporter(valgt, filformat, etter, fra, gzip);
+      gzip.finish();
+    } else {
+      OutputStream ut = response.getOutputStream();
+      eksportService.eksporter(valgt, filformat, etter, fra, ut);
+    }
+    response.flushBuffer();
+  }
+
+  private static Filformat filformat(String format) {
+    return switch (format.toLowerCase()) {
+      case "ndjson" -> Filformat.NDJSON;
+      case "csv" -> Filformat.CSV;
+      default ->
+          throw new ResponseStatusException(
+              HttpStatus.BAD_REQUEST, "Ukjent format: " + format + " (ndjson eller csv)");
+    };
+  }
+
+  private static LocalDateTime tidspunkt(String verdi) {
+    if (verdi == null || verdi.isBlank()) {
+      return null;
+    }
+    try {
+      return verdi.length() == 10
+          ? LocalDate.parse(verdi).atStartOfDay()
+          : LocalDateTime.parse(verdi);
+    } catch (DateTimeParseException e) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Ugyldig tidspunkt i opprettetFra: " + verdi);
+    }
+  }
+}
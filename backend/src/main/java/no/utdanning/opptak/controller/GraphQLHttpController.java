@@ -0,0 +1,153 @@
+package no.utdanning.opptak.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import no.utdanning.opptak.graphql.DokumentCache;
+import no.utdanning.opptak.graphql.GraphQLExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.graphql.server.WebGraphQlHandler;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * HTTP-endepunkt for /graphql som erstatter Spring Boot sitt. I tillegg til vanlig POST støttes:
+ *
+ * <ul>
+ *   <li>POST uten query, kun med extensions.persistedQuery (Automatic Persisted Queries)
+ *   <li>GET for query-operasjoner, slik at svar kan caches i nettleser og på HTTP-nivå. Med APQ
+ *       blir URL-en kort og stabil:
+ *       /graphql?extensions={"persistedQuery":{"version":1,"sha256Hash":"..."}}&variables={...}
+ * </ul>
+ *
+ * Forespørslene går gjennom samme WebGraphQlHandler som før, med interceptorer og
+ * instrumentering. Mutasjoner over GET avvises av DokumentCache.
+ */
+@Component
+public class GraphQLHttpController {
+
+  private static final ParameterizedTypeReference<Map<String, Object>> MAP_TYPE =
+      new ParameterizedTypeReference<>() {};
+
+  private final WebGraphQlHandler graphQlHandler;
+  private final ObjectMapper objectMapper;
+  private final Duration maxAge;
+
+  public GraphQLHttpController(
+      WebGraphQlHandler graphQlHandler,
+      ObjectMapper objectMapper,
+      @Value("${app.graphql.get.max-age:60s}") Duration maxAge) {
+    this.graphQlHandler = graphQlHandler;
+    this.objectMapper = objectMapper;
+    this.maxAge = maxAge;
+  }
+
+  public ServerResponse post(ServerRequest request) throws ServletException, IOException {
+    Map<String, Object> body = new HashMap<>(request.body(MAP_TYPE));
+    return utfor(request, body, false);
+  }
+
+  public ServerResponse get(ServerRequest request) {
+    Map<String, Object> body = new HashMap<>();
+    request.param("query").ifPresent(query -> body.put("query", query));
+    request.param("operationName").ifPresent(navn -> body.put("operationName", navn));
+    body.put("variables", lesJson("variables", request.param("variables").orElse(null)));
+    body.put("extensions", lesJson("extensions", request.param("extensions").orElse(null)));
+    return utfor(request, body, true);
+  }
+
+  private ServerResponse utfor(ServerRequest request, Map<String, Object> body, boolean kunQuery) {
+    // Med APQ kan teksten mangle; DokumentCache slår da opp på hash
+    if (!(body.get("query") instanceof String query) || query.isBlank()) {
+      body.put("query", PersistedQuerySupport.PERSISTED_QUERY_MARKER);
+    }
+
+    WebGraphQlRequest graphQlRequest =
+        new WebGraphQlRequest(
+            request.uri(),
+            request.headers().asHttpHeaders(),
+            cookies(request),
+            request.attributes(),
+            body,
+            UUID.randomUUID().toString(),
+            request.servletRequest().getLocale());
+    if (kunQuery) {
+      graphQlRequest.configureExecutionInput(
+          (input, builder) ->
+              builder.graphQLContext(Map.of(DokumentCache.KUN_QUERY, true)).build());
+    }
+
+    Mono<ServerResponse> respons =
+        graphQlHandler
+            .handleRequest(graphQlRequest)
+            .map(svar -> tilRespons(svar, kunQuery));
+    return ServerResponse.async(respons);
+  }
+
+  /** GET-svar uten feil kan caches privat (per bruker); feil og POST caches aldri */
+  private ServerResponse tilRespons(WebGraphQlResponse svar, boolean kunQuery) {
+    ServerResponse.BodyBuilder builder =
+        ServerResponse.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .headers(headers -> headers.putAll(svar.getResponseHeaders()));
+    if (kunQuery) {
+      builder
+          .cacheControl(
+              svar.getErrors().isEmpty()
+                  ? CacheControl.maxAge(maxAge).cachePrivate()
+                  : CacheControl.noStore())
+          .varyBy(HttpHeaders.AUTHORIZATION);
+    }
+    // Overbelastning (f.eks. innlogging) gir Retry-After, så også vanlige HTTP-klienter venter
+    svar.getErrors().stream()
+        .map(feil -> feil.getExtensions())
+        .filter(extensions -> extensions != null)
+        .map(extensions -> extensions.get(GraphQLExceptionHandler.RETRY_AFTER))
+        .filter(Number.class::isInstance)
+        .findFirst()
+        .ifPresent(sekunder -> builder.header(HttpHeaders.RETRY_AFTER, sekunder.toString()));
+    return builder.body(svar.toMap());
+  }
+
+  private Map<String, Object> lesJson(String parameter, String json) {
+    if (json == null || json.isBlank()) {
+      return Map.of();
+    }
+    try {
+      return objectMapper.readValue(json, new TypeReference<>() {});
+    } catch (JsonProcessingException e) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Ugyldig JSON i parameter '" + parameter + "'");
+    }
+  }
+
+  private static MultiValueMap<String, HttpCookie> cookies(ServerRequest request) {
+    MultiValueMap<String, HttpCookie> cookies = new LinkedMultiValueMap<>();
+    request
+        .cookies()
+        .forEach(
+            (navn, verdier) ->
+                verdier.forEach(c -> cookies.add(navn, new HttpCookie(navn, c.getValue()))));
+    return cookies;
+  }
+}
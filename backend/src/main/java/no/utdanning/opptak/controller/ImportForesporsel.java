@@ -0,0 +1,42 @@
+package no.utdanning.opptak.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiFunction;
+import no.utdanning.opptak.service.Filformat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Felles for importendepunktene: filen sendes som body med Content-Type text/csv eller
+ * application/x-ndjson, og leses strømmende med tegnsettet fra Content-Type (UTF-8 ellers).
+ */
+final class ImportForesporsel {
+
+  private ImportForesporsel() {}
+
+  /** Åpner bodyen og gir den til importeringen; filer som ikke kan leses gir 400 */
+  static <T> T les(
+      MediaType contentType,
+      HttpServletRequest request,
+      BiFunction<BufferedReader, Filformat, T> importering)
+      throws IOException {
+    Filformat format =
+        contentType.isCompatibleWith(MediaType.parseMediaType(Filformat.NDJSON_TYPE))
+            ? Filformat.NDJSON
+            : Filformat.CSV;
+    Charset tegnsett =
+        contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(request.getInputStream(), tegnsett))) {
+      return importering.apply(reader, format);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+  }
+}
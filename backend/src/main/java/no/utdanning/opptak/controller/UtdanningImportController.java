@@ -0,0 +1,43 @@
+package no.utdanning.opptak.controller;
+
+import static no.utdanning.opptak.service.Filformat.CSV_TYPE;
+import static no.utdanning.opptak.service.Filformat.NDJSON_TYPE;
+import static no.utdanning.opptak.service.security.Rolletype.ADMINISTRATOR;
+import static no.utdanning.opptak.service.security.Rolletype.OPPTAKSLEDER;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import no.utdanning.opptak.service.ImportRapport;
+import no.utdanning.opptak.service.UtdanningImportService;
+import no.utdanning.opptak.service.security.Tilgang;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Masseimport av utdanninger. Filen sendes som body med Content-Type text/csv eller
+ * application/x-ndjson og leses strømmende; svaret er en ImportRapport med antall opprettede og
+ * avviste rader, der hver avvist rad er identifisert med navnet.
+ */
+@RestController
+@Tilgang({ADMINISTRATOR, OPPTAKSLEDER})
+public class UtdanningImportController {
+
+  private final UtdanningImportService importService;
+
+  public UtdanningImportController(UtdanningImportService importService) {
+    this.importService = importService;
+  }
+
+  @PostMapping(
+      path = "/api/utdanninger/import",
+      consumes = {CSV_TYPE, NDJSON_TYPE},
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ImportRapport importer(
+      @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, HttpServletRequest request)
+      throws IOException {
+    return ImportForesporsel.les(contentType, request, importService::importer);
+  }
+}
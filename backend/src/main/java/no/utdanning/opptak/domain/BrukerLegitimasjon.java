@@ -0,0 +1,21 @@
+package no.utdanning.opptak.domain;
+
+import java.util.List;
+
+/**
+ * Det innloggingen trenger om en bruker, lest med én spørring mot bruker og bruker_rolle. Brukes i
+ * stedet for JPA-entiteten Bruker på innloggingsstien.
+ */
+public record BrukerLegitimasjon(
+    String id,
+    String email,
+    String navn,
+    String passordHash,
+    String organisasjonId,
+    boolean aktiv,
+    List<String> rolleIds) {
+
+  public BrukerLegitimasjon {
+    rolleIds = List.copyOf(rolleIds);
+  }
+}
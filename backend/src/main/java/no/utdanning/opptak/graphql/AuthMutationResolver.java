@@ -1,12 +1,16 @@
 package no.utdanning.opptak.graphql;
 
+import static no.utdanning.opptak.service.security.Rolletype.ADMINISTRATOR;
+
 import no.utdanning.opptak.domain.Bruker;
 import no.utdanning.opptak.graphql.dto.LoginInput;
 import no.utdanning.opptak.graphql.dto.LoginResult;
 import no.utdanning.opptak.service.AuthService;
+import no.utdanning.opptak.service.security.Tilgang;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.stereotype.Controller;
 
 @Controller
@@ -18,13 +22,22 @@ public class AuthMutationResolver {
   public LoginResult login(@Argument LoginInput input) {
     try {
       String token = authService.login(input.getEmail(), input.getPassord());
-
-      // Hent brukerinfo for response
-      Bruker bruker = authService.getBrukerByEmail(input.getEmail());
-
-      return new LoginResult(token, bruker);
+      return new LoginResult(token, input.getEmail());
     } catch (SecurityException e) {
       throw new RuntimeException(e.getMessage());
     }
   }
+
+  /** Deaktiverer brukeren; den kan ikke logge inn igjen selv om legitimasjonen er cachet */
+  @MutationMapping
+  @Tilgang(ADMINISTRATOR)
+  public Bruker deaktiverBruker(@Argument String brukerId) {
+    return authService.deaktiverBruker(brukerId);
+  }
+
+  /** Brukerinfo i svaret lastes bare når klienten ber om den */
+  @SchemaMapping(typeName = "LoginResult", field = "bruker")
+  public Bruker bruker(LoginResult loginResult) {
+    return authService.getBrukerByEmail(loginResult.getEmail());
+  }
 }
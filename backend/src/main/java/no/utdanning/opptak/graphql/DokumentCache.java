@@ -0,0 +1,170 @@
+package no.utdanning.opptak.graphql;
+
+import static graphql.execution.preparsed.persisted.PersistedQuerySupport.PERSISTED_QUERY_MARKER;
+
+import graphql.ExecutionInput;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.execution.preparsed.persisted.PersistedQueryError;
+import graphql.execution.preparsed.persisted.PersistedQueryIdInvalid;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.language.Document;
+import graphql.language.OperationDefinition;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Begrenset LRU-cache av parsede og validerte dokumenter, nøklet på sha256 av spørringsteksten.
+ * Støtter Automatic Persisted Queries: klienten sender extensions.persistedQuery.sha256Hash, og
+ * teksten kan utelates når dokumentet allerede ligger i cachen. Ved bom svarer vi med
+ * PersistedQueryNotFound, og klienten sender på nytt med full tekst.
+ */
+@Component
+public class DokumentCache implements PreparsedDocumentProvider {
+
+  /** Nøkkel i GraphQLContext som sier at kun query-operasjoner er tillatt (GET-forespørsler) */
+  public static final String KUN_QUERY = "kunQuery";
+
+  private final Map<String, PreparsedDocumentEntry> cache;
+  private final Counter treff;
+  private final Counter bom;
+
+  public DokumentCache(
+      @Value("${app.graphql.dokument-cache.maks-antall:500}") int maksAntall,
+      MeterRegistry meterRegistry) {
+    this.cache =
+        Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<String, PreparsedDocumentEntry> eldste) {
+                return size() > maksAntall;
+              }
+            });
+    this.treff = cacheMetrikk(meterRegistry, "treff");
+    this.bom = cacheMetrikk(meterRegistry, "bom");
+  }
+
+  @Override
+  public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(
+      ExecutionInput input, Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate) {
+    return CompletableFuture.completedFuture(hentDokument(input, parseAndValidate));
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public PreparsedDocumentEntry getDocument(
+      ExecutionInput input, Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate) {
+    return hentDokument(input, parseAndValidate);
+  }
+
+  private PreparsedDocumentEntry hentDokument(
+      ExecutionInput input, Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate) {
+    String query = input.getQuery();
+    boolean harQuery =
+        query != null && !query.isBlank() && !PERSISTED_QUERY_MARKER.equals(query);
+    String oppgittHash = persistedQueryHash(input.getExtensions());
+
+    if (!harQuery && oppgittHash == null) {
+      // Ingenting å slå opp på; graphql-java gir feilmeldingen
+      return parseAndValidate.apply(input);
+    }
+
+    String hash = harQuery ? sha256(query) : oppgittHash.toLowerCase();
+    if (harQuery && oppgittHash != null && !oppgittHash.equalsIgnoreCase(hash)) {
+      return persistedQueryFeil(new PersistedQueryIdInvalid(oppgittHash), oppgittHash);
+    }
+
+    PreparsedDocumentEntry entry = cache.get(hash);
+    if (entry != null) {
+      treff.increment();
+    } else {
+      bom.increment();
+      if (!harQuery) {
+        return persistedQueryFeil(new PersistedQueryNotFound(oppgittHash), oppgittHash);
+      }
+      entry = parseAndValidate.apply(input);
+      // Ugyldige dokumenter caches ikke, så feilaktige klienter ikke fortrenger gyldige oppslag
+      if (!entry.hasErrors()) {
+        cache.put(hash, entry);
+      }
+    }
+
+    if (Boolean.TRUE.equals(input.getGraphQLContext().get(KUN_QUERY))
+        && !entry.hasErrors()
+        && !erQuery(entry.getDocument(), input.getOperationName())) {
+      return new PreparsedDocumentEntry(
+          GraphqlErrorBuilder.newError()
+              .errorType(ErrorType.BAD_REQUEST)
+              .message("Kun query-operasjoner kan sendes med GET")
+              .build());
+    }
+    return entry;
+  }
+
+  /** Antall dokumenter i cachen */
+  public int size() {
+    return cache.size();
+  }
+
+  private static String persistedQueryHash(Map<String, Object> extensions) {
+    if (extensions != null
+        && extensions.get("persistedQuery") instanceof Map<?, ?> persistedQuery
+        && persistedQuery.get("sha256Hash") instanceof String hash
+        && !hash.isBlank()) {
+      return hash;
+    }
+    return null;
+  }
+
+  /** Samme feilformat som graphql-java sin egen APQ-støtte, som klientbibliotekene kjenner igjen */
+  private static PreparsedDocumentEntry persistedQueryFeil(PersistedQueryError feil, String hash) {
+    return new PreparsedDocumentEntry(
+        GraphqlErrorBuilder.newError()
+            .errorType(feil)
+            .message(feil.getMessage())
+            .extensions(Map.of("persistedQueryId", hash))
+            .build());
+  }
+
+  /** Sjekker at operasjonen som skal kjøres er en query (ukjent navn håndteres av graphql-java) */
+  private static boolean erQuery(Document document, String operationName) {
+    List<OperationDefinition> operasjoner = document.getDefinitionsOfType(OperationDefinition.class);
+    return operasjoner.stream()
+        .filter(
+            op ->
+                operationName == null
+                    || operationName.isEmpty()
+                    || operationName.equals(op.getName()))
+        .allMatch(op -> op.getOperation() == OperationDefinition.Operation.QUERY);
+  }
+
+  static String sha256(String tekst) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(tekst.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 er ikke tilgjengelig", e);
+    }
+  }
+
+  private static Counter cacheMetrikk(MeterRegistry registry, String resultat) {
+    return Counter.builder("graphql.dokument.cache")
+        .description("Oppslag i cachen for parsede og validerte GraphQL-dokumenter")
+        .tag("resultat", resultat)
+        .register(registry);
+  }
+}
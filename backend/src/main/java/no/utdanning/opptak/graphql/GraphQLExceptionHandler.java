@@ -1,8 +1,11 @@
 package no.utdanning.opptak.graphql;
 
+import graphql.ErrorClassification;
 import graphql.GraphQLError;
 import graphql.GraphqlErrorBuilder;
 import graphql.schema.DataFetchingEnvironment;
+import java.util.Map;
+import no.utdanning.opptak.service.security.InnloggingOverbelastetException;
 import org.springframework.graphql.execution.DataFetcherExceptionResolverAdapter;
 import org.springframework.graphql.execution.ErrorType;
 import org.springframework.stereotype.Component;
@@ -10,13 +13,33 @@ import org.springframework.stereotype.Component;
 @Component
 public class GraphQLExceptionHandler extends DataFetcherExceptionResolverAdapter {
 
+  /** Feiltype for midlertidig overbelastning; klienten kan prøve igjen etter retryAfter sekunder */
+  public static final ErrorClassification UNAVAILABLE =
+      ErrorClassification.errorClassification("UNAVAILABLE");
+
+  /** Extension med antall sekunder klienten bør vente; brukes også til Retry-After-headeren */
+  public static final String RETRY_AFTER = "retryAfter";
+
   @Override
   protected GraphQLError resolveToSingleError(Throwable ex, DataFetchingEnvironment env) {
-    // Log all errors for debugging
-    System.err.println("GraphQL Error: " + ex.getClass().getSimpleName() + " - " + ex.getMessage());
-    ex.printStackTrace();
+    // Forventede klientfeil logges uten stack trace; feilene telles i graphql.feil
+    if (ex instanceof IllegalArgumentException
+        || ex instanceof SecurityException
+        || ex instanceof InnloggingOverbelastetException) {
+      logger.debug("GraphQL-feil: " + ex.getClass().getSimpleName() + " - " + ex.getMessage());
+    } else {
+      logger.error("GraphQL-feil i " + env.getExecutionStepInfo().getPath(), ex);
+    }
 
-    if (ex instanceof IllegalArgumentException) {
+    if (ex instanceof InnloggingOverbelastetException overbelastet) {
+      return GraphqlErrorBuilder.newError()
+          .errorType(UNAVAILABLE)
+          .message(ex.getMessage())
+          .extensions(Map.of(RETRY_AFTER, overbelastet.getProvIgjenEtter().toSeconds()))
+          .path(env.getExecutionStepInfo().getPath())
+          .location(env.getField().getSourceLocation())
+          .build();
+    } else if (ex instanceof IllegalArgumentException) {
       return GraphqlErrorBuilder.newError()
           .errorType(ErrorType.BAD_REQUEST)
           .message(ex.getMessage())
@@ -0,0 +1,147 @@
+package no.utdanning.opptak.graphql;
+
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.schema.DataFetcher;
+import graphql.schema.GraphQLObjectType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.CompletionStage;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer-metrikker for GraphQL:
+ *
+ * <ul>
+ *   <li>graphql.operasjon – tid per operasjon, tagget med operasjonsnavn og utfall
+ *   <li>graphql.datafetcher – tid per ikke-triviell data fetcher (QueryMapping, SchemaMapping,
+ *       BatchMapping), tagget med type og felt
+ *   <li>graphql.feil – antall feil i svaret, tagget med ErrorType
+ * </ul>
+ *
+ * Trivielle property-fetchere måles ikke, da de bare leser felter på allerede hentede objekter.
+ */
+@Component
+public class GraphQLMetrikkInstrumentation extends SimplePerformantInstrumentation {
+
+  static final String ANONYM = "anonym";
+
+  private final MeterRegistry meterRegistry;
+
+  public GraphQLMetrikkInstrumentation(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+    return new MetrikkState();
+  }
+
+  @Override
+  public InstrumentationContext<ExecutionResult> beginExecution(
+      InstrumentationExecutionParameters parameters, InstrumentationState state) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    return SimpleInstrumentationContext.whenCompleted(
+        (resultat, unntak) -> {
+          String operasjon = ((MetrikkState) state).operasjon;
+          boolean feil = unntak != null || (resultat != null && !resultat.getErrors().isEmpty());
+          sample.stop(
+              Timer.builder("graphql.operasjon")
+                  .description("Tid per GraphQL-operasjon")
+                  .tag("operasjon", operasjon)
+                  .tag("utfall", feil ? "feil" : "suksess")
+                  .register(meterRegistry));
+          if (resultat != null) {
+            resultat.getErrors().forEach(e -> tellFeil(e, operasjon));
+          }
+        });
+  }
+
+  @Override
+  public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+      InstrumentationExecuteOperationParameters parameters, InstrumentationState state) {
+    String navn = parameters.getExecutionContext().getOperationDefinition().getName();
+    ((MetrikkState) state).operasjon = navn != null ? navn : ANONYM;
+    return super.beginExecuteOperation(parameters, state);
+  }
+
+  @Override
+  public DataFetcher<?> instrumentDataFetcher(
+      DataFetcher<?> dataFetcher,
+      InstrumentationFieldFetchParameters parameters,
+      InstrumentationState state) {
+    if (parameters.isTrivialDataFetcher()) {
+      return dataFetcher;
+    }
+    String type = ((GraphQLObjectType) parameters.getExecutionStepInfo().getObjectType()).getName();
+    String felt = parameters.getExecutionStepInfo().getFieldDefinition().getName();
+
+    return env -> {
+      Timer.Sample sample = Timer.start(meterRegistry);
+      Object resultat;
+      try {
+        resultat = dataFetcher.get(env);
+      } catch (Exception e) {
+        sample.stop(dataFetcherTimer(type, felt, "feil"));
+        throw e;
+      }
+      if (resultat instanceof CompletionStage<?> stage) {
+        // BatchMapping og asynkrone fetchere måles til verdien faktisk er klar
+        return stage.whenComplete(
+            (verdi, unntak) ->
+                sample.stop(dataFetcherTimer(type, felt, unntak != null ? "feil" : "suksess")));
+      }
+      sample.stop(dataFetcherTimer(type, felt, "suksess"));
+      return resultat;
+    };
+  }
+
+  private Timer dataFetcherTimer(String type, String felt, String utfall) {
+    return Timer.builder("graphql.datafetcher")
+        .description("Tid per GraphQL data fetcher")
+        .tag("type", type)
+        .tag("felt", felt)
+        .tag("utfall", utfall)
+        .register(meterRegistry);
+  }
+
+  private void tellFeil(GraphQLError feil, String operasjon) {
+    Counter.builder("graphql.feil")
+        .description("Feil i GraphQL-svar per ErrorType")
+        .tag("type", feiltype(feil))
+        .tag("operasjon", operasjon)
+        .register(meterRegistry)
+        .increment();
+  }
+
+  /**
+   * Enum-klassifiseringer gir navnet; navngitte klassifiseringer (ErrorClassification
+   * .errorClassification) gir sitt navn; andre (f.eks. PersistedQueryNotFound) gir klassenavnet
+   */
+  static String feiltype(GraphQLError feil) {
+    Object type = feil.getErrorType();
+    if (type == null) {
+      return "UKJENT";
+    }
+    if (type instanceof Enum<?> e) {
+      return e.name();
+    }
+    return type.getClass().isAnonymousClass()
+        ? type.toString()
+        : type.getClass().getSimpleName();
+  }
+
+  /** Operasjonsnavnet er først kjent etter parsing, så det holdes per kjøring */
+  private static final class MetrikkState implements InstrumentationState {
+    private volatile String operasjon = ANONYM;
+  }
+}
@@ -1,18 +1,23 @@
 package no.utdanning.opptak.graphql;
 
+import static no.utdanning.opptak.service.security.Rolletype.ADMINISTRATOR;
+import static no.utdanning.opptak.service.security.Rolletype.OPPTAKSLEDER;
+
 import no.utdanning.opptak.domain.Opptak;
 import no.utdanning.opptak.graphql.dto.EndreOpptaksStatusInput;
+import no.utdanning.opptak.graphql.dto.LeggTilUtdanningerInput;
+import no.utdanning.opptak.graphql.dto.LeggTilUtdanningerResultat;
 import no.utdanning.opptak.graphql.dto.OppdaterOpptakInput;
 import no.utdanning.opptak.graphql.dto.OpprettOpptakInput;
 import no.utdanning.opptak.service.OpptakService;
+import no.utdanning.opptak.service.security.Tilgang;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 
 /** GraphQL Mutation resolver for Opptak operasjoner. */
 @Controller
-@PreAuthorize("isAuthenticated()")
+@Tilgang
 public class OpptakMutationResolver {
 
   private final OpptakService opptakService;
@@ -23,42 +28,42 @@ public class OpptakMutationResolver {
 
   /** Oppretter nytt opptak */
   @MutationMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER')")
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER})
   public Opptak opprettOpptak(@Argument OpprettOpptakInput input) {
     return opptakService.opprettOpptak(input);
   }
 
   /** Oppdaterer eksisterende opptak */
   @MutationMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER')")
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER})
   public Opptak oppdaterOpptak(@Argument OppdaterOpptakInput input) {
     return opptakService.oppdaterOpptak(input);
   }
 
   /** Endrer status på opptak */
   @MutationMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER')")
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER})
   public Opptak endreOpptaksStatus(@Argument EndreOpptaksStatusInput input) {
     return opptakService.endreStatus(input);
   }
 
   /** Deaktiverer opptak (soft delete) */
   @MutationMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER')")
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER})
   public Opptak deaktiverOpptak(@Argument String opptakId) {
     return opptakService.deaktiverOpptak(opptakId);
   }
 
   /** Reaktiverer opptak */
   @MutationMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER')")
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER})
   public Opptak reaktiverOpptak(@Argument String opptakId) {
     return opptakService.reaktiverOpptak(opptakId);
   }
 
   /** Gir en organisasjon tilgang til samordnet opptak */
   @MutationMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER')")
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER})
   public Opptak giOrganisasjonOpptakTilgang(
       @Argument String opptakId, @Argument String organisasjonId) {
     return opptakService.giOrganisasjonTilgang(opptakId, organisasjonId);
@@ -66,9 +71,17 @@ public class OpptakMutationResolver {
 
   /** Fjerner organisasjons tilgang til opptak */
   @MutationMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER')")
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER})
   public Opptak fjernOrganisasjonOpptakTilgang(
       @Argument String opptakId, @Argument String organisasjonId) {
     return opptakService.fjernOrganisasjonTilgang(opptakId, organisasjonId);
   }
+
+  /** Legger til eller oppdaterer mange utdanninger i et opptak med én batch */
+  @MutationMapping
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER})
+  public LeggTilUtdanningerResultat leggTilUtdanningerIOpptak(
+      @Argument LeggTilUtdanningerInput input) {
+    return opptakService.leggTilUtdanninger(input);
+  }
 }
@@ -1,18 +1,25 @@
 package no.utdanning.opptak.graphql;
 
+import static no.utdanning.opptak.service.security.Rolletype.ADMINISTRATOR;
+import static no.utdanning.opptak.service.security.Rolletype.OPPTAKSLEDER;
+import static no.utdanning.opptak.service.security.Rolletype.SOKER;
+import static no.utdanning.opptak.service.security.Rolletype.SOKNADSBEHANDLER;
+
+import graphql.schema.DataFetchingFieldSelectionSet;
 import java.util.List;
+import java.util.Map;
 import no.utdanning.opptak.domain.Opptak;
 import no.utdanning.opptak.domain.Organisasjon;
 import no.utdanning.opptak.service.OpptakService;
+import no.utdanning.opptak.service.security.Tilgang;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
-import org.springframework.graphql.data.method.annotation.SchemaMapping;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 
 /** GraphQL Query resolver for Opptak operasjoner. */
 @Controller
-@PreAuthorize("isAuthenticated()")
+@Tilgang
 public class OpptakQueryResolver {
 
   private final OpptakService opptakService;
@@ -23,41 +30,41 @@ public class OpptakQueryResolver {
 
   /** Henter alle opptak som bruker har tilgang til */
   @QueryMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER', 'SOKNADSBEHANDLER', 'SOKER')")
-  public List<Opptak> alleOpptak() {
-    return opptakService.findAll();
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER, SOKNADSBEHANDLER, SOKER})
+  public List<Opptak> alleOpptak(DataFetchingFieldSelectionSet selectionSet) {
+    return opptakService.findAll(Projeksjoner.opptak(selectionSet));
   }
 
   /** Henter opptak ved ID */
   @QueryMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER', 'SOKNADSBEHANDLER', 'SOKER')")
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER, SOKNADSBEHANDLER, SOKER})
   public Opptak opptak(@Argument String id) {
     return opptakService.findById(id);
   }
 
   /** Henter opptak som en organisasjon administrerer */
   @QueryMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER')")
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER})
   public List<Opptak> opptakForAdministratorOrganisasjon(@Argument String organisasjonId) {
     return opptakService.findByAdministratorOrganisasjon(organisasjonId);
   }
 
   /** Henter opptak hvor en organisasjon kan legge til utdanninger */
   @QueryMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER')")
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER})
   public List<Opptak> tilgjengeligeOpptakForOrganisasjon(@Argument String organisasjonId) {
     return opptakService.findTilgjengeligeForOrganisasjon(organisasjonId);
   }
 
-  /** Henter administrator organisasjon for opptak */
-  @SchemaMapping(field = "administrator")
-  public Organisasjon administrator(Opptak opptak) {
-    return opptakService.getAdministratorOrganisasjon(opptak);
+  /** Henter administrator organisasjon for alle opptak på samme nivå i én spørring */
+  @BatchMapping(field = "administrator")
+  public Map<Opptak, Organisasjon> administrator(List<Opptak> opptakListe) {
+    return opptakService.getAdministratorOrganisasjoner(opptakListe);
   }
 
-  /** Henter organisasjoner som har tilgang til opptak */
-  @SchemaMapping(field = "tillatteTilgangsorganisasjoner")
-  public List<Organisasjon> tillatteTilgangsorganisasjoner(Opptak opptak) {
-    return opptakService.getTillateTilgangsorganisasjoner(opptak);
+  /** Henter organisasjoner som har tilgang til opptak, for alle opptak i én spørring */
+  @BatchMapping(field = "tillatteTilgangsorganisasjoner")
+  public Map<Opptak, List<Organisasjon>> tillatteTilgangsorganisasjoner(List<Opptak> opptakListe) {
+    return opptakService.getTillateTilgangsorganisasjoner(opptakListe);
   }
 }
@@ -1,12 +1,14 @@
 package no.utdanning.opptak.graphql;
 
+import static no.utdanning.opptak.service.security.Rolletype.ADMINISTRATOR;
+
 import no.utdanning.opptak.domain.Organisasjon;
 import no.utdanning.opptak.graphql.dto.OppdaterOrganisasjonInput;
 import no.utdanning.opptak.graphql.dto.OpprettOrganisasjonInput;
 import no.utdanning.opptak.service.OrganisasjonService;
+import no.utdanning.opptak.service.security.Tilgang;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 
 /**
@@ -14,7 +16,7 @@ import org.springframework.stereotype.Controller;
  * OrganisasjonService.
  */
 @Controller
-@PreAuthorize("isAuthenticated()") // Require authentication for all methods
+@Tilgang
 public class OrganisasjonMutationResolver {
 
   private final OrganisasjonService organisasjonService;
@@ -24,25 +26,25 @@ public class OrganisasjonMutationResolver {
   }
 
   @MutationMapping
-  @PreAuthorize("hasRole('ADMINISTRATOR')")
+  @Tilgang(ADMINISTRATOR)
   public Organisasjon opprettOrganisasjon(@Argument OpprettOrganisasjonInput input) {
     return organisasjonService.opprettOrganisasjon(input);
   }
 
   @MutationMapping
-  @PreAuthorize("hasRole('ADMINISTRATOR')")
+  @Tilgang(ADMINISTRATOR)
   public Organisasjon oppdaterOrganisasjon(@Argument OppdaterOrganisasjonInput input) {
     return organisasjonService.oppdaterOrganisasjon(input);
   }
 
   @MutationMapping
-  @PreAuthorize("hasRole('ADMINISTRATOR')")
+  @Tilgang(ADMINISTRATOR)
   public Organisasjon deaktiverOrganisasjon(@Argument String id) {
     return organisasjonService.deaktiverOrganisasjon(id);
   }
 
   @MutationMapping
-  @PreAuthorize("hasRole('ADMINISTRATOR')")
+  @Tilgang(ADMINISTRATOR)
   public Organisasjon reaktiverOrganisasjon(@Argument String id) {
     return organisasjonService.reaktiverOrganisasjon(id);
   }
@@ -1,12 +1,19 @@
 package no.utdanning.opptak.graphql;
 
+import static no.utdanning.opptak.service.security.Rolletype.ADMINISTRATOR;
+import static no.utdanning.opptak.service.security.Rolletype.OPPTAKSLEDER;
+import static no.utdanning.opptak.service.security.Rolletype.SOKER;
+import static no.utdanning.opptak.service.security.Rolletype.SOKNADSBEHANDLER;
+
+import graphql.schema.DataFetchingFieldSelectionSet;
 import java.util.List;
 import no.utdanning.opptak.domain.Organisasjon;
 import no.utdanning.opptak.graphql.dto.OrganisasjonFilter;
+import no.utdanning.opptak.graphql.dto.PageInput;
 import no.utdanning.opptak.service.OrganisasjonService;
+import no.utdanning.opptak.service.security.Tilgang;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 
 /**
@@ -14,7 +21,7 @@ import org.springframework.stereotype.Controller;
  * OrganisasjonService.
  */
 @Controller
-@PreAuthorize("isAuthenticated()") // Require authentication for all methods
+@Tilgang
 public class OrganisasjonQueryResolver {
 
   private final OrganisasjonService organisasjonService;
@@ -24,14 +31,23 @@ public class OrganisasjonQueryResolver {
   }
 
   @QueryMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER', 'SOKNADSBEHANDLER', 'SOKER')")
-  public List<Organisasjon> organisasjoner(@Argument OrganisasjonFilter filter) {
-    return organisasjonService.findAll(filter);
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER, SOKNADSBEHANDLER, SOKER})
+  public List<Organisasjon> organisasjoner(
+      @Argument OrganisasjonFilter filter,
+      @Argument PageInput page,
+      DataFetchingFieldSelectionSet selectionSet) {
+    return organisasjonService.findAll(filter, page, Projeksjoner.organisasjon(selectionSet));
   }
 
   @QueryMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER', 'SOKNADSBEHANDLER', 'SOKER')")
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER, SOKNADSBEHANDLER, SOKER})
   public Organisasjon organisasjon(@Argument String id) {
     return organisasjonService.findById(id);
   }
+
+  @QueryMapping
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER, SOKNADSBEHANDLER, SOKER})
+  public List<Organisasjon> sokOrganisasjoner(@Argument String tekst, @Argument Integer first) {
+    return organisasjonService.sok(tekst, first);
+  }
 }
@@ -0,0 +1,124 @@
+package no.utdanning.opptak.graphql;
+
+import graphql.schema.DataFetchingFieldSelectionSet;
+import graphql.schema.SelectedField;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import no.utdanning.opptak.repository.Projeksjon;
+
+/**
+ * Oversetter GraphQL-feltene klienten har valgt til kolonneutvalg for repositoryene. Felter som
+ * løses av egne resolvere peker på nøkkelkolonnen de trenger. Ukjente felter gir alle kolonner, så
+ * et nytt felt i skjemaet aldri får en tom verdi fordi kolonnen ikke ble hentet.
+ */
+final class Projeksjoner {
+
+  private static final Map<String, List<String>> UTDANNING_FELTER =
+      Map.ofEntries(
+          Map.entry("id", List.of()),
+          Map.entry("navn", List.of()),
+          Map.entry("studienivaa", List.of("studienivaa")),
+          Map.entry("studiepoeng", List.of("studiepoeng")),
+          Map.entry("varighet", List.of("varighet")),
+          Map.entry("studiested", List.of("studiested")),
+          Map.entry("undervisningssprak", List.of("undervisningssprak")),
+          Map.entry("beskrivelse", List.of("beskrivelse")),
+          Map.entry("opprettet", List.of("opprettet")),
+          Map.entry("aktiv", List.of("aktiv")),
+          Map.entry("starttidspunkt", List.of("starttidspunkt")),
+          Map.entry("studieform", List.of("studieform")),
+          Map.entry("organisasjon", List.of()),
+          Map.entry("__typename", List.of()));
+
+  /** id og navn trengs for sortering og cursor, organisasjon_id for tilgangskontroll og batching */
+  private static final List<String> UTDANNING_ALLTID = List.of("id", "navn", "organisasjon_id");
+
+  private static final Map<String, List<String>> OPPTAK_FELTER =
+      Map.ofEntries(
+          Map.entry("id", List.of()),
+          Map.entry("navn", List.of()),
+          Map.entry("type", List.of("type")),
+          Map.entry("aar", List.of("aar")),
+          Map.entry("soknadsfrist", List.of("soknadsfrist")),
+          Map.entry("svarfrist", List.of("svarfrist")),
+          Map.entry("maxUtdanningerPerSoknad", List.of("max_utdanninger_per_soknad")),
+          Map.entry("status", List.of("status")),
+          Map.entry("opptaksomgang", List.of("opptaksomgang")),
+          Map.entry("beskrivelse", List.of("beskrivelse")),
+          Map.entry("opprettet", List.of("opprettet")),
+          Map.entry("aktiv", List.of()),
+          Map.entry("samordnet", List.of("samordnet")),
+          Map.entry("administrator", List.of()),
+          Map.entry("utdanninger", List.of()),
+          Map.entry("tillatteTilgangsorganisasjoner", List.of()),
+          Map.entry("__typename", List.of()));
+
+  /** administrator_organisasjon_id og aktiv brukes av tilgangskontroll og batching */
+  private static final List<String> OPPTAK_ALLTID =
+      List.of("id", "navn", "administrator_organisasjon_id", "aktiv");
+
+  private static final Map<String, List<String>> ORGANISASJON_FELTER =
+      Map.ofEntries(
+          Map.entry("id", List.of()),
+          Map.entry("navn", List.of()),
+          Map.entry("kortNavn", List.of("kort_navn")),
+          Map.entry("type", List.of()),
+          Map.entry("organisasjonsnummer", List.of("organisasjonsnummer")),
+          Map.entry("adresse", List.of("adresse")),
+          Map.entry("nettside", List.of("nettside")),
+          Map.entry("opprettet", List.of("opprettet")),
+          Map.entry("aktiv", List.of()),
+          // Finnes i skjemaet, men ikke i tabellen
+          Map.entry("epost", List.of()),
+          Map.entry("telefon", List.of()),
+          Map.entry("poststed", List.of()),
+          Map.entry("postnummer", List.of()),
+          Map.entry("utdanninger", List.of()),
+          Map.entry("administrerteOpptak", List.of()),
+          Map.entry("__typename", List.of()));
+
+  /** navn, type og aktiv brukes av filtreringen i OrganisasjonService */
+  private static final List<String> ORGANISASJON_ALLTID = List.of("id", "navn", "type", "aktiv");
+
+  private Projeksjoner() {}
+
+  /** Utdanning-kolonner for feltene under gitt sti, f.eks. "content" eller "edges/node" */
+  static Projeksjon utdanning(DataFetchingFieldSelectionSet selectionSet, String sti) {
+    return projeksjon(selectionSet, sti, UTDANNING_FELTER, UTDANNING_ALLTID);
+  }
+
+  /** Opptak-kolonner for en liste av opptak */
+  static Projeksjon opptak(DataFetchingFieldSelectionSet selectionSet) {
+    return projeksjon(selectionSet, null, OPPTAK_FELTER, OPPTAK_ALLTID);
+  }
+
+  /** Organisasjon-kolonner for en liste av organisasjoner */
+  static Projeksjon organisasjon(DataFetchingFieldSelectionSet selectionSet) {
+    return projeksjon(selectionSet, null, ORGANISASJON_FELTER, ORGANISASJON_ALLTID);
+  }
+
+  private static Projeksjon projeksjon(
+      DataFetchingFieldSelectionSet selectionSet,
+      String sti,
+      Map<String, List<String>> felter,
+      List<String> alltid) {
+    if (selectionSet == null) {
+      return Projeksjon.alle();
+    }
+
+    List<SelectedField> valgte =
+        sti == null ? selectionSet.getImmediateFields() : selectionSet.getFields(sti + "/*");
+
+    Set<String> kolonner = new LinkedHashSet<>(alltid);
+    for (SelectedField felt : valgte) {
+      List<String> feltKolonner = felter.get(felt.getName());
+      if (feltKolonner == null) {
+        return Projeksjon.alle();
+      }
+      kolonner.addAll(feltKolonner);
+    }
+    return Projeksjon.av(kolonner);
+  }
+}
@@ -1,27 +1,106 @@
 package no.utdanning.opptak.graphql;
 
+import graphql.schema.DataFetchingEnvironment;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import no.utdanning.opptak.domain.*;
 import no.utdanning.opptak.repository.OpptakRepository;
+import org.dataloader.DataLoader;
+import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
 
+/**
+ * Resolver for utdanning-lister under Organisasjon og Opptak. Listene hentes via DataLoader, slik
+ * at alle foreldre på samme nivå i responsen løses med én gruppert spørring.
+ */
 @Controller
 public class QueryResolver {
 
-  private final OpptakRepository repository;
+  static final String ORGANISASJON_UTDANNINGER = "organisasjonUtdanninger";
+  static final String OPPTAK_UTDANNINGER = "opptakUtdanninger";
 
-  public QueryResolver(OpptakRepository repository) {
-    this.repository = repository;
+  /** Uten limit hentes alle utdanningene til forelderen, som før limit fantes */
+  static final int UTEN_LIMIT = Integer.MAX_VALUE;
+
+  /** Øvre grense for en oppgitt limit */
+  static final int MAKS_LIMIT = 500;
+
+  public QueryResolver(OpptakRepository repository, BatchLoaderRegistry registry) {
+    registry
+        .<ForelderNokkel, List<Utdanning>>forName(ORGANISASJON_UTDANNINGER)
+        .registerMappedBatchLoader(
+            (nokler, env) ->
+                Mono.fromSupplier(
+                    () -> lastGruppert(nokler, repository::findUtdanningerByOrganisasjonIds)));
+
+    registry
+        .<ForelderNokkel, List<UtdanningIOpptak>>forName(OPPTAK_UTDANNINGER)
+        .registerMappedBatchLoader(
+            (nokler, env) ->
+                Mono.fromSupplier(
+                    () -> lastGruppert(nokler, repository::findUtdanningerByOpptakIds)));
   }
 
   @SchemaMapping(typeName = "Organisasjon", field = "utdanninger")
-  public List<Utdanning> organisasjonUtdanninger(Organisasjon organisasjon) {
-    return repository.findUtdanningerByOrganisasjonId(organisasjon.getId());
+  public CompletableFuture<List<Utdanning>> organisasjonUtdanninger(
+      Organisasjon organisasjon, @Argument Integer limit, DataFetchingEnvironment env) {
+    DataLoader<ForelderNokkel, List<Utdanning>> loader =
+        env.getDataLoader(ORGANISASJON_UTDANNINGER);
+    return loader.load(new ForelderNokkel(organisasjon.getId(), normaliserLimit(limit)));
   }
 
   @SchemaMapping(typeName = "Opptak", field = "utdanninger")
-  public List<UtdanningIOpptak> opptakUtdanninger(Opptak opptak) {
-    return repository.findUtdanningerByOpptakId(opptak.getId());
+  public CompletableFuture<List<UtdanningIOpptak>> opptakUtdanninger(
+      Opptak opptak, @Argument Integer limit, DataFetchingEnvironment env) {
+    DataLoader<ForelderNokkel, List<UtdanningIOpptak>> loader =
+        env.getDataLoader(OPPTAK_UTDANNINGER);
+    return loader.load(new ForelderNokkel(opptak.getId(), normaliserLimit(limit)));
+  }
+
+  /** Begrenser en oppgitt limit til [1, MAKS_LIMIT]; uten limit hentes alle */
+  static int normaliserLimit(Integer limit) {
+    if (limit == null) {
+      return UTEN_LIMIT;
+    }
+    return Math.max(1, Math.min(limit, MAKS_LIMIT));
+  }
+
+  /**
+   * Kjører én spørring per distinkt limit (normalt bare én per nivå) og fordeler resultatet på
+   * foreldrene i minnet. Foreldre uten treff får en tom liste.
+   */
+  private static <V> Map<ForelderNokkel, List<V>> lastGruppert(
+      Set<ForelderNokkel> nokler, GruppertSporring<V> sporring) {
+    Map<Integer, List<String>> idsPerLimit =
+        nokler.stream()
+            .collect(
+                Collectors.groupingBy(
+                    ForelderNokkel::limit,
+                    Collectors.mapping(ForelderNokkel::id, Collectors.toList())));
+
+    Map<ForelderNokkel, List<V>> result = new HashMap<>();
+    idsPerLimit.forEach(
+        (limit, ids) -> {
+          Map<String, List<V>> gruppert = sporring.hent(ids, limit);
+          for (String id : ids) {
+            result.put(new ForelderNokkel(id, limit), gruppert.getOrDefault(id, List.of()));
+          }
+        });
+    return result;
+  }
+
+  /** DataLoader-nøkkel: forelderens ID og maks antall barn som skal hentes */
+  record ForelderNokkel(String id, int limit) {}
+
+  @FunctionalInterface
+  private interface GruppertSporring<V> {
+    Map<String, List<V>> hent(List<String> ids, int limit);
   }
 }
@@ -0,0 +1,27 @@
+package no.utdanning.opptak.graphql;
+
+import java.util.Map;
+import no.utdanning.opptak.config.Sporringsbudsjett;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Flytter kostnadsbudsjettet som JwtAuthenticationFilter har lagt på requesten over i
+ * GraphQLContext, der SporringskostnadInstrumentation leser det.
+ */
+@Component
+public class SporringsbudsjettInterceptor implements WebGraphQlInterceptor {
+
+  @Override
+  public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+    if (request.getAttributes().get(Sporringsbudsjett.REQUEST_ATTRIBUTT) instanceof Integer b) {
+      request.configureExecutionInput(
+          (input, builder) ->
+              builder.graphQLContext(Map.of(SporringskostnadInstrumentation.BUDSJETT, b)).build());
+    }
+    return chain.next(request);
+  }
+}
@@ -0,0 +1,163 @@
+package no.utdanning.opptak.graphql;
+
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.CoercedVariables;
+import graphql.language.Document;
+import graphql.schema.GraphQLNamedType;
+import graphql.schema.GraphQLOutputType;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLTypeUtil;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Statisk kostnadsberegning for en GraphQL-operasjon, før den kjøres. Kostnaden er et estimat av
+ * antall objekter som må hentes:
+ *
+ * <ul>
+ *   <li>skalarfelter koster 0 (med unntak av feltene i FELTVEKTER)
+ *   <li>et objektfelt koster 1 pluss kostnaden til feltene under
+ *   <li>et listefelt koster listestørrelse × (1 + kostnaden til feltene under)
+ * </ul>
+ *
+ * Listestørrelsen hentes fra argumentene first, limit eller page.size, på feltet selv eller på
+ * forelderen (for UtdanningPage.content og UtdanningConnection.edges). Lister uten slike argumenter
+ * som returnerer alle radene (UBEGRENSEDE_LISTER) regnes som MAKS_LISTESTORRELSE; andre lister uten
+ * argumenter, som roller og toppliste på dashbordet, regnes som STANDARD_LISTESTORRELSE.
+ */
+public final class Sporringskostnad {
+
+  /** Antatt størrelse på små lister som ikke har first, limit eller page */
+  static final int STANDARD_LISTESTORRELSE = 20;
+
+  /** Samme øvre grense som QueryResolver.MAKS_LIMIT */
+  static final int MAKS_LISTESTORRELSE = 500;
+
+  /**
+   * Lister som returnerer alle radene når first, limit og page mangler. De regnes som
+   * MAKS_LISTESTORRELSE, så en spørring uten begrensning aldri blir billigere enn en med.
+   */
+  private static final Set<String> UBEGRENSEDE_LISTER =
+      Set.of(
+          "Query.organisasjoner",
+          "Query.alleOpptak",
+          "Query.opptakForAdministrator",
+          "Query.tilgjengeligeOpptakForOrganisasjon",
+          "Organisasjon.utdanninger",
+          "Organisasjon.administrerteOpptak",
+          "Opptak.utdanninger",
+          "Opptak.tillatteTilgangsorganisasjoner");
+
+  /** Ekstra vekt for felter som gir mer databasearbeid enn vanlige kolonner */
+  private static final Map<String, Integer> FELTVEKTER =
+      Map.of(
+          "UtdanningPage.totalElements", 5,
+          "UtdanningPage.totalPages", 5);
+
+  private Sporringskostnad() {}
+
+  /** Beregner kostnaden for operasjonen med gitt navn (null for eneste operasjon i dokumentet) */
+  public static long beregn(
+      GraphQLSchema schema,
+      Document document,
+      String operationName,
+      CoercedVariables variables) {
+    QueryTraverser traverser =
+        QueryTraverser.newQueryTraverser()
+            .schema(schema)
+            .document(document)
+            .operationName(operationName)
+            .coercedVariables(variables)
+            .build();
+
+    // Post-order: barna besøkes før forelderen, så summen per forelder er klar når den besøkes
+    Map<QueryVisitorFieldEnvironment, Long> kostnadUnder = new HashMap<>();
+    traverser.visitPostOrder(
+        new QueryVisitorStub() {
+          @Override
+          public void visitField(QueryVisitorFieldEnvironment env) {
+            long kostnad = feltkostnad(env, kostnadUnder.getOrDefault(env, 0L));
+            kostnadUnder.merge(env.getParentEnvironment(), kostnad, Sporringskostnad::pluss);
+          }
+        });
+    return kostnadUnder.getOrDefault(null, 0L);
+  }
+
+  private static long feltkostnad(QueryVisitorFieldEnvironment env, long barn) {
+    // Introspeksjon (GraphiQL, verktøy) og __typename regnes ikke med
+    if (env.isTypeNameIntrospectionField() || env.getFieldDefinition().getName().startsWith("__")) {
+      return 0;
+    }
+
+    GraphQLOutputType type = env.getFieldDefinition().getType();
+    if (GraphQLTypeUtil.isLeaf(GraphQLTypeUtil.unwrapAll(type))) {
+      return FELTVEKTER.getOrDefault(feltnavn(env), 0);
+    }
+
+    if (erListe(type)) {
+      return ganger(listestorrelse(env), pluss(1, barn));
+    }
+    return pluss(1, barn);
+  }
+
+  /** Størrelse fra feltets egne argumenter, ellers fra en forelder som ikke selv er en liste */
+  private static int listestorrelse(QueryVisitorFieldEnvironment env) {
+    Integer storrelse = storrelseFraArgumenter(env.getArguments());
+    if (storrelse == null && env.getParentEnvironment() != null) {
+      QueryVisitorFieldEnvironment forelder = env.getParentEnvironment();
+      if (!erListe(forelder.getFieldDefinition().getType())) {
+        storrelse = storrelseFraArgumenter(forelder.getArguments());
+      }
+    }
+    if (storrelse == null) {
+      return UBEGRENSEDE_LISTER.contains(feltnavn(env))
+          ? MAKS_LISTESTORRELSE
+          : STANDARD_LISTESTORRELSE;
+    }
+    return Math.max(1, Math.min(storrelse, MAKS_LISTESTORRELSE));
+  }
+
+  private static Integer storrelseFraArgumenter(Map<String, Object> argumenter) {
+    if (argumenter.get("first") instanceof Number first) {
+      return first.intValue();
+    }
+    if (argumenter.get("limit") instanceof Number limit) {
+      return limit.intValue();
+    }
+    if (argumenter.containsKey("page")) {
+      // PageInput har size = 20 som standard
+      if (argumenter.get("page") instanceof Map<?, ?> page && page.get("size") instanceof Number s) {
+        return s.intValue();
+      }
+      return STANDARD_LISTESTORRELSE;
+    }
+    return null;
+  }
+
+  /** Feltet som Type.felt, f.eks. Organisasjon.utdanninger */
+  private static String feltnavn(QueryVisitorFieldEnvironment env) {
+    return ((GraphQLNamedType) GraphQLTypeUtil.unwrapAll(env.getParentType())).getName()
+        + "."
+        + env.getFieldDefinition().getName();
+  }
+
+  private static boolean erListe(GraphQLOutputType type) {
+    return GraphQLTypeUtil.isList(GraphQLTypeUtil.unwrapNonNull(type));
+  }
+
+  private static long pluss(long a, long b) {
+    long sum = a + b;
+    return sum < 0 ? Long.MAX_VALUE : sum;
+  }
+
+  private static long ganger(long a, long b) {
+    try {
+      return Math.multiplyExact(a, b);
+    } catch (ArithmeticException e) {
+      return Long.MAX_VALUE;
+    }
+  }
+}
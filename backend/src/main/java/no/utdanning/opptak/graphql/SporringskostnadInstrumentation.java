@@ -0,0 +1,80 @@
+package no.utdanning.opptak.graphql;
+
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.Map;
+import no.utdanning.opptak.config.Sporringsbudsjett;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Avviser operasjoner med høyere kostnad enn budsjettet til innlogget bruker før de kjøres.
+ * Budsjettet legges i GraphQLContext av SporringsbudsjettInterceptor; uten budsjett brukes det
+ * anonyme. Kostnaden registreres i metrikken graphql.sporring.kostnad.
+ */
+@Component
+public class SporringskostnadInstrumentation extends SimplePerformantInstrumentation {
+
+  /** Nøkkel i GraphQLContext for budsjettet til gjeldende forespørsel */
+  public static final String BUDSJETT = "sporringsbudsjett";
+
+  private final Sporringsbudsjett sporringsbudsjett;
+  private final DistributionSummary godtatt;
+  private final DistributionSummary avvist;
+
+  public SporringskostnadInstrumentation(
+      Sporringsbudsjett sporringsbudsjett, MeterRegistry meterRegistry) {
+    this.sporringsbudsjett = sporringsbudsjett;
+    this.godtatt = kostnadMetrikk(meterRegistry, "godtatt");
+    this.avvist = kostnadMetrikk(meterRegistry, "avvist");
+  }
+
+  @Override
+  public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+      InstrumentationExecuteOperationParameters parameters, InstrumentationState state) {
+    ExecutionContext context = parameters.getExecutionContext();
+
+    long kostnad =
+        Sporringskostnad.beregn(
+            context.getGraphQLSchema(),
+            context.getDocument(),
+            context.getOperationDefinition().getName(),
+            context.getCoercedVariables());
+    Integer budsjett = context.getGraphQLContext().get(BUDSJETT);
+    if (budsjett == null) {
+      budsjett = sporringsbudsjett.getAnonymtBudsjett();
+    }
+
+    if (kostnad > budsjett) {
+      avvist.record(kostnad);
+      GraphQLError feil =
+          GraphqlErrorBuilder.newError()
+              .errorType(ErrorType.BAD_REQUEST)
+              .message(
+                  "Spørringen er for kostbar: kostnad " + kostnad + " overstiger budsjett " + budsjett)
+              .extensions(Map.of("kostnad", kostnad, "budsjett", budsjett))
+              .build();
+      throw new AbortExecutionException(List.of(feil));
+    }
+
+    godtatt.record(kostnad);
+    return super.beginExecuteOperation(parameters, state);
+  }
+
+  private static DistributionSummary kostnadMetrikk(MeterRegistry registry, String utfall) {
+    return DistributionSummary.builder("graphql.sporring.kostnad")
+        .description("Beregnet kostnad per GraphQL-operasjon")
+        .tag("utfall", utfall)
+        .register(registry);
+  }
+}
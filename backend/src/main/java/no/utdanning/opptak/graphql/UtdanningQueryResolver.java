@@ -1,20 +1,28 @@
 package no.utdanning.opptak.graphql;
 
+import static no.utdanning.opptak.service.security.Rolletype.ADMINISTRATOR;
+import static no.utdanning.opptak.service.security.Rolletype.OPPTAKSLEDER;
+import static no.utdanning.opptak.service.security.Rolletype.SOKNADSBEHANDLER;
+
+import graphql.schema.DataFetchingFieldSelectionSet;
+import java.util.List;
+import java.util.Map;
 import no.utdanning.opptak.domain.Organisasjon;
 import no.utdanning.opptak.domain.Utdanning;
 import no.utdanning.opptak.graphql.dto.PageInput;
+import no.utdanning.opptak.graphql.dto.UtdanningConnection;
 import no.utdanning.opptak.graphql.dto.UtdanningFilter;
 import no.utdanning.opptak.graphql.dto.UtdanningPage;
 import no.utdanning.opptak.service.UtdanningService;
+import no.utdanning.opptak.service.security.Tilgang;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
-import org.springframework.graphql.data.method.annotation.SchemaMapping;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 
 /** GraphQL resolver for utdanning queries. Delegerer all forretningslogikk til UtdanningService. */
 @Controller
-@PreAuthorize("isAuthenticated()") // Require authentication for all methods
+@Tilgang
 public class UtdanningQueryResolver {
 
   private final UtdanningService utdanningService;
@@ -24,27 +32,83 @@ public class UtdanningQueryResolver {
   }
 
   @QueryMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER', 'SOKNADSBEHANDLER')")
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER, SOKNADSBEHANDLER})
   public Utdanning utdanning(@Argument String id) {
     return utdanningService.findById(id);
   }
 
   @QueryMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER', 'SOKNADSBEHANDLER')")
-  public UtdanningPage utdanninger(@Argument UtdanningFilter filter, @Argument PageInput page) {
-    return utdanningService.findAll(filter, page);
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER, SOKNADSBEHANDLER})
+  public UtdanningPage utdanninger(
+      @Argument UtdanningFilter filter,
+      @Argument PageInput page,
+      DataFetchingFieldSelectionSet selectionSet) {
+    return utdanningService.findAll(
+        filter,
+        page,
+        trengerTotal(selectionSet),
+        Projeksjoner.utdanning(selectionSet, "content"));
   }
 
   @QueryMapping
-  @PreAuthorize("hasAnyRole('ADMINISTRATOR', 'OPPTAKSLEDER', 'SOKNADSBEHANDLER')")
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER, SOKNADSBEHANDLER})
   public UtdanningPage utdanningerForOrganisasjon(
-      @Argument String organisasjonId, @Argument UtdanningFilter filter, @Argument PageInput page) {
-    return utdanningService.findByOrganisasjon(organisasjonId, filter, page);
+      @Argument String organisasjonId,
+      @Argument UtdanningFilter filter,
+      @Argument PageInput page,
+      DataFetchingFieldSelectionSet selectionSet) {
+    return utdanningService.findByOrganisasjon(
+        organisasjonId,
+        filter,
+        page,
+        trengerTotal(selectionSet),
+        Projeksjoner.utdanning(selectionSet, "content"));
+  }
+
+  @QueryMapping
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER, SOKNADSBEHANDLER})
+  public UtdanningConnection utdanningerConnection(
+      @Argument UtdanningFilter filter,
+      @Argument Integer first,
+      @Argument String after,
+      DataFetchingFieldSelectionSet selectionSet) {
+    return utdanningService.findAllConnection(
+        filter, first, after, Projeksjoner.utdanning(selectionSet, "edges/node"));
+  }
+
+  @QueryMapping
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER, SOKNADSBEHANDLER})
+  public UtdanningConnection utdanningerForOrganisasjonConnection(
+      @Argument String organisasjonId,
+      @Argument UtdanningFilter filter,
+      @Argument Integer first,
+      @Argument String after,
+      DataFetchingFieldSelectionSet selectionSet) {
+    return utdanningService.findByOrganisasjonConnection(
+        organisasjonId,
+        filter,
+        first,
+        after,
+        Projeksjoner.utdanning(selectionSet, "edges/node"));
+  }
+
+  @QueryMapping
+  @Tilgang({ADMINISTRATOR, OPPTAKSLEDER, SOKNADSBEHANDLER})
+  public List<Utdanning> sokUtdanninger(@Argument String tekst, @Argument Integer first) {
+    return utdanningService.sok(tekst, first);
+  }
+
+  /**
+   * Batch mapping for å fylle organisasjon-feltet i Utdanning. Alle utdanninger på samme nivå i
+   * responsen løses med én spørring mot organisasjon.
+   */
+  @BatchMapping(typeName = "Utdanning", field = "organisasjon")
+  public Map<Utdanning, Organisasjon> organisasjon(List<Utdanning> utdanninger) {
+    return utdanningService.getOrganisasjoner(utdanninger);
   }
 
-  /** Schema mapping for å fylle organisasjon-feltet i Utdanning */
-  @SchemaMapping(typeName = "Utdanning", field = "organisasjon")
-  public Organisasjon organisasjon(Utdanning utdanning) {
-    return utdanningService.getOrganisasjon(utdanning);
+  /** Totalt antall trengs bare når klienten har valgt totalElements eller totalPages */
+  private static boolean trengerTotal(DataFetchingFieldSelectionSet selectionSet) {
+    return selectionSet == null || selectionSet.containsAnyOf("totalElements", "totalPages");
   }
 }
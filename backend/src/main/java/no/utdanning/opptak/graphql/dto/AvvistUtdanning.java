@@ -0,0 +1,20 @@
+package no.utdanning.opptak.graphql.dto;
+
+/** En utdanning som ikke ble lagt til i opptaket, og hvorfor */
+public class AvvistUtdanning {
+  private final String utdanningId;
+  private final String arsak;
+
+  public AvvistUtdanning(String utdanningId, String arsak) {
+    this.utdanningId = utdanningId;
+    this.arsak = arsak;
+  }
+
+  public String getUtdanningId() {
+    return utdanningId;
+  }
+
+  public String getArsak() {
+    return arsak;
+  }
+}
@@ -0,0 +1,28 @@
+package no.utdanning.opptak.graphql.dto;
+
+import java.util.List;
+
+/** Input for å legge til eller oppdatere mange utdanninger i et opptak på én gang. */
+public class LeggTilUtdanningerInput {
+
+  private String opptakId;
+  private List<UtdanningPlasserInput> utdanninger;
+
+  public LeggTilUtdanningerInput() {}
+
+  public String getOpptakId() {
+    return opptakId;
+  }
+
+  public void setOpptakId(String opptakId) {
+    this.opptakId = opptakId;
+  }
+
+  public List<UtdanningPlasserInput> getUtdanninger() {
+    return utdanninger;
+  }
+
+  public void setUtdanninger(List<UtdanningPlasserInput> utdanninger) {
+    this.utdanninger = utdanninger;
+  }
+}
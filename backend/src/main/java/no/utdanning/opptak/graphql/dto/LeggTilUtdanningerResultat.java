@@ -0,0 +1,33 @@
+package no.utdanning.opptak.graphql.dto;
+
+import java.util.List;
+
+/** Svar fra leggTilUtdanningerIOpptak: hvor mange rader som ble lagt til, oppdatert og avvist */
+public class LeggTilUtdanningerResultat {
+  private final int lagtTil;
+  private final int oppdatert;
+  private final List<AvvistUtdanning> avvisteUtdanninger;
+
+  public LeggTilUtdanningerResultat(
+      int lagtTil, int oppdatert, List<AvvistUtdanning> avvisteUtdanninger) {
+    this.lagtTil = lagtTil;
+    this.oppdatert = oppdatert;
+    this.avvisteUtdanninger = avvisteUtdanninger;
+  }
+
+  public int getLagtTil() {
+    return lagtTil;
+  }
+
+  public int getOppdatert() {
+    return oppdatert;
+  }
+
+  public int getAvvist() {
+    return avvisteUtdanninger.size();
+  }
+
+  public List<AvvistUtdanning> getAvvisteUtdanninger() {
+    return avvisteUtdanninger;
+  }
+}
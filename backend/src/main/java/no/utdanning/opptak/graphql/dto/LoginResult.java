@@ -1,16 +1,18 @@
 package no.utdanning.opptak.graphql.dto;
 
-import no.utdanning.opptak.domain.Bruker;
-
+/**
+ * Svar fra login. Brukeren hentes først når klienten ber om feltet bruker (se
+ * AuthMutationResolver), slik at selve innloggingen ikke laster JPA-entiteten.
+ */
 public class LoginResult {
   private String token;
-  private Bruker bruker;
+  private String email;
 
   public LoginResult() {}
 
-  public LoginResult(String token, Bruker bruker) {
+  public LoginResult(String token, String email) {
     this.token = token;
-    this.bruker = bruker;
+    this.email = email;
   }
 
   public String getToken() {
@@ -21,11 +23,11 @@ public class LoginResult {
     this.token = token;
   }
 
-  public Bruker getBruker() {
-    return bruker;
+  public String getEmail() {
+    return email;
   }
 
-  public void setBruker(Bruker bruker) {
-    this.bruker = bruker;
+  public void setEmail(String email) {
+    this.email = email;
   }
 }
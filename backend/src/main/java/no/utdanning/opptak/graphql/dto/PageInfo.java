@@ -0,0 +1,33 @@
+package no.utdanning.opptak.graphql.dto;
+
+/** Relay-sideinformasjon for cursor-baserte lister */
+public class PageInfo {
+  private final boolean hasNextPage;
+  private final boolean hasPreviousPage;
+  private final String startCursor;
+  private final String endCursor;
+
+  public PageInfo(
+      boolean hasNextPage, boolean hasPreviousPage, String startCursor, String endCursor) {
+    this.hasNextPage = hasNextPage;
+    this.hasPreviousPage = hasPreviousPage;
+    this.startCursor = startCursor;
+    this.endCursor = endCursor;
+  }
+
+  public boolean isHasNextPage() {
+    return hasNextPage;
+  }
+
+  public boolean isHasPreviousPage() {
+    return hasPreviousPage;
+  }
+
+  public String getStartCursor() {
+    return startCursor;
+  }
+
+  public String getEndCursor() {
+    return endCursor;
+  }
+}
@@ -0,0 +1,46 @@
+package no.utdanning.opptak.graphql.dto;
+
+import java.util.List;
+import no.utdanning.opptak.domain.Utdanning;
+
+/** Cursor-paginert (Relay connection) resultat av utdanninger */
+public class UtdanningConnection {
+  private final List<UtdanningEdge> edges;
+  private final PageInfo pageInfo;
+
+  public UtdanningConnection(List<UtdanningEdge> edges, PageInfo pageInfo) {
+    this.edges = edges;
+    this.pageInfo = pageInfo;
+  }
+
+  /**
+   * Bygger en connection fra rader hentet med limit = first + 1. Den ekstra raden brukes kun til å
+   * avgjøre om det finnes en neste side.
+   */
+  public static UtdanningConnection fra(List<Utdanning> rader, int first, boolean harAfter) {
+    boolean hasNextPage = rader.size() > first;
+    List<UtdanningEdge> edges =
+        rader.stream()
+            .limit(first)
+            .map(u -> new UtdanningEdge(u, UtdanningCursor.fra(u).encode()))
+            .toList();
+
+    String startCursor = edges.isEmpty() ? null : edges.get(0).getCursor();
+    String endCursor = edges.isEmpty() ? null : edges.get(edges.size() - 1).getCursor();
+    return new UtdanningConnection(
+        edges, new PageInfo(hasNextPage, harAfter, startCursor, endCursor));
+  }
+
+  /** Tom connection, f.eks. når bruker ikke har tilgang */
+  public static UtdanningConnection tom() {
+    return new UtdanningConnection(List.of(), new PageInfo(false, false, null, null));
+  }
+
+  public List<UtdanningEdge> getEdges() {
+    return edges;
+  }
+
+  public PageInfo getPageInfo() {
+    return pageInfo;
+  }
+}
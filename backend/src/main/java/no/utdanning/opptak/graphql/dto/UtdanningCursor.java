@@ -0,0 +1,52 @@
+package no.utdanning.opptak.graphql.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import no.utdanning.opptak.domain.Utdanning;
+
+/**
+ * Opak cursor for keyset-paginering av utdanninger. Koder (navn, id) for siste rad på en side, som
+ * er posisjonen neste side fortsetter fra.
+ */
+public record UtdanningCursor(String navn, String id) {
+
+  private static final char SEPARATOR = '\u001F';
+
+  /** Lager cursor som peker på gitt utdanning */
+  public static UtdanningCursor fra(Utdanning utdanning) {
+    return new UtdanningCursor(utdanning.getNavn(), utdanning.getId());
+  }
+
+  /** Koder cursor til en opak streng for klienten */
+  public String encode() {
+    String raw = navn + SEPARATOR + id;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Dekoder cursor fra klienten.
+   *
+   * @return dekodet cursor, eller null hvis cursor mangler
+   * @throws IllegalArgumentException hvis cursor ikke er gyldig
+   */
+  public static UtdanningCursor decode(String cursor) {
+    if (cursor == null || cursor.isBlank()) {
+      return null;
+    }
+
+    String raw;
+    try {
+      raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Ugyldig cursor: " + cursor);
+    }
+
+    int separator = raw.lastIndexOf(SEPARATOR);
+    if (separator < 0) {
+      throw new IllegalArgumentException("Ugyldig cursor: " + cursor);
+    }
+    return new UtdanningCursor(raw.substring(0, separator), raw.substring(separator + 1));
+  }
+}
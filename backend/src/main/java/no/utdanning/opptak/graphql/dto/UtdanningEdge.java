@@ -0,0 +1,22 @@
+package no.utdanning.opptak.graphql.dto;
+
+import no.utdanning.opptak.domain.Utdanning;
+
+/** En utdanning med tilhørende cursor i en UtdanningConnection */
+public class UtdanningEdge {
+  private final Utdanning node;
+  private final String cursor;
+
+  public UtdanningEdge(Utdanning node, String cursor) {
+    this.node = node;
+    this.cursor = cursor;
+  }
+
+  public Utdanning getNode() {
+    return node;
+  }
+
+  public String getCursor() {
+    return cursor;
+  }
+}
@@ -23,6 +23,19 @@ public class UtdanningPage {
     this.hasPrevious = currentPage > 0;
   }
 
+  /**
+   * Side uten totalt antall, brukt når klienten ikke har bedt om totalElements eller totalPages.
+   * hasNext avgjøres av om det fantes flere rader enn sidestørrelsen; totalElements og totalPages
+   * settes til -1.
+   */
+  public static UtdanningPage utenTotal(
+      List<Utdanning> content, int currentPage, int pageSize, boolean hasNext) {
+    UtdanningPage side = new UtdanningPage(content, -1, currentPage, pageSize);
+    side.totalPages = -1;
+    side.hasNext = hasNext;
+    return side;
+  }
+
   public List<Utdanning> getContent() {
     return content;
   }
@@ -0,0 +1,40 @@
+package no.utdanning.opptak.graphql.dto;
+
+/** Én utdanning med antall plasser, i input for leggTilUtdanningerIOpptak. */
+public class UtdanningPlasserInput {
+
+  private String utdanningId;
+  private Integer antallPlasser;
+  private Boolean aktivt = true;
+
+  public UtdanningPlasserInput() {}
+
+  public UtdanningPlasserInput(String utdanningId, Integer antallPlasser) {
+    this.utdanningId = utdanningId;
+    this.antallPlasser = antallPlasser;
+  }
+
+  public String getUtdanningId() {
+    return utdanningId;
+  }
+
+  public void setUtdanningId(String utdanningId) {
+    this.utdanningId = utdanningId;
+  }
+
+  public Integer getAntallPlasser() {
+    return antallPlasser;
+  }
+
+  public void setAntallPlasser(Integer antallPlasser) {
+    this.antallPlasser = antallPlasser;
+  }
+
+  public Boolean getAktivt() {
+    return aktivt;
+  }
+
+  public void setAktivt(Boolean aktivt) {
+    this.aktivt = aktivt;
+  }
+}
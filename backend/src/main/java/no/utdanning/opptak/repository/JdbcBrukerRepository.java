@@ -0,0 +1,157 @@
+package no.utdanning.opptak.repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import no.utdanning.opptak.domain.BrukerLegitimasjon;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC-spørringer mot bruker for de varme stiene ved innlogging og for masseimport, der en full
+ * JPA-lasting av Bruker med roller er unødvendig. Vanlig CRUD går fortsatt gjennom BrukerRepository.
+ */
+@Repository
+public class JdbcBrukerRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public JdbcBrukerRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Henter legitimasjon og rolle-IDer for en bruker med én JOIN-spørring, uten JPA.
+   *
+   * @return null hvis ingen bruker har denne e-postadressen
+   */
+  public BrukerLegitimasjon findLegitimasjonByEmail(String email) {
+    String sql =
+        "SELECT b.id, b.email, b.navn, b.passord_hash, b.organisasjon_id, b.aktiv, br.rolle_id "
+            + "FROM bruker b LEFT JOIN bruker_rolle br ON br.bruker_id = b.id "
+            + "WHERE b.email = ? ORDER BY br.rolle_id";
+    return jdbcTemplate.query(
+        sql,
+        rs -> {
+          if (!rs.next()) {
+            return null;
+          }
+          String id = rs.getString("id");
+          String brukerEmail = rs.getString("email");
+          String navn = rs.getString("navn");
+          String passordHash = rs.getString("passord_hash");
+          String organisasjonId = rs.getString("organisasjon_id");
+          boolean aktiv = rs.getBoolean("aktiv");
+          List<String> rolleIds = new ArrayList<>();
+          do {
+            String rolleId = rs.getString("rolle_id");
+            if (rolleId != null) {
+              rolleIds.add(rolleId);
+            }
+          } while (rs.next());
+          return new BrukerLegitimasjon(
+              id, brukerEmail, navn, passordHash, organisasjonId, aktiv, rolleIds);
+        },
+        email);
+  }
+
+  /** Aktiverer eller deaktiverer en bruker. Returnerer false hvis brukeren ikke finnes */
+  public boolean settAktiv(String brukerId, boolean aktiv) {
+    return jdbcTemplate.update("UPDATE bruker SET aktiv = ? WHERE id = ?", aktiv, brukerId) > 0;
+  }
+
+  /**
+   * Oppdaterer sist_innlogget for flere brukere i én batch. Et tidspunkt overskriver aldri et nyere,
+   * slik at samtidige skrivinger (f.eks. fra flere instanser) ikke flytter verdien bakover.
+   *
+   * @return antall rader som faktisk ble oppdatert
+   */
+  public int oppdaterSistInnlogget(Map<String, LocalDateTime> sistInnlogget) {
+    if (sistInnlogget.isEmpty()) {
+      return 0;
+    }
+    String sql =
+        "UPDATE bruker SET sist_innlogget = ? "
+            + "WHERE id = ? AND (sist_innlogget IS NULL OR sist_innlogget < ?)";
+    List<Object[]> parametere = new ArrayList<>(sistInnlogget.size());
+    sistInnlogget.forEach(
+        (brukerId, tidspunkt) -> {
+          Timestamp ts = Timestamp.valueOf(tidspunkt);
+          parametere.add(new Object[] {ts, brukerId, ts});
+        });
+    int antall = 0;
+    for (int rader : jdbcTemplate.batchUpdate(sql, parametere)) {
+      // Drivere kan svare SUCCESS_NO_INFO (-2) for batch; da telles raden som oppdatert
+      antall += rader < 0 ? 1 : rader;
+    }
+    return antall;
+  }
+
+  /**
+   * Oppretter brukere med roller som to JDBC-batcher (bruker og bruker_rolle). Kalles innenfor en
+   * transaksjon, slik at en feil i batchen ikke etterlater brukere uten roller.
+   *
+   * @param tildeltAv bruker-ID som registreres som tildeler av rollene
+   */
+  public void opprettBatch(List<BrukerLegitimasjon> brukere, String tildeltAv) {
+    if (brukere.isEmpty()) {
+      return;
+    }
+    List<Object[]> brukerRader = new ArrayList<>(brukere.size());
+    List<Object[]> rolleRader = new ArrayList<>();
+    for (BrukerLegitimasjon bruker : brukere) {
+      brukerRader.add(
+          new Object[] {
+            bruker.id(),
+            bruker.email(),
+            bruker.navn(),
+            bruker.passordHash(),
+            bruker.organisasjonId(),
+            bruker.aktiv()
+          });
+      for (String rolleId : bruker.rolleIds()) {
+        rolleRader.add(new Object[] {bruker.id(), rolleId, tildeltAv});
+      }
+    }
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO bruker (id, email, navn, passord_hash, organisasjon_id, aktiv) "
+            + "VALUES (?, ?, ?, ?, ?, ?)",
+        brukerRader);
+    if (!rolleRader.isEmpty()) {
+      jdbcTemplate.batchUpdate(
+          "INSERT INTO bruker_rolle (bruker_id, rolle_id, tildelt_av) VALUES (?, ?, ?)",
+          rolleRader);
+    }
+  }
+
+  /** Hvilke av e-postadressene som allerede er i bruk */
+  public Set<String> finnEksisterendeEmails(Collection<String> emails) {
+    return finnEksisterende("SELECT email FROM bruker WHERE email IN (%s)", emails);
+  }
+
+  /** Hvilke av organisasjons-IDene som finnes */
+  public Set<String> finnEksisterendeOrganisasjoner(Collection<String> organisasjonIds) {
+    return finnEksisterende("SELECT id FROM organisasjon WHERE id IN (%s)", organisasjonIds);
+  }
+
+  /** ID-ene til alle roller som kan tildeles */
+  public Set<String> findAlleRolleIds() {
+    return new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM rolle", String.class));
+  }
+
+  private Set<String> finnEksisterende(String sql, Collection<String> verdier) {
+    if (verdier.isEmpty()) {
+      return Set.of();
+    }
+    String plassholdere = String.join(", ", Collections.nCopies(verdier.size(), "?"));
+    return new HashSet<>(
+        jdbcTemplate.queryForList(
+            String.format(sql, plassholdere), String.class, verdier.toArray()));
+  }
+}
@@ -0,0 +1,161 @@
+package no.utdanning.opptak.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Leser hele tabeller for eksport uten å bygge lister. Radene leses i id-rekkefølge, én side om
+ * gangen med keyset (id > forrige side), og hver side er et forward-only, read-only ResultSet med
+ * fetch size, så radene går rett videre til mottakeren.
+ */
+@Repository
+public class JdbcEksportRepository {
+
+  /** Tabellene som kan eksporteres, med kolonnene i den rekkefølgen de skrives */
+  public enum Datasett {
+    UTDANNINGER(
+        "utdanninger",
+        "utdanning",
+        List.of(
+            "id",
+            "navn",
+            "studienivaa",
+            "studiepoeng",
+            "varighet",
+            "studiested",
+            "undervisningssprak",
+            "starttidspunkt",
+            "studieform",
+            "beskrivelse",
+            "organisasjon_id",
+            "aktiv",
+            "opprettet")),
+    OPPTAK(
+        "opptak",
+        "opptak",
+        List.of(
+            "id",
+            "navn",
+            "type",
+            "aar",
+            "soknadsfrist",
+            "svarfrist",
+            "max_utdanninger_per_soknad",
+            "status",
+            "opptaksomgang",
+            "beskrivelse",
+            "administrator_organisasjon_id",
+            "samordnet",
+            "aktiv",
+            "opprettet")),
+    UTDANNINGER_I_OPPTAK(
+        "utdanninger-i-opptak",
+        "utdanning_i_opptak",
+        List.of("id", "utdanning_id", "opptak_id", "antall_plasser", "aktivt", "opprettet"));
+
+    private final String sti;
+    private final String tabell;
+    private final List<String> kolonner;
+
+    Datasett(String sti, String tabell, List<String> kolonner) {
+      this.sti = sti;
+      this.tabell = tabell;
+      this.kolonner = kolonner;
+    }
+
+    /** Navnet i URL-en, f.eks. utdanninger-i-opptak */
+    public String sti() {
+      return sti;
+    }
+
+    public List<String> kolonner() {
+      return kolonner;
+    }
+
+    /** Datasettet med navnet, eller null */
+    public static Datasett fraSti(String sti) {
+      for (Datasett datasett : values()) {
+        if (datasett.sti.equals(sti)) {
+          return datasett;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Resultatet av én side.
+   *
+   * @param sisteId id til siste rad, som er cursor for neste side; null hvis siden var tom
+   */
+  public record Side(int antall, String sisteId) {}
+
+  private final JdbcTemplate jdbcTemplate;
+  private final int fetchStorrelse;
+
+  public JdbcEksportRepository(
+      JdbcTemplate jdbcTemplate, @Value("${app.eksport.fetch-storrelse:1000}") int fetchStorrelse) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.fetchStorrelse = fetchStorrelse;
+  }
+
+  /**
+   * Leser inntil antall rader med id etter cursoren og gir dem én og én til handleren.
+   *
+   * @param etter id til siste rad som allerede er lest, eller null for å starte fra begynnelsen
+   * @param opprettetFra hvis satt, bare rader opprettet på eller etter dette tidspunktet
+   */
+  public Side lesSide(
+      Datasett datasett,
+      String etter,
+      LocalDateTime opprettetFra,
+      int antall,
+      RowCallbackHandler handler) {
+    StringBuilder sql =
+        new StringBuilder("SELECT ")
+            .append(String.join(", ", datasett.kolonner))
+            .append(" FROM ")
+            .append(datasett.tabell)
+            .append(" WHERE 1 = 1");
+    List<Object> parametere = new ArrayList<>(3);
+    if (etter != null) {
+      sql.append(" AND id > ?");
+      parametere.add(etter);
+    }
+    if (opprettetFra != null) {
+      sql.append(" AND opprettet >= ?");
+      parametere.add(Timestamp.valueOf(opprettetFra));
+    }
+    sql.append(" ORDER BY id LIMIT ?");
+    parametere.add(antall);
+
+    int[] lest = {0};
+    String[] sisteId = {null};
+    jdbcTemplate.query(
+        con -> {
+          PreparedStatement ps =
+              con.prepareStatement(
+                  sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+          ps.setFetchSize(fetchStorrelse);
+          for (int i = 0; i < parametere.size(); i++) {
+            ps.setObject(i + 1, parametere.get(i));
+          }
+          return ps;
+        },
+        (RowCallbackHandler)
+            rs -> {
+              handler.processRow(rs);
+              sisteId[0] = rs.getString("id");
+              lest[0]++;
+            });
+    return new Side(lest[0], sisteId[0]);
+  }
+}
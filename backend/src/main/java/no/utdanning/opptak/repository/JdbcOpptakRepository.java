@@ -5,6 +5,7 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import no.utdanning.opptak.domain.Opptak;
 import no.utdanning.opptak.domain.OpptaksStatus;
@@ -41,8 +42,9 @@ public class JdbcOpptakRepository implements OpptakCrudRepository {
   }
 
   @Override
-  public List<Opptak> findByAktiv(boolean aktiv) {
-    String sql = "SELECT * FROM opptak WHERE aktiv = ? ORDER BY aar DESC, navn";
+  public List<Opptak> findByAktiv(boolean aktiv, Projeksjon projeksjon) {
+    String sql =
+        "SELECT " + projeksjon.select() + " FROM opptak WHERE aktiv = ? ORDER BY aar DESC, navn";
     return jdbcTemplate.query(sql, new OpptakRowMapper(), aktiv);
   }
 
@@ -53,6 +55,21 @@ public class JdbcOpptakRepository implements OpptakCrudRepository {
     return jdbcTemplate.query(sql, new OpptakRowMapper(), administratorOrganisasjonId);
   }
 
+  @Override
+  public List<Opptak> findSynligeForOrganisasjonId(String organisasjonId, Projeksjon projeksjon) {
+    // UNIQUE(opptak_id, organisasjon_id) gjør at LEFT JOIN gir maks én rad per opptak
+    String sql =
+        """
+        SELECT %s FROM opptak o
+        LEFT JOIN opptak_tilgang ot ON ot.opptak_id = o.id AND ot.organisasjon_id = ?
+        WHERE o.administrator_organisasjon_id = ?
+           OR (ot.id IS NOT NULL AND o.aktiv = true)
+        ORDER BY o.aar DESC, o.navn
+        """
+            .formatted(projeksjon.select("o"));
+    return jdbcTemplate.query(sql, new OpptakRowMapper(), organisasjonId, organisasjonId);
+  }
+
   @Override
   public List<Opptak> findByType(OpptaksType type) {
     String sql = "SELECT * FROM opptak WHERE type = ? ORDER BY aar DESC, navn";
@@ -294,46 +311,71 @@ public class JdbcOpptakRepository implements OpptakCrudRepository {
     return count != null && count > 0;
   }
 
-  /** RowMapper for å konvertere database-rad til Opptak objekt */
+  /**
+   * RowMapper for å konvertere database-rad til Opptak objekt. Kolonner som ikke er med i
+   * resultatet (se Projeksjon) hoppes over.
+   */
   private static class OpptakRowMapper implements RowMapper<Opptak> {
+    private Set<String> kolonner;
+
     @Override
     public Opptak mapRow(ResultSet rs, int rowNum) throws SQLException {
+      if (kolonner == null) {
+        kolonner = Projeksjon.kolonnerI(rs);
+      }
+
       Opptak opptak = new Opptak();
       opptak.setId(rs.getString("id"));
-      opptak.setNavn(rs.getString("navn"));
+      if (kolonner.contains("navn")) {
+        opptak.setNavn(rs.getString("navn"));
+      }
 
       // Convert string to enum
-      String typeStr = rs.getString("type");
+      String typeStr = kolonner.contains("type") ? rs.getString("type") : null;
       if (typeStr != null) {
         opptak.setType(OpptaksType.valueOf(typeStr));
       }
 
-      opptak.setAar(rs.getInt("aar"));
-      opptak.setAdministratorOrganisasjonId(rs.getString("administrator_organisasjon_id"));
-      opptak.setSamordnet(rs.getBoolean("samordnet"));
+      if (kolonner.contains("aar")) {
+        opptak.setAar(rs.getInt("aar"));
+      }
+      if (kolonner.contains("administrator_organisasjon_id")) {
+        opptak.setAdministratorOrganisasjonId(rs.getString("administrator_organisasjon_id"));
+      }
+      if (kolonner.contains("samordnet")) {
+        opptak.setSamordnet(rs.getBoolean("samordnet"));
+      }
 
-      if (rs.getDate("soknadsfrist") != null) {
+      if (kolonner.contains("soknadsfrist") && rs.getDate("soknadsfrist") != null) {
         opptak.setSoknadsfrist(rs.getDate("soknadsfrist").toLocalDate());
       }
-      if (rs.getDate("svarfrist") != null) {
+      if (kolonner.contains("svarfrist") && rs.getDate("svarfrist") != null) {
         opptak.setSvarfrist(rs.getDate("svarfrist").toLocalDate());
       }
 
-      opptak.setMaxUtdanningerPerSoknad(rs.getInt("max_utdanninger_per_soknad"));
+      if (kolonner.contains("max_utdanninger_per_soknad")) {
+        opptak.setMaxUtdanningerPerSoknad(rs.getInt("max_utdanninger_per_soknad"));
+      }
 
-      String statusStr = rs.getString("status");
+      String statusStr = kolonner.contains("status") ? rs.getString("status") : null;
       if (statusStr != null) {
         opptak.setStatus(OpptaksStatus.valueOf(statusStr));
       }
 
-      opptak.setOpptaksomgang(rs.getString("opptaksomgang"));
-      opptak.setBeskrivelse(rs.getString("beskrivelse"));
+      if (kolonner.contains("opptaksomgang")) {
+        opptak.setOpptaksomgang(rs.getString("opptaksomgang"));
+      }
+      if (kolonner.contains("beskrivelse")) {
+        opptak.setBeskrivelse(rs.getString("beskrivelse"));
+      }
 
-      if (rs.getTimestamp("opprettet") != null) {
+      if (kolonner.contains("opprettet") && rs.getTimestamp("opprettet") != null) {
         opptak.setOpprettet(rs.getTimestamp("opprettet").toLocalDateTime());
       }
 
-      opptak.setAktiv(rs.getBoolean("aktiv"));
+      if (kolonner.contains("aktiv")) {
+        opptak.setAktiv(rs.getBoolean("aktiv"));
+      }
       return opptak;
     }
   }
@@ -3,9 +3,17 @@ package no.utdanning.opptak.repository;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import no.utdanning.opptak.domain.OpptakTilgang;
+import no.utdanning.opptak.domain.Organisasjon;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
@@ -43,6 +51,41 @@ public class JdbcOpptakTilgangRepository implements OpptakTilgangRepository {
     return jdbcTemplate.query(sql, new OpptakTilgangRowMapper(), opptakId);
   }
 
+  @Override
+  public Map<String, List<Organisasjon>> findOrganisasjonerByOpptakIds(
+      Collection<String> opptakIds) {
+    Set<String> unikeIds = new LinkedHashSet<>(opptakIds);
+    unikeIds.remove(null);
+    if (unikeIds.isEmpty()) {
+      return Map.of();
+    }
+
+    String placeholders = String.join(", ", Collections.nCopies(unikeIds.size(), "?"));
+    String sql =
+        """
+        SELECT ot.opptak_id AS tilgang_opptak_id, o.*
+        FROM opptak_tilgang ot
+        JOIN organisasjon o ON o.id = ot.organisasjon_id
+        WHERE ot.opptak_id IN (%s)
+        ORDER BY ot.tildelt
+        """
+            .formatted(placeholders);
+
+    RowMapper<Organisasjon> organisasjonMapper =
+        new JdbcOrganisasjonRepository.OrganisasjonRowMapper();
+    Map<String, List<Organisasjon>> result = new LinkedHashMap<>();
+    jdbcTemplate.query(
+        sql,
+        rs -> {
+          String opptakId = rs.getString("tilgang_opptak_id");
+          result
+              .computeIfAbsent(opptakId, id -> new ArrayList<>())
+              .add(organisasjonMapper.mapRow(rs, rs.getRow()));
+        },
+        unikeIds.toArray());
+    return result;
+  }
+
   @Override
   public List<OpptakTilgang> findByOrganisasjonId(String organisasjonId) {
     String sql = "SELECT * FROM opptak_tilgang WHERE organisasjon_id = ? ORDER BY tildelt DESC";
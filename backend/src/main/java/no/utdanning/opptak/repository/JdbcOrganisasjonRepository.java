@@ -3,10 +3,17 @@ package no.utdanning.opptak.repository;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import no.utdanning.opptak.domain.Organisasjon;
 import no.utdanning.opptak.domain.OrganisasjonsType;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
@@ -21,13 +28,18 @@ public class JdbcOrganisasjonRepository implements OrganisasjonRepository {
 
   private final JdbcTemplate jdbcTemplate;
 
-  public JdbcOrganisasjonRepository(JdbcTemplate jdbcTemplate) {
+  /** Slår opp navnesøk i minnet når det finnes, i stedet for UPPER(navn) LIKE */
+  private final ObjectProvider<NavnOppslag> navnOppslag;
+
+  public JdbcOrganisasjonRepository(
+      JdbcTemplate jdbcTemplate, ObjectProvider<NavnOppslag> navnOppslag) {
     this.jdbcTemplate = jdbcTemplate;
+    this.navnOppslag = navnOppslag;
   }
 
   @Override
-  public List<Organisasjon> findAll() {
-    String sql = "SELECT * FROM organisasjon ORDER BY navn";
+  public List<Organisasjon> findAll(Projeksjon projeksjon) {
+    String sql = "SELECT " + projeksjon.select() + " FROM organisasjon ORDER BY navn";
     return jdbcTemplate.query(sql, new OrganisasjonRowMapper());
   }
 
@@ -42,22 +54,61 @@ public class JdbcOrganisasjonRepository implements OrganisasjonRepository {
   }
 
   @Override
-  public List<Organisasjon> findByAktiv(boolean aktiv) {
-    String sql = "SELECT * FROM organisasjon WHERE aktiv = ? ORDER BY navn";
-    return jdbcTemplate.query(sql, new OrganisasjonRowMapper(), aktiv);
+  public List<Organisasjon> findByIds(Collection<String> ids) {
+    Set<String> unikeIds = new LinkedHashSet<>(ids);
+    unikeIds.remove(null);
+    if (unikeIds.isEmpty()) {
+      return List.of();
+    }
+
+    String placeholders = String.join(", ", Collections.nCopies(unikeIds.size(), "?"));
+    String sql = "SELECT * FROM organisasjon WHERE id IN (" + placeholders + ")";
+    return jdbcTemplate.query(sql, new OrganisasjonRowMapper(), unikeIds.toArray());
   }
 
   @Override
-  public List<Organisasjon> findByType(OrganisasjonsType type) {
-    String sql = "SELECT * FROM organisasjon WHERE type = ? ORDER BY navn";
-    return jdbcTemplate.query(sql, new OrganisasjonRowMapper(), type.name());
+  public Set<String> findAktiveIds() {
+    return new HashSet<>(
+        jdbcTemplate.queryForList("SELECT id FROM organisasjon WHERE aktiv = TRUE", String.class));
   }
 
   @Override
-  public List<Organisasjon> findByNavnContainingIgnoreCase(String navnSok) {
-    String sql = "SELECT * FROM organisasjon WHERE UPPER(navn) LIKE UPPER(?) ORDER BY navn";
-    String searchPattern = "%" + navnSok + "%";
-    return jdbcTemplate.query(sql, new OrganisasjonRowMapper(), searchPattern);
+  public List<Organisasjon> findWithFilters(
+      Boolean aktiv,
+      OrganisasjonsType type,
+      String navnSok,
+      Integer limit,
+      Integer offset,
+      Projeksjon projeksjon) {
+    StringBuilder sql =
+        new StringBuilder("SELECT " + projeksjon.select() + " FROM organisasjon WHERE 1=1");
+    List<Object> params = new ArrayList<>();
+
+    if (aktiv != null) {
+      sql.append(" AND aktiv = ?");
+      params.add(aktiv);
+    }
+    if (type != null) {
+      sql.append(" AND type = ?");
+      params.add(type.name());
+    }
+    if (navnSok != null && !navnSok.trim().isEmpty()) {
+      appendNavnFilter(sql, params, navnSok.trim());
+    }
+
+    // id som tiebreaker gir en stabil rekkefølge mellom sidene
+    sql.append(" ORDER BY navn, id");
+    if (limit != null && limit > 0) {
+      sql.append(" LIMIT ?");
+      params.add(limit);
+
+      if (offset != null && offset > 0) {
+        sql.append(" OFFSET ?");
+        params.add(offset);
+      }
+    }
+
+    return jdbcTemplate.query(sql.toString(), new OrganisasjonRowMapper(), params.toArray());
   }
 
   @Override
@@ -136,30 +187,72 @@ public class JdbcOrganisasjonRepository implements OrganisasjonRepository {
     return count != null && count > 0;
   }
 
-  /** RowMapper for å konvertere database-rad til Organisasjon objekt */
-  private static class OrganisasjonRowMapper implements RowMapper<Organisasjon> {
+  /**
+   * Navn som inneholder søket. Med navneindeksen blir det en liste med id-er (eller ingen treff),
+   * ellers UPPER(navn) LIKE, som må lese hver rad.
+   */
+  private void appendNavnFilter(StringBuilder sql, List<Object> params, String navnSok) {
+    NavnOppslag oppslag = navnOppslag.getIfAvailable();
+    Set<String> ids = oppslag != null ? oppslag.organisasjonerMedNavn(navnSok) : null;
+    if (ids == null) {
+      sql.append(" AND UPPER(navn) LIKE UPPER(?)");
+      params.add("%" + navnSok + "%");
+    } else if (ids.isEmpty()) {
+      sql.append(" AND 1=0");
+    } else {
+      sql.append(" AND id IN (")
+          .append(String.join(", ", Collections.nCopies(ids.size(), "?")))
+          .append(")");
+      params.addAll(ids);
+    }
+  }
+
+  /**
+   * RowMapper for å konvertere database-rad til Organisasjon objekt. Pakke-synlig slik at andre
+   * repositories kan mappe organisasjon-kolonner fra join-spørringer. Kolonner som ikke er med i
+   * resultatet (se Projeksjon) hoppes over.
+   */
+  static class OrganisasjonRowMapper implements RowMapper<Organisasjon> {
+    private Set<String> kolonner;
+
     @Override
     public Organisasjon mapRow(ResultSet rs, int rowNum) throws SQLException {
+      if (kolonner == null) {
+        kolonner = Projeksjon.kolonnerI(rs);
+      }
+
       Organisasjon org = new Organisasjon();
       org.setId(rs.getString("id"));
-      org.setNavn(rs.getString("navn"));
-      org.setKortNavn(rs.getString("kort_navn"));
+      if (kolonner.contains("navn")) {
+        org.setNavn(rs.getString("navn"));
+      }
+      if (kolonner.contains("kort_navn")) {
+        org.setKortNavn(rs.getString("kort_navn"));
+      }
 
       // Convert string to enum
-      String typeStr = rs.getString("type");
+      String typeStr = kolonner.contains("type") ? rs.getString("type") : null;
       if (typeStr != null) {
         org.setType(OrganisasjonsType.valueOf(typeStr.toUpperCase()));
       }
 
-      org.setOrganisasjonsnummer(rs.getString("organisasjonsnummer"));
-      org.setAdresse(rs.getString("adresse"));
-      org.setNettside(rs.getString("nettside"));
+      if (kolonner.contains("organisasjonsnummer")) {
+        org.setOrganisasjonsnummer(rs.getString("organisasjonsnummer"));
+      }
+      if (kolonner.contains("adresse")) {
+        org.setAdresse(rs.getString("adresse"));
+      }
+      if (kolonner.contains("nettside")) {
+        org.setNettside(rs.getString("nettside"));
+      }
 
-      if (rs.getTimestamp("opprettet") != null) {
+      if (kolonner.contains("opprettet") && rs.getTimestamp("opprettet") != null) {
         org.setOpprettet(rs.getTimestamp("opprettet").toLocalDateTime());
       }
 
-      org.setAktiv(rs.getBoolean("aktiv"));
+      if (kolonner.contains("aktiv")) {
+        org.setAktiv(rs.getBoolean("aktiv"));
+      }
       return org;
     }
   }
@@ -0,0 +1,129 @@
+package no.utdanning.opptak.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import no.utdanning.opptak.domain.UtdanningIOpptak;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/** JDBC-spørringer mot utdanning_i_opptak for å koble mange utdanninger til et opptak om gangen. */
+@Repository
+public class JdbcUtdanningIOpptakRepository {
+
+  /**
+   * Setter inn raden hvis (utdanning_id, opptak_id) ikke finnes. Oppdateringstallet er 0 når raden
+   * allerede fantes, så skrivingen selv forteller hvilke rader som er nye.
+   */
+  private static final String INSERT_SQL =
+      """
+      INSERT INTO utdanning_i_opptak (id, utdanning_id, opptak_id, antall_plasser, aktivt)
+      SELECT s.id, s.utdanning_id, s.opptak_id, s.antall_plasser, s.aktivt
+      FROM (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)),
+                    CAST(? AS INTEGER), CAST(? AS BOOLEAN)))
+           AS s (id, utdanning_id, opptak_id, antall_plasser, aktivt)
+      WHERE NOT EXISTS (
+        SELECT 1 FROM utdanning_i_opptak t
+        WHERE t.utdanning_id = s.utdanning_id AND t.opptak_id = s.opptak_id)
+      """;
+
+  private static final String UPDATE_SQL =
+      "UPDATE utdanning_i_opptak SET antall_plasser = ?, aktivt = ?"
+          + " WHERE utdanning_id = ? AND opptak_id = ?";
+
+  /** Antall rader lagreAlle satte inn og oppdaterte, slik databasen rapporterte dem */
+  public record Lagret(int lagtTil, int oppdatert) {}
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public JdbcUtdanningIOpptakRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Henter organisasjonen til hver utdanning i én spørring.
+   *
+   * @return utdanning-ID til organisasjon-ID; ukjente utdanninger mangler i kartet
+   */
+  public Map<String, String> findOrganisasjonIdByUtdanningIds(Collection<String> utdanningIds) {
+    Set<String> unikeIds = new LinkedHashSet<>(utdanningIds);
+    unikeIds.remove(null);
+    Map<String, String> resultat = new HashMap<>();
+    if (unikeIds.isEmpty()) {
+      return resultat;
+    }
+    String sql =
+        "SELECT id, organisasjon_id FROM utdanning WHERE id IN ("
+            + plassholdere(unikeIds.size())
+            + ")";
+    jdbcTemplate.query(
+        sql,
+        rs -> {
+          resultat.put(rs.getString("id"), rs.getString("organisasjon_id"));
+        },
+        unikeIds.toArray());
+    return resultat;
+  }
+
+  /**
+   * Legger til eller oppdaterer utdanningene i opptaket med to JDBC-batcher: først innsetting av
+   * rader som ikke finnes, så oppdatering av resten. Eksisterende rader beholder id og opprettet;
+   * antall plasser og aktivt overskrives. Antallene tas fra oppdateringstallene, så en rad som
+   * settes inn av en annen transaksjon mellom to spørringer telles riktig som oppdatert.
+   */
+  public Lagret lagreAlle(String opptakId, List<UtdanningIOpptak> utdanninger) {
+    if (utdanninger.isEmpty()) {
+      return new Lagret(0, 0);
+    }
+    List<Object[]> nye = new ArrayList<>(utdanninger.size());
+    for (UtdanningIOpptak utdanning : utdanninger) {
+      nye.add(
+          new Object[] {
+            UUID.randomUUID().toString(),
+            utdanning.getUtdanningId(),
+            opptakId,
+            utdanning.getAntallPlasser(),
+            aktivt(utdanning)
+          });
+    }
+    int[] sattInn = jdbcTemplate.batchUpdate(INSERT_SQL, nye);
+
+    List<Object[]> eksisterende = new ArrayList<>();
+    for (int i = 0; i < sattInn.length; i++) {
+      if (sattInn[i] == 0) {
+        UtdanningIOpptak utdanning = utdanninger.get(i);
+        eksisterende.add(
+            new Object[] {
+              utdanning.getAntallPlasser(), aktivt(utdanning), utdanning.getUtdanningId(), opptakId
+            });
+      }
+    }
+    int[] oppdatert =
+        eksisterende.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(UPDATE_SQL, eksisterende);
+    return new Lagret(antall(sattInn), antall(oppdatert));
+  }
+
+  private static boolean aktivt(UtdanningIOpptak utdanning) {
+    return utdanning.getAktivt() != null ? utdanning.getAktivt() : true;
+  }
+
+  private static int antall(int[] oppdateringstall) {
+    int antall = 0;
+    for (int tall : oppdateringstall) {
+      if (tall > 0) {
+        antall++;
+      }
+    }
+    return antall;
+  }
+
+  private static String plassholdere(int antall) {
+    return String.join(", ", Collections.nCopies(antall, "?"));
+  }
+}
@@ -4,12 +4,18 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import no.utdanning.opptak.domain.Studieform;
 import no.utdanning.opptak.domain.Utdanning;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
@@ -20,10 +26,23 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class JdbcUtdanningRepository implements UtdanningRepository {
 
+  private static final String INSERT_SQL =
+      """
+      INSERT INTO utdanning (id, navn, studienivaa, studiepoeng, varighet, studiested,
+                            undervisningssprak, beskrivelse, opprettet, aktiv, organisasjon_id,
+                            starttidspunkt, studieform)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+      """;
+
   private final JdbcTemplate jdbcTemplate;
 
-  public JdbcUtdanningRepository(JdbcTemplate jdbcTemplate) {
+  /** Slår opp navnefilteret i minnet når det finnes, i stedet for UPPER(navn) LIKE */
+  private final ObjectProvider<NavnOppslag> navnOppslag;
+
+  public JdbcUtdanningRepository(
+      JdbcTemplate jdbcTemplate, ObjectProvider<NavnOppslag> navnOppslag) {
     this.jdbcTemplate = jdbcTemplate;
+    this.navnOppslag = navnOppslag;
   }
 
   @Override
@@ -42,6 +61,19 @@ public class JdbcUtdanningRepository implements UtdanningRepository {
     }
   }
 
+  @Override
+  public List<Utdanning> findByIds(Collection<String> ids) {
+    Set<String> unikeIds = new LinkedHashSet<>(ids);
+    unikeIds.remove(null);
+    if (unikeIds.isEmpty()) {
+      return List.of();
+    }
+
+    String placeholders = String.join(", ", Collections.nCopies(unikeIds.size(), "?"));
+    String sql = "SELECT * FROM utdanning WHERE id IN (" + placeholders + ")";
+    return jdbcTemplate.query(sql, new UtdanningRowMapper(), unikeIds.toArray());
+  }
+
   @Override
   public List<Utdanning> findByAktiv(boolean aktiv) {
     String sql = "SELECT * FROM utdanning WHERE aktiv = ? ORDER BY navn";
@@ -60,13 +92,6 @@ public class JdbcUtdanningRepository implements UtdanningRepository {
     return jdbcTemplate.query(sql, new UtdanningRowMapper(), organisasjonId, aktiv);
   }
 
-  @Override
-  public List<Utdanning> findByNavnContainingIgnoreCase(String navnSok) {
-    String sql = "SELECT * FROM utdanning WHERE UPPER(navn) LIKE UPPER(?) ORDER BY navn";
-    String searchPattern = "%" + navnSok + "%";
-    return jdbcTemplate.query(sql, new UtdanningRowMapper(), searchPattern);
-  }
-
   @Override
   public List<Utdanning> findByStudienivaa(String studienivaa) {
     String sql = "SELECT * FROM utdanning WHERE studienivaa = ? ORDER BY navn";
@@ -100,36 +125,14 @@ public class JdbcUtdanningRepository implements UtdanningRepository {
       Studieform studieform,
       Boolean aktiv,
       Integer limit,
-      Integer offset) {
+      Integer offset,
+      Projeksjon projeksjon) {
 
-    StringBuilder sql = new StringBuilder("SELECT * FROM utdanning WHERE 1=1");
+    StringBuilder sql =
+        new StringBuilder("SELECT " + projeksjon.select() + " FROM utdanning WHERE 1=1");
     List<Object> params = new ArrayList<>();
 
-    // Add WHERE clauses dynamically
-    if (navn != null && !navn.trim().isEmpty()) {
-      sql.append(" AND UPPER(navn) LIKE UPPER(?)");
-      params.add("%" + navn.trim() + "%");
-    }
-    if (studienivaa != null && !studienivaa.trim().isEmpty()) {
-      sql.append(" AND studienivaa = ?");
-      params.add(studienivaa.trim());
-    }
-    if (studiested != null && !studiested.trim().isEmpty()) {
-      sql.append(" AND studiested = ?");
-      params.add(studiested.trim());
-    }
-    if (organisasjonId != null && !organisasjonId.trim().isEmpty()) {
-      sql.append(" AND organisasjon_id = ?");
-      params.add(organisasjonId.trim());
-    }
-    if (studieform != null) {
-      sql.append(" AND studieform = ?");
-      params.add(studieform.name());
-    }
-    if (aktiv != null) {
-      sql.append(" AND aktiv = ?");
-      params.add(aktiv);
-    }
+    appendFilters(sql, params, navn, studienivaa, studiested, organisasjonId, studieform, aktiv);
 
     // Add ORDER BY
     sql.append(" ORDER BY navn");
@@ -160,36 +163,91 @@ public class JdbcUtdanningRepository implements UtdanningRepository {
     StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM utdanning WHERE 1=1");
     List<Object> params = new ArrayList<>();
 
-    // Same filter logic as findWithFilters
-    if (navn != null && !navn.trim().isEmpty()) {
-      sql.append(" AND UPPER(navn) LIKE UPPER(?)");
-      params.add("%" + navn.trim() + "%");
-    }
-    if (studienivaa != null && !studienivaa.trim().isEmpty()) {
-      sql.append(" AND studienivaa = ?");
-      params.add(studienivaa.trim());
-    }
-    if (studiested != null && !studiested.trim().isEmpty()) {
-      sql.append(" AND studiested = ?");
-      params.add(studiested.trim());
-    }
-    if (organisasjonId != null && !organisasjonId.trim().isEmpty()) {
-      sql.append(" AND organisasjon_id = ?");
-      params.add(organisasjonId.trim());
-    }
-    if (studieform != null) {
-      sql.append(" AND studieform = ?");
-      params.add(studieform.name());
-    }
-    if (aktiv != null) {
-      sql.append(" AND aktiv = ?");
-      params.add(aktiv);
-    }
+    appendFilters(sql, params, navn, studienivaa, studiested, organisasjonId, studieform, aktiv);
 
     Long count = jdbcTemplate.queryForObject(sql.toString(), Long.class, params.toArray());
     return count != null ? count : 0;
   }
 
+  @Override
+  public UtdanningSide findWithFiltersAndCount(
+      String navn,
+      String studienivaa,
+      String studiested,
+      String organisasjonId,
+      Studieform studieform,
+      Boolean aktiv,
+      int limit,
+      int offset,
+      Projeksjon projeksjon) {
+
+    // Vindusfunksjonen evalueres før LIMIT, så total_antall er antall treff for hele filteret
+    StringBuilder sql =
+        new StringBuilder("SELECT ")
+            .append(projeksjon.select("u"))
+            .append(", COUNT(*) OVER() AS total_antall FROM utdanning u WHERE 1=1");
+    List<Object> params = new ArrayList<>();
+
+    appendFilters(sql, params, navn, studienivaa, studiested, organisasjonId, studieform, aktiv);
+
+    sql.append(" ORDER BY navn LIMIT ? OFFSET ?");
+    params.add(limit);
+    params.add(offset);
+
+    UtdanningRowMapper rowMapper = new UtdanningRowMapper();
+    List<Utdanning> content = new ArrayList<>();
+    long[] totalt = {0};
+    jdbcTemplate.query(
+        sql.toString(),
+        (RowCallbackHandler)
+            rs -> {
+              totalt[0] = rs.getLong("total_antall");
+              content.add(rowMapper.mapRow(rs, content.size()));
+            },
+        params.toArray());
+
+    // Side forbi siste treff gir ingen rader å lese antallet fra
+    if (content.isEmpty() && offset > 0) {
+      return new UtdanningSide(
+          content,
+          countWithFilters(navn, studienivaa, studiested, organisasjonId, studieform, aktiv));
+    }
+    return new UtdanningSide(content, totalt[0]);
+  }
+
+  @Override
+  public List<Utdanning> findWithFiltersAfter(
+      String navn,
+      String studienivaa,
+      String studiested,
+      String organisasjonId,
+      Studieform studieform,
+      Boolean aktiv,
+      String afterNavn,
+      String afterId,
+      int limit,
+      Projeksjon projeksjon) {
+
+    StringBuilder sql =
+        new StringBuilder("SELECT " + projeksjon.select() + " FROM utdanning WHERE 1=1");
+    List<Object> params = new ArrayList<>();
+
+    appendFilters(sql, params, navn, studienivaa, studiested, organisasjonId, studieform, aktiv);
+
+    // Keyset: fortsett etter (navn, id) fra forrige side i stedet for OFFSET
+    if (afterNavn != null && afterId != null) {
+      sql.append(" AND (navn, id) > (?, ?)");
+      params.add(afterNavn);
+      params.add(afterId);
+    }
+
+    // id som tiebreaker gir en stabil, total rekkefølge
+    sql.append(" ORDER BY navn, id LIMIT ?");
+    params.add(limit);
+
+    return jdbcTemplate.query(sql.toString(), new UtdanningRowMapper(), params.toArray());
+  }
+
   @Override
   public Utdanning save(Utdanning utdanning) {
     if (utdanning.getId() == null) {
@@ -197,29 +255,7 @@ public class JdbcUtdanningRepository implements UtdanningRepository {
       utdanning.setId(UUID.randomUUID().toString());
       utdanning.setOpprettet(LocalDateTime.now());
 
-      String sql =
-          """
-          INSERT INTO utdanning (id, navn, studienivaa, studiepoeng, varighet, studiested,
-                                undervisningssprak, beskrivelse, opprettet, aktiv, organisasjon_id,
-                                starttidspunkt, studieform)
-          VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-          """;
-
-      jdbcTemplate.update(
-          sql,
-          utdanning.getId(),
-          utdanning.getNavn(),
-          utdanning.getStudienivaa(),
-          utdanning.getStudiepoeng(),
-          utdanning.getVarighet(),
-          utdanning.getStudiested(),
-          utdanning.getUndervisningssprak(),
-          utdanning.getBeskrivelse(),
-          utdanning.getOpprettet(),
-          utdanning.getAktiv() != null ? utdanning.getAktiv() : true,
-          utdanning.getOrganisasjonId(),
-          utdanning.getStarttidspunkt(),
-          utdanning.getStudieform() != null ? utdanning.getStudieform().name() : null);
+      jdbcTemplate.update(INSERT_SQL, insertParametere(utdanning));
     } else {
       // Update existing
       String sql =
@@ -248,6 +284,39 @@ public class JdbcUtdanningRepository implements UtdanningRepository {
     return utdanning;
   }
 
+  @Override
+  public void opprettAlle(List<Utdanning> utdanninger) {
+    if (utdanninger.isEmpty()) {
+      return;
+    }
+    LocalDateTime naa = LocalDateTime.now();
+    List<Object[]> parametere = new ArrayList<>(utdanninger.size());
+    for (Utdanning utdanning : utdanninger) {
+      utdanning.setId(UUID.randomUUID().toString());
+      utdanning.setOpprettet(naa);
+      parametere.add(insertParametere(utdanning));
+    }
+    jdbcTemplate.batchUpdate(INSERT_SQL, parametere);
+  }
+
+  private static Object[] insertParametere(Utdanning utdanning) {
+    return new Object[] {
+      utdanning.getId(),
+      utdanning.getNavn(),
+      utdanning.getStudienivaa(),
+      utdanning.getStudiepoeng(),
+      utdanning.getVarighet(),
+      utdanning.getStudiested(),
+      utdanning.getUndervisningssprak(),
+      utdanning.getBeskrivelse(),
+      utdanning.getOpprettet(),
+      utdanning.getAktiv() != null ? utdanning.getAktiv() : true,
+      utdanning.getOrganisasjonId(),
+      utdanning.getStarttidspunkt(),
+      utdanning.getStudieform() != null ? utdanning.getStudieform().name() : null
+    };
+  }
+
   @Override
   public boolean deleteById(String id) {
     String sql = "DELETE FROM utdanning WHERE id = ?";
@@ -276,30 +345,114 @@ public class JdbcUtdanningRepository implements UtdanningRepository {
     return count != null && count > 0;
   }
 
-  /** RowMapper for å konvertere database-rad til Utdanning objekt */
+  /** Legger til WHERE-betingelser for filtrene som er satt. Felles for alle filter-spørringer. */
+  private void appendFilters(
+      StringBuilder sql,
+      List<Object> params,
+      String navn,
+      String studienivaa,
+      String studiested,
+      String organisasjonId,
+      Studieform studieform,
+      Boolean aktiv) {
+    if (navn != null && !navn.trim().isEmpty()) {
+      appendNavnFilter(sql, params, navn.trim());
+    }
+    if (studienivaa != null && !studienivaa.trim().isEmpty()) {
+      sql.append(" AND studienivaa = ?");
+      params.add(studienivaa.trim());
+    }
+    if (studiested != null && !studiested.trim().isEmpty()) {
+      sql.append(" AND studiested = ?");
+      params.add(studiested.trim());
+    }
+    if (organisasjonId != null && !organisasjonId.trim().isEmpty()) {
+      sql.append(" AND organisasjon_id = ?");
+      params.add(organisasjonId.trim());
+    }
+    if (studieform != null) {
+      sql.append(" AND studieform = ?");
+      params.add(studieform.name());
+    }
+    if (aktiv != null) {
+      sql.append(" AND aktiv = ?");
+      params.add(aktiv);
+    }
+  }
+
+  /**
+   * Navn som inneholder søket. Med navneindeksen blir det en liste med id-er (eller ingen treff),
+   * ellers UPPER(navn) LIKE, som må lese hver rad.
+   */
+  private void appendNavnFilter(StringBuilder sql, List<Object> params, String navnSok) {
+    NavnOppslag oppslag = navnOppslag.getIfAvailable();
+    Set<String> ids = oppslag != null ? oppslag.utdanningerMedNavn(navnSok) : null;
+    if (ids == null) {
+      sql.append(" AND UPPER(navn) LIKE UPPER(?)");
+      params.add("%" + navnSok + "%");
+    } else if (ids.isEmpty()) {
+      sql.append(" AND 1=0");
+    } else {
+      sql.append(" AND id IN (")
+          .append(String.join(", ", Collections.nCopies(ids.size(), "?")))
+          .append(")");
+      params.addAll(ids);
+    }
+  }
+
+  /**
+   * RowMapper for å konvertere database-rad til Utdanning objekt. Kolonner som ikke er med i
+   * resultatet (se Projeksjon) hoppes over, og feltene blir stående som null.
+   */
   private static class UtdanningRowMapper implements RowMapper<Utdanning> {
+    private Set<String> kolonner;
+
     @Override
     public Utdanning mapRow(ResultSet rs, int rowNum) throws SQLException {
+      if (kolonner == null) {
+        kolonner = Projeksjon.kolonnerI(rs);
+      }
+
       Utdanning utdanning = new Utdanning();
       utdanning.setId(rs.getString("id"));
-      utdanning.setNavn(rs.getString("navn"));
-      utdanning.setStudienivaa(rs.getString("studienivaa"));
-      utdanning.setStudiepoeng(rs.getInt("studiepoeng"));
-      utdanning.setVarighet(rs.getInt("varighet"));
-      utdanning.setStudiested(rs.getString("studiested"));
-      utdanning.setUndervisningssprak(rs.getString("undervisningssprak"));
-      utdanning.setBeskrivelse(rs.getString("beskrivelse"));
-
-      if (rs.getTimestamp("opprettet") != null) {
+      if (kolonner.contains("navn")) {
+        utdanning.setNavn(rs.getString("navn"));
+      }
+      if (kolonner.contains("studienivaa")) {
+        utdanning.setStudienivaa(rs.getString("studienivaa"));
+      }
+      if (kolonner.contains("studiepoeng")) {
+        utdanning.setStudiepoeng(rs.getInt("studiepoeng"));
+      }
+      if (kolonner.contains("varighet")) {
+        utdanning.setVarighet(rs.getInt("varighet"));
+      }
+      if (kolonner.contains("studiested")) {
+        utdanning.setStudiested(rs.getString("studiested"));
+      }
+      if (kolonner.contains("undervisningssprak")) {
+        utdanning.setUndervisningssprak(rs.getString("undervisningssprak"));
+      }
+      if (kolonner.contains("beskrivelse")) {
+        utdanning.setBeskrivelse(rs.getString("beskrivelse"));
+      }
+
+      if (kolonner.contains("opprettet") && rs.getTimestamp("opprettet") != null) {
         utdanning.setOpprettet(rs.getTimestamp("opprettet").toLocalDateTime());
       }
 
-      utdanning.setAktiv(rs.getBoolean("aktiv"));
-      utdanning.setOrganisasjonId(rs.getString("organisasjon_id"));
-      utdanning.setStarttidspunkt(rs.getString("starttidspunkt"));
+      if (kolonner.contains("aktiv")) {
+        utdanning.setAktiv(rs.getBoolean("aktiv"));
+      }
+      if (kolonner.contains("organisasjon_id")) {
+        utdanning.setOrganisasjonId(rs.getString("organisasjon_id"));
+      }
+      if (kolonner.contains("starttidspunkt")) {
+        utdanning.setStarttidspunkt(rs.getString("starttidspunkt"));
+      }
 
       // Convert string to enum
-      String studieformStr = rs.getString("studieform");
+      String studieformStr = kolonner.contains("studieform") ? rs.getString("studieform") : null;
       if (studieformStr != null) {
         utdanning.setStudieform(Studieform.valueOf(studieformStr));
       }
@@ -0,0 +1,20 @@
+package no.utdanning.opptak.repository;
+
+import java.util.Set;
+
+/**
+ * Oppslag av id-er på deltekst i navn, uten å gå via databasen. Repositoryene bruker det i stedet
+ * for UPPER(navn) LIKE når det er tilgjengelig, og faller tilbake til LIKE når oppslaget svarer
+ * null.
+ */
+public interface NavnOppslag {
+
+  /**
+   * Id-ene til utdanningene med søket i navnet (uten forskjell på store og små bokstaver), eller
+   * null hvis oppslaget ikke kan svare og databasen må spørres
+   */
+  Set<String> utdanningerMedNavn(String sok);
+
+  /** Som utdanningerMedNavn, for organisasjoner */
+  Set<String> organisasjonerMedNavn(String sok);
+}
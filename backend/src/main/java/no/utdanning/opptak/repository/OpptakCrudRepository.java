@@ -18,11 +18,27 @@ public interface OpptakCrudRepository {
   Opptak findById(String id);
 
   /** Henter opptak filtrert på aktiv status */
-  List<Opptak> findByAktiv(boolean aktiv);
+  default List<Opptak> findByAktiv(boolean aktiv) {
+    return findByAktiv(aktiv, Projeksjon.alle());
+  }
+
+  /** Som findByAktiv, men henter kun kolonnene i projeksjonen */
+  List<Opptak> findByAktiv(boolean aktiv, Projeksjon projeksjon);
 
   /** Henter opptak for en spesifikk administrator organisasjon */
   List<Opptak> findByAdministratorOrganisasjonId(String administratorOrganisasjonId);
 
+  /**
+   * Henter alle opptak en organisasjon kan se i én spørring: opptak organisasjonen administrerer,
+   * samt aktive opptak organisasjonen har fått tilgang til via opptak_tilgang.
+   */
+  default List<Opptak> findSynligeForOrganisasjonId(String organisasjonId) {
+    return findSynligeForOrganisasjonId(organisasjonId, Projeksjon.alle());
+  }
+
+  /** Som findSynligeForOrganisasjonId, men henter kun kolonnene i projeksjonen */
+  List<Opptak> findSynligeForOrganisasjonId(String organisasjonId, Projeksjon projeksjon);
+
   /** Henter opptak filtrert på type */
   List<Opptak> findByType(OpptaksType type);
 
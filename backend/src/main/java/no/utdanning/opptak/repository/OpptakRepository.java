@@ -3,10 +3,16 @@ package no.utdanning.opptak.repository;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import no.utdanning.opptak.domain.*;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
@@ -41,22 +47,87 @@ public class OpptakRepository {
     return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
   }
 
-  public List<Utdanning> findUtdanningerByOrganisasjonId(String organisasjonId) {
-    String sql = "SELECT * FROM utdanning WHERE organisasjon_id = ? AND aktiv = true ORDER BY navn";
-    return jdbcTemplate.query(sql, new UtdanningRowMapper(), organisasjonId);
+  /**
+   * Henter aktive utdanninger for flere organisasjoner i én spørring, gruppert på organisasjon ID.
+   * Hver organisasjon får maks {@code limitPerOrganisasjon} utdanninger, sortert på navn.
+   */
+  public Map<String, List<Utdanning>> findUtdanningerByOrganisasjonIds(
+      Collection<String> organisasjonIds, int limitPerOrganisasjon) {
+    if (organisasjonIds.isEmpty()) {
+      return Map.of();
+    }
+
+    String sql =
+        """
+            SELECT * FROM (
+                SELECT u.*,
+                       ROW_NUMBER() OVER (PARTITION BY u.organisasjon_id ORDER BY u.navn) AS rad
+                FROM utdanning u
+                WHERE u.organisasjon_id IN (%s) AND u.aktiv = true
+            ) x
+            WHERE x.rad <= ?
+            ORDER BY x.organisasjon_id, x.navn
+        """
+            .formatted(placeholders(organisasjonIds.size()));
+
+    Map<String, List<Utdanning>> result = new HashMap<>();
+    UtdanningRowMapper mapper = new UtdanningRowMapper();
+    jdbcTemplate.query(
+        sql,
+        (RowCallbackHandler)
+            rs ->
+                result
+                    .computeIfAbsent(rs.getString("organisasjon_id"), id -> new ArrayList<>())
+                    .add(mapper.mapRow(rs, rs.getRow())),
+        withLimit(organisasjonIds, limitPerOrganisasjon));
+    return result;
   }
 
-  public List<UtdanningIOpptak> findUtdanningerByOpptakId(String opptakId) {
+  /**
+   * Henter aktive utdanninger i flere opptak i én spørring, gruppert på opptak ID. Hvert opptak får
+   * maks {@code limitPerOpptak} utdanninger, sortert på utdanningsnavn.
+   */
+  public Map<String, List<UtdanningIOpptak>> findUtdanningerByOpptakIds(
+      Collection<String> opptakIds, int limitPerOpptak) {
+    if (opptakIds.isEmpty()) {
+      return Map.of();
+    }
+
     String sql =
         """
-            SELECT uio.*, u.navn as utdanning_navn, o.navn as opptak_navn
-            FROM utdanning_i_opptak uio
-            JOIN utdanning u ON uio.utdanning_id = u.id
-            JOIN opptak o ON uio.opptak_id = o.id
-            WHERE uio.opptak_id = ? AND uio.aktivt = true
-            ORDER BY u.navn
-        """;
-    return jdbcTemplate.query(sql, new UtdanningIOpptakRowMapper(), opptakId);
+            SELECT * FROM (
+                SELECT uio.*, u.navn AS utdanning_navn,
+                       ROW_NUMBER() OVER (PARTITION BY uio.opptak_id ORDER BY u.navn) AS rad
+                FROM utdanning_i_opptak uio
+                JOIN utdanning u ON uio.utdanning_id = u.id
+                WHERE uio.opptak_id IN (%s) AND uio.aktivt = true
+            ) x
+            WHERE x.rad <= ?
+            ORDER BY x.opptak_id, x.utdanning_navn
+        """
+            .formatted(placeholders(opptakIds.size()));
+
+    Map<String, List<UtdanningIOpptak>> result = new HashMap<>();
+    UtdanningIOpptakRowMapper mapper = new UtdanningIOpptakRowMapper();
+    jdbcTemplate.query(
+        sql,
+        (RowCallbackHandler)
+            rs ->
+                result
+                    .computeIfAbsent(rs.getString("opptak_id"), id -> new ArrayList<>())
+                    .add(mapper.mapRow(rs, rs.getRow())),
+        withLimit(opptakIds, limitPerOpptak));
+    return result;
+  }
+
+  private static String placeholders(int antall) {
+    return String.join(", ", Collections.nCopies(antall, "?"));
+  }
+
+  private static Object[] withLimit(Collection<String> ids, int limit) {
+    List<Object> params = new ArrayList<>(ids);
+    params.add(limit);
+    return params.toArray();
   }
 
   public Opptak saveOpptak(Opptak opptak) {
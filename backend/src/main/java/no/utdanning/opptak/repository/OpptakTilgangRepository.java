@@ -1,7 +1,10 @@
 package no.utdanning.opptak.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import no.utdanning.opptak.domain.OpptakTilgang;
+import no.utdanning.opptak.domain.Organisasjon;
 
 /** Repository interface for OpptakTilgang entity operations */
 public interface OpptakTilgangRepository {
@@ -15,6 +18,12 @@ public interface OpptakTilgangRepository {
   /** Henter tilganger for et opptak */
   List<OpptakTilgang> findByOpptakId(String opptakId);
 
+  /**
+   * Henter organisasjoner med tilgang for flere opptak i én spørring (join mot organisasjon).
+   * Nøkkel er opptak ID; opptak uten tilganger er ikke med i resultatet.
+   */
+  Map<String, List<Organisasjon>> findOrganisasjonerByOpptakIds(Collection<String> opptakIds);
+
   /** Henter tilganger for en organisasjon */
   List<OpptakTilgang> findByOrganisasjonId(String organisasjonId);
 
@@ -1,6 +1,8 @@
 package no.utdanning.opptak.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import no.utdanning.opptak.domain.Organisasjon;
 import no.utdanning.opptak.domain.OrganisasjonsType;
 
@@ -8,19 +10,39 @@ import no.utdanning.opptak.domain.OrganisasjonsType;
 public interface OrganisasjonRepository {
 
   /** Henter alle organisasjoner */
-  List<Organisasjon> findAll();
+  default List<Organisasjon> findAll() {
+    return findAll(Projeksjon.alle());
+  }
+
+  /** Som findAll, men henter kun kolonnene i projeksjonen */
+  List<Organisasjon> findAll(Projeksjon projeksjon);
 
   /** Henter organisasjon ved ID */
   Organisasjon findById(String id);
 
-  /** Henter organisasjoner filtrert på aktiv status */
-  List<Organisasjon> findByAktiv(boolean aktiv);
+  /** Henter organisasjoner for flere ID-er i én spørring. Dupliserte ID-er slås sammen. */
+  List<Organisasjon> findByIds(Collection<String> ids);
 
-  /** Henter organisasjoner filtrert på type */
-  List<Organisasjon> findByType(OrganisasjonsType type);
+  /** Henter ID-ene til aktive organisasjoner, f.eks. for å validere en import uten oppslag per rad */
+  Set<String> findAktiveIds();
 
-  /** Søker organisasjoner på navn (case insensitive) */
-  List<Organisasjon> findByNavnContainingIgnoreCase(String navnSok);
+  /**
+   * Søker organisasjoner med kombinerte filtre i én spørring, sortert på navn (og id)
+   *
+   * @param aktiv filtrer på aktiv status, nullable
+   * @param type filtrer på organisasjonstype, nullable
+   * @param navnSok søketekst i navn (case insensitive), nullable
+   * @param limit maksimalt antall resultater, null for alle
+   * @param offset start offset (for paginering), nullable
+   * @return filtrerte organisasjoner
+   */
+  List<Organisasjon> findWithFilters(
+      Boolean aktiv,
+      OrganisasjonsType type,
+      String navnSok,
+      Integer limit,
+      Integer offset,
+      Projeksjon projeksjon);
 
   /** Henter organisasjon ved organisasjonsnummer */
   Organisasjon findByOrganisasjonsnummer(String organisasjonsnummer);
@@ -0,0 +1,107 @@
+package no.utdanning.opptak.repository;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Kolonneutvalg for lesespørringer. Listevisninger som bare viser noen få felter slipper da å hente
+ * TEXT-kolonner som beskrivelse og adresse. RowMapperne setter kun felter for kolonner som finnes i
+ * resultatet, så objektene blir delvis fylt ut når en projeksjon er brukt.
+ */
+public final class Projeksjon {
+
+  private static final Projeksjon ALLE = new Projeksjon(null);
+
+  /** Kolonnenavn settes rett inn i SQL, så kun enkle identifikatorer er tillatt */
+  private static final Pattern KOLONNENAVN = Pattern.compile("[a-z_][a-z0-9_]*");
+
+  private final Set<String> kolonner;
+
+  private Projeksjon(Set<String> kolonner) {
+    this.kolonner = kolonner;
+  }
+
+  /** Alle kolonner, tilsvarer SELECT * */
+  public static Projeksjon alle() {
+    return ALLE;
+  }
+
+  /** Kun de gitte kolonnene. Tom samling gir alle kolonner. */
+  public static Projeksjon av(Collection<String> kolonner) {
+    if (kolonner == null || kolonner.isEmpty()) {
+      return ALLE;
+    }
+    Set<String> valgte = new LinkedHashSet<>();
+    for (String kolonne : kolonner) {
+      String normalisert = kolonne.toLowerCase(Locale.ROOT);
+      if (!KOLONNENAVN.matcher(normalisert).matches()) {
+        throw new IllegalArgumentException("Ugyldig kolonnenavn: " + kolonne);
+      }
+      valgte.add(normalisert);
+    }
+    return new Projeksjon(Collections.unmodifiableSet(valgte));
+  }
+
+  public boolean erAlle() {
+    return kolonner == null;
+  }
+
+  /** Valgte kolonner, eller null når alle kolonner hentes */
+  public Set<String> getKolonner() {
+    return kolonner;
+  }
+
+  /** Kolonneliste til SELECT uten tabellalias */
+  public String select() {
+    return erAlle() ? "*" : String.join(", ", kolonner);
+  }
+
+  /** Kolonneliste til SELECT med tabellalias, f.eks. "u.id, u.navn" */
+  public String select(String alias) {
+    if (erAlle()) {
+      return alias + ".*";
+    }
+    return kolonner.stream().map(kolonne -> alias + "." + kolonne).collect(Collectors.joining(", "));
+  }
+
+  /** Kolonnene i et resultatsett (små bokstaver), slik at RowMappere kan hoppe over de som mangler */
+  static Set<String> kolonnerI(ResultSet rs) throws SQLException {
+    ResultSetMetaData metaData = rs.getMetaData();
+    Set<String> navn = new HashSet<>();
+    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+      navn.add(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT));
+    }
+    return navn;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Projeksjon other)) {
+      return false;
+    }
+    return Objects.equals(kolonner, other.kolonner);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(kolonner);
+  }
+
+  @Override
+  public String toString() {
+    return "Projeksjon[" + select() + "]";
+  }
+}
@@ -1,5 +1,6 @@
 package no.utdanning.opptak.repository;
 
+import java.util.Collection;
 import java.util.List;
 import no.utdanning.opptak.domain.Studieform;
 import no.utdanning.opptak.domain.Utdanning;
@@ -13,6 +14,9 @@ public interface UtdanningRepository {
   /** Henter utdanning ved ID */
   Utdanning findById(String id);
 
+  /** Henter utdanninger for flere ID-er i én spørring, i vilkårlig rekkefølge */
+  List<Utdanning> findByIds(Collection<String> ids);
+
   /** Henter utdanninger filtrert på aktiv status */
   List<Utdanning> findByAktiv(boolean aktiv);
 
@@ -22,9 +26,6 @@ public interface UtdanningRepository {
   /** Henter aktive utdanninger for en organisasjon */
   List<Utdanning> findByOrganisasjonIdAndAktiv(String organisasjonId, boolean aktiv);
 
-  /** Søker utdanninger på navn (case insensitive) */
-  List<Utdanning> findByNavnContainingIgnoreCase(String navnSok);
-
   /** Henter utdanninger filtrert på studienivå */
   List<Utdanning> findByStudienivaa(String studienivaa);
 
@@ -50,6 +51,28 @@ public interface UtdanningRepository {
    * @param offset start offset (for paginering)
    * @return filtrerte utdanninger
    */
+  default List<Utdanning> findWithFilters(
+      String navn,
+      String studienivaa,
+      String studiested,
+      String organisasjonId,
+      Studieform studieform,
+      Boolean aktiv,
+      Integer limit,
+      Integer offset) {
+    return findWithFilters(
+        navn,
+        studienivaa,
+        studiested,
+        organisasjonId,
+        studieform,
+        aktiv,
+        limit,
+        offset,
+        Projeksjon.alle());
+  }
+
+  /** Som findWithFilters, men henter kun kolonnene i projeksjonen */
   List<Utdanning> findWithFilters(
       String navn,
       String studienivaa,
@@ -58,7 +81,8 @@ public interface UtdanningRepository {
       Studieform studieform,
       Boolean aktiv,
       Integer limit,
-      Integer offset);
+      Integer offset,
+      Projeksjon projeksjon);
 
   /**
    * Teller utdanninger med samme filtre som findWithFilters
@@ -79,9 +103,100 @@ public interface UtdanningRepository {
       Studieform studieform,
       Boolean aktiv);
 
+  /**
+   * Som findWithFilters, men henter også totalt antall treff i samme spørring (COUNT(*) OVER()).
+   * Sparer en ekstra skanning når klienten ber om totalElements.
+   *
+   * @return siden med utdanninger og totalt antall som matcher filtrene
+   */
+  default UtdanningSide findWithFiltersAndCount(
+      String navn,
+      String studienivaa,
+      String studiested,
+      String organisasjonId,
+      Studieform studieform,
+      Boolean aktiv,
+      int limit,
+      int offset) {
+    return findWithFiltersAndCount(
+        navn,
+        studienivaa,
+        studiested,
+        organisasjonId,
+        studieform,
+        aktiv,
+        limit,
+        offset,
+        Projeksjon.alle());
+  }
+
+  /** Som findWithFiltersAndCount, men henter kun kolonnene i projeksjonen */
+  UtdanningSide findWithFiltersAndCount(
+      String navn,
+      String studienivaa,
+      String studiested,
+      String organisasjonId,
+      Studieform studieform,
+      Boolean aktiv,
+      int limit,
+      int offset,
+      Projeksjon projeksjon);
+
+  /**
+   * Søker utdanninger med kombinerte filtre og keyset-paginering. Resultatet er sortert på (navn,
+   * id), og raden etter (afterNavn, afterId) er første rad som returneres. Tåler innsettinger
+   * mellom sidene og blir ikke tregere for dype sider, i motsetning til OFFSET.
+   *
+   * @param afterNavn navn på siste rad fra forrige side, null for første side
+   * @param afterId id på siste rad fra forrige side, null for første side
+   * @param limit maksimalt antall rader som hentes
+   * @return filtrerte utdanninger etter gitt posisjon
+   */
+  default List<Utdanning> findWithFiltersAfter(
+      String navn,
+      String studienivaa,
+      String studiested,
+      String organisasjonId,
+      Studieform studieform,
+      Boolean aktiv,
+      String afterNavn,
+      String afterId,
+      int limit) {
+    return findWithFiltersAfter(
+        navn,
+        studienivaa,
+        studiested,
+        organisasjonId,
+        studieform,
+        aktiv,
+        afterNavn,
+        afterId,
+        limit,
+        Projeksjon.alle());
+  }
+
+  /** Som findWithFiltersAfter, men henter kun kolonnene i projeksjonen */
+  List<Utdanning> findWithFiltersAfter(
+      String navn,
+      String studienivaa,
+      String studiested,
+      String organisasjonId,
+      Studieform studieform,
+      Boolean aktiv,
+      String afterNavn,
+      String afterId,
+      int limit,
+      Projeksjon projeksjon);
+
   /** Lagrer utdanning (oppretter ny eller oppdaterer eksisterende) */
   Utdanning save(Utdanning utdanning);
 
+  /**
+   * Oppretter nye utdanninger med én JDBC-batch. Setter id og opprettet på hver utdanning. Kalles
+   * innenfor en transaksjon av den som vil ha alle eller ingen.
+   */
+  void opprettAlle(List<Utdanning> utdanninger);
+
   /** Sletter utdanning permanent */
   boolean deleteById(String id);
 
@@ -93,4 +208,7 @@ public interface UtdanningRepository {
 
   /** Sjekker om utdanning med gitt ID eksisterer */
   boolean existsById(String id);
+
+  /** En side med utdanninger sammen med totalt antall treff for filtrene */
+  record UtdanningSide(List<Utdanning> content, long totalElements) {}
 }
@@ -1,59 +1,92 @@
 package no.utdanning.opptak.service;
 
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
 import no.utdanning.opptak.domain.Bruker;
+import no.utdanning.opptak.domain.BrukerLegitimasjon;
 import no.utdanning.opptak.repository.BrukerRepository;
+import no.utdanning.opptak.repository.JdbcBrukerRepository;
+import no.utdanning.opptak.service.security.InnloggingsBegrensning;
+import no.utdanning.opptak.service.security.LegitimasjonCache;
+import no.utdanning.opptak.service.security.PassordVerifisering;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 @Service
 public class AuthService {
 
   @Autowired private BrukerRepository brukerRepository;
 
+  @Autowired private JdbcBrukerRepository jdbcBrukerRepository;
+
+  // Innloggingen leser legitimasjon med én JDBC-spørring, ikke JPA-entiteten Bruker
+  @Autowired private LegitimasjonCache legitimasjonCache;
+
   @Autowired private JwtService jwtService;
 
-  private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+  @Autowired private SistInnloggetBuffer sistInnloggetBuffer;
 
-  public String login(String email, String passord) {
-    Optional<Bruker> brukerOpt = brukerRepository.findByEmail(email);
+  // BCrypt kjøres på egen trådpool, ikke på forespørselstråden
+  @Autowired private PassordVerifisering passordVerifisering;
 
-    if (brukerOpt.isEmpty()) {
-      throw new SecurityException("Ugyldig email eller passord");
-    }
+  @Autowired private InnloggingsBegrensning innloggingsBegrensning;
 
-    Bruker bruker = brukerOpt.get();
+  public String login(String email, String passord) {
+    // Avvises før oppslag og BCrypt når e-posten eller IP-en har brukt opp forsøkene sine
+    innloggingsBegrensning.sjekk(email, klientIp());
 
-    if (!bruker.getAktiv()) {
-      throw new SecurityException("Brukeren er deaktivert");
+    BrukerLegitimasjon bruker = legitimasjonCache.hent(email);
+
+    if (bruker == null) {
+      // Like lang tid som et feil passord, så ukjente adresser ikke kan skilles ut
+      passordVerifisering.matchesFalskHash(passord);
+      throw new SecurityException("Ugyldig email eller passord");
     }
 
-    if (!passwordEncoder.matches(passord, bruker.getPassordHash())) {
+    // Passordet sjekkes først, så en deaktivert konto ikke kan skilles ut uten riktig passord
+    if (!passordVerifisering.matches(passord, bruker.passordHash())) {
       throw new SecurityException("Ugyldig email eller passord");
     }
 
-    // Oppdater sist innlogget
-    bruker.setSistInnlogget(LocalDateTime.now());
-    brukerRepository.save(bruker);
+    if (!bruker.aktiv()) {
+      throw new SecurityException("Brukeren er deaktivert");
+    }
 
-    // Hent roller
-    List<String> rolleNavn =
-        bruker.getRoller().stream().map(brukerRolle -> brukerRolle.getRolleId()).toList();
+    // Sist innlogget skrives i batch av SistInnloggetBuffer, ikke i innloggingen
+    sistInnloggetBuffer.registrer(bruker.id(), LocalDateTime.now());
 
     // Generer JWT token
     return jwtService.generateToken(
-        bruker.getId(), bruker.getEmail(), bruker.getNavn(), rolleNavn, bruker.getOrganisasjonId());
+        bruker.id(), bruker.email(), bruker.navn(), bruker.rolleIds(), bruker.organisasjonId());
+  }
+
+  /** Adressen forespørselen kom fra, eller null utenfor en HTTP-forespørsel */
+  private static String klientIp() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    return attributes instanceof ServletRequestAttributes servlet
+        ? servlet.getRequest().getRemoteAddr()
+        : null;
+  }
+
+  /** Deaktiverer en bruker, slik at den ikke lenger kan logge inn */
+  public Bruker deaktiverBruker(String brukerId) {
+    if (!jdbcBrukerRepository.settAktiv(brukerId, false)) {
+      throw new IllegalArgumentException("Bruker ikke funnet: " + brukerId);
+    }
+    legitimasjonCache.glem(brukerId);
+    return brukerRepository
+        .findById(brukerId)
+        .orElseThrow(() -> new IllegalArgumentException("Bruker ikke funnet: " + brukerId));
   }
 
   public String hashPassord(String passord) {
-    return passwordEncoder.encode(passord);
+    return passordVerifisering.hash(passord);
   }
 
   public boolean validerPassord(String passord, String hash) {
-    return passwordEncoder.matches(passord, hash);
+    return passordVerifisering.matches(passord, hash);
   }
 
   public Bruker getBrukerByEmail(String email) {
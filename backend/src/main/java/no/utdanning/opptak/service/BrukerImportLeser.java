@@ -0,0 +1,62 @@
+package no.utdanning.opptak.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.util.List;
+
+/**
+ * Leser brukere for masseimport én linje om gangen, slik at store filer ikke holdes i minnet.
+ *
+ * <p>CSV har overskriftslinje med kolonnene email, navn, passord og valgfritt organisasjon_id og
+ * roller (skilt med semikolon). NDJSON har ett objekt per linje med feltene email, navn, passord,
+ * organisasjonId og roller (liste). Tomme linjer hoppes over. En linje som ikke kan tolkes gir en
+ * Rad med feil, ikke et unntak, så resten av filen kan importeres. Selve tolkningen deles med
+ * utdanningsimporten i ImportLeser.
+ */
+public class BrukerImportLeser {
+
+  private static final List<String> PAKREVDE_KOLONNER = List.of("email", "navn", "passord");
+
+  /**
+   * Én bruker fra filen.
+   *
+   * @param linje linjenummeret i filen (fra 1), for feilrapporten
+   * @param feil hvorfor linjen ikke kunne tolkes, eller null
+   */
+  public record Rad(
+      int linje,
+      String email,
+      String navn,
+      String passord,
+      String organisasjonId,
+      List<String> roller,
+      String feil) {}
+
+  private final ImportLeser leser;
+
+  public BrukerImportLeser(
+      BufferedReader reader, Filformat format, ObjectMapper objectMapper) {
+    this.leser = new ImportLeser(reader, format, objectMapper, PAKREVDE_KOLONNER);
+  }
+
+  /**
+   * Leser neste bruker.
+   *
+   * @return null når filen er lest ferdig
+   * @throws IllegalArgumentException hvis CSV-overskriften mangler påkrevde kolonner
+   */
+  public Rad neste() {
+    ImportLeser.Linje linje = leser.neste();
+    if (linje == null) {
+      return null;
+    }
+    return new Rad(
+        linje.nummer(),
+        linje.tekst("email"),
+        linje.tekst("navn"),
+        linje.tekst("passord"),
+        linje.tekst("organisasjon_id"),
+        linje.liste("roller"),
+        linje.feil());
+  }
+}
@@ -0,0 +1,28 @@
+package no.utdanning.opptak.service;
+
+import java.util.List;
+
+/**
+ * Resultatet av en masseimport av brukere.
+ *
+ * @param lest antall brukere lest fra filen
+ * @param opprettet antall brukere som ble opprettet
+ * @param feilet antall brukere som ble avvist
+ * @param feil avviste linjer med årsak; begrenset i antall, se feilet for totalen
+ */
+public record BrukerImportRapport(int lest, int opprettet, int feilet, List<Feil> feil) {
+
+  /** En avvist linje i filen */
+  public record Feil(int linje, String email, String melding) {}
+
+  /** Den felles importrapporten, der nøkkelen til hver avvist rad er e-posten */
+  static BrukerImportRapport fra(ImportRapport rapport) {
+    return new BrukerImportRapport(
+        rapport.lest(),
+        rapport.opprettet(),
+        rapport.feilet(),
+        rapport.feil().stream()
+            .map(feil -> new Feil(feil.linje(), feil.nokkel(), feil.melding()))
+            .toList());
+  }
+}
@@ -0,0 +1,284 @@
+package no.utdanning.opptak.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import no.utdanning.opptak.domain.BrukerLegitimasjon;
+import no.utdanning.opptak.repository.JdbcBrukerRepository;
+import no.utdanning.opptak.service.BrukerImportLeser.Rad;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Masseimport av brukere, f.eks. alle ansatte ved en ny institusjon. Filen leses i biter; for hver
+ * bit valideres radene, passordene hashes i parallell og brukere og roller skrives med
+ * JDBC-batcher i én transaksjon. Feiler en batch, lagres radene i biten enkeltvis, så bare de
+ * ugyldige avvises.
+ *
+ * <p>BCrypt kjøres på en egen trådpool med en andel av kjernene, atskilt fra PassordVerifisering,
+ * slik at en import ikke fyller køen for innlogging. Trådene avsluttes når ingen import kjører.
+ */
+@Service
+public class BrukerImportService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BrukerImportService.class);
+
+  private final JdbcBrukerRepository brukerRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectMapper objectMapper;
+  private final PasswordEncoder passwordEncoder;
+  private final ThreadPoolExecutor executor;
+  private final int bitStorrelse;
+  private final int maksFeil;
+  private final Counter opprettet;
+  private final Counter avvist;
+
+  @Autowired
+  public BrukerImportService(
+      JdbcBrukerRepository brukerRepository,
+      TransactionTemplate transactionTemplate,
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry,
+      @Value("${app.bruker.import.andel-kjerner:0.5}") double andelKjerner,
+      @Value("${app.bruker.import.bit-storrelse:500}") int bitStorrelse,
+      @Value("${app.bruker.import.maks-feil:1000}") int maksFeil) {
+    this(
+        brukerRepository,
+        transactionTemplate,
+        objectMapper,
+        meterRegistry,
+        new BCryptPasswordEncoder(),
+        Math.max(1, (int) Math.round(Runtime.getRuntime().availableProcessors() * andelKjerner)),
+        bitStorrelse,
+        maksFeil);
+  }
+
+  public BrukerImportService(
+      JdbcBrukerRepository brukerRepository,
+      TransactionTemplate transactionTemplate,
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry,
+      PasswordEncoder passwordEncoder,
+      int traader,
+      int bitStorrelse,
+      int maksFeil) {
+    this.brukerRepository = brukerRepository;
+    this.transactionTemplate = transactionTemplate;
+    this.objectMapper = objectMapper;
+    this.passwordEncoder = passwordEncoder;
+    this.executor =
+        new ThreadPoolExecutor(
+            traader,
+            traader,
+            30,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            traadfabrikk());
+    this.executor.allowCoreThreadTimeOut(true);
+    this.bitStorrelse = bitStorrelse;
+    this.maksFeil = maksFeil;
+    this.opprettet = radMetrikk(meterRegistry, "opprettet");
+    this.avvist = radMetrikk(meterRegistry, "avvist");
+  }
+
+  /**
+   * Importerer brukerne i filen. Brukere som er gyldige opprettes selv om andre linjer avvises.
+   *
+   * @param importertAv bruker-ID som registreres som tildeler av rollene
+   * @throws IllegalArgumentException hvis filen ikke kan leses i det hele tatt (f.eks. CSV uten
+   *     påkrevde kolonner)
+   */
+  public BrukerImportRapport importer(
+      BufferedReader reader, Filformat format, String importertAv) {
+    BrukerImportLeser leser = new BrukerImportLeser(reader, format, objectMapper);
+    Import imp = new Import(importertAv, brukerRepository.findAlleRolleIds());
+
+    List<Rad> bit = new ArrayList<>(bitStorrelse);
+    for (Rad rad = leser.neste(); rad != null; rad = leser.neste()) {
+      bit.add(rad);
+      if (bit.size() == bitStorrelse) {
+        behandle(bit, imp);
+        bit.clear();
+      }
+    }
+    behandle(bit, imp);
+
+    LOGGER.info("Brukerimport ferdig: {}", imp.rapport);
+    return BrukerImportRapport.fra(imp.rapport.bygg());
+  }
+
+  private void behandle(List<Rad> bit, Import imp) {
+    if (bit.isEmpty()) {
+      return;
+    }
+    imp.rapport.lest(bit.size());
+
+    List<Rad> gyldige = new ArrayList<>(bit.size());
+    for (Rad bruker : bit) {
+      String feil = bruker.feil() != null ? bruker.feil() : valider(bruker, imp);
+      if (feil != null) {
+        imp.rapport.avvis(bruker.linje(), bruker.email(), feil);
+      } else {
+        gyldige.add(bruker);
+      }
+    }
+    gyldige = fjernEksisterende(gyldige, imp);
+
+    List<BrukerLegitimasjon> brukere = hashPassord(gyldige);
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> brukerRepository.opprettBatch(brukere, imp.importertAv));
+      imp.rapport.opprettet(brukere.size());
+    } catch (DataAccessException e) {
+      // Typisk en e-post som ble tatt i mellomtiden; finn radene som feiler
+      LOGGER.warn("Batch i brukerimport feilet, lagrer radene enkeltvis: {}", e.getMessage());
+      for (int i = 0; i < brukere.size(); i++) {
+        BrukerLegitimasjon bruker = brukere.get(i);
+        try {
+          transactionTemplate.executeWithoutResult(
+              status -> brukerRepository.opprettBatch(List.of(bruker), imp.importertAv));
+          imp.rapport.opprettet(1);
+        } catch (DataAccessException radFeil) {
+          imp.rapport.avvis(gyldige.get(i).linje(), bruker.email(), "Kunne ikke lagre brukeren");
+        }
+      }
+    }
+
+    LOGGER.info("Brukerimport: {}", imp.rapport);
+  }
+
+  private String valider(Rad bruker, Import imp) {
+    if (bruker.email() == null || bruker.email().indexOf('@') < 1) {
+      return "Mangler gyldig e-post";
+    }
+    if (bruker.navn() == null) {
+      return "Mangler navn";
+    }
+    if (bruker.passord() == null) {
+      return "Mangler passord";
+    }
+    for (String rolle : bruker.roller()) {
+      if (!imp.roller.contains(rolle)) {
+        return "Ukjent rolle: " + rolle;
+      }
+    }
+    if (!imp.emails.add(bruker.email())) {
+      return "E-posten finnes flere ganger i filen";
+    }
+    return null;
+  }
+
+  /** Avviser brukere med e-post som allerede er i bruk eller organisasjon som ikke finnes */
+  private List<Rad> fjernEksisterende(List<Rad> brukere, Import imp) {
+    Set<String> emails = new HashSet<>();
+    Set<String> organisasjoner = new HashSet<>();
+    for (Rad bruker : brukere) {
+      emails.add(bruker.email());
+      if (bruker.organisasjonId() != null) {
+        organisasjoner.add(bruker.organisasjonId());
+      }
+    }
+    Set<String> tatt = brukerRepository.finnEksisterendeEmails(emails);
+    Set<String> finnes = brukerRepository.finnEksisterendeOrganisasjoner(organisasjoner);
+
+    List<Rad> gyldige = new ArrayList<>(brukere.size());
+    for (Rad bruker : brukere) {
+      if (tatt.contains(bruker.email())) {
+        imp.rapport.avvis(bruker.linje(), bruker.email(), "E-posten er allerede i bruk");
+      } else if (bruker.organisasjonId() != null && !finnes.contains(bruker.organisasjonId())) {
+        imp.rapport.avvis(
+            bruker.linje(), bruker.email(), "Ukjent organisasjon: " + bruker.organisasjonId());
+      } else {
+        gyldige.add(bruker);
+      }
+    }
+    return gyldige;
+  }
+
+  /** Hasher passordene for biten på import-poolen og venter til alle er ferdige */
+  private List<BrukerLegitimasjon> hashPassord(List<Rad> nye) {
+    List<Callable<String>> oppgaver =
+        nye.stream()
+            .map(bruker -> (Callable<String>) () -> passwordEncoder.encode(bruker.passord()))
+            .toList();
+    List<BrukerLegitimasjon> brukere = new ArrayList<>(nye.size());
+    try {
+      List<Future<String>> hasher = executor.invokeAll(oppgaver);
+      for (int i = 0; i < nye.size(); i++) {
+        Rad bruker = nye.get(i);
+        brukere.add(
+            new BrukerLegitimasjon(
+                UUID.randomUUID().toString(),
+                bruker.email(),
+                bruker.navn(),
+                hasher.get(i).get(),
+                bruker.organisasjonId(),
+                true,
+                bruker.roller()));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Avbrutt under brukerimport", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Hashing av passord feilet", e.getCause());
+    }
+    return brukere;
+  }
+
+  @PreDestroy
+  public void stopp() {
+    executor.shutdownNow();
+  }
+
+  private static Counter radMetrikk(MeterRegistry registry, String utfall) {
+    return Counter.builder("bruker.import.rader")
+        .description("Rader behandlet i masseimport av brukere")
+        .tag("utfall", utfall)
+        .register(registry);
+  }
+
+  private static ThreadFactory traadfabrikk() {
+    AtomicInteger nummer = new AtomicInteger();
+    return oppgave -> {
+      Thread traad = new Thread(oppgave, "bruker-import-" + nummer.incrementAndGet());
+      traad.setDaemon(true);
+      return traad;
+    };
+  }
+
+  /** Tilstanden for én import */
+  private final class Import {
+    private final String importertAv;
+    private final Set<String> roller;
+    private final Set<String> emails = new HashSet<>();
+    private final ImportRapport.Bygger rapport =
+        new ImportRapport.Bygger(maksFeil, opprettet, avvist);
+
+    Import(String importertAv, Set<String> roller) {
+      this.importertAv = importertAv;
+      this.roller = roller;
+    }
+  }
+}
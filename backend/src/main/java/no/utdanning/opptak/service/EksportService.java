@@ -0,0 +1,243 @@
+package no.utdanning.opptak.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import no.utdanning.opptak.repository.JdbcEksportRepository;
+import no.utdanning.opptak.repository.JdbcEksportRepository.Datasett;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Strømmer et helt datasett som NDJSON eller CSV, f.eks. for nattlig uttrekk til rapportering.
+ * Radene skrives etter hvert som de leses, side for side, og ingenting samles opp i minnet. Skriving
+ * til en treg klient blokkerer lesingen, så databasen aldri leser mer enn klienten tar imot.
+ *
+ * <p>Radene kommer i id-rekkefølge. En avbrutt eksport kan fortsette med id til siste mottatte rad
+ * som cursor. Sidene er egne spørringer, så rader som endres under eksporten kan komme med i sin
+ * nye tilstand. Utvalget på tid gjelder når radene ble opprettet, ikke når de sist ble endret.
+ */
+@Service
+public class EksportService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EksportService.class);
+
+  private final JdbcEksportRepository eksportRepository;
+  private final ObjectMapper objectMapper;
+  private final MeterRegistry meterRegistry;
+  private final int sideStorrelse;
+
+  public EksportService(
+      JdbcEksportRepository eksportRepository,
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry,
+      @Value("${app.eksport.side-storrelse:10000}") int sideStorrelse) {
+    this.eksportRepository = eksportRepository;
+    this.objectMapper = objectMapper;
+    this.meterRegistry = meterRegistry;
+    this.sideStorrelse = sideStorrelse;
+  }
+
+  /**
+   * Skriver datasettet til strømmen. Strømmen flushes etter hver side, men lukkes ikke.
+   *
+   * @param etter id til siste rad klienten allerede har, eller null
+   * @param opprettetFra hvis satt, bare rader opprettet på eller etter dette tidspunktet
+   * @return antall rader skrevet
+   */
+  public long eksporter(
+      Datasett datasett,
+      Filformat format,
+      String etter,
+      LocalDateTime opprettetFra,
+      OutputStream ut)
+      throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(ut, StandardCharsets.UTF_8));
+    RadSkriver skriver =
+        format == Filformat.CSV
+            ? new CsvSkriver(writer, datasett.kolonner())
+            : new NdjsonSkriver(objectMapper, writer, datasett.kolonner());
+    Counter rader =
+        Counter.builder("eksport.rader")
+            .description("Rader skrevet i eksport")
+            .tag("datasett", datasett.sti())
+            .register(meterRegistry);
+
+    long antall = 0;
+    String cursor = etter;
+    JdbcEksportRepository.Side side;
+    try {
+      do {
+        side =
+            eksportRepository.lesSide(datasett, cursor, opprettetFra, sideStorrelse, skriver::skriv);
+        skriver.flush();
+        rader.increment(side.antall());
+        antall += side.antall();
+        cursor = side.sisteId();
+      } while (side.antall() == sideStorrelse);
+    } catch (UncheckedIOException e) {
+      // Typisk at klienten har lukket forbindelsen
+      throw e.getCause();
+    }
+
+    LOGGER.info("Eksport av {} ferdig: {} rader, siste id {}", datasett.sti(), antall, cursor);
+    return antall;
+  }
+
+  /** Verdien i kolonnen som tall, boolean eller tekst; datoer som ISO-8601 */
+  private static Object verdi(ResultSet rs, int kolonne) throws SQLException {
+    Object verdi = rs.getObject(kolonne);
+    if (verdi == null || verdi instanceof Number || verdi instanceof Boolean) {
+      return verdi;
+    }
+    if (verdi instanceof Timestamp tidspunkt) {
+      return tidspunkt.toLocalDateTime().toString();
+    }
+    if (verdi instanceof Date dato) {
+      return dato.toLocalDate().toString();
+    }
+    // Også TEXT-kolonner, som H2 gir som Clob
+    return rs.getString(kolonne);
+  }
+
+  private interface RadSkriver {
+    void skriv(ResultSet rs) throws SQLException;
+
+    void flush();
+  }
+
+  /** Ett JSON-objekt per linje med feltnavn i camelCase, som i GraphQL-skjemaet */
+  private static final class NdjsonSkriver implements RadSkriver {
+    private final JsonGenerator generator;
+    private final List<String> felter;
+
+    NdjsonSkriver(ObjectMapper objectMapper, Writer writer, List<String> kolonner) {
+      try {
+        this.generator = objectMapper.getFactory().createGenerator(writer);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+      this.felter = kolonner.stream().map(NdjsonSkriver::camelCase).toList();
+    }
+
+    @Override
+    public void skriv(ResultSet rs) throws SQLException {
+      try {
+        generator.writeStartObject();
+        for (int i = 0; i < felter.size(); i++) {
+          generator.writeFieldName(felter.get(i));
+          Object verdi = verdi(rs, i + 1);
+          if (verdi instanceof Number tall) {
+            generator.writeNumber(tall.longValue());
+          } else if (verdi instanceof Boolean sann) {
+            generator.writeBoolean(sann);
+          } else if (verdi == null) {
+            generator.writeNull();
+          } else {
+            generator.writeString((String) verdi);
+          }
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void flush() {
+      try {
+        generator.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private static String camelCase(String kolonne) {
+      StringBuilder felt = new StringBuilder(kolonne.length());
+      boolean stor = false;
+      for (char c : kolonne.toCharArray()) {
+        if (c == '_') {
+          stor = true;
+        } else {
+          felt.append(stor ? Character.toUpperCase(c) : c);
+          stor = false;
+        }
+      }
+      return felt.toString();
+    }
+  }
+
+  /** CSV med kolonnenavnene som overskrift, samme form som masseimporten leser */
+  private static final class CsvSkriver implements RadSkriver {
+    private final Writer writer;
+    private final int antallKolonner;
+
+    CsvSkriver(Writer writer, List<String> kolonner) {
+      this.writer = writer;
+      this.antallKolonner = kolonner.size();
+      try {
+        writer.write(String.join(",", kolonner));
+        writer.write('\n');
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void skriv(ResultSet rs) throws SQLException {
+      try {
+        for (int i = 1; i <= antallKolonner; i++) {
+          if (i > 1) {
+            writer.write(',');
+          }
+          Object verdi = verdi(rs, i);
+          if (verdi != null) {
+            writer.write(felt(verdi.toString()));
+          }
+        }
+        writer.write('\n');
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void flush() {
+      try {
+        writer.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /** Setter feltet i anførselstegn hvis det inneholder komma, anførselstegn eller linjeskift */
+    private static String felt(String verdi) {
+      for (int i = 0; i < verdi.length(); i++) {
+        char c = verdi.charAt(i);
+        if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+          return '"' + verdi.replace("\"", "\"\"") + '"';
+        }
+      }
+      return verdi;
+    }
+  }
+}
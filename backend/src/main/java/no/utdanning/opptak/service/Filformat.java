@@ -0,0 +1,28 @@
+package no.utdanning.opptak.service;
+
+/** Filformatene for masseimport og eksport, med medietypen de sendes som */
+public enum Filformat {
+  CSV(Filformat.CSV_TYPE, "csv"),
+  NDJSON(Filformat.NDJSON_TYPE, "ndjson");
+
+  /** Medietypene som konstanter, for bruk i annotasjoner som consumes */
+  public static final String CSV_TYPE = "text/csv";
+
+  public static final String NDJSON_TYPE = "application/x-ndjson";
+
+  private final String medietype;
+  private final String filendelse;
+
+  Filformat(String medietype, String filendelse) {
+    this.medietype = medietype;
+    this.filendelse = filendelse;
+  }
+
+  public String getMedietype() {
+    return medietype;
+  }
+
+  public String getFilendelse() {
+    return filendelse;
+  }
+}
@@ -0,0 +1,202 @@
+package no.utdanning.opptak.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Leser filer for masseimport én linje om gangen, slik at store filer ikke holdes i minnet.
+ *
+ * <p>CSV har overskriftslinje med kolonnenavnene; lister skilles med semikolon. NDJSON har ett
+ * objekt per linje; lister er JSON-lister. Feltnavn sammenlignes uten store bokstaver og
+ * understrek, så både organisasjon_id (CSV) og organisasjonId (JSON) virker. Tomme linjer hoppes
+ * over. En linje som ikke kan tolkes gir en Linje med feil, ikke et unntak, så resten av filen kan
+ * importeres.
+ */
+public class ImportLeser {
+
+  /**
+   * Én linje fra filen.
+   *
+   * @param nummer linjenummeret i filen (fra 1), for feilrapporten
+   * @param feil hvorfor linjen ikke kunne tolkes, eller null
+   */
+  public record Linje(int nummer, Map<String, Object> felter, String feil) {
+
+    static Linje ugyldig(int nummer, String feil) {
+      return new Linje(nummer, Map.of(), feil);
+    }
+
+    /** Feltets verdi uten mellomrom rundt, eller null hvis det mangler eller er tomt */
+    public String tekst(String felt) {
+      return felter.get(nokkel(felt)) instanceof String verdi ? verdi : null;
+    }
+
+    /** Feltet som liste; i CSV skilt med semikolon */
+    @SuppressWarnings("unchecked")
+    public List<String> liste(String felt) {
+      Object verdi = felter.get(nokkel(felt));
+      if (verdi instanceof List<?> liste) {
+        return (List<String>) liste;
+      }
+      if (verdi instanceof String tekst) {
+        return Arrays.stream(tekst.split(";")).map(String::trim).filter(v -> !v.isEmpty()).toList();
+      }
+      return List.of();
+    }
+  }
+
+  private final BufferedReader reader;
+  private final Filformat format;
+  private final ObjectMapper objectMapper;
+  private final List<String> pakrevdeKolonner;
+  private List<String> kolonner;
+  private int linje;
+
+  /**
+   * @param pakrevdeKolonner kolonner som må finnes i CSV-overskriften
+   */
+  public ImportLeser(
+      BufferedReader reader,
+      Filformat format,
+      ObjectMapper objectMapper,
+      List<String> pakrevdeKolonner) {
+    this.reader = reader;
+    this.format = format;
+    this.objectMapper = objectMapper;
+    this.pakrevdeKolonner = pakrevdeKolonner;
+  }
+
+  /**
+   * Leser neste linje med innhold.
+   *
+   * @return null når filen er lest ferdig
+   * @throws IllegalArgumentException hvis CSV-overskriften mangler påkrevde kolonner
+   */
+  public Linje neste() {
+    if (format == Filformat.CSV && kolonner == null) {
+      lesOverskrift();
+    }
+    String tekst;
+    do {
+      tekst = lesLinje();
+      if (tekst == null) {
+        return null;
+      }
+    } while (tekst.isBlank());
+    return format == Filformat.CSV ? fraCsv(tekst) : fraJson(tekst);
+  }
+
+  private void lesOverskrift() {
+    String overskrift = lesLinje();
+    kolonner =
+        overskrift == null
+            ? List.of()
+            : splittCsv(overskrift).stream().map(ImportLeser::nokkel).toList();
+    for (String pakrevd : pakrevdeKolonner) {
+      if (overskrift != null && !kolonner.contains(nokkel(pakrevd))) {
+        throw new IllegalArgumentException("CSV-overskriften mangler kolonnen '" + pakrevd + "'");
+      }
+    }
+  }
+
+  private Linje fraCsv(String tekst) {
+    List<String> verdier;
+    try {
+      verdier = splittCsv(tekst);
+    } catch (IllegalArgumentException e) {
+      return Linje.ugyldig(linje, e.getMessage());
+    }
+    Map<String, Object> felter = new HashMap<>();
+    for (int i = 0; i < Math.min(kolonner.size(), verdier.size()); i++) {
+      String verdi = verdier.get(i).trim();
+      if (!verdi.isEmpty()) {
+        felter.put(kolonner.get(i), verdi);
+      }
+    }
+    return new Linje(linje, felter, null);
+  }
+
+  private Linje fraJson(String tekst) {
+    JsonNode node;
+    try {
+      node = objectMapper.readTree(tekst);
+    } catch (JsonProcessingException e) {
+      return Linje.ugyldig(linje, "Ugyldig JSON");
+    }
+    if (!node.isObject()) {
+      return Linje.ugyldig(linje, "Forventet et JSON-objekt");
+    }
+    Map<String, Object> felter = new HashMap<>();
+    node.fields()
+        .forEachRemaining(
+            felt -> {
+              JsonNode verdi = felt.getValue();
+              if (verdi.isArray()) {
+                List<String> liste = new ArrayList<>();
+                verdi.forEach(element -> liste.add(element.asText().trim()));
+                felter.put(nokkel(felt.getKey()), liste);
+              } else if (!verdi.isNull() && !verdi.asText().isBlank()) {
+                felter.put(nokkel(felt.getKey()), verdi.asText().trim());
+              }
+            });
+    return new Linje(linje, felter, null);
+  }
+
+  private String lesLinje() {
+    try {
+      String tekst = reader.readLine();
+      if (tekst != null) {
+        linje++;
+      }
+      return tekst;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String nokkel(String felt) {
+    return felt.trim().replace("_", "").toLowerCase(Locale.ROOT);
+  }
+
+  /** Splitter én CSV-linje; felt i anførselstegn kan inneholde komma og doble anførselstegn */
+  static List<String> splittCsv(String tekst) {
+    List<String> felter = new ArrayList<>();
+    StringBuilder felt = new StringBuilder();
+    boolean iAnforsel = false;
+    for (int i = 0; i < tekst.length(); i++) {
+      char c = tekst.charAt(i);
+      if (iAnforsel) {
+        if (c == '"' && i + 1 < tekst.length() && tekst.charAt(i + 1) == '"') {
+          felt.append('"');
+          i++;
+        } else if (c == '"') {
+          iAnforsel = false;
+        } else {
+          felt.append(c);
+        }
+      } else if (c == '"') {
+        iAnforsel = true;
+      } else if (c == ',') {
+        felter.add(felt.toString());
+        felt.setLength(0);
+      } else {
+        felt.append(c);
+      }
+    }
+    if (iAnforsel) {
+      throw new IllegalArgumentException("Anførselstegn er ikke avsluttet");
+    }
+    felter.add(felt.toString());
+    return felter;
+  }
+}
@@ -0,0 +1,66 @@
+package no.utdanning.opptak.service;
+
+import io.micrometer.core.instrument.Counter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultatet av en masseimport.
+ *
+ * @param lest antall linjer lest fra filen
+ * @param opprettet antall rader som ble opprettet
+ * @param feilet antall linjer som ble avvist
+ * @param feil avviste linjer med årsak; begrenset i antall, se feilet for totalen
+ */
+public record ImportRapport(int lest, int opprettet, int feilet, List<Feil> feil) {
+
+  /**
+   * En avvist linje i filen.
+   *
+   * @param nokkel det som identifiserer raden for brukeren (e-post, navn), eller null
+   */
+  public record Feil(int linje, String nokkel, String melding) {}
+
+  /** Teller opp underveis i en import og oppdaterer metrikkene */
+  public static class Bygger {
+    private final int maksFeil;
+    private final Counter opprettetMetrikk;
+    private final Counter avvistMetrikk;
+    private final List<Feil> feil = new ArrayList<>();
+    private int lest;
+    private int opprettet;
+    private int feilet;
+
+    public Bygger(int maksFeil, Counter opprettetMetrikk, Counter avvistMetrikk) {
+      this.maksFeil = maksFeil;
+      this.opprettetMetrikk = opprettetMetrikk;
+      this.avvistMetrikk = avvistMetrikk;
+    }
+
+    public void lest(int antall) {
+      lest += antall;
+    }
+
+    public void opprettet(int antall) {
+      opprettet += antall;
+      opprettetMetrikk.increment(antall);
+    }
+
+    public void avvis(int linje, String nokkel, String melding) {
+      feilet++;
+      avvistMetrikk.increment();
+      if (feil.size() < maksFeil) {
+        feil.add(new Feil(linje, nokkel, melding));
+      }
+    }
+
+    public ImportRapport bygg() {
+      return new ImportRapport(lest, opprettet, feilet, List.copyOf(feil));
+    }
+
+    @Override
+    public String toString() {
+      return lest + " lest, " + opprettet + " opprettet, " + feilet + " avvist";
+    }
+  }
+}
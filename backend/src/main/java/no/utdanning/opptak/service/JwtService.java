@@ -2,11 +2,25 @@ package no.utdanning.opptak.service;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.crypto.SecretKey;
+import no.utdanning.opptak.service.security.InnloggetBruker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -15,16 +29,53 @@ public class JwtService {
   private static final String SECRET =
       "mock-jwt-secret-key-for-development-only-please-change-in-production";
   private static final int EXPIRATION_HOURS = 24;
+  private static final int STANDARD_CACHE_STORRELSE = 10_000;
 
   private final SecretKey key;
+  private final JwtParser parser;
+  private final Clock clock;
+
+  /**
+   * Verifiserte tokens, nøklet på sha256 av tokenet. Frontend sender samme token gjennom hele
+   * sesjonen, så HMAC-verifiseringen kan hoppes over for tokens vi allerede har sett. Utløpte
+   * oppføringer fjernes ved oppslag og jevnlig av fjernUtlopte, og minst nylig brukte oppføring
+   * når cachen er full.
+   */
+  private final Map<String, VerifisertToken> verifiserte;
+
+  private final Counter treff;
+  private final Counter bom;
+
+  private record VerifisertToken(InnloggetBruker bruker, Instant utloper) {}
+
+  @Autowired
+  public JwtService(
+      MeterRegistry meterRegistry,
+      @Value("${app.jwt.token-cache.maks-antall:" + STANDARD_CACHE_STORRELSE + "}") int maksAntall) {
+    this(meterRegistry, maksAntall, Clock.systemUTC());
+  }
 
-  public JwtService() {
+  public JwtService(MeterRegistry meterRegistry, int maksAntall, Clock clock) {
     this.key = Keys.hmacShaKeyFor(SECRET.getBytes());
+    this.clock = clock;
+    // Parseren er trådsikker og gjenbrukes; utløp sjekkes mot samme klokke som cachen
+    this.parser =
+        Jwts.parser().verifyWith(key).clock(() -> Date.from(clock.instant())).build();
+    this.verifiserte =
+        Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<String, VerifisertToken> eldste) {
+                return size() > maksAntall;
+              }
+            });
+    this.treff = cacheMetrikk(meterRegistry, "treff");
+    this.bom = cacheMetrikk(meterRegistry, "bom");
   }
 
   public String generateToken(
       String brukerId, String email, String navn, List<String> roller, String organisasjonId) {
-    LocalDateTime expiration = LocalDateTime.now().plusHours(EXPIRATION_HOURS);
+    Instant now = clock.instant();
 
     JwtBuilder builder =
         Jwts.builder()
@@ -32,8 +83,8 @@ public class JwtService {
             .claim("email", email)
             .claim("navn", navn)
             .claim("roller", roller)
-            .issuedAt(new Date())
-            .expiration(Date.from(expiration.atZone(ZoneId.systemDefault()).toInstant()))
+            .issuedAt(Date.from(now))
+            .expiration(Date.from(now.plus(EXPIRATION_HOURS, ChronoUnit.HOURS)))
             .signWith(key);
 
     if (organisasjonId != null) {
@@ -45,12 +96,58 @@ public class JwtService {
 
   public Claims validateToken(String token) {
     try {
-      return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+      return parser.parseSignedClaims(token).getPayload();
     } catch (JwtException e) {
       throw new SecurityException("Ugyldig JWT token: " + e.getMessage());
     }
   }
 
+  /**
+   * Verifiserer tokenet og samler claims i en InnloggetBruker. Tokens som allerede er verifisert
+   * hentes fra cachen frem til de utløper; utløpte tokens avvises av parseren.
+   *
+   * @throws SecurityException hvis tokenet er ugyldig eller utløpt
+   */
+  public InnloggetBruker verifiser(String token) {
+    String nokkel = sha256(token);
+    VerifisertToken cachet = verifiserte.get(nokkel);
+    if (cachet != null) {
+      if (clock.instant().isBefore(cachet.utloper())) {
+        treff.increment();
+        return cachet.bruker();
+      }
+      verifiserte.remove(nokkel);
+    }
+    bom.increment();
+
+    Claims claims = validateToken(token);
+    InnloggetBruker bruker =
+        new InnloggetBruker(
+            getBrukerId(claims),
+            getEmail(claims),
+            getNavn(claims),
+            getRoller(claims),
+            getOrganisasjonId(claims));
+    if (claims.getExpiration() != null) {
+      verifiserte.put(nokkel, new VerifisertToken(bruker, claims.getExpiration().toInstant()));
+    }
+    return bruker;
+  }
+
+  /** Fjerner utløpte tokens fra cachen, også de som ikke brukes igjen */
+  @Scheduled(fixedDelayString = "${app.jwt.token-cache.opprydding:PT10M}")
+  public void fjernUtlopte() {
+    Instant naa = clock.instant();
+    synchronized (verifiserte) {
+      verifiserte.values().removeIf(verifisert -> !naa.isBefore(verifisert.utloper()));
+    }
+  }
+
+  /** Antall verifiserte tokens i cachen */
+  public int cacheStorrelse() {
+    return verifiserte.size();
+  }
+
   public String getBrukerId(Claims claims) {
     return claims.getSubject();
   }
@@ -73,31 +170,47 @@ public class JwtService {
   }
 
   public boolean isTokenExpired(Claims claims) {
-    return claims.getExpiration().before(new Date());
+    return claims.getExpiration().before(Date.from(clock.instant()));
   }
 
-  // Convenience methods for Spring Security integration
+  // Convenience methods for Spring Security integration; går via verifiser og cachen
   public String extractUserId(String token) {
-    Claims claims = validateToken(token);
-    return getBrukerId(claims);
+    return verifiser(token).brukerId();
   }
 
   public List<String> extractRoles(String token) {
-    Claims claims = validateToken(token);
-    return getRoller(claims);
+    return verifiser(token).roller();
   }
 
   public boolean isTokenValid(String token) {
     try {
-      Claims claims = validateToken(token);
-      return !isTokenExpired(claims);
+      verifiser(token);
+      return true;
     } catch (SecurityException e) {
       return false;
     }
   }
 
   public String extractOrganisasjonId(String token) {
-    Claims claims = validateToken(token);
-    return getOrganisasjonId(claims);
+    return verifiser(token).organisasjonId();
+  }
+
+  /** Cachen nøkles på en digest, så selve tokenet ikke holdes i minnet lenger enn nødvendig */
+  private static String sha256(String token) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return Base64.getEncoder()
+          .withoutPadding()
+          .encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 er ikke tilgjengelig", e);
+    }
+  }
+
+  private static Counter cacheMetrikk(MeterRegistry registry, String resultat) {
+    return Counter.builder("jwt.token.cache")
+        .description("Oppslag i cachen for verifiserte JWT-tokens")
+        .tag("resultat", resultat)
+        .register(registry);
   }
 }
@@ -1,17 +1,32 @@
 package no.utdanning.opptak.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import no.utdanning.opptak.domain.Opptak;
 import no.utdanning.opptak.domain.OpptakTilgang;
 import no.utdanning.opptak.domain.OpptaksStatus;
 import no.utdanning.opptak.domain.Organisasjon;
+import no.utdanning.opptak.domain.UtdanningIOpptak;
+import no.utdanning.opptak.graphql.dto.AvvistUtdanning;
 import no.utdanning.opptak.graphql.dto.EndreOpptaksStatusInput;
+import no.utdanning.opptak.graphql.dto.LeggTilUtdanningerInput;
+import no.utdanning.opptak.graphql.dto.LeggTilUtdanningerResultat;
 import no.utdanning.opptak.graphql.dto.OppdaterOpptakInput;
 import no.utdanning.opptak.graphql.dto.OpprettOpptakInput;
+import no.utdanning.opptak.graphql.dto.UtdanningPlasserInput;
 import no.utdanning.opptak.repository.JdbcOpptakRepository;
 import no.utdanning.opptak.repository.JdbcOpptakTilgangRepository;
 import no.utdanning.opptak.repository.JdbcOrganisasjonRepository;
+import no.utdanning.opptak.repository.JdbcUtdanningIOpptakRepository;
+import no.utdanning.opptak.repository.Projeksjon;
 import no.utdanning.opptak.service.security.OpptakSecurityService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,24 +41,35 @@ public class OpptakService {
   private final JdbcOpptakRepository opptakRepository;
   private final JdbcOpptakTilgangRepository tilgangRepository;
   private final JdbcOrganisasjonRepository organisasjonRepository;
+  private final JdbcUtdanningIOpptakRepository utdanningIOpptakRepository;
   private final OpptakSecurityService securityService;
+  private final int maksUtdanningerPerKall;
 
   public OpptakService(
       JdbcOpptakRepository opptakRepository,
       JdbcOpptakTilgangRepository tilgangRepository,
       JdbcOrganisasjonRepository organisasjonRepository,
-      OpptakSecurityService securityService) {
+      JdbcUtdanningIOpptakRepository utdanningIOpptakRepository,
+      OpptakSecurityService securityService,
+      @Value("${app.opptak.utdanninger.maks-per-kall:5000}") int maksUtdanningerPerKall) {
     this.opptakRepository = opptakRepository;
     this.tilgangRepository = tilgangRepository;
     this.organisasjonRepository = organisasjonRepository;
+    this.utdanningIOpptakRepository = utdanningIOpptakRepository;
     this.securityService = securityService;
+    this.maksUtdanningerPerKall = maksUtdanningerPerKall;
   }
 
   /** Henter alle opptak med sikkerhetskontroll */
   public List<Opptak> findAll() {
+    return findAll(Projeksjon.alle());
+  }
+
+  /** Som findAll, men henter kun kolonnene i projeksjonen */
+  public List<Opptak> findAll(Projeksjon projeksjon) {
     // Administratorer ser alt, andre ser kun opptak de har tilgang til
     if (securityService.isAdministrator()) {
-      return opptakRepository.findByAktiv(true);
+      return opptakRepository.findByAktiv(true, projeksjon);
     }
 
     String userOrgId = securityService.getCurrentUserOrganisasjonId();
@@ -51,19 +77,8 @@ public class OpptakService {
       return List.of(); // Ingen organisasjonstilhørighet
     }
 
-    // Find opptak hvor bruker er administrator eller har tilgang
-    List<Opptak> adminOpptak = opptakRepository.findByAdministratorOrganisasjonId(userOrgId);
-    List<OpptakTilgang> tilganger = tilgangRepository.findByOrganisasjonId(userOrgId);
-
-    // Add opptak where user has access but is not admin
-    for (OpptakTilgang tilgang : tilganger) {
-      Opptak opptak = opptakRepository.findById(tilgang.getOpptakId());
-      if (opptak != null && opptak.getAktiv() && !adminOpptak.contains(opptak)) {
-        adminOpptak.add(opptak);
-      }
-    }
-
-    return adminOpptak;
+    // Opptak hvor bruker er administrator eller har tilgang, hentet i én spørring
+    return opptakRepository.findSynligeForOrganisasjonId(userOrgId, projeksjon);
   }
 
   /** Henter opptak ved ID med sikkerhetskontroll */
@@ -74,7 +89,7 @@ public class OpptakService {
     }
 
     // Sjekk tilgang
-    if (!hasAccessToOpptak(opptak)) {
+    if (!securityService.hasAccessToOpptak(opptak)) {
       return null; // Ingen tilgang
     }
 
@@ -98,18 +113,8 @@ public class OpptakService {
       throw new SecurityException("Ingen tilgang til organisasjon: " + organisasjonId);
     }
 
-    // Find opptak hvor organisasjon er administrator eller har tilgang
-    List<Opptak> adminOpptak = opptakRepository.findByAdministratorOrganisasjonId(organisasjonId);
-    List<OpptakTilgang> tilganger = tilgangRepository.findByOrganisasjonId(organisasjonId);
-
-    for (OpptakTilgang tilgang : tilganger) {
-      Opptak opptak = opptakRepository.findById(tilgang.getOpptakId());
-      if (opptak != null && opptak.getAktiv() && !adminOpptak.contains(opptak)) {
-        adminOpptak.add(opptak);
-      }
-    }
-
-    return adminOpptak;
+    // Opptak hvor organisasjon er administrator eller har tilgang, hentet i én spørring
+    return opptakRepository.findSynligeForOrganisasjonId(organisasjonId);
   }
 
   /** Oppretter nytt opptak */
@@ -168,7 +173,7 @@ public class OpptakService {
     }
 
     // Sjekk tilgang - kun administrator av opptak kan oppdatere
-    if (!securityService.canManageOpptak(input.getId())) {
+    if (!securityService.canManageOpptak(eksisterende)) {
       throw new SecurityException("Ingen tilgang til å oppdatere opptak: " + input.getId());
     }
 
@@ -216,6 +221,7 @@ public class OpptakService {
         throw new IllegalArgumentException("Organisasjon ikke funnet: " + input.getAdministratorOrganisasjonId());
       }
       eksisterende.setAdministratorOrganisasjonId(input.getAdministratorOrganisasjonId());
+      securityService.glemTilgangsbeslutninger();
     }
 
     if (input.getSamordnet() != null) {
@@ -233,7 +239,7 @@ public class OpptakService {
     }
 
     // Kun administrator av opptak kan endre status
-    if (!securityService.canManageOpptak(input.getOpptakId())) {
+    if (!securityService.canManageOpptak(opptak)) {
       throw new SecurityException(
           "Ingen tilgang til å endre status på opptak: " + input.getOpptakId());
     }
@@ -251,7 +257,7 @@ public class OpptakService {
       throw new IllegalArgumentException("Opptak ikke funnet: " + opptakId);
     }
 
-    if (!securityService.canManageOpptak(opptakId)) {
+    if (!securityService.canManageOpptak(opptak)) {
       throw new SecurityException("Ingen tilgang til å deaktivere opptak: " + opptakId);
     }
 
@@ -266,7 +272,7 @@ public class OpptakService {
       throw new IllegalArgumentException("Opptak ikke funnet: " + opptakId);
     }
 
-    if (!securityService.canManageOpptak(opptakId)) {
+    if (!securityService.canManageOpptak(opptak)) {
       throw new SecurityException("Ingen tilgang til å reaktivere opptak: " + opptakId);
     }
 
@@ -285,7 +291,7 @@ public class OpptakService {
       throw new IllegalArgumentException("Kan kun gi tilgang til samordnede opptak");
     }
 
-    if (!securityService.canManageOpptak(opptakId)) {
+    if (!securityService.canManageOpptak(opptak)) {
       throw new SecurityException(
           "Ingen tilgang til å gi organisasjon tilgang til opptak: " + opptakId);
     }
@@ -308,6 +314,7 @@ public class OpptakService {
     tilgang.setTildeltAv(securityService.getCurrentUserId());
 
     tilgangRepository.save(tilgang);
+    securityService.tilgangGitt(opptakId, organisasjonId);
 
     return opptak;
   }
@@ -319,7 +326,7 @@ public class OpptakService {
       throw new IllegalArgumentException("Opptak ikke funnet: " + opptakId);
     }
 
-    if (!securityService.canManageOpptak(opptakId)) {
+    if (!securityService.canManageOpptak(opptak)) {
       throw new SecurityException(
           "Ingen tilgang til å fjerne organisasjon tilgang fra opptak: " + opptakId);
     }
@@ -331,45 +338,114 @@ public class OpptakService {
     }
 
     tilgangRepository.deleteById(tilgang.getId());
+    securityService.tilgangFjernet(opptakId, organisasjonId);
 
     return opptak;
   }
 
-  /** Henter administrator organisasjon for opptak */
-  public Organisasjon getAdministratorOrganisasjon(Opptak opptak) {
-    if (opptak.getAdministratorOrganisasjonId() == null) {
-      return null;
+  /**
+   * Legger til mange utdanninger i et opptak, eller oppdaterer antall plasser for de som allerede
+   * er der. Organisasjonen til hver utdanning hentes i én spørring, og tilgangen sjekkes én gang per
+   * organisasjon. Gyldige rader skrives med én batch for nye og én for eksisterende, og antallene
+   * i resultatet er det skrivingen selv rapporterte. Ugyldige avvises med årsak uten å stoppe
+   * resten.
+   */
+  public LeggTilUtdanningerResultat leggTilUtdanninger(LeggTilUtdanningerInput input) {
+    Opptak opptak = opptakRepository.findById(input.getOpptakId());
+    if (opptak == null) {
+      throw new IllegalArgumentException("Opptak ikke funnet: " + input.getOpptakId());
     }
-    return organisasjonRepository.findById(opptak.getAdministratorOrganisasjonId());
-  }
 
-  /** Henter organisasjoner som har tilgang til opptak */
-  public List<Organisasjon> getTillateTilgangsorganisasjoner(Opptak opptak) {
-    List<OpptakTilgang> tilganger = tilgangRepository.findByOpptakId(opptak.getId());
-    return tilganger.stream()
-        .map(tilgang -> organisasjonRepository.findById(tilgang.getOrganisasjonId()))
-        .filter(org -> org != null)
-        .toList();
-  }
+    List<UtdanningPlasserInput> rader =
+        input.getUtdanninger() != null ? input.getUtdanninger() : List.of();
+    if (rader.size() > maksUtdanningerPerKall) {
+      throw new IllegalArgumentException(
+          "Kan legge til maks " + maksUtdanningerPerKall + " utdanninger per kall");
+    }
+
+    Map<String, String> organisasjonIds =
+        utdanningIOpptakRepository.findOrganisasjonIdByUtdanningIds(
+            rader.stream().map(UtdanningPlasserInput::getUtdanningId).toList());
+    Map<String, Boolean> tilgangPerOrganisasjon = new HashMap<>();
+    Set<String> sett = new HashSet<>();
+    List<UtdanningIOpptak> gyldige = new ArrayList<>(rader.size());
+    List<AvvistUtdanning> avviste = new ArrayList<>();
+
+    for (UtdanningPlasserInput rad : rader) {
+      String utdanningId = rad.getUtdanningId();
+      String organisasjonId = organisasjonIds.get(utdanningId);
+      String feil = null;
+      if (utdanningId == null) {
+        feil = "Mangler utdanningId";
+      } else if (!sett.add(utdanningId)) {
+        feil = "Utdanningen finnes flere ganger i listen";
+      } else if (rad.getAntallPlasser() == null || rad.getAntallPlasser() < 0) {
+        feil = "Antall plasser kan ikke være negativt";
+      } else if (organisasjonId == null) {
+        feil = "Utdanning ikke funnet";
+      } else if (!tilgangPerOrganisasjon.computeIfAbsent(
+          organisasjonId, id -> securityService.kanLeggeTilUtdanningerFra(opptak, id))) {
+        feil = "Ingen tilgang til å legge til utdanninger fra organisasjon: " + organisasjonId;
+      }
 
-  /** Sjekker om bruker har tilgang til opptak */
-  private boolean hasAccessToOpptak(Opptak opptak) {
-    if (securityService.isAdministrator()) {
-      return true;
+      if (feil != null) {
+        avviste.add(new AvvistUtdanning(utdanningId, feil));
+      } else {
+        UtdanningIOpptak utdanning = new UtdanningIOpptak();
+        utdanning.setUtdanningId(utdanningId);
+        utdanning.setAntallPlasser(rad.getAntallPlasser());
+        utdanning.setAktivt(rad.getAktivt() != null ? rad.getAktivt() : true);
+        gyldige.add(utdanning);
+      }
     }
 
-    String userOrgId = securityService.getCurrentUserOrganisasjonId();
-    if (userOrgId == null) {
-      return false;
-    }
+    JdbcUtdanningIOpptakRepository.Lagret lagret =
+        utdanningIOpptakRepository.lagreAlle(opptak.getId(), gyldige);
+
+    return new LeggTilUtdanningerResultat(lagret.lagtTil(), lagret.oppdatert(), avviste);
+  }
 
-    // Sjekk om bruker er administrator av opptak
-    if (userOrgId.equals(opptak.getAdministratorOrganisasjonId())) {
-      return true;
+  /**
+   * Henter administrator organisasjon for en liste opptak med én spørring. Brukes for GraphQL batch
+   * mapping.
+   */
+  public Map<Opptak, Organisasjon> getAdministratorOrganisasjoner(List<Opptak> opptakListe) {
+    List<String> organisasjonIds =
+        opptakListe.stream()
+            .map(Opptak::getAdministratorOrganisasjonId)
+            .filter(id -> id != null)
+            .distinct()
+            .toList();
+
+    Map<String, Organisasjon> organisasjonerById =
+        organisasjonRepository.findByIds(organisasjonIds).stream()
+            .collect(Collectors.toMap(Organisasjon::getId, Function.identity()));
+
+    Map<Opptak, Organisasjon> result = new HashMap<>();
+    for (Opptak opptak : opptakListe) {
+      Organisasjon organisasjon = organisasjonerById.get(opptak.getAdministratorOrganisasjonId());
+      if (organisasjon != null) {
+        result.put(opptak, organisasjon);
+      }
     }
+    return result;
+  }
 
-    // Sjekk om bruker har tilgang gjennom organisasjon
-    return tilgangRepository.hasAccess(opptak.getId(), userOrgId);
+  /**
+   * Henter organisasjoner som har tilgang til en liste opptak med én spørring. Opptak uten tilganger
+   * får en tom liste.
+   */
+  public Map<Opptak, List<Organisasjon>> getTillateTilgangsorganisasjoner(
+      List<Opptak> opptakListe) {
+    Map<String, List<Organisasjon>> organisasjonerByOpptakId =
+        tilgangRepository.findOrganisasjonerByOpptakIds(
+            opptakListe.stream().map(Opptak::getId).toList());
+
+    Map<Opptak, List<Organisasjon>> result = new HashMap<>();
+    for (Opptak opptak : opptakListe) {
+      result.put(opptak, organisasjonerByOpptakId.getOrDefault(opptak.getId(), List.of()));
+    }
+    return result;
   }
 
   /** Validerer input for opprettelse av opptak */
@@ -5,7 +5,11 @@ import no.utdanning.opptak.domain.Organisasjon;
 import no.utdanning.opptak.graphql.dto.OppdaterOrganisasjonInput;
 import no.utdanning.opptak.graphql.dto.OpprettOrganisasjonInput;
 import no.utdanning.opptak.graphql.dto.OrganisasjonFilter;
+import no.utdanning.opptak.graphql.dto.PageInput;
 import no.utdanning.opptak.repository.OrganisasjonRepository;
+import no.utdanning.opptak.repository.Projeksjon;
+import no.utdanning.opptak.service.sok.NavneIndeks;
+import no.utdanning.opptak.service.sok.Sokeforslag;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,41 +22,43 @@ import org.springframework.transaction.annotation.Transactional;
 public class OrganisasjonService {
 
   private final OrganisasjonRepository organisasjonRepository;
+  private final NavneIndeks navneIndeks;
 
-  public OrganisasjonService(OrganisasjonRepository organisasjonRepository) {
+  public OrganisasjonService(
+      OrganisasjonRepository organisasjonRepository, NavneIndeks navneIndeks) {
     this.organisasjonRepository = organisasjonRepository;
+    this.navneIndeks = navneIndeks;
   }
 
   /** Henter alle organisasjoner med valgfri filtrering. */
   public List<Organisasjon> findAll(OrganisasjonFilter filter) {
-    if (filter == null) {
-      return organisasjonRepository.findAll();
-    }
-
-    // Start med alle organisasjoner
-    List<Organisasjon> result = organisasjonRepository.findAll();
-
-    // Filtrer på aktiv status hvis spesifisert
-    if (filter.getAktiv() != null) {
-      result = organisasjonRepository.findByAktiv(filter.getAktiv());
-    }
-
-    // Filtrer på type hvis spesifisert
-    if (filter.getOrganisasjonstype() != null) {
-      result =
-          result.stream().filter(org -> org.getType() == filter.getOrganisasjonstype()).toList();
-    }
+    return findAll(filter, null, Projeksjon.alle());
+  }
 
-    // Søk i navn hvis spesifisert
-    if (filter.getNavnSok() != null && !filter.getNavnSok().trim().isEmpty()) {
-      result =
-          result.stream()
-              .filter(
-                  org -> org.getNavn().toLowerCase().contains(filter.getNavnSok().toLowerCase()))
-              .toList();
-    }
+  /** Som findAll, men henter kun kolonnene i projeksjonen */
+  public List<Organisasjon> findAll(OrganisasjonFilter filter, Projeksjon projeksjon) {
+    return findAll(filter, null, projeksjon);
+  }
 
-    return result;
+  /**
+   * Henter organisasjoner sortert på navn, med alle filtrene i én spørring. Uten page hentes alle
+   * som matcher.
+   */
+  public List<Organisasjon> findAll(
+      OrganisasjonFilter filter, PageInput page, Projeksjon projeksjon) {
+    if (filter == null) {
+      filter = new OrganisasjonFilter();
+    }
+    Integer limit = page != null ? page.getSize() : null;
+    Integer offset = page != null ? page.getPage() * page.getSize() : null;
+
+    return organisasjonRepository.findWithFilters(
+        filter.getAktiv(),
+        filter.getOrganisasjonstype(),
+        filter.getNavnSok(),
+        limit,
+        offset,
+        projeksjon);
   }
 
   /** Henter en spesifikk organisasjon basert på ID. */
@@ -86,7 +92,7 @@ public class OrganisasjonService {
     organisasjon.setPostnummer(input.getPostnummer());
     organisasjon.setAktiv(true); // Nye organisasjoner er aktive som standard
 
-    return organisasjonRepository.save(organisasjon);
+    return lagre(organisasjon);
   }
 
   /** Oppdaterer en eksisterende organisasjon. */
@@ -122,7 +128,7 @@ public class OrganisasjonService {
       eksisterende.setPostnummer(input.getPostnummer());
     }
 
-    return organisasjonRepository.save(eksisterende);
+    return lagre(eksisterende);
   }
 
   /** Deaktiverer en organisasjon (soft delete). */
@@ -133,7 +139,7 @@ public class OrganisasjonService {
     }
 
     organisasjon.setAktiv(false);
-    return organisasjonRepository.save(organisasjon);
+    return lagre(organisasjon);
   }
 
   /** Reaktiverer en deaktivert organisasjon. */
@@ -144,7 +150,24 @@ public class OrganisasjonService {
     }
 
     organisasjon.setAktiv(true);
-    return organisasjonRepository.save(organisasjon);
+    return lagre(organisasjon);
+  }
+
+  /**
+   * Søker i navn for et søkefelt med forslag. Treffene er rangert med navn som starter med teksten
+   * først, deretter navn der et ord starter med den. Kun aktive organisasjoner.
+   */
+  public List<Organisasjon> sok(String tekst, Integer first) {
+    List<String> ids = navneIndeks.sokOrganisasjoner(tekst, Sokeforslag.antall(first));
+    return Sokeforslag.iRekkefolge(
+        ids, organisasjonRepository.findByIds(ids), Organisasjon::getId);
+  }
+
+  /** Lagrer og oppdaterer navneindeksen når transaksjonen er committet */
+  private Organisasjon lagre(Organisasjon organisasjon) {
+    Organisasjon lagret = organisasjonRepository.save(organisasjon);
+    navneIndeks.organisasjonEndret(lagret);
+    return lagret;
   }
 
   /** Sjekker om en organisasjon eksisterer. */
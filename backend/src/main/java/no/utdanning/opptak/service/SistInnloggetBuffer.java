@@ -0,0 +1,97 @@
+package no.utdanning.opptak.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import no.utdanning.opptak.repository.JdbcBrukerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Samler opp sist_innlogget fra innlogginger og skriver dem periodisk som én batch, slik at
+ * innloggingen slipper en skrivetransaksjon. Flere innlogginger for samme bruker innenfor et
+ * intervall blir én skriving med det nyeste tidspunktet. Bufferen tømmes ved nedstenging.
+ */
+@Component
+public class SistInnloggetBuffer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SistInnloggetBuffer.class);
+
+  private final JdbcBrukerRepository brukerRepository;
+  private final Map<String, LocalDateTime> ventende = new ConcurrentHashMap<>();
+  private final Counter skrevet;
+  private final Counter slattSammen;
+
+  public SistInnloggetBuffer(JdbcBrukerRepository brukerRepository, MeterRegistry meterRegistry) {
+    this.brukerRepository = brukerRepository;
+    this.skrevet =
+        Counter.builder("bruker.sist.innlogget.skrevet")
+            .description("Tidspunkter for sist innlogget skrevet til databasen")
+            .register(meterRegistry);
+    this.slattSammen =
+        Counter.builder("bruker.sist.innlogget.slatt.sammen")
+            .description("Innlogginger slått sammen med en ventende skriving for samme bruker")
+            .register(meterRegistry);
+    Gauge.builder("bruker.sist.innlogget.ventende", ventende, Map::size)
+        .description("Brukere med sist innlogget som venter på å bli skrevet")
+        .register(meterRegistry);
+  }
+
+  /** Registrerer en innlogging; skrives ved neste tømming */
+  public void registrer(String brukerId, LocalDateTime tidspunkt) {
+    LocalDateTime forrige = ventende.putIfAbsent(brukerId, tidspunkt);
+    if (forrige != null) {
+      slattSammen.increment();
+      ventende.merge(brukerId, tidspunkt, SistInnloggetBuffer::nyeste);
+    }
+  }
+
+  /** Skriver alle ventende tidspunkter i én batch */
+  @Scheduled(
+      fixedDelayString = "${app.innlogging.sist-innlogget.intervall:PT10S}",
+      initialDelayString = "${app.innlogging.sist-innlogget.intervall:PT10S}")
+  public synchronized void tom() {
+    if (ventende.isEmpty()) {
+      return;
+    }
+    // remove() per nøkkel, så en innlogging som kommer under tømmingen havner i neste batch
+    Map<String, LocalDateTime> batch = new HashMap<>();
+    for (String brukerId : ventende.keySet()) {
+      LocalDateTime tidspunkt = ventende.remove(brukerId);
+      if (tidspunkt != null) {
+        batch.put(brukerId, tidspunkt);
+      }
+    }
+
+    try {
+      brukerRepository.oppdaterSistInnlogget(batch);
+      skrevet.increment(batch.size());
+    } catch (RuntimeException e) {
+      // Legges tilbake og forsøkes igjen ved neste tømming
+      batch.forEach(
+          (brukerId, tidspunkt) -> ventende.merge(brukerId, tidspunkt, SistInnloggetBuffer::nyeste));
+      LOGGER.warn("Kunne ikke skrive sist innlogget for {} brukere", batch.size(), e);
+    }
+  }
+
+  /** Antall brukere som venter på å bli skrevet */
+  public int antallVentende() {
+    return ventende.size();
+  }
+
+  @PreDestroy
+  public void tomVedNedstenging() {
+    tom();
+  }
+
+  private static LocalDateTime nyeste(LocalDateTime a, LocalDateTime b) {
+    return a.isAfter(b) ? a : b;
+  }
+}
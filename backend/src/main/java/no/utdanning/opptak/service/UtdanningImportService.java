@@ -0,0 +1,202 @@
+package no.utdanning.opptak.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import no.utdanning.opptak.domain.Studieform;
+import no.utdanning.opptak.domain.Utdanning;
+import no.utdanning.opptak.repository.OrganisasjonRepository;
+import no.utdanning.opptak.repository.UtdanningRepository;
+import no.utdanning.opptak.service.sok.NavneIndeks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Masseimport av utdanninger, f.eks. en nasjonal katalog. Filen leses strømmende i biter; radene
+ * valideres mot organisasjonene (hentet én gang) og brukerens tilgang, og hver bit skrives med én
+ * JDBC-batch i sin egen transaksjon. Feiler en bit, rulles bare den tilbake, og radene i den
+ * lagres enkeltvis, så bare de ugyldige avvises.
+ */
+@Service
+public class UtdanningImportService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(UtdanningImportService.class);
+
+  private static final List<String> PAKREVDE_KOLONNER =
+      List.of(
+          "navn",
+          "studienivaa",
+          "studiepoeng",
+          "varighet",
+          "studiested",
+          "undervisningssprak",
+          "starttidspunkt",
+          "studieform",
+          "organisasjon_id");
+
+  private final UtdanningRepository utdanningRepository;
+  private final OrganisasjonRepository organisasjonRepository;
+  private final UtdanningSecurityService securityService;
+  private final TransactionTemplate transactionTemplate;
+  private final NavneIndeks navneIndeks;
+  private final ObjectMapper objectMapper;
+  private final int bitStorrelse;
+  private final int maksFeil;
+  private final Counter opprettet;
+  private final Counter avvist;
+
+  public UtdanningImportService(
+      UtdanningRepository utdanningRepository,
+      OrganisasjonRepository organisasjonRepository,
+      UtdanningSecurityService securityService,
+      TransactionTemplate transactionTemplate,
+      NavneIndeks navneIndeks,
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry,
+      @Value("${app.utdanning.import.bit-storrelse:1000}") int bitStorrelse,
+      @Value("${app.utdanning.import.maks-feil:1000}") int maksFeil) {
+    this.utdanningRepository = utdanningRepository;
+    this.organisasjonRepository = organisasjonRepository;
+    this.securityService = securityService;
+    this.transactionTemplate = transactionTemplate;
+    this.navneIndeks = navneIndeks;
+    this.objectMapper = objectMapper;
+    this.bitStorrelse = bitStorrelse;
+    this.maksFeil = maksFeil;
+    this.opprettet = radMetrikk(meterRegistry, "opprettet");
+    this.avvist = radMetrikk(meterRegistry, "avvist");
+  }
+
+  /**
+   * Importerer utdanningene i filen. Administratorer kan importere for alle organisasjoner,
+   * opptaksledere bare for sin egen; andre rader avvises.
+   *
+   * @throws IllegalArgumentException hvis filen ikke kan leses i det hele tatt (f.eks. CSV uten
+   *     påkrevde kolonner)
+   */
+  public ImportRapport importer(BufferedReader reader, Filformat format) {
+    ImportLeser leser = new ImportLeser(reader, format, objectMapper, PAKREVDE_KOLONNER);
+    Set<String> organisasjoner = organisasjonRepository.findAktiveIds();
+    boolean administrator = securityService.isAdministrator();
+    String egenOrganisasjon = securityService.getCurrentUserOrganisasjonId();
+    ImportRapport.Bygger rapport = new ImportRapport.Bygger(maksFeil, opprettet, avvist);
+
+    List<Utdanning> bit = new ArrayList<>(bitStorrelse);
+    List<Integer> linjer = new ArrayList<>(bitStorrelse);
+    for (ImportLeser.Linje linje = leser.neste(); linje != null; linje = leser.neste()) {
+      rapport.lest(1);
+      String feil = linje.feil();
+      Utdanning utdanning = null;
+      if (feil == null) {
+        utdanning = tilUtdanning(linje);
+        feil = valider(linje, utdanning, organisasjoner, administrator, egenOrganisasjon);
+      }
+      if (feil != null) {
+        rapport.avvis(linje.nummer(), linje.tekst("navn"), feil);
+        continue;
+      }
+      bit.add(utdanning);
+      linjer.add(linje.nummer());
+      if (bit.size() == bitStorrelse) {
+        skriv(bit, linjer, rapport);
+        bit.clear();
+        linjer.clear();
+      }
+    }
+    skriv(bit, linjer, rapport);
+
+    LOGGER.info("Utdanningsimport ferdig: {}", rapport);
+    return rapport.bygg();
+  }
+
+  /** Skriver biten i én transaksjon; feiler den, skrives radene enkeltvis */
+  private void skriv(List<Utdanning> bit, List<Integer> linjer, ImportRapport.Bygger rapport) {
+    if (bit.isEmpty()) {
+      return;
+    }
+    try {
+      transactionTemplate.executeWithoutResult(status -> opprett(bit));
+      rapport.opprettet(bit.size());
+    } catch (DataAccessException e) {
+      LOGGER.warn("Batch i utdanningsimport feilet, lagrer radene enkeltvis: {}", e.getMessage());
+      for (int i = 0; i < bit.size(); i++) {
+        Utdanning utdanning = bit.get(i);
+        try {
+          transactionTemplate.executeWithoutResult(status -> opprett(List.of(utdanning)));
+          rapport.opprettet(1);
+        } catch (DataAccessException radFeil) {
+          rapport.avvis(linjer.get(i), utdanning.getNavn(), "Kunne ikke lagre utdanningen");
+        }
+      }
+    }
+    LOGGER.info("Utdanningsimport: {}", rapport);
+  }
+
+  /** Oppretter utdanningene i gjeldende transaksjon og gir dem til navneindeksen etter commit */
+  private void opprett(List<Utdanning> utdanninger) {
+    utdanningRepository.opprettAlle(utdanninger);
+    navneIndeks.utdanningerEndret(utdanninger);
+  }
+
+  private static Utdanning tilUtdanning(ImportLeser.Linje linje) {
+    Utdanning utdanning = new Utdanning();
+    utdanning.setNavn(linje.tekst("navn"));
+    utdanning.setStudienivaa(linje.tekst("studienivaa"));
+    utdanning.setStudiested(linje.tekst("studiested"));
+    utdanning.setUndervisningssprak(linje.tekst("undervisningssprak"));
+    utdanning.setBeskrivelse(linje.tekst("beskrivelse"));
+    utdanning.setStarttidspunkt(linje.tekst("starttidspunkt"));
+    utdanning.setOrganisasjonId(linje.tekst("organisasjon_id"));
+    utdanning.setAktiv(true);
+    return utdanning;
+  }
+
+  /** Fyller inn tallfelt og studieform; returnerer feilmelding, eller null hvis raden er gyldig */
+  private static String valider(
+      ImportLeser.Linje linje,
+      Utdanning utdanning,
+      Set<String> organisasjoner,
+      boolean administrator,
+      String egenOrganisasjon) {
+    for (String felt : PAKREVDE_KOLONNER) {
+      if (linje.tekst(felt) == null) {
+        return "Mangler " + felt;
+      }
+    }
+    try {
+      utdanning.setStudiepoeng(Integer.parseInt(linje.tekst("studiepoeng")));
+      utdanning.setVarighet(Integer.parseInt(linje.tekst("varighet")));
+    } catch (NumberFormatException e) {
+      return "Studiepoeng og varighet må være heltall";
+    }
+    try {
+      utdanning.setStudieform(
+          Studieform.valueOf(linje.tekst("studieform").toUpperCase(Locale.ROOT)));
+    } catch (IllegalArgumentException e) {
+      return "Ukjent studieform: " + linje.tekst("studieform");
+    }
+    if (!organisasjoner.contains(utdanning.getOrganisasjonId())) {
+      return "Organisasjon ikke funnet eller ikke aktiv: " + utdanning.getOrganisasjonId();
+    }
+    if (!administrator && !utdanning.getOrganisasjonId().equals(egenOrganisasjon)) {
+      return "Ingen tilgang til å opprette utdanning for denne organisasjonen";
+    }
+    return null;
+  }
+
+  private static Counter radMetrikk(MeterRegistry registry, String utfall) {
+    return Counter.builder("utdanning.import.rader")
+        .description("Rader behandlet i masseimport av utdanninger")
+        .tag("utfall", utfall)
+        .register(registry);
+  }
+}
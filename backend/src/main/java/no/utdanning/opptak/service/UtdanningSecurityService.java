@@ -1,26 +1,21 @@
 package no.utdanning.opptak.service;
 
-import io.jsonwebtoken.Claims;
-import jakarta.servlet.http.HttpServletRequest;
 import no.utdanning.opptak.domain.Utdanning;
 import no.utdanning.opptak.repository.UtdanningRepository;
+import no.utdanning.opptak.service.security.InnloggetBruker;
+import no.utdanning.opptak.service.security.Rolletype;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 
 /** Service for håndtering av sikkerhet og tilgangskontroll for utdanninger */
 @Service
 public class UtdanningSecurityService {
 
   private final UtdanningRepository utdanningRepository;
-  private final JwtService jwtService;
 
-  public UtdanningSecurityService(UtdanningRepository utdanningRepository, JwtService jwtService) {
+  public UtdanningSecurityService(UtdanningRepository utdanningRepository) {
     this.utdanningRepository = utdanningRepository;
-    this.jwtService = jwtService;
   }
 
   /**
@@ -36,12 +31,12 @@ public class UtdanningSecurityService {
     }
 
     // Administratorer har tilgang til alt
-    if (auth.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"))) {
+    if (Rolletype.ADMINISTRATOR.tilhorer(auth)) {
       return true;
     }
 
     // For OPPTAKSLEDER - sjekk at utdanningen tilhører brukerens organisasjon
-    if (auth.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_OPPTAKSLEDER"))) {
+    if (Rolletype.OPPTAKSLEDER.tilhorer(auth)) {
       Utdanning utdanning = utdanningRepository.findById(utdanningId);
       if (utdanning == null) {
         return false;
@@ -69,12 +64,12 @@ public class UtdanningSecurityService {
     }
 
     // Administratorer kan opprette for alle organisasjoner
-    if (auth.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"))) {
+    if (Rolletype.ADMINISTRATOR.tilhorer(auth)) {
       return true;
     }
 
     // OPPTAKSLEDER kan kun opprette for egen organisasjon
-    if (auth.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_OPPTAKSLEDER"))) {
+    if (Rolletype.OPPTAKSLEDER.tilhorer(auth)) {
       String brukerOrganisasjonId = getBrukerOrganisasjonId(auth);
       return brukerOrganisasjonId != null && brukerOrganisasjonId.equals(organisasjonId);
     }
@@ -94,7 +89,7 @@ public class UtdanningSecurityService {
     }
 
     // Administratorer har ikke organisasjonstilhørighet
-    if (auth.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"))) {
+    if (Rolletype.ADMINISTRATOR.tilhorer(auth)) {
       return null;
     }
 
@@ -108,49 +103,12 @@ public class UtdanningSecurityService {
    */
   public boolean isAdministrator() {
     Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-    return auth != null
-        && auth.isAuthenticated()
-        && auth.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"));
+    return Rolletype.ADMINISTRATOR.tilhorer(auth);
   }
 
-  /** Henter organisasjonId fra brukerens JWT token */
+  /** Henter organisasjonId fra innlogget bruker, satt av JwtAuthenticationFilter */
   private String getBrukerOrganisasjonId(Authentication auth) {
-    // Hent JWT token fra request og ekstraher organisasjonId
-    HttpServletRequest request = getCurrentRequest();
-    if (request == null) {
-      return null;
-    }
-
-    String token = extractTokenFromRequest(request);
-    if (token == null) {
-      return null;
-    }
-
-    try {
-      Claims claims = jwtService.validateToken(token);
-      return jwtService.getOrganisasjonId(claims);
-    } catch (SecurityException e) {
-      return null;
-    }
-  }
-
-  /** Henter nåværende HTTP request */
-  private HttpServletRequest getCurrentRequest() {
-    try {
-      ServletRequestAttributes attributes =
-          (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
-      return attributes.getRequest();
-    } catch (IllegalStateException e) {
-      return null;
-    }
-  }
-
-  /** Ekstraherer JWT token fra Authorization header */
-  private String extractTokenFromRequest(HttpServletRequest request) {
-    String bearerToken = request.getHeader("Authorization");
-    if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
-      return bearerToken.substring(7);
-    }
-    return null;
+    InnloggetBruker bruker = InnloggetBruker.fra(auth);
+    return bruker != null ? bruker.organisasjonId() : null;
   }
 }
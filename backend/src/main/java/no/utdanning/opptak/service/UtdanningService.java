@@ -1,15 +1,24 @@
 package no.utdanning.opptak.service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import no.utdanning.opptak.domain.Organisasjon;
 import no.utdanning.opptak.domain.Utdanning;
 import no.utdanning.opptak.graphql.dto.OppdaterUtdanningInput;
 import no.utdanning.opptak.graphql.dto.OpprettUtdanningInput;
 import no.utdanning.opptak.graphql.dto.PageInput;
+import no.utdanning.opptak.graphql.dto.UtdanningConnection;
+import no.utdanning.opptak.graphql.dto.UtdanningCursor;
 import no.utdanning.opptak.graphql.dto.UtdanningFilter;
 import no.utdanning.opptak.graphql.dto.UtdanningPage;
 import no.utdanning.opptak.repository.OrganisasjonRepository;
+import no.utdanning.opptak.repository.Projeksjon;
 import no.utdanning.opptak.repository.UtdanningRepository;
+import no.utdanning.opptak.service.sok.NavneIndeks;
+import no.utdanning.opptak.service.sok.Sokeforslag;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,14 +33,17 @@ public class UtdanningService {
   private final UtdanningRepository utdanningRepository;
   private final OrganisasjonRepository organisasjonRepository;
   private final UtdanningSecurityService securityService;
+  private final NavneIndeks navneIndeks;
 
   public UtdanningService(
       UtdanningRepository utdanningRepository,
       OrganisasjonRepository organisasjonRepository,
-      UtdanningSecurityService securityService) {
+      UtdanningSecurityService securityService,
+      NavneIndeks navneIndeks) {
     this.utdanningRepository = utdanningRepository;
     this.organisasjonRepository = organisasjonRepository;
     this.securityService = securityService;
+    this.navneIndeks = navneIndeks;
   }
 
   /** Henter en spesifikk utdanning basert på ID. Sjekker tilgang for ikke-administratorer. */
@@ -55,9 +67,15 @@ public class UtdanningService {
    * på egen organisasjon.
    */
   public UtdanningPage findAll(UtdanningFilter filter, PageInput page) {
-    if (page == null) {
-      page = new PageInput();
-    }
+    return findAll(filter, page, true, Projeksjon.alle());
+  }
+
+  /**
+   * Som findAll, men totalt antall beregnes bare når medTotal er satt, og kun kolonnene i
+   * projeksjonen hentes. Resolveren setter begge ut fra feltene klienten har valgt.
+   */
+  public UtdanningPage findAll(
+      UtdanningFilter filter, PageInput page, boolean medTotal, Projeksjon projeksjon) {
     if (filter == null) {
       filter = new UtdanningFilter();
     }
@@ -70,37 +88,22 @@ public class UtdanningService {
       }
     }
 
-    // Beregn offset for paginering
-    int offset = page.getPage() * page.getSize();
-
-    // Hent filtrerte resultater
-    List<Utdanning> content =
-        utdanningRepository.findWithFilters(
-            filter.getNavn(),
-            filter.getStudienivaa(),
-            filter.getStudiested(),
-            filter.getOrganisasjonId(),
-            filter.getStudieform(),
-            filter.getAktiv(),
-            page.getSize(),
-            offset);
-
-    // Tell totalt antall for paginering
-    long totalElements =
-        utdanningRepository.countWithFilters(
-            filter.getNavn(),
-            filter.getStudienivaa(),
-            filter.getStudiested(),
-            filter.getOrganisasjonId(),
-            filter.getStudieform(),
-            filter.getAktiv());
-
-    return new UtdanningPage(content, totalElements, page.getPage(), page.getSize());
+    return hentSide(filter, page, medTotal, projeksjon);
   }
 
   /** Henter utdanninger for en spesifikk organisasjon. Sjekker tilgang for ikke-administratorer. */
   public UtdanningPage findByOrganisasjon(
       String organisasjonId, UtdanningFilter filter, PageInput page) {
+    return findByOrganisasjon(organisasjonId, filter, page, true, Projeksjon.alle());
+  }
+
+  /** Som findByOrganisasjon, med valgfri telling og kolonneutvalg som i findAll. */
+  public UtdanningPage findByOrganisasjon(
+      String organisasjonId,
+      UtdanningFilter filter,
+      PageInput page,
+      boolean medTotal,
+      Projeksjon projeksjon) {
     // Sjekk tilgang for ikke-administratorer
     if (!securityService.isAdministrator()) {
       String userOrgId = securityService.getCurrentUserOrganisasjonId();
@@ -111,9 +114,6 @@ public class UtdanningService {
       }
     }
 
-    if (page == null) {
-      page = new PageInput();
-    }
     if (filter == null) {
       filter = new UtdanningFilter();
     }
@@ -121,32 +121,141 @@ public class UtdanningService {
     // Force organisasjonId i filter
     filter.setOrganisasjonId(organisasjonId);
 
+    return hentSide(filter, page, medTotal, projeksjon);
+  }
+
+  /**
+   * Henter én side. Med medTotal hentes siden og antallet i samme spørring; ellers hentes size + 1
+   * rader, der den ekstra raden avgjør hasNext, og tellingen hoppes over.
+   */
+  private UtdanningPage hentSide(
+      UtdanningFilter filter, PageInput page, boolean medTotal, Projeksjon projeksjon) {
+    if (page == null) {
+      page = new PageInput();
+    }
+
     // Beregn offset for paginering
     int offset = page.getPage() * page.getSize();
 
-    // Hent filtrerte resultater
-    List<Utdanning> content =
+    if (medTotal) {
+      UtdanningRepository.UtdanningSide side =
+          utdanningRepository.findWithFiltersAndCount(
+              filter.getNavn(),
+              filter.getStudienivaa(),
+              filter.getStudiested(),
+              filter.getOrganisasjonId(),
+              filter.getStudieform(),
+              filter.getAktiv(),
+              page.getSize(),
+              offset,
+              projeksjon);
+      return new UtdanningPage(
+          side.content(), side.totalElements(), page.getPage(), page.getSize());
+    }
+
+    List<Utdanning> rader =
         utdanningRepository.findWithFilters(
             filter.getNavn(),
             filter.getStudienivaa(),
             filter.getStudiested(),
-            organisasjonId,
+            filter.getOrganisasjonId(),
             filter.getStudieform(),
             filter.getAktiv(),
-            page.getSize(),
-            offset);
+            page.getSize() + 1,
+            offset,
+            projeksjon);
+
+    boolean hasNext = rader.size() > page.getSize();
+    List<Utdanning> content = hasNext ? rader.subList(0, page.getSize()) : rader;
+    return UtdanningPage.utenTotal(content, page.getPage(), page.getSize(), hasNext);
+  }
+
+  /**
+   * Henter utdanninger med filtrering og cursor-paginering (keyset på navn, id). For
+   * ikke-administratorer filtreres automatisk på egen organisasjon.
+   */
+  public UtdanningConnection findAllConnection(UtdanningFilter filter, Integer first, String after) {
+    return findAllConnection(filter, first, after, Projeksjon.alle());
+  }
 
-    // Tell totalt antall for paginering
-    long totalElements =
-        utdanningRepository.countWithFilters(
+  /** Som findAllConnection, men henter kun kolonnene i projeksjonen */
+  public UtdanningConnection findAllConnection(
+      UtdanningFilter filter, Integer first, String after, Projeksjon projeksjon) {
+    if (filter == null) {
+      filter = new UtdanningFilter();
+    }
+
+    // For OPPTAKSLEDER og SØKNADSBEHANDLER - filtrer automatisk på egen organisasjon
+    if (!securityService.isAdministrator()) {
+      String userOrgId = securityService.getCurrentUserOrganisasjonId();
+      if (userOrgId != null) {
+        filter.setOrganisasjonId(userOrgId);
+      }
+    }
+
+    return hentConnection(filter, first, after, projeksjon);
+  }
+
+  /**
+   * Henter utdanninger for en organisasjon med cursor-paginering. Sjekker tilgang for
+   * ikke-administratorer.
+   */
+  public UtdanningConnection findByOrganisasjonConnection(
+      String organisasjonId, UtdanningFilter filter, Integer first, String after) {
+    return findByOrganisasjonConnection(organisasjonId, filter, first, after, Projeksjon.alle());
+  }
+
+  /** Som findByOrganisasjonConnection, men henter kun kolonnene i projeksjonen */
+  public UtdanningConnection findByOrganisasjonConnection(
+      String organisasjonId,
+      UtdanningFilter filter,
+      Integer first,
+      String after,
+      Projeksjon projeksjon) {
+    // Ikke-administratorer kan kun se egen organisasjons utdanninger
+    if (!securityService.isAdministrator()) {
+      String userOrgId = securityService.getCurrentUserOrganisasjonId();
+      if (userOrgId != null && !userOrgId.equals(organisasjonId)) {
+        return UtdanningConnection.tom();
+      }
+    }
+
+    if (filter == null) {
+      filter = new UtdanningFilter();
+    }
+    filter.setOrganisasjonId(organisasjonId);
+
+    return hentConnection(filter, first, after, projeksjon);
+  }
+
+  /** Henter first + 1 rader etter cursor; den ekstra raden avgjør hasNextPage */
+  private UtdanningConnection hentConnection(
+      UtdanningFilter filter, Integer first, String after, Projeksjon projeksjon) {
+    int antall = normaliserFirst(first);
+    UtdanningCursor cursor = UtdanningCursor.decode(after);
+
+    List<Utdanning> rader =
+        utdanningRepository.findWithFiltersAfter(
             filter.getNavn(),
             filter.getStudienivaa(),
             filter.getStudiested(),
-            organisasjonId,
+            filter.getOrganisasjonId(),
             filter.getStudieform(),
-            filter.getAktiv());
+            filter.getAktiv(),
+            cursor != null ? cursor.navn() : null,
+            cursor != null ? cursor.id() : null,
+            antall + 1,
+            projeksjon);
 
-    return new UtdanningPage(content, totalElements, page.getPage(), page.getSize());
+    return UtdanningConnection.fra(rader, antall, cursor != null);
+  }
+
+  /** Samme grenser som PageInput: standard 20, maks 100 */
+  private static int normaliserFirst(Integer first) {
+    if (first == null || first <= 0) {
+      return 20;
+    }
+    return Math.min(first, 100);
   }
 
   /** Oppretter en ny utdanning. Validerer organisasjonstilgang og påkrevde felter. */
@@ -177,7 +286,7 @@ public class UtdanningService {
     utdanning.setOrganisasjonId(input.getOrganisasjonId());
     utdanning.setAktiv(true); // Nye utdanninger er aktive som standard
 
-    return utdanningRepository.save(utdanning);
+    return lagre(utdanning);
   }
 
   /** Oppdaterer en eksisterende utdanning. Validerer organisasjonstilgang. */
@@ -224,7 +333,7 @@ public class UtdanningService {
       eksisterende.setAktiv(input.getAktiv());
     }
 
-    return utdanningRepository.save(eksisterende);
+    return lagre(eksisterende);
   }
 
   /** Deaktiverer en utdanning (soft delete). Validerer organisasjonstilgang. */
@@ -240,7 +349,7 @@ public class UtdanningService {
     }
 
     utdanning.setAktiv(false);
-    return utdanningRepository.save(utdanning);
+    return lagre(utdanning);
   }
 
   /** Aktiverer en deaktivert utdanning. Validerer organisasjonstilgang. */
@@ -256,7 +365,7 @@ public class UtdanningService {
     }
 
     utdanning.setAktiv(true);
-    return utdanningRepository.save(utdanning);
+    return lagre(utdanning);
   }
 
   /** Sletter en utdanning permanent. Kun for administratorer. */
@@ -271,11 +380,52 @@ public class UtdanningService {
       throw new SecurityException("Kun administratorer kan slette utdanninger permanent");
     }
 
-    return utdanningRepository.deleteById(id);
+    boolean slettet = utdanningRepository.deleteById(id);
+    if (slettet) {
+      navneIndeks.utdanningSlettet(id);
+    }
+    return slettet;
+  }
+
+  /**
+   * Søker i navn for et søkefelt med forslag. Treffene er rangert med navn som starter med teksten
+   * først, deretter navn der et ord starter med den. Kun aktive utdanninger, og for
+   * ikke-administratorer bare fra egen organisasjon.
+   */
+  public List<Utdanning> sok(String tekst, Integer first) {
+    String organisasjonId =
+        securityService.isAdministrator() ? null : securityService.getCurrentUserOrganisasjonId();
+    List<String> ids =
+        navneIndeks.sokUtdanninger(tekst, Sokeforslag.antall(first), organisasjonId);
+    return Sokeforslag.iRekkefolge(ids, utdanningRepository.findByIds(ids), Utdanning::getId);
   }
 
-  /** Henter organisasjon for en utdanning. Brukes for GraphQL schema mapping. */
-  public Organisasjon getOrganisasjon(Utdanning utdanning) {
-    return organisasjonRepository.findById(utdanning.getOrganisasjonId());
+  /** Lagrer og oppdaterer navneindeksen når transaksjonen er committet */
+  private Utdanning lagre(Utdanning utdanning) {
+    Utdanning lagret = utdanningRepository.save(utdanning);
+    navneIndeks.utdanningEndret(lagret);
+    return lagret;
+  }
+
+  /**
+   * Henter organisasjon for en liste utdanninger med én spørring. Brukes for GraphQL batch mapping,
+   * slik at en side med utdanninger ikke gir én SELECT per rad.
+   */
+  public Map<Utdanning, Organisasjon> getOrganisasjoner(List<Utdanning> utdanninger) {
+    List<String> organisasjonIds =
+        utdanninger.stream().map(Utdanning::getOrganisasjonId).distinct().toList();
+
+    Map<String, Organisasjon> organisasjonerById =
+        organisasjonRepository.findByIds(organisasjonIds).stream()
+            .collect(Collectors.toMap(Organisasjon::getId, Function.identity()));
+
+    Map<Utdanning, Organisasjon> result = new HashMap<>();
+    for (Utdanning utdanning : utdanninger) {
+      Organisasjon organisasjon = organisasjonerById.get(utdanning.getOrganisasjonId());
+      if (organisasjon != null) {
+        result.put(utdanning, organisasjon);
+      }
+    }
+    return result;
   }
 }
@@ -0,0 +1,68 @@
+package no.utdanning.opptak.service.security;
+
+import java.util.List;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Innlogget bruker slik den står i JWT-tokenet. Bygges én gang av JwtAuthenticationFilter og ligger
+ * som principal i Authentication, slik at tjenestene slipper å lese og verifisere tokenet på nytt.
+ * Rollene er i tillegg forhåndsberegnet som en bitmaske (se Rolletype).
+ */
+public record InnloggetBruker(
+    String brukerId,
+    String email,
+    String navn,
+    List<String> roller,
+    String organisasjonId,
+    int rolleMaske)
+    implements AuthenticatedPrincipal {
+
+  public InnloggetBruker {
+    roller = roller != null ? List.copyOf(roller) : List.of();
+  }
+
+  public InnloggetBruker(
+      String brukerId, String email, String navn, List<String> roller, String organisasjonId) {
+    this(
+        brukerId,
+        email,
+        navn,
+        roller,
+        organisasjonId,
+        Rolletype.maske(roller != null ? roller : List.of()));
+  }
+
+  /** Brukes av Authentication.getName(), som dermed gir bruker-ID */
+  @Override
+  public String getName() {
+    return brukerId;
+  }
+
+  public boolean harRolle(String rolle) {
+    return roller.contains(rolle);
+  }
+
+  public boolean harRolle(Rolletype rolle) {
+    return (rolleMaske & rolle.bit()) != 0;
+  }
+
+  /** Sjekker om brukeren har minst én av rollene i masken */
+  public boolean harEnAvRollene(int maske) {
+    return (rolleMaske & maske) != 0;
+  }
+
+  /** Henter innlogget bruker fra SecurityContext, eller null hvis ingen er autentisert via JWT */
+  public static InnloggetBruker gjeldende() {
+    return fra(SecurityContextHolder.getContext().getAuthentication());
+  }
+
+  /** Henter innlogget bruker fra en Authentication, eller null hvis den ikke kommer fra JWT */
+  public static InnloggetBruker fra(Authentication auth) {
+    if (auth != null && auth.isAuthenticated() && auth.getPrincipal() instanceof InnloggetBruker b) {
+      return b;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,27 @@
+package no.utdanning.opptak.service.security;
+
+import java.time.Duration;
+
+/**
+ * Innloggingen ble avvist fordi passordsjekkene er overbelastet eller det er gjort for mange forsøk;
+ * klienten bør prøve igjen senere
+ */
+public class InnloggingOverbelastetException extends RuntimeException {
+
+  private final Duration provIgjenEtter;
+
+  public InnloggingOverbelastetException(Duration provIgjenEtter) {
+    this(
+        "For mange innlogginger akkurat nå, prøv igjen om " + provIgjenEtter.toSeconds() + " s",
+        provIgjenEtter);
+  }
+
+  public InnloggingOverbelastetException(String melding, Duration provIgjenEtter) {
+    super(melding);
+    this.provIgjenEtter = provIgjenEtter;
+  }
+
+  public Duration getProvIgjenEtter() {
+    return provIgjenEtter;
+  }
+}
@@ -0,0 +1,182 @@
+package no.utdanning.opptak.service.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Begrenser innloggingsforsøk per e-post og per klient-IP med token buckets, slik at
+ * credential stuffing avvises før det brukes BCrypt-tid. Hver bøtte er én AtomicLong med GCRA
+ * (tidspunktet bøtta er full igjen), så sjekken er låsfri; kartene er ConcurrentHashMap, som
+ * fordeler nøklene på egne segmenter.
+ *
+ * <p>Tilstanden ligger i minnet og er begrenset: bøtter som er fulle igjen er uinteressante og
+ * fjernes jevnlig. Når et kart likevel er fullt, ryddes det med én gang (høyst én gang per
+ * forsøksintervall); er det fortsatt fullt, slipper nye nøkler gjennom uten bøtte og telles. Et
+ * angrep fra mange adresser kan dermed verken presse ut eksisterende bøtter, bruke ubegrenset minne
+ * eller sperre ute brukere som ikke har en bøtte.
+ */
+@Component
+public class InnloggingsBegrensning {
+
+  private final Begrensning perEmail;
+  private final Begrensning perIp;
+  private final LongSupplier nanoTid;
+
+  @Autowired
+  public InnloggingsBegrensning(
+      MeterRegistry meterRegistry,
+      @Value("${app.innlogging.begrensning.email.kapasitet:5}") int emailKapasitet,
+      @Value("${app.innlogging.begrensning.email.periode:PT1M}") Duration emailPeriode,
+      @Value("${app.innlogging.begrensning.ip.kapasitet:50}") int ipKapasitet,
+      @Value("${app.innlogging.begrensning.ip.periode:PT10S}") Duration ipPeriode,
+      @Value("${app.innlogging.begrensning.maks-antall:100000}") int maksAntall) {
+    this(
+        meterRegistry,
+        emailKapasitet,
+        emailPeriode,
+        ipKapasitet,
+        ipPeriode,
+        maksAntall,
+        System::nanoTime);
+  }
+
+  /**
+   * Kapasitet er antall forsøk som kan gjøres i ett strekk; periode er tiden det tar å fylle en tom
+   * bøtte helt igjen.
+   */
+  public InnloggingsBegrensning(
+      MeterRegistry meterRegistry,
+      int emailKapasitet,
+      Duration emailPeriode,
+      int ipKapasitet,
+      Duration ipPeriode,
+      int maksAntall,
+      LongSupplier nanoTid) {
+    this.nanoTid = nanoTid;
+    this.perEmail =
+        new Begrensning("email", emailKapasitet, emailPeriode, maksAntall, meterRegistry);
+    this.perIp = new Begrensning("ip", ipKapasitet, ipPeriode, maksAntall, meterRegistry);
+  }
+
+  /**
+   * Trekker ett forsøk fra bøttene for IP-en og e-posten. Kastes før passordet sjekkes.
+   *
+   * @param ip klientens adresse, eller null når den ikke er kjent
+   * @throws InnloggingOverbelastetException når en av bøttene er tom
+   */
+  public void sjekk(String email, String ip) {
+    long naa = nanoTid.getAsLong();
+    if (ip != null) {
+      perIp.trekk(ip, naa);
+    }
+    if (email != null) {
+      perEmail.trekk(email.toLowerCase(Locale.ROOT), naa);
+    }
+  }
+
+  /** Fjerner bøtter som er fulle igjen, dvs. ikke har vært brukt på en stund */
+  @Scheduled(fixedDelayString = "${app.innlogging.begrensning.opprydding:PT1M}")
+  public void fjernInaktive() {
+    long naa = nanoTid.getAsLong();
+    perEmail.fjernInaktive(naa);
+    perIp.fjernInaktive(naa);
+  }
+
+  /** Antall bøtter som holdes i minnet */
+  public int antallBotter() {
+    return perEmail.botter.size() + perIp.botter.size();
+  }
+
+  /** Én type begrensning (e-post eller IP) med egne bøtter og teller */
+  private static final class Begrensning {
+    private final ConcurrentHashMap<String, AtomicLong> botter = new ConcurrentHashMap<>();
+
+    /** Tid per forsøk (nanosekunder) */
+    private final long intervall;
+
+    /** Hvor langt foran nå bøtta kan være før den er tom, dvs. (kapasitet - 1) forsøk */
+    private final long toleranse;
+
+    private final int maksAntall;
+    private final Counter begrenset;
+    private final Counter overlop;
+
+    /** Tidligste tidspunkt kartet kan ryddes igjen fordi det er fullt */
+    private volatile long nesteRydding = Long.MIN_VALUE;
+
+    Begrensning(
+        String type, int kapasitet, Duration periode, int maksAntall, MeterRegistry registry) {
+      this.intervall = Math.max(1, periode.toNanos() / kapasitet);
+      this.toleranse = intervall * (kapasitet - 1);
+      this.maksAntall = maksAntall;
+      this.begrenset =
+          Counter.builder("innlogging.begrenset")
+              .description("Innloggingsforsøk avvist av token bucket før passordsjekk")
+              .tag("nokkel", type)
+              .register(registry);
+      this.overlop =
+          Counter.builder("innlogging.begrensning.overlop")
+              .description("Innloggingsforsøk sluppet gjennom uten bøtte fordi kartet var fullt")
+              .tag("nokkel", type)
+              .register(registry);
+      Gauge.builder("innlogging.begrensning.botter", botter, ConcurrentHashMap::size)
+          .description("Token buckets i minnet")
+          .tag("nokkel", type)
+          .register(registry);
+    }
+
+    void trekk(String nokkel, long naa) {
+      AtomicLong botte = hentBotte(nokkel, naa);
+      if (botte == null) {
+        overlop.increment();
+        return;
+      }
+      while (true) {
+        long fullIgjen = botte.get();
+        long fra = Math.max(fullIgjen, naa);
+        if (fra - naa > toleranse) {
+          begrenset.increment();
+          long vent = fra - toleranse - naa;
+          throw new InnloggingOverbelastetException(
+              "For mange innloggingsforsøk, prøv igjen senere",
+              Duration.ofSeconds(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(vent) + 1)));
+        }
+        if (botte.compareAndSet(fullIgjen, fra + intervall)) {
+          return;
+        }
+      }
+    }
+
+    /** Bøtta for nøkkelen, eller null når kartet er fullt av bøtter som er i bruk */
+    private AtomicLong hentBotte(String nokkel, long naa) {
+      AtomicLong botte = botter.get(nokkel);
+      if (botte != null) {
+        return botte;
+      }
+      if (botter.size() >= maksAntall && naa >= nesteRydding) {
+        // Å gå gjennom kartet for hver ny nøkkel under et angrep blir for dyrt
+        nesteRydding = naa + intervall;
+        fjernInaktive(naa);
+      }
+      if (botter.size() >= maksAntall) {
+        return null;
+      }
+      return botter.computeIfAbsent(nokkel, k -> new AtomicLong(naa));
+    }
+
+    void fjernInaktive(long naa) {
+      botter.values().removeIf(botte -> botte.get() <= naa);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package no.utdanning.opptak.service.security;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/** Autentisering basert på et verifisert JWT-token, med claims samlet i InnloggetBruker. */
+public class JwtAuthentication extends AbstractAuthenticationToken {
+
+  private final InnloggetBruker bruker;
+
+  public JwtAuthentication(InnloggetBruker bruker) {
+    // Rollene får ROLE_-prefiks som vanlig i Spring Security; @Tilgang bruker rollemasken
+    super(bruker.roller().stream().map(rolle -> new SimpleGrantedAuthority("ROLE_" + rolle)).toList());
+    this.bruker = bruker;
+    setAuthenticated(true);
+  }
+
+  @Override
+  public InnloggetBruker getPrincipal() {
+    return bruker;
+  }
+
+  /** Tokenet beholdes ikke etter verifisering */
+  @Override
+  public Object getCredentials() {
+    return null;
+  }
+}
@@ -0,0 +1,113 @@
+package no.utdanning.opptak.service.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import no.utdanning.opptak.domain.BrukerLegitimasjon;
+import no.utdanning.opptak.repository.JdbcBrukerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Oppslag av BrukerLegitimasjon på e-post for innlogging, med en kortlevd LRU-cache foran
+ * JdbcBrukerRepository. TTL-en er kort, slik at endringer gjort utenom applikasjonen slår raskt
+ * igjennom; deaktivering via AuthService fjerner brukeren fra cachen med én gang. Ukjente
+ * e-postadresser caches ikke.
+ */
+@Component
+public class LegitimasjonCache {
+
+  private final JdbcBrukerRepository brukerRepository;
+  private final Duration ttl;
+  private final Clock clock;
+  private final Map<String, Oppforing> cache;
+  private final Counter treff;
+  private final Counter bom;
+
+  /**
+   * Økes av glem. Et oppslag som startet før en glem kan ha lest brukeren før den ble deaktivert,
+   * og legges da ikke i cachen.
+   */
+  private final AtomicLong generasjon = new AtomicLong();
+
+  @Autowired
+  public LegitimasjonCache(
+      JdbcBrukerRepository brukerRepository,
+      MeterRegistry meterRegistry,
+      @Value("${app.innlogging.legitimasjon-cache.ttl:30s}") Duration ttl,
+      @Value("${app.innlogging.legitimasjon-cache.maks-antall:10000}") int maksAntall) {
+    this(brukerRepository, meterRegistry, ttl, maksAntall, Clock.systemUTC());
+  }
+
+  public LegitimasjonCache(
+      JdbcBrukerRepository brukerRepository,
+      MeterRegistry meterRegistry,
+      Duration ttl,
+      int maksAntall,
+      Clock clock) {
+    this.brukerRepository = brukerRepository;
+    this.ttl = ttl;
+    this.clock = clock;
+    this.cache =
+        Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<String, Oppforing> eldste) {
+                return size() > maksAntall;
+              }
+            });
+    this.treff = cacheMetrikk(meterRegistry, "treff");
+    this.bom = cacheMetrikk(meterRegistry, "bom");
+  }
+
+  /** Henter legitimasjon for e-postadressen, eller null hvis ingen bruker har den */
+  public BrukerLegitimasjon hent(String email) {
+    Instant naa = clock.instant();
+    Oppforing oppforing = cache.get(email);
+    if (oppforing != null && naa.isBefore(oppforing.utloper())) {
+      treff.increment();
+      return oppforing.legitimasjon();
+    }
+
+    bom.increment();
+    long generasjonFoer = generasjon.get();
+    BrukerLegitimasjon legitimasjon = brukerRepository.findLegitimasjonByEmail(email);
+    synchronized (cache) {
+      if (legitimasjon == null) {
+        cache.remove(email);
+      } else if (generasjon.get() == generasjonFoer) {
+        cache.put(email, new Oppforing(legitimasjon, naa.plus(ttl)));
+      }
+    }
+    return legitimasjon;
+  }
+
+  /** Fjerner brukeren fra cachen, f.eks. når den deaktiveres */
+  public void glem(String brukerId) {
+    synchronized (cache) {
+      generasjon.incrementAndGet();
+      cache.values().removeIf(oppforing -> oppforing.legitimasjon().id().equals(brukerId));
+    }
+  }
+
+  /** Antall brukere i cachen */
+  public int size() {
+    return cache.size();
+  }
+
+  private static Counter cacheMetrikk(MeterRegistry registry, String resultat) {
+    return Counter.builder("bruker.legitimasjon.cache")
+        .description("Oppslag i cachen for innloggingsdata")
+        .tag("resultat", resultat)
+        .register(registry);
+  }
+
+  private record Oppforing(BrukerLegitimasjon legitimasjon, Instant utloper) {}
+}
@@ -1,29 +1,34 @@
 package no.utdanning.opptak.service.security;
 
-import jakarta.servlet.http.HttpServletRequest;
 import no.utdanning.opptak.domain.Opptak;
 import no.utdanning.opptak.repository.JdbcOpptakRepository;
-import no.utdanning.opptak.service.JwtService;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 
 /** Service for håndtering av sikkerhet og tilgangskontroll for opptak operasjoner. */
 @Service
 public class OpptakSecurityService {
 
+  private static final String ADMINISTRERE = "canManageOpptak:";
+
   private final JdbcOpptakRepository opptakRepository;
-  private final JwtService jwtService;
+  private final OpptakTilgangIndeks tilgangIndeks;
+  private final Tilgangsbeslutninger tilgangsbeslutninger;
 
-  public OpptakSecurityService(JdbcOpptakRepository opptakRepository, JwtService jwtService) {
+  public OpptakSecurityService(
+      JdbcOpptakRepository opptakRepository,
+      OpptakTilgangIndeks tilgangIndeks,
+      Tilgangsbeslutninger tilgangsbeslutninger) {
     this.opptakRepository = opptakRepository;
-    this.jwtService = jwtService;
+    this.tilgangIndeks = tilgangIndeks;
+    this.tilgangsbeslutninger = tilgangsbeslutninger;
   }
 
-  /** Sjekker om nåværende bruker har tilgang til å administrere et opptak */
+  /**
+   * Sjekker om nåværende bruker har tilgang til å administrere et opptak. Henter opptaket ved behov;
+   * beslutningen huskes ut forespørselen.
+   */
   public boolean canManageOpptak(String opptakId) {
     Authentication auth = SecurityContextHolder.getContext().getAuthentication();
     if (auth == null || !auth.isAuthenticated()) {
@@ -31,25 +36,94 @@ public class OpptakSecurityService {
     }
 
     // Administratorer kan administrere alle opptak
-    if (auth.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"))) {
+    if (Rolletype.ADMINISTRATOR.tilhorer(auth)) {
       return true;
     }
 
     // OPPTAKSLEDER kan kun administrere opptak hvor de er administrator organisasjon
-    if (auth.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_OPPTAKSLEDER"))) {
-      Opptak opptak = opptakRepository.findById(opptakId);
-      if (opptak == null) {
-        return false;
-      }
-
-      String brukerOrganisasjonId = getCurrentUserOrganisasjonId();
-      return brukerOrganisasjonId != null
-          && brukerOrganisasjonId.equals(opptak.getAdministratorOrganisasjonId());
+    if (Rolletype.OPPTAKSLEDER.tilhorer(auth)) {
+      return tilgangsbeslutninger.hentEllerBeregn(
+          ADMINISTRERE + opptakId,
+          () -> {
+            Opptak opptak = opptakRepository.findById(opptakId);
+            return opptak != null && erAdministratorOrganisasjon(auth, opptak);
+          });
     }
 
     return false;
   }
 
+  /** Som canManageOpptak(String), for et opptak som allerede er hentet (ingen databasekall) */
+  public boolean canManageOpptak(Opptak opptak) {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth == null || !auth.isAuthenticated()) {
+      return false;
+    }
+
+    if (Rolletype.ADMINISTRATOR.tilhorer(auth)) {
+      return true;
+    }
+
+    return Rolletype.OPPTAKSLEDER.tilhorer(auth) && erAdministratorOrganisasjon(auth, opptak);
+  }
+
+  /**
+   * Sjekker om nåværende bruker kan se et opptak: administratorer ser alt, ellers må brukerens
+   * organisasjon administrere opptaket eller ha fått tilgang til det (slås opp i
+   * OpptakTilgangIndeks).
+   */
+  public boolean hasAccessToOpptak(Opptak opptak) {
+    if (isAdministrator()) {
+      return true;
+    }
+
+    String userOrgId = getCurrentUserOrganisasjonId();
+    if (userOrgId == null) {
+      return false;
+    }
+
+    if (userOrgId.equals(opptak.getAdministratorOrganisasjonId())) {
+      return true;
+    }
+
+    return tilgangIndeks.harTilgang(opptak.getId(), userOrgId);
+  }
+
+  /**
+   * Sjekker om nåværende bruker kan legge utdanninger fra en organisasjon inn i opptaket.
+   * Administratorer kan alltid; ellers må brukeren kunne administrere organisasjonen, og
+   * organisasjonen må administrere opptaket eller ha fått tilgang til det.
+   */
+  public boolean kanLeggeTilUtdanningerFra(Opptak opptak, String organisasjonId) {
+    if (isAdministrator()) {
+      return true;
+    }
+
+    if (!canManageOrganisasjon(organisasjonId)) {
+      return false;
+    }
+
+    return organisasjonId.equals(opptak.getAdministratorOrganisasjonId())
+        || tilgangIndeks.harTilgang(opptak.getId(), organisasjonId);
+  }
+
+  /** Oppdaterer tilgangsindeksen når en ny tilgang er lagret (trer i kraft ved commit) */
+  public void tilgangGitt(String opptakId, String organisasjonId) {
+    tilgangIndeks.tilgangGitt(opptakId, organisasjonId);
+    tilgangsbeslutninger.nullstill();
+  }
+
+  /** Oppdaterer tilgangsindeksen når en tilgang er slettet (trer i kraft ved commit) */
+  public void tilgangFjernet(String opptakId, String organisasjonId) {
+    tilgangIndeks.tilgangFjernet(opptakId, organisasjonId);
+    tilgangsbeslutninger.nullstill();
+  }
+
+  /** Glemmer lagrede beslutninger, f.eks. etter at administrator organisasjon er endret */
+  public void glemTilgangsbeslutninger() {
+    tilgangsbeslutninger.nullstill();
+  }
+
   /** Sjekker om nåværende bruker har tilgang til å administrere en organisasjon */
   public boolean canManageOrganisasjon(String organisasjonId) {
     Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -58,12 +132,12 @@ public class OpptakSecurityService {
     }
 
     // Administratorer kan administrere alle organisasjoner
-    if (auth.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"))) {
+    if (Rolletype.ADMINISTRATOR.tilhorer(auth)) {
       return true;
     }
 
     // OPPTAKSLEDER kan kun administrere sin egen organisasjon
-    if (auth.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_OPPTAKSLEDER"))) {
+    if (Rolletype.OPPTAKSLEDER.tilhorer(auth)) {
       String brukerOrganisasjonId = getCurrentUserOrganisasjonId();
       return brukerOrganisasjonId != null && brukerOrganisasjonId.equals(organisasjonId);
     }
@@ -84,7 +158,7 @@ public class OpptakSecurityService {
     }
 
     // Administratorer har ikke organisasjonstilhørighet
-    if (auth.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"))) {
+    if (Rolletype.ADMINISTRATOR.tilhorer(auth)) {
       return null;
     }
 
@@ -98,56 +172,25 @@ public class OpptakSecurityService {
       return null;
     }
 
-    // The principal is the userId set by JwtAuthenticationFilter
-    return auth.getPrincipal().toString();
+    // InnloggetBruker gir bruker-ID som navn
+    return auth.getName();
   }
 
   /** Sjekker om nåværende bruker er administrator */
   public boolean isAdministrator() {
     Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-    return auth != null
-        && auth.isAuthenticated()
-        && auth.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"));
-  }
-
-  /** Henter organisasjonId fra brukerens JWT token */
-  private String getBrukerOrganisasjonId(Authentication auth) {
-    // Get the JWT token from the request to extract organisasjonId
-    HttpServletRequest request = getCurrentRequest();
-    if (request == null) {
-      return null;
-    }
-
-    String token = extractTokenFromRequest(request);
-    if (token == null) {
-      return null;
-    }
-
-    try {
-      // Extract organisasjonId directly without re-validating (already validated by filter)
-      return jwtService.extractOrganisasjonId(token);
-    } catch (Exception e) {
-      return null;
-    }
+    return Rolletype.ADMINISTRATOR.tilhorer(auth);
   }
 
-  /** Henter nåværende HTTP request */
-  private HttpServletRequest getCurrentRequest() {
-    try {
-      ServletRequestAttributes attributes =
-          (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
-      return attributes.getRequest();
-    } catch (IllegalStateException e) {
-      return null;
-    }
+  private boolean erAdministratorOrganisasjon(Authentication auth, Opptak opptak) {
+    String brukerOrganisasjonId = getBrukerOrganisasjonId(auth);
+    return brukerOrganisasjonId != null
+        && brukerOrganisasjonId.equals(opptak.getAdministratorOrganisasjonId());
   }
 
-  /** Ekstraherer JWT token fra Authorization header */
-  private String extractTokenFromRequest(HttpServletRequest request) {
-    String bearerToken = request.getHeader("Authorization");
-    if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
-      return bearerToken.substring(7);
-    }
-    return null;
+  /** Henter organisasjonId fra innlogget bruker, satt av JwtAuthenticationFilter */
+  private String getBrukerOrganisasjonId(Authentication auth) {
+    InnloggetBruker bruker = InnloggetBruker.fra(auth);
+    return bruker != null ? bruker.organisasjonId() : null;
   }
 }
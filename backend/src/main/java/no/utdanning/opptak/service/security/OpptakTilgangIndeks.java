@@ -0,0 +1,255 @@
+package no.utdanning.opptak.service.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import no.utdanning.opptak.domain.OpptakTilgang;
+import no.utdanning.opptak.repository.JdbcOpptakTilgangRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Minneindeks over opptak_tilgang (opptak → organisasjoner og organisasjon → opptak), slik at
+ * tilgangssjekker ikke trenger et databasekall. Indeksen lastes ved oppstart, oppdateres når
+ * endringer i tilganger er committet, og avstemmes jevnlig mot tabellen for å fange opp endringer
+ * gjort utenom applikasjonen (eller fra andre instanser).
+ *
+ * <p>Lesing går mot et uforanderlig øyeblikksbilde som byttes ut ved hver endring; tabellen er
+ * liten og endres sjelden, så kopiering ved skriving er billigere enn låsing ved lesing.
+ */
+@Component
+public class OpptakTilgangIndeks {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OpptakTilgangIndeks.class);
+
+  private final JdbcOpptakTilgangRepository tilgangRepository;
+  private final Counter avvikTeller;
+
+  private volatile Bilde bilde = Bilde.TOMT;
+  private volatile boolean lastet;
+
+  /** Økes ved hver endring, slik at en avstemming ikke overskriver nyere endringer */
+  private long versjon;
+
+  public OpptakTilgangIndeks(
+      JdbcOpptakTilgangRepository tilgangRepository, MeterRegistry meterRegistry) {
+    this.tilgangRepository = tilgangRepository;
+    this.avvikTeller =
+        Counter.builder("opptak.tilgang.indeks.avvik")
+            .description("Avvik mellom tilgangsindeksen og opptak_tilgang funnet ved avstemming")
+            .register(meterRegistry);
+    Gauge.builder("opptak.tilgang.indeks.storrelse", this, indeks -> indeks.bilde.antall)
+        .description("Antall tilganger i tilgangsindeksen")
+        .register(meterRegistry);
+  }
+
+  /** Sjekker om organisasjonen har fått tilgang til opptaket */
+  public boolean harTilgang(String opptakId, String organisasjonId) {
+    return gjeldende().organisasjonerPerOpptak
+        .getOrDefault(opptakId, Set.of())
+        .contains(organisasjonId);
+  }
+
+  /** Returnerer de av opptakIds som organisasjonen har fått tilgang til */
+  public Set<String> opptakMedTilgang(String organisasjonId, Collection<String> opptakIds) {
+    Set<String> medTilgang =
+        gjeldende().opptakPerOrganisasjon.getOrDefault(organisasjonId, Set.of());
+    return opptakIds.stream().filter(medTilgang::contains).collect(Collectors.toSet());
+  }
+
+  /** Registrerer en ny tilgang; trer i kraft når gjeldende transaksjon committes */
+  public void tilgangGitt(String opptakId, String organisasjonId) {
+    etterCommit(() -> endre(opptakId, organisasjonId, true));
+  }
+
+  /** Registrerer en fjernet tilgang; trer i kraft når gjeldende transaksjon committes */
+  public void tilgangFjernet(String opptakId, String organisasjonId) {
+    etterCommit(() -> endre(opptakId, organisasjonId, false));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void lastVedOppstart() {
+    avstem();
+  }
+
+  /**
+   * Laster tabellen på nytt og erstatter indeksen. Avvik telles og logges, da de betyr at tabellen
+   * er endret utenom applikasjonen eller at en oppdatering har gått tapt.
+   */
+  @Scheduled(
+      fixedDelayString = "${app.tilgang.indeks.avstemming:PT5M}",
+      initialDelayString = "${app.tilgang.indeks.avstemming:PT5M}")
+  public void avstem() {
+    long versjonFoer;
+    synchronized (this) {
+      versjonFoer = versjon;
+    }
+    Bilde fraTabell = Bilde.av(tilgangRepository.findAll());
+    synchronized (this) {
+      if (versjon != versjonFoer) {
+        // En endring ble committet mens tabellen ble lest; neste avstemming tar resten
+        LOGGER.debug("Avstemming av tilgangsindeksen hoppet over pga. samtidig endring");
+        return;
+      }
+      if (lastet) {
+        List<String> avvik = avvik(bilde, fraTabell);
+        if (!avvik.isEmpty()) {
+          avvikTeller.increment(avvik.size());
+          LOGGER.warn("Tilgangsindeksen avvek fra opptak_tilgang og er lastet på nytt: {}", avvik);
+        }
+      }
+      bilde = fraTabell;
+      lastet = true;
+      versjon++;
+    }
+  }
+
+  /**
+   * Sammenligner indeksen med opptak_tilgang uten å endre noe. Returnerer avvikene som tekst (tom
+   * liste når indeksen er konsistent), slik at tester kan sjekke indeksen etter endringer.
+   */
+  public List<String> sjekkKonsistens() {
+    return avvik(gjeldende(), Bilde.av(tilgangRepository.findAll()));
+  }
+
+  /** Laster indeksen ved første bruk dersom den brukes før applikasjonen er klar */
+  private Bilde gjeldende() {
+    if (!lastet) {
+      lastUnderLas();
+    }
+    return bilde;
+  }
+
+  /**
+   * Leser tabellen mens låsen holdes, så ingen endring kan komme imellom og lastingen lykkes i ett
+   * forsøk. Endringer som committes i mellomtiden venter på låsen; tabellen er liten.
+   */
+  private synchronized void lastUnderLas() {
+    if (!lastet) {
+      bilde = Bilde.av(tilgangRepository.findAll());
+      lastet = true;
+      versjon++;
+    }
+  }
+
+  private synchronized void endre(String opptakId, String organisasjonId, boolean gitt) {
+    versjon++;
+    if (!lastet) {
+      // Endringen er allerede i tabellen og kommer med når indeksen lastes
+      return;
+    }
+    Map<String, Set<String>> organisasjoner =
+        endret(bilde.organisasjonerPerOpptak, opptakId, organisasjonId, gitt);
+    Map<String, Set<String>> opptak =
+        endret(bilde.opptakPerOrganisasjon, organisasjonId, opptakId, gitt);
+    bilde = new Bilde(organisasjoner, opptak);
+  }
+
+  private static Map<String, Set<String>> endret(
+      Map<String, Set<String>> indeks, String nokkel, String verdi, boolean leggTil) {
+    Set<String> verdier = new HashSet<>(indeks.getOrDefault(nokkel, Set.of()));
+    if (leggTil) {
+      verdier.add(verdi);
+    } else {
+      verdier.remove(verdi);
+    }
+    Map<String, Set<String>> kopi = new HashMap<>(indeks);
+    if (verdier.isEmpty()) {
+      kopi.remove(nokkel);
+    } else {
+      kopi.put(nokkel, Set.copyOf(verdier));
+    }
+    return Map.copyOf(kopi);
+  }
+
+  private static void etterCommit(Runnable endring) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      endring.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            endring.run();
+          }
+        });
+  }
+
+  private static List<String> avvik(Bilde indeks, Bilde tabell) {
+    Set<String> iIndeks = new TreeSet<>(indeks.par());
+    Set<String> iTabell = new TreeSet<>(tabell.par());
+    List<String> avvik = new ArrayList<>();
+    for (String par : iTabell) {
+      if (!iIndeks.contains(par)) {
+        avvik.add("mangler i indeksen: " + par);
+      }
+    }
+    for (String par : iIndeks) {
+      if (!iTabell.contains(par)) {
+        avvik.add("finnes ikke i tabellen: " + par);
+      }
+    }
+    return avvik;
+  }
+
+  /** Uforanderlig øyeblikksbilde av tilgangene, indeksert begge veier */
+  private static final class Bilde {
+    static final Bilde TOMT = new Bilde(Map.of(), Map.of());
+
+    final Map<String, Set<String>> organisasjonerPerOpptak;
+    final Map<String, Set<String>> opptakPerOrganisasjon;
+    final int antall;
+
+    Bilde(
+        Map<String, Set<String>> organisasjonerPerOpptak,
+        Map<String, Set<String>> opptakPerOrganisasjon) {
+      this.organisasjonerPerOpptak = organisasjonerPerOpptak;
+      this.opptakPerOrganisasjon = opptakPerOrganisasjon;
+      this.antall = organisasjonerPerOpptak.values().stream().mapToInt(Set::size).sum();
+    }
+
+    static Bilde av(List<OpptakTilgang> tilganger) {
+      Map<String, Set<String>> organisasjoner = new HashMap<>();
+      Map<String, Set<String>> opptak = new HashMap<>();
+      for (OpptakTilgang tilgang : tilganger) {
+        organisasjoner
+            .computeIfAbsent(tilgang.getOpptakId(), k -> new HashSet<>())
+            .add(tilgang.getOrganisasjonId());
+        opptak
+            .computeIfAbsent(tilgang.getOrganisasjonId(), k -> new HashSet<>())
+            .add(tilgang.getOpptakId());
+      }
+      return new Bilde(uforanderlig(organisasjoner), uforanderlig(opptak));
+    }
+
+    /** Alle tilganger som "opptakId/organisasjonId", for sammenligning */
+    Set<String> par() {
+      Set<String> par = new HashSet<>();
+      organisasjonerPerOpptak.forEach(
+          (opptakId, organisasjoner) ->
+              organisasjoner.forEach(organisasjonId -> par.add(opptakId + "/" + organisasjonId)));
+      return par;
+    }
+
+    private static Map<String, Set<String>> uforanderlig(Map<String, Set<String>> indeks) {
+      return indeks.entrySet().stream()
+          .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> Set.copyOf(e.getValue())));
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package no.utdanning.opptak.service.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Kjører BCrypt på en egen, begrenset trådpool, slik at en innloggingsbølge ikke bruker alle
+ * kjernene og gjør vanlige GraphQL-spørringer trege. Poolen har en andel av kjernene og en
+ * begrenset kø; er køen full, eller venter en forespørsel for lenge, avvises den straks med
+ * InnloggingOverbelastetException og et anslag på når klienten kan prøve igjen.
+ */
+@Component
+public class PassordVerifisering {
+
+  private final PasswordEncoder passwordEncoder;
+  private final String falskHash;
+  private final ThreadPoolExecutor executor;
+  private final Duration maksVentetid;
+  private final Timer hashTid;
+  private final Timer ventetid;
+  private final Counter avvist;
+
+  @Autowired
+  public PassordVerifisering(
+      @Value("${app.innlogging.bcrypt.andel-kjerner:0.5}") double andelKjerner,
+      @Value("${app.innlogging.bcrypt.ko-kapasitet:200}") int koKapasitet,
+      @Value("${app.innlogging.bcrypt.maks-ventetid:5s}") Duration maksVentetid,
+      MeterRegistry meterRegistry) {
+    this(
+        new BCryptPasswordEncoder(),
+        Math.max(1, (int) Math.round(Runtime.getRuntime().availableProcessors() * andelKjerner)),
+        koKapasitet,
+        maksVentetid,
+        meterRegistry);
+  }
+
+  public PassordVerifisering(
+      PasswordEncoder passwordEncoder,
+      int traader,
+      int koKapasitet,
+      Duration maksVentetid,
+      MeterRegistry meterRegistry) {
+    this.passwordEncoder = passwordEncoder;
+    this.falskHash = passwordEncoder.encode(UUID.randomUUID().toString());
+    this.executor =
+        new ThreadPoolExecutor(
+            traader,
+            traader,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(koKapasitet),
+            traadfabrikk(),
+            new ThreadPoolExecutor.AbortPolicy());
+    this.maksVentetid = maksVentetid;
+    this.hashTid =
+        Timer.builder("passord.bcrypt")
+            .description("Tid brukt på BCrypt per passord")
+            .register(meterRegistry);
+    this.ventetid =
+        Timer.builder("passord.bcrypt.ventetid")
+            .description("Tid i kø før BCrypt starter")
+            .register(meterRegistry);
+    this.avvist =
+        Counter.builder("passord.bcrypt.avvist")
+            .description("Passordsjekker avvist fordi køen var full eller ventetiden for lang")
+            .register(meterRegistry);
+    Gauge.builder("passord.bcrypt.ko", executor, e -> e.getQueue().size())
+        .description("Passordsjekker som venter i kø")
+        .register(meterRegistry);
+    Gauge.builder("passord.bcrypt.aktive", executor, ThreadPoolExecutor::getActiveCount)
+        .description("Passordsjekker som kjører nå")
+        .register(meterRegistry);
+  }
+
+  /** Sjekker passordet mot BCrypt-hashen */
+  public boolean matches(String passord, String hash) {
+    return kjor(() -> passwordEncoder.matches(passord, hash));
+  }
+
+  /**
+   * Bruker like lang tid som en vanlig passordsjekk og returnerer alltid false. Brukes for ukjente
+   * e-postadresser, så svartiden ikke avslører hvilke adresser som finnes.
+   */
+  public boolean matchesFalskHash(String passord) {
+    matches(passord, falskHash);
+    return false;
+  }
+
+  /** Lager BCrypt-hash av passordet */
+  public String hash(String passord) {
+    return kjor(() -> passwordEncoder.encode(passord));
+  }
+
+  private <T> T kjor(Callable<T> oppgave) {
+    long innlagt = System.nanoTime();
+    Future<T> resultat;
+    try {
+      resultat =
+          executor.submit(
+              () -> {
+                ventetid.record(System.nanoTime() - innlagt, TimeUnit.NANOSECONDS);
+                return hashTid.recordCallable(oppgave);
+              });
+    } catch (RejectedExecutionException e) {
+      throw overbelastet();
+    }
+
+    try {
+      return resultat.get(maksVentetid.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      // Ikke startet ennå fjernes fra køen; allerede startet får kjøre ferdig
+      resultat.cancel(false);
+      executor.remove((Runnable) resultat);
+      throw overbelastet();
+    } catch (InterruptedException e) {
+      resultat.cancel(false);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Avbrutt under passordsjekk", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw new IllegalStateException("Passordsjekk feilet", e.getCause());
+    }
+  }
+
+  private InnloggingOverbelastetException overbelastet() {
+    avvist.increment();
+    return new InnloggingOverbelastetException(provIgjenEtter());
+  }
+
+  /** Anslått tid til køen er tømt, ut fra kølengde og snittid per hash (minst ett sekund) */
+  private Duration provIgjenEtter() {
+    double snitt = hashTid.mean(TimeUnit.MILLISECONDS);
+    double ventende = executor.getQueue().size() + executor.getActiveCount();
+    long millis = (long) Math.ceil(ventende / executor.getMaximumPoolSize() * snitt);
+    return Duration.ofSeconds(Math.max(1, (long) Math.ceil(millis / 1000.0)));
+  }
+
+  @PreDestroy
+  public void stopp() {
+    executor.shutdownNow();
+  }
+
+  private static ThreadFactory traadfabrikk() {
+    AtomicInteger nummer = new AtomicInteger();
+    return oppgave -> {
+      Thread traad = new Thread(oppgave, "bcrypt-" + nummer.incrementAndGet());
+      traad.setDaemon(true);
+      return traad;
+    };
+  }
+}
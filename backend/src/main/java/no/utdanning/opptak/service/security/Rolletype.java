@@ -0,0 +1,60 @@
+package no.utdanning.opptak.service.security;
+
+import java.util.Collection;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Rollene som brukes i tilgangskontrollen, hver med sin bit. InnloggetBruker har rollene som en
+ * bitmaske, slik at en rollesjekk er én AND i stedet for et søk i authorities med nye objekter.
+ */
+public enum Rolletype {
+  ADMINISTRATOR,
+  OPPTAKSLEDER,
+  SOKNADSBEHANDLER,
+  SOKER;
+
+  private final int bit = 1 << ordinal();
+  private final GrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + name());
+
+  public int bit() {
+    return bit;
+  }
+
+  /**
+   * Sjekker om den autentiserte brukeren har rollen. JWT-brukere sjekkes mot bitmasken; andre
+   * Authentication-typer (f.eks. i tester) mot authorities.
+   */
+  public boolean tilhorer(Authentication auth) {
+    if (auth == null || !auth.isAuthenticated()) {
+      return false;
+    }
+    if (auth.getPrincipal() instanceof InnloggetBruker bruker) {
+      return (bruker.rolleMaske() & bit) != 0;
+    }
+    return auth.getAuthorities().contains(authority);
+  }
+
+  /** Bitmasken for rollenavnene; ukjente roller gir ingen bit */
+  public static int maske(Collection<String> roller) {
+    int maske = 0;
+    for (String rolle : roller) {
+      for (Rolletype type : values()) {
+        if (type.name().equals(rolle)) {
+          maske |= type.bit;
+        }
+      }
+    }
+    return maske;
+  }
+
+  /** Bitmasken for rolletypene */
+  public static int maske(Rolletype... roller) {
+    int maske = 0;
+    for (Rolletype rolle : roller) {
+      maske |= rolle.bit;
+    }
+    return maske;
+  }
+}
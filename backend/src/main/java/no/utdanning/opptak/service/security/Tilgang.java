@@ -0,0 +1,21 @@
+package no.utdanning.opptak.service.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Krever innlogget bruker med minst én av rollene. Uten roller holder det å være innlogget. På en
+ * klasse gjelder kravet alle offentlige metoder; en metode med egen @Tilgang overstyrer klassens.
+ * Sjekkes av TilgangAspect mot rollemasken i InnloggetBruker.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Tilgang {
+
+  /** Rollene som gir tilgang; tom betyr alle innloggede */
+  Rolletype[] value() default {};
+}
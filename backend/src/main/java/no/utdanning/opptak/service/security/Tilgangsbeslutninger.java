@@ -0,0 +1,60 @@
+package no.utdanning.opptak.service.security;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Husker tilgangsbeslutninger for resten av forespørselen, slik at samme sjekk ikke går mot
+ * databasen flere ganger i én GraphQL-operasjon. Beslutningene lagres som request-attributt og
+ * forsvinner med forespørselen; utenfor en forespørsel beregnes de hver gang.
+ */
+@Component
+public class Tilgangsbeslutninger {
+
+  private static final String ATTRIBUTT = Tilgangsbeslutninger.class.getName();
+
+  /** Returnerer lagret beslutning for nøkkelen, eller beregner og lagrer den */
+  public boolean hentEllerBeregn(String nokkel, BooleanSupplier beregning) {
+    Map<String, Boolean> beslutninger = beslutninger();
+    if (beslutninger == null) {
+      return beregning.getAsBoolean();
+    }
+    Boolean lagret = beslutninger.get(nokkel);
+    if (lagret != null) {
+      return lagret;
+    }
+    boolean beslutning = beregning.getAsBoolean();
+    beslutninger.put(nokkel, beslutning);
+    return beslutning;
+  }
+
+  /** Glemmer alle beslutninger; kalles når tilganger endres i samme forespørsel */
+  public void nullstill() {
+    Map<String, Boolean> beslutninger = beslutninger();
+    if (beslutninger != null) {
+      beslutninger.clear();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Boolean> beslutninger() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes == null) {
+      return null;
+    }
+    // Request-attributter er per forespørsel; data fetchere kan likevel kjøre på flere tråder
+    synchronized (attributes) {
+      Object map = attributes.getAttribute(ATTRIBUTT, RequestAttributes.SCOPE_REQUEST);
+      if (map == null) {
+        map = Collections.synchronizedMap(new HashMap<String, Boolean>());
+        attributes.setAttribute(ATTRIBUTT, map, RequestAttributes.SCOPE_REQUEST);
+      }
+      return (Map<String, Boolean>) map;
+    }
+  }
+}
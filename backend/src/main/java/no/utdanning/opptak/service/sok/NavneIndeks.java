@@ -0,0 +1,295 @@
+package no.utdanning.opptak.service.sok;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import no.utdanning.opptak.domain.Organisasjon;
+import no.utdanning.opptak.domain.Utdanning;
+import no.utdanning.opptak.repository.NavnOppslag;
+import no.utdanning.opptak.repository.OrganisasjonRepository;
+import no.utdanning.opptak.repository.Projeksjon;
+import no.utdanning.opptak.repository.UtdanningRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Trigramindekser over navnene til utdanninger og organisasjoner, for navnefilteret i
+ * repositoryene og for søkefelt med forslag mens brukeren skriver. Indeksene lastes ved oppstart,
+ * oppdateres når endringer er committet, og avstemmes jevnlig mot tabellene som
+ * OpptakTilgangIndeks.
+ *
+ * <p>En transaksjon som selv har endret navn får ikke svar fra indeksen før den er committet, så
+ * repositoryene spør databasen i stedet og ser transaksjonens egne endringer.
+ */
+@Component
+public class NavneIndeks implements NavnOppslag {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(NavneIndeks.class);
+
+  private static final Projeksjon UTDANNING_KOLONNER =
+      Projeksjon.av(List.of("id", "navn", "aktiv", "organisasjon_id"));
+  private static final Projeksjon ORGANISASJON_KOLONNER =
+      Projeksjon.av(List.of("id", "navn", "aktiv"));
+
+  private final UtdanningRepository utdanningRepository;
+  private final OrganisasjonRepository organisasjonRepository;
+  private final int maksTreff;
+  private final Counter avvikTeller;
+
+  private final TrigramIndeks utdanninger = new TrigramIndeks();
+  private final TrigramIndeks organisasjoner = new TrigramIndeks();
+
+  /** Nøkler for ventende endringer i gjeldende transaksjon */
+  private final Object ventendeUtdanninger = new Object();
+
+  private final Object ventendeOrganisasjoner = new Object();
+
+  private volatile boolean lastet;
+
+  /** Økes ved hver endring, slik at en avstemming ikke overskriver nyere endringer */
+  private long versjon;
+
+  public NavneIndeks(
+      UtdanningRepository utdanningRepository,
+      OrganisasjonRepository organisasjonRepository,
+      MeterRegistry meterRegistry,
+      @Value("${app.sok.indeks.maks-treff:1000}") int maksTreff) {
+    this.utdanningRepository = utdanningRepository;
+    this.organisasjonRepository = organisasjonRepository;
+    this.maksTreff = maksTreff;
+    this.avvikTeller =
+        Counter.builder("sok.indeks.avvik")
+            .description("Avvik mellom navneindeksen og tabellene funnet ved avstemming")
+            .register(meterRegistry);
+    Gauge.builder("sok.indeks.storrelse", utdanninger, TrigramIndeks::antall)
+        .description("Antall navn i navneindeksen")
+        .tag("indeks", "utdanning")
+        .register(meterRegistry);
+    Gauge.builder("sok.indeks.storrelse", organisasjoner, TrigramIndeks::antall)
+        .description("Antall navn i navneindeksen")
+        .tag("indeks", "organisasjon")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Id-er til utdanningene som inneholder søket, rangert for et søkefelt (se TrigramIndeks.sok).
+   *
+   * @param organisasjonId hvis satt, bare utdanninger fra denne organisasjonen
+   */
+  public List<String> sokUtdanninger(String sok, int grense, String organisasjonId) {
+    Predicate<TrigramIndeks.Dokument> filter =
+        dokument ->
+            dokument.aktiv()
+                && (organisasjonId == null || organisasjonId.equals(dokument.gruppe()));
+    return ids(lastetIndeks(utdanninger).sok(sok, grense, filter));
+  }
+
+  /** Id-er til aktive organisasjoner som inneholder søket, rangert for et søkefelt */
+  public List<String> sokOrganisasjoner(String sok, int grense) {
+    return ids(lastetIndeks(organisasjoner).sok(sok, grense, TrigramIndeks.Dokument::aktiv));
+  }
+
+  @Override
+  public Set<String> utdanningerMedNavn(String sok) {
+    return medNavn(utdanninger, ventendeUtdanninger, sok);
+  }
+
+  @Override
+  public Set<String> organisasjonerMedNavn(String sok) {
+    return medNavn(organisasjoner, ventendeOrganisasjoner, sok);
+  }
+
+  /** Registrerer en ny eller endret utdanning; trer i kraft når gjeldende transaksjon committes */
+  public void utdanningEndret(Utdanning utdanning) {
+    utdanningerEndret(List.of(utdanning));
+  }
+
+  /** Som utdanningEndret, for mange utdanninger, f.eks. en bit i en import */
+  public void utdanningerEndret(Collection<Utdanning> endrede) {
+    List<TrigramIndeks.Dokument> dokumenter = endrede.stream().map(NavneIndeks::dokument).toList();
+    etterCommit(ventendeUtdanninger, () -> endre(() -> dokumenter.forEach(utdanninger::leggTil)));
+  }
+
+  /** Registrerer en slettet utdanning; trer i kraft når gjeldende transaksjon committes */
+  public void utdanningSlettet(String id) {
+    etterCommit(ventendeUtdanninger, () -> endre(() -> utdanninger.fjern(id)));
+  }
+
+  /** Registrerer en ny eller endret organisasjon; trer i kraft når transaksjonen committes */
+  public void organisasjonEndret(Organisasjon organisasjon) {
+    TrigramIndeks.Dokument dokument = dokument(organisasjon);
+    etterCommit(ventendeOrganisasjoner, () -> endre(() -> organisasjoner.leggTil(dokument)));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void lastVedOppstart() {
+    avstem();
+  }
+
+  /**
+   * Laster navnene på nytt og erstatter indeksene. Avvik telles og logges, da de betyr at tabellene
+   * er endret utenom applikasjonen eller at en oppdatering har gått tapt.
+   */
+  @Scheduled(
+      fixedDelayString = "${app.sok.indeks.avstemming:PT5M}",
+      initialDelayString = "${app.sok.indeks.avstemming:PT5M}")
+  public void avstem() {
+    long versjonFoer;
+    synchronized (this) {
+      versjonFoer = versjon;
+    }
+    List<TrigramIndeks.Dokument> fraUtdanninger = lesUtdanninger();
+    List<TrigramIndeks.Dokument> fraOrganisasjoner = lesOrganisasjoner();
+    synchronized (this) {
+      if (versjon != versjonFoer) {
+        // En endring ble committet mens tabellene ble lest; neste avstemming tar resten
+        LOGGER.debug("Avstemming av navneindeksen hoppet over pga. samtidig endring");
+        return;
+      }
+      if (lastet) {
+        long avvik = avvik(utdanninger, fraUtdanninger) + avvik(organisasjoner, fraOrganisasjoner);
+        if (avvik > 0) {
+          avvikTeller.increment(avvik);
+          LOGGER.warn("Navneindeksen hadde {} avvik fra tabellene og er lastet på nytt", avvik);
+        }
+      }
+      utdanninger.erstattAlle(fraUtdanninger);
+      organisasjoner.erstattAlle(fraOrganisasjoner);
+      lastet = true;
+      versjon++;
+    }
+  }
+
+  private Set<String> medNavn(TrigramIndeks indeks, Object ventende, String sok) {
+    if (!lastet || TransactionSynchronizationManager.hasResource(ventende)) {
+      return null;
+    }
+    Set<String> ids = indeks.inneholder(sok);
+    // Lange IN-lister er ikke raskere enn LIKE
+    return ids.size() <= maksTreff ? ids : null;
+  }
+
+  /** Laster indeksene ved første bruk dersom de brukes før applikasjonen er klar */
+  private TrigramIndeks lastetIndeks(TrigramIndeks indeks) {
+    if (!lastet) {
+      lastUnderLas();
+    }
+    return indeks;
+  }
+
+  /**
+   * Leser tabellene mens låsen holdes, så ingen endring kan komme imellom og lastingen lykkes i ett
+   * forsøk også når navn endres hele tiden. Endringer som committes i mellomtiden venter på låsen.
+   */
+  private synchronized void lastUnderLas() {
+    if (!lastet) {
+      utdanninger.erstattAlle(lesUtdanninger());
+      organisasjoner.erstattAlle(lesOrganisasjoner());
+      lastet = true;
+      versjon++;
+    }
+  }
+
+  private List<TrigramIndeks.Dokument> lesUtdanninger() {
+    return utdanningRepository
+        .findWithFilters(null, null, null, null, null, null, null, null, UTDANNING_KOLONNER)
+        .stream()
+        .map(NavneIndeks::dokument)
+        .toList();
+  }
+
+  private List<TrigramIndeks.Dokument> lesOrganisasjoner() {
+    return organisasjonRepository.findAll(ORGANISASJON_KOLONNER).stream()
+        .map(NavneIndeks::dokument)
+        .toList();
+  }
+
+  private synchronized void endre(Runnable endring) {
+    versjon++;
+    if (lastet) {
+      endring.run();
+    }
+    // Ellers er endringen allerede i tabellen og kommer med når indeksen lastes
+  }
+
+  /**
+   * Kjører endringen etter commit. Nøkkelen bindes til transaksjonen til den er ferdig, så
+   * medNavn vet at transaksjonen har endringer som ikke er i indeksen ennå.
+   */
+  private static void etterCommit(Object ventende, Runnable endring) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      endring.run();
+      return;
+    }
+    if (!TransactionSynchronizationManager.hasResource(ventende)) {
+      TransactionSynchronizationManager.bindResource(ventende, Boolean.TRUE);
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              TransactionSynchronizationManager.unbindResourceIfPossible(ventende);
+            }
+          });
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            endring.run();
+          }
+        });
+  }
+
+  /** Antall dokumenter som mangler, er ulike eller er til overs i indeksen */
+  private static long avvik(TrigramIndeks indeks, List<TrigramIndeks.Dokument> fraTabell) {
+    long ulike = 0;
+    long felles = 0;
+    for (TrigramIndeks.Dokument dokument : fraTabell) {
+      TrigramIndeks.Dokument iIndeks = indeks.hent(dokument.id());
+      if (iIndeks != null) {
+        felles++;
+      }
+      if (!Objects.equals(iIndeks, dokument)) {
+        ulike++;
+      }
+    }
+    return ulike + (indeks.antall() - felles);
+  }
+
+  private static List<String> ids(List<TrigramIndeks.Dokument> dokumenter) {
+    List<String> ids = new ArrayList<>(dokumenter.size());
+    for (TrigramIndeks.Dokument dokument : dokumenter) {
+      ids.add(dokument.id());
+    }
+    return ids;
+  }
+
+  private static TrigramIndeks.Dokument dokument(Utdanning utdanning) {
+    return new TrigramIndeks.Dokument(
+        utdanning.getId(),
+        utdanning.getNavn(),
+        Boolean.TRUE.equals(utdanning.getAktiv()),
+        utdanning.getOrganisasjonId());
+  }
+
+  private static TrigramIndeks.Dokument dokument(Organisasjon organisasjon) {
+    return new TrigramIndeks.Dokument(
+        organisasjon.getId(),
+        organisasjon.getNavn(),
+        Boolean.TRUE.equals(organisasjon.getAktiv()),
+        null);
+  }
+}
@@ -0,0 +1,43 @@
+package no.utdanning.opptak.service.sok;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/** Felles for søkefeltene sokUtdanninger og sokOrganisasjoner, så de oppfører seg likt */
+public final class Sokeforslag {
+
+  /** Samme som standardverdien til first i skjemaet */
+  static final int STANDARD_ANTALL = 10;
+
+  static final int MAKS_ANTALL = 100;
+
+  private Sokeforslag() {}
+
+  /** Antall forslag som skal hentes: STANDARD_ANTALL uten first, ellers first begrenset til maks */
+  public static int antall(Integer first) {
+    if (first == null || first <= 0) {
+      return STANDARD_ANTALL;
+    }
+    return Math.min(first, MAKS_ANTALL);
+  }
+
+  /** Radene i rangeringen fra indeksen; id-er uten rad (f.eks. slettet siden) hoppes over */
+  public static <T> List<T> iRekkefolge(
+      List<String> ids, List<T> rader, Function<T, String> idFraRad) {
+    Map<String, T> radPerId = new HashMap<>();
+    for (T rad : rader) {
+      radPerId.put(idFraRad.apply(rad), rad);
+    }
+    List<T> sortert = new ArrayList<>(ids.size());
+    for (String id : ids) {
+      T rad = radPerId.get(id);
+      if (rad != null) {
+        sortert.add(rad);
+      }
+    }
+    return sortert;
+  }
+}
@@ -0,0 +1,220 @@
+package no.utdanning.opptak.service.sok;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Invertert indeks fra trigrammer (tre tegn etter hverandre) til dokumenter, for deltekstsøk i navn
+ * uten å gå gjennom alle. Et søk slår opp postlistene for søkets trigrammer, snitter dem fra den
+ * minste, og sjekker kandidatene mot teksten, så treffene er nøyaktig de som inneholder søket (som
+ * LIKE '%x%' uten forskjell på store og små bokstaver). Søk kortere enn tre tegn sjekker alle
+ * dokumentene.
+ *
+ * <p>Lesing er uten lås. Skriving er synkronisert og endrer bare trigrammene som faktisk er lagt
+ * til eller fjernet. Dokumentet byttes før postlistene, og kandidater sjekkes alltid mot gjeldende
+ * tekst, så et søk under en endring aldri gir feil treff; det kan bare gå glipp av dokumentet som
+ * endres akkurat da.
+ */
+public class TrigramIndeks {
+
+  /**
+   * Et indeksert navn.
+   *
+   * @param gruppe valgfri verdi som søk kan filtrere på, f.eks. organisasjonen til en utdanning
+   */
+  public record Dokument(String id, String tekst, boolean aktiv, String gruppe) {}
+
+  private record Indeksert(Dokument dokument, String normalisert) {}
+
+  /** Postlister og dokumenter; byttes ut samlet når indeksen lastes på nytt */
+  private record Tilstand(
+      Map<String, Set<String>> poster, Map<String, Indeksert> dokumenter) {
+    static Tilstand tom() {
+      return new Tilstand(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+    }
+  }
+
+  /** Prefikstreff først, så treff i starten av et ord, så kortere navn */
+  private static final Comparator<Rangert> RANGERING =
+      Comparator.comparingInt(Rangert::plass)
+          .thenComparingInt(r -> r.indeksert().normalisert().length())
+          .thenComparing(r -> r.indeksert().normalisert())
+          .thenComparing(r -> r.indeksert().dokument().id());
+
+  private record Rangert(Indeksert indeksert, int plass) {}
+
+  private volatile Tilstand tilstand = Tilstand.tom();
+
+  /** Legger til dokumentet, eller erstatter det med samme id */
+  public synchronized void leggTil(Dokument dokument) {
+    Tilstand gjeldende = tilstand;
+    Indeksert nytt = new Indeksert(dokument, normaliser(dokument.tekst()));
+    Indeksert gammelt = gjeldende.dokumenter().put(dokument.id(), nytt);
+
+    Set<String> nye = trigrammer(nytt.normalisert());
+    Set<String> gamle = gammelt != null ? trigrammer(gammelt.normalisert()) : Set.of();
+    for (String trigram : nye) {
+      if (!gamle.contains(trigram)) {
+        gjeldende
+            .poster()
+            .computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet())
+            .add(dokument.id());
+      }
+    }
+    for (String trigram : gamle) {
+      if (!nye.contains(trigram)) {
+        fjernPost(gjeldende, trigram, dokument.id());
+      }
+    }
+  }
+
+  /** Fjerner dokumentet hvis det finnes */
+  public synchronized void fjern(String id) {
+    Tilstand gjeldende = tilstand;
+    Indeksert gammelt = gjeldende.dokumenter().remove(id);
+    if (gammelt != null) {
+      for (String trigram : trigrammer(gammelt.normalisert())) {
+        fjernPost(gjeldende, trigram, id);
+      }
+    }
+  }
+
+  /** Bygger indeksen på nytt fra dokumentene og bytter den inn i ett steg */
+  public synchronized void erstattAlle(Collection<Dokument> dokumenter) {
+    Tilstand ny = Tilstand.tom();
+    for (Dokument dokument : dokumenter) {
+      Indeksert indeksert = new Indeksert(dokument, normaliser(dokument.tekst()));
+      ny.dokumenter().put(dokument.id(), indeksert);
+      for (String trigram : trigrammer(indeksert.normalisert())) {
+        ny.poster().computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet()).add(dokument.id());
+      }
+    }
+    tilstand = ny;
+  }
+
+  /** Id-ene til alle dokumenter der teksten inneholder søket */
+  public Set<String> inneholder(String sok) {
+    Set<String> ids = new HashSet<>();
+    for (Indeksert treff : kandidater(tilstand, normaliser(sok))) {
+      ids.add(treff.dokument().id());
+    }
+    return ids;
+  }
+
+  /**
+   * Dokumentene som inneholder søket, rangert for et søkefelt: navn som starter med søket først, så
+   * navn der et ord starter med søket, så resten; kortere navn før lengre.
+   *
+   * @param filter hvilke dokumenter som kan være med, f.eks. bare aktive
+   */
+  public List<Dokument> sok(String sok, int grense, Predicate<Dokument> filter) {
+    String normalisert = normaliser(sok);
+    if (normalisert.isEmpty() || grense <= 0) {
+      return List.of();
+    }
+    // Holder bare de beste i en heap med det dårligste treffet øverst
+    PriorityQueue<Rangert> beste = new PriorityQueue<>(grense + 1, RANGERING.reversed());
+    for (Indeksert treff : kandidater(tilstand, normalisert)) {
+      if (filter.test(treff.dokument())) {
+        beste.add(new Rangert(treff, plass(treff.normalisert(), normalisert)));
+        if (beste.size() > grense) {
+          beste.poll();
+        }
+      }
+    }
+    List<Rangert> rangert = new ArrayList<>(beste);
+    rangert.sort(RANGERING);
+    return rangert.stream().map(r -> r.indeksert().dokument()).toList();
+  }
+
+  /** Dokumentet med id-en slik det er indeksert, eller null */
+  public Dokument hent(String id) {
+    Indeksert indeksert = tilstand.dokumenter().get(id);
+    return indeksert != null ? indeksert.dokument() : null;
+  }
+
+  public int antall() {
+    return tilstand.dokumenter().size();
+  }
+
+  /** Kandidater fra postlistene, sjekket mot teksten */
+  private static List<Indeksert> kandidater(Tilstand tilstand, String sok) {
+    List<Indeksert> treff = new ArrayList<>();
+    if (sok.length() < 3) {
+      for (Indeksert indeksert : tilstand.dokumenter().values()) {
+        if (indeksert.normalisert().contains(sok)) {
+          treff.add(indeksert);
+        }
+      }
+      return treff;
+    }
+
+    List<Set<String>> lister = new ArrayList<>();
+    for (String trigram : trigrammer(sok)) {
+      Set<String> ids = tilstand.poster().get(trigram);
+      if (ids == null) {
+        return treff;
+      }
+      lister.add(ids);
+    }
+    lister.sort(Comparator.comparingInt(Set::size));
+
+    Set<String> minste = lister.get(0);
+    for (String id : minste) {
+      boolean iAlle = true;
+      for (int i = 1; i < lister.size() && iAlle; i++) {
+        iAlle = lister.get(i).contains(id);
+      }
+      Indeksert indeksert = iAlle ? tilstand.dokumenter().get(id) : null;
+      if (indeksert != null && indeksert.normalisert().contains(sok)) {
+        treff.add(indeksert);
+      }
+    }
+    return treff;
+  }
+
+  private static void fjernPost(Tilstand tilstand, String trigram, String id) {
+    tilstand
+        .poster()
+        .computeIfPresent(
+            trigram,
+            (t, ids) -> {
+              ids.remove(id);
+              return ids.isEmpty() ? null : ids;
+            });
+  }
+
+  /** 0 hvis teksten starter med søket, 1 hvis et ord gjør det, ellers 2 */
+  private static int plass(String tekst, String sok) {
+    if (tekst.startsWith(sok)) {
+      return 0;
+    }
+    for (int i = tekst.indexOf(sok); i > 0; i = tekst.indexOf(sok, i + 1)) {
+      if (!Character.isLetterOrDigit(tekst.charAt(i - 1))) {
+        return 1;
+      }
+    }
+    return 2;
+  }
+
+  private static Set<String> trigrammer(String tekst) {
+    Set<String> trigrammer = new HashSet<>();
+    for (int i = 0; i + 3 <= tekst.length(); i++) {
+      trigrammer.add(tekst.substring(i, i + 3));
+    }
+    return trigrammer;
+  }
+
+  static String normaliser(String tekst) {
+    return tekst == null ? "" : tekst.trim().toLowerCase(Locale.ROOT);
+  }
+}
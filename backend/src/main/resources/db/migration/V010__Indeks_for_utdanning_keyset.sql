@@ -0,0 +1,5 @@
+-- Indekser for keyset-paginering av utdanninger
+-- Dekker ORDER BY navn, id og (navn, id) > (?, ?) slik at dype sider ikke må skanne forbi OFFSET
+
+CREATE INDEX IF NOT EXISTS idx_utdanning_navn_id ON utdanning(navn, id);
+CREATE INDEX IF NOT EXISTS idx_utdanning_organisasjon_navn_id ON utdanning(organisasjon_id, navn, id);
@@ -0,0 +1,128 @@
+package no.utdanning.opptak.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.List;
+import no.utdanning.opptak.domain.BrukerLegitimasjon;
+import no.utdanning.opptak.repository.JdbcBrukerRepository;
+import no.utdanning.opptak.service.AuthService;
+import no.utdanning.opptak.service.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DisplayName("Bruker Import Integration Tests")
+class BrukerImportIntegrationTest {
+
+  @Autowired private MockMvc mockMvc;
+  @Autowired private JwtService jwtService;
+  @Autowired private AuthService authService;
+  @Autowired private JdbcBrukerRepository brukerRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update(
+        "DELETE FROM bruker_rolle WHERE bruker_id IN "
+            + "(SELECT id FROM bruker WHERE email LIKE '%@import.test')");
+    jdbcTemplate.update("DELETE FROM bruker WHERE email LIKE '%@import.test'");
+  }
+
+  @Test
+  @DisplayName("Should import valid CSV rows and report rejected ones")
+  void skalImportereCsv() throws Exception {
+    String csv =
+        """
+        email,navn,passord,organisasjon_id,roller
+        kari@import.test,"Nordmann, Kari",hemmelig1,ntnu,OPPTAKSLEDER;SOKNADSBEHANDLER
+        ola@import.test,Ola,hemmelig2,,
+        kari@import.test,Kari igjen,hemmelig3,ntnu,
+        opptaksleder@ntnu.no,Finnes,hemmelig4,ntnu,
+        per@import.test,Per,hemmelig5,finnes-ikke,
+        liv@import.test,Liv,hemmelig6,,SJEF
+        """;
+
+    mockMvc
+        .perform(
+            post("/api/brukere/import")
+                .header("Authorization", "Bearer " + token("ADMINISTRATOR"))
+                .contentType("text/csv")
+                .content(csv))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.lest").value(6))
+        .andExpect(jsonPath("$.opprettet").value(2))
+        .andExpect(jsonPath("$.feilet").value(4))
+        .andExpect(jsonPath("$.feil[0].linje").value(4))
+        .andExpect(jsonPath("$.feil[0].email").value("kari@import.test"))
+        .andExpect(jsonPath("$.feil[0].melding").value("E-posten finnes flere ganger i filen"))
+        .andExpect(jsonPath("$.feil[3].melding").value("Ukjent organisasjon: finnes-ikke"));
+
+    BrukerLegitimasjon kari = brukerRepository.findLegitimasjonByEmail("kari@import.test");
+    assertThat(kari.navn()).isEqualTo("Nordmann, Kari");
+    assertThat(kari.organisasjonId()).isEqualTo("ntnu");
+    assertThat(kari.rolleIds()).containsExactly("OPPTAKSLEDER", "SOKNADSBEHANDLER");
+    assertThat(authService.validerPassord("hemmelig1", kari.passordHash())).isTrue();
+  }
+
+  @Test
+  @DisplayName("Should import NDJSON")
+  void skalImportereNdjson() throws Exception {
+    String ndjson =
+        """
+        {"email":"nina@import.test","navn":"Nina","passord":"hemmelig","roller":["SOKER"]}
+        ikke json
+        """;
+
+    mockMvc
+        .perform(
+            post("/api/brukere/import")
+                .header("Authorization", "Bearer " + token("ADMINISTRATOR"))
+                .contentType("application/x-ndjson")
+                .content(ndjson))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.opprettet").value(1))
+        .andExpect(jsonPath("$.feil[0].linje").value(2))
+        .andExpect(jsonPath("$.feil[0].melding").value("Ugyldig JSON"));
+
+    assertThat(brukerRepository.findLegitimasjonByEmail("nina@import.test").rolleIds())
+        .isEqualTo(List.of("SOKER"));
+  }
+
+  @Test
+  @DisplayName("Should reject import from non-administrators and CSV without required columns")
+  void skalAvviseIkkeAdministratorOgUgyldigOverskrift() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/brukere/import")
+                .header("Authorization", "Bearer " + token("OPPTAKSLEDER"))
+                .contentType("text/csv")
+                .content("email,navn,passord\nx@import.test,X,hemmelig\n"))
+        .andExpect(status().isForbidden());
+
+    mockMvc
+        .perform(
+            post("/api/brukere/import")
+                .header("Authorization", "Bearer " + token("ADMINISTRATOR"))
+                .contentType("text/csv")
+                .content("email,navn\nx@import.test,X\n"))
+        .andExpect(status().isBadRequest());
+
+    assertThat(brukerRepository.findLegitimasjonByEmail("x@import.test")).isNull();
+  }
+
+  private String token(String rolle) {
+    return jwtService.generateToken(
+        "BRUKER-ADMIN", "admin@strix.no", "Sara Administrator", List.of(rolle), null);
+  }
+}
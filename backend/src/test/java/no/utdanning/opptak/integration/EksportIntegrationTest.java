@@ -0,0 +1,123 @@
+package no.utdanning.opptak.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import no.utdanning.opptak.service.JwtService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+// Små sider, så eksporten må gå over flere keyset-sider
+@SpringBootTest(properties = "app.eksport.side-storrelse=2")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DisplayName("Eksport Integration Tests")
+class EksportIntegrationTest {
+
+  @Autowired private MockMvc mockMvc;
+  @Autowired private JwtService jwtService;
+  @Autowired private ObjectMapper objectMapper;
+
+  @Test
+  @DisplayName("Should stream all rows as NDJSON in id order across pages")
+  void skalStrommeNdjsonIIdRekkefolge() throws Exception {
+    String body =
+        mockMvc
+            .perform(get("/api/eksport/opptak").header("Authorization", "Bearer " + adminToken()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            .andReturn()
+            .getResponse()
+            .getContentAsString(StandardCharsets.UTF_8);
+
+    List<String> ids = new ArrayList<>();
+    for (String linje : body.split("\n")) {
+      JsonNode opptak = objectMapper.readTree(linje);
+      ids.add(opptak.get("id").asText());
+      if (opptak.get("id").asText().equals("samordnet-uhg-h25")) {
+        assertThat(opptak.get("administratorOrganisasjonId").asText()).isEqualTo("SO-001");
+        assertThat(opptak.get("aar").asInt()).isEqualTo(2025);
+        assertThat(opptak.get("samordnet").isBoolean()).isTrue();
+      }
+    }
+    assertThat(ids).contains("ntnu-lokalt-v26", "samordnet-fsu-h25", "samordnet-uhg-h25");
+    assertThat(ids).isSorted().doesNotHaveDuplicates();
+  }
+
+  @Test
+  @DisplayName("Should gzip CSV and resume after the cursor")
+  void skalGzippeCsvOgFortsetteEtterCursor() throws Exception {
+    byte[] gzippet =
+        mockMvc
+            .perform(
+                get("/api/eksport/utdanninger")
+                    .param("format", "csv")
+                    .param("etter", "hvl-sykepleie-h25")
+                    .header("Authorization", "Bearer " + adminToken())
+                    .header("Accept-Encoding", "gzip"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Encoding", "gzip"))
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+
+    String csv;
+    try (GZIPInputStream inn = new GZIPInputStream(new ByteArrayInputStream(gzippet))) {
+      csv = new String(inn.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    List<String> linjer = List.of(csv.split("\n"));
+    assertThat(linjer.get(0)).startsWith("id,navn,").contains("organisasjon_id");
+    List<String> ids = linjer.stream().skip(1).map(linje -> linje.split(",")[0]).toList();
+    assertThat(ids).contains("ntnu-bygg-h25", "ntnu-informatikk-h25", "uio-informatikk-h25");
+    assertThat(ids).doesNotContain("fsi-elektro-h25", "hvl-sykepleie-h25").isSorted();
+  }
+
+  @Test
+  @DisplayName("Should only export rows created from the given time")
+  void skalBareEksportereRaderOpprettetFra() throws Exception {
+    mockMvc
+        .perform(
+            get("/api/eksport/utdanninger-i-opptak")
+                .param("opprettetFra", "2999-01-01")
+                .header("Authorization", "Bearer " + adminToken()))
+        .andExpect(status().isOk())
+        .andExpect(content().string(""));
+  }
+
+  @Test
+  @DisplayName("Should reject non-administrators, unknown datasets and unknown formats")
+  void skalAvviseUgyldigeForesporsler() throws Exception {
+    String sokerToken =
+        jwtService.generateToken("BRUKER-SOKER", "x@test.no", "X", List.of("SOKER"), null);
+    mockMvc
+        .perform(get("/api/eksport/opptak").header("Authorization", "Bearer " + sokerToken))
+        .andExpect(status().isForbidden());
+    mockMvc
+        .perform(get("/api/eksport/brukere").header("Authorization", "Bearer " + adminToken()))
+        .andExpect(status().isNotFound());
+    mockMvc
+        .perform(
+            get("/api/eksport/opptak")
+                .param("format", "xml")
+                .header("Authorization", "Bearer " + adminToken()))
+        .andExpect(status().isBadRequest());
+  }
+
+  private String adminToken() {
+    return jwtService.generateToken(
+        "BRUKER-ADMIN", "admin@strix.no", "Sara Administrator", List.of("ADMINISTRATOR"), null);
+  }
+}
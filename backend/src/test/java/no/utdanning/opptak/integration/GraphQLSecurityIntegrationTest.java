@@ -1,6 +1,7 @@
 package no.utdanning.opptak.integration;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -8,13 +9,16 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.Arrays;
+import no.utdanning.opptak.service.AuthService;
 import no.utdanning.opptak.service.JwtService;
+import no.utdanning.opptak.service.security.LegitimasjonCache;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -28,6 +32,9 @@ class GraphQLSecurityIntegrationTest {
   @Autowired private MockMvc mockMvc;
   @Autowired private JwtService jwtService;
   @Autowired private ObjectMapper objectMapper;
+  @Autowired private AuthService authService;
+  @Autowired private LegitimasjonCache legitimasjonCache;
+  @Autowired private JdbcTemplate jdbcTemplate;
 
   @Test
   @DisplayName("Should block unauthorized GraphQL request with proper error")
@@ -233,4 +240,61 @@ class GraphQLSecurityIntegrationTest {
         .andExpect(jsonPath("$.errors[0].message").value("Access Denied"))
         .andExpect(jsonPath("$.data").isEmpty());
   }
+
+  @Test
+  @DisplayName("Should let only administrators deactivate users, with immediate effect on login")
+  void skalLaAdministratorDeaktivereBruker() throws Exception {
+    String email = "admin@fagskolen-innlandet.no";
+    String brukerId = "BRUKER-FAGSKOLE-ADMIN";
+    String mutation =
+        """
+        {
+          "query": "mutation { deaktiverBruker(brukerId: \\"BRUKER-FAGSKOLE-ADMIN\\") { id aktiv } }"
+        }
+        """;
+    String sokerToken =
+        jwtService.generateToken(
+            "BRUKER-SOKER", "soker@student.no", "Astrid Søker", Arrays.asList("SOKER"), null);
+    String adminToken =
+        jwtService.generateToken(
+            "BRUKER-ADMIN",
+            "admin@strix.no",
+            "Sara Administrator",
+            Arrays.asList("ADMINISTRATOR"),
+            null);
+
+    try {
+      // Legitimasjonen ligger i cachen etter en vellykket innlogging
+      assertThat(authService.login(email, "test123")).isNotEmpty();
+
+      mockMvc
+          .perform(asyncDispatch(startGraphQL(sokerToken, mutation)))
+          .andExpect(jsonPath("$.errors[0].message").value("Access Denied"));
+      assertThat(authService.login(email, "test123")).isNotEmpty();
+
+      mockMvc
+          .perform(asyncDispatch(startGraphQL(adminToken, mutation)))
+          .andExpect(jsonPath("$.errors").doesNotExist())
+          .andExpect(jsonPath("$.data.deaktiverBruker.id").value(brukerId))
+          .andExpect(jsonPath("$.data.deaktiverBruker.aktiv").value(false));
+
+      assertThatThrownBy(() -> authService.login(email, "test123"))
+          .isInstanceOf(SecurityException.class)
+          .hasMessage("Brukeren er deaktivert");
+    } finally {
+      jdbcTemplate.update("UPDATE bruker SET aktiv = TRUE WHERE id = ?", brukerId);
+      legitimasjonCache.glem(brukerId);
+    }
+  }
+
+  private MvcResult startGraphQL(String token, String body) throws Exception {
+    return mockMvc
+        .perform(
+            post("/graphql")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+  }
 }
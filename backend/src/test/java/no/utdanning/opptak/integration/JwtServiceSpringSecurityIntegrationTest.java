@@ -2,6 +2,7 @@ package no.utdanning.opptak.integration;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Arrays;
 import java.util.List;
 import no.utdanning.opptak.service.JwtService;
@@ -15,7 +16,7 @@ import org.springframework.test.context.ActiveProfiles;
 @DisplayName("JWT Service Spring Security Integration Tests")
 class JwtServiceSpringSecurityIntegrationTest {
 
-  private final JwtService jwtService = new JwtService();
+  private final JwtService jwtService = new JwtService(new SimpleMeterRegistry(), 10_000);
 
   @Test
   @DisplayName("Should extract userId correctly for Spring Security")
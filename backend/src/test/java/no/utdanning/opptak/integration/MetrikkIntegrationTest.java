@@ -0,0 +1,149 @@
+package no.utdanning.opptak.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import no.utdanning.opptak.service.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@Transactional
+@DisplayName("Micrometer metrics Integration Tests")
+class MetrikkIntegrationTest {
+
+  @Autowired private MockMvc mockMvc;
+  @Autowired private JwtService jwtService;
+  @Autowired private MeterRegistry meterRegistry;
+
+  private String adminToken;
+
+  @BeforeEach
+  void setUp() {
+    adminToken =
+        jwtService.generateToken(
+            "BRUKER-ADMIN", "admin@strix.no", "Sara Administrator", List.of("ADMINISTRATOR"), null);
+  }
+
+  private void utfor(String body) throws Exception {
+    MvcResult mvcResult =
+        mockMvc
+            .perform(
+                post("/graphql")
+                    .header("Authorization", "Bearer " + adminToken)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(body))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk());
+  }
+
+  @Test
+  @DisplayName("Should time operations, data fetchers and repository calls")
+  void skalMaleOperasjonerOgDataFetchere() throws Exception {
+    utfor(
+        """
+        { "query": "query Dashbord { organisasjoner { id utdanninger(limit: 2) { id } } }" }
+        """);
+
+    Timer operasjon =
+        meterRegistry
+            .find("graphql.operasjon")
+            .tags("operasjon", "Dashbord", "utfall", "suksess")
+            .timer();
+    assertThat(operasjon).isNotNull();
+    assertThat(operasjon.count()).isEqualTo(1);
+
+    assertThat(
+            meterRegistry
+                .find("graphql.datafetcher")
+                .tags("type", "Query", "felt", "organisasjoner")
+                .timer())
+        .isNotNull();
+    assertThat(
+            meterRegistry
+                .find("graphql.datafetcher")
+                .tags("type", "Organisasjon", "felt", "utdanninger")
+                .timer())
+        .isNotNull();
+    // Trivielle property-fetchere måles ikke
+    assertThat(meterRegistry.find("graphql.datafetcher").tags("felt", "id").timer()).isNull();
+
+    assertThat(
+            meterRegistry
+                .find("repository.kall")
+                .tags("repository", "JdbcOrganisasjonRepository")
+                .timers())
+        .isNotEmpty();
+  }
+
+  @Test
+  @DisplayName("Should count errors by ErrorType")
+  void skalTelleFeilPerErrorType() throws Exception {
+    utfor(
+        """
+        { "query": "query Ugyldig { organisasjon(id: \\"finnes-ikke\\") { id } finnesIkke }" }
+        """);
+
+    assertThat(
+            meterRegistry
+                .find("graphql.feil")
+                .tags("type", "ValidationError", "operasjon", "anonym")
+                .counter())
+        .isNotNull();
+  }
+
+  @Test
+  @DisplayName("Should expose Prometheus endpoint with histogram buckets")
+  void skalEksponerePrometheusMedHistogram() throws Exception {
+    utfor("""
+        { "query": "query Liste { organisasjoner { id } }" }
+        """);
+
+    String tekst =
+        mockMvc
+            .perform(get("/actuator/prometheus").header("Authorization", "Bearer " + adminToken))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    assertThat(tekst).contains("graphql_operasjon_seconds_bucket{");
+    assertThat(tekst).contains("operasjon=\"Liste\"");
+    assertThat(tekst).contains("graphql_datafetcher_seconds_bucket{");
+    assertThat(tekst).contains("repository_kall_seconds_bucket{");
+  }
+
+  @Test
+  @DisplayName("Should require an administrator for the Prometheus endpoint")
+  void skalKreveAdministratorForPrometheus() throws Exception {
+    String sokerToken =
+        jwtService.generateToken(
+            "BRUKER-SOKER", "soker@strix.no", "Siri Søker", List.of("SOKER"), null);
+
+    mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+    mockMvc
+        .perform(get("/actuator/prometheus").header("Authorization", "Bearer " + sokerToken))
+        .andExpect(status().isForbidden());
+    mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+  }
+}
@@ -0,0 +1,128 @@
+package no.utdanning.opptak.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import no.utdanning.opptak.domain.Studieform;
+import no.utdanning.opptak.domain.Utdanning;
+import no.utdanning.opptak.graphql.dto.OppdaterUtdanningInput;
+import no.utdanning.opptak.graphql.dto.OpprettUtdanningInput;
+import no.utdanning.opptak.graphql.dto.UtdanningFilter;
+import no.utdanning.opptak.service.UtdanningService;
+import no.utdanning.opptak.service.security.InnloggetBruker;
+import no.utdanning.opptak.service.security.JwtAuthentication;
+import no.utdanning.opptak.service.sok.NavneIndeks;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Navneindeksen skal følge utdanning gjennom committede og rullede tilbake endringer. */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("NavneIndeks Integration Tests")
+class NavneIndeksIntegrationTest {
+
+  @Autowired private UtdanningService utdanningService;
+  @Autowired private NavneIndeks navneIndeks;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @BeforeEach
+  void setUp() {
+    InnloggetBruker admin =
+        new InnloggetBruker(
+            "BRUKER-ADMIN", "admin@strix.no", "Sara Administrator", List.of("ADMINISTRATOR"), null);
+    SecurityContextHolder.getContext().setAuthentication(new JwtAuthentication(admin));
+  }
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("DELETE FROM utdanning WHERE navn LIKE 'Indekstest%'");
+    navneIndeks.avstem();
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  @DisplayName("Should follow committed creates, renames, deactivations and deletes")
+  void skalFolgeCommittedeEndringer() {
+    Utdanning utdanning = utdanningService.opprettUtdanning(input("Indekstest geologi"));
+
+    assertThat(navneIndeks.sokUtdanninger("geolog", 10, null)).containsExactly(utdanning.getId());
+    assertThat(navneIndeks.utdanningerMedNavn("INDEKSTEST")).containsExactly(utdanning.getId());
+
+    OppdaterUtdanningInput endring = new OppdaterUtdanningInput();
+    endring.setId(utdanning.getId());
+    endring.setNavn("Indekstest geofysikk");
+    utdanningService.oppdaterUtdanning(endring);
+
+    assertThat(navneIndeks.sokUtdanninger("geolog", 10, null)).isEmpty();
+    assertThat(navneIndeks.sokUtdanninger("geofys", 10, null)).containsExactly(utdanning.getId());
+
+    utdanningService.deaktiverUtdanning(utdanning.getId());
+    assertThat(navneIndeks.sokUtdanninger("geofys", 10, null)).isEmpty();
+
+    utdanningService.slettUtdanning(utdanning.getId());
+    assertThat(navneIndeks.utdanningerMedNavn("geofys")).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Should see own uncommitted changes through the database and drop them on rollback")
+  void skalSeEgneEndringerOgIgnorereRollback() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          utdanningService.opprettUtdanning(input("Indekstest oseanografi"));
+          // Indeksen svarer ikke for en transaksjon med ventende endringer, så filteret går mot
+          // databasen og ser den nye raden
+          assertThat(navneIndeks.utdanningerMedNavn("oseanografi")).isNull();
+          UtdanningFilter filter = new UtdanningFilter();
+          filter.setNavn("oseanografi");
+          assertThat(utdanningService.findAll(filter, null).getContent()).hasSize(1);
+          status.setRollbackOnly();
+        });
+
+    assertThat(navneIndeks.utdanningerMedNavn("oseanografi")).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Should pick up rows written outside the application when reconciling")
+  void skalFangeOppEndringerUtenomApplikasjonen() {
+    jdbcTemplate.update(
+        "INSERT INTO utdanning (id, navn, studienivaa, studiepoeng, varighet, studiested,"
+            + " undervisningssprak, organisasjon_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+        "indekstest-1",
+        "Indekstest meteorologi",
+        "bachelor",
+        180,
+        6,
+        "Oslo",
+        "norsk",
+        "uio");
+
+    assertThat(navneIndeks.utdanningerMedNavn("meteorologi")).isEmpty();
+
+    navneIndeks.avstem();
+
+    assertThat(navneIndeks.utdanningerMedNavn("meteorologi")).containsExactly("indekstest-1");
+  }
+
+  private static OpprettUtdanningInput input(String navn) {
+    OpprettUtdanningInput input = new OpprettUtdanningInput();
+    input.setNavn(navn);
+    input.setStudienivaa("bachelor");
+    input.setStudiepoeng(180);
+    input.setVarighet(6);
+    input.setStudiested("Oslo");
+    input.setUndervisningssprak("norsk");
+    input.setStarttidspunkt("HØST_2025");
+    input.setStudieform(Studieform.HELTID);
+    input.setOrganisasjonId("uio");
+    return input;
+  }
+}
@@ -17,6 +17,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -32,6 +33,7 @@ class OpptakGraphQLIntegrationTest {
   @Autowired private MockMvc mockMvc;
   @Autowired private JwtService jwtService;
   @Autowired private ObjectMapper objectMapper;
+  @Autowired private JdbcTemplate jdbcTemplate;
 
   private String adminToken;
   private String opptakslederToken;
@@ -86,6 +88,48 @@ class OpptakGraphQLIntegrationTest {
     assertThat(opptakList.size()).isGreaterThan(0);
   }
 
+  @Test
+  @DisplayName("Should resolve administrator and tilgangsorganisasjoner for all opptak in batch")
+  void skalHenteAdministratorOgTilgangsorganisasjonerForAlleOpptak() throws Exception {
+    jdbcTemplate.update(
+        "INSERT INTO opptak_tilgang (id, opptak_id, organisasjon_id) VALUES (?, ?, ?)",
+        "test-tilgang-1", "samordnet-uhg-h25", "uio");
+
+    String graphqlQuery = """
+        {
+          "query": "query { alleOpptak { id administrator { id } tillatteTilgangsorganisasjoner { id } } }"
+        }
+        """;
+
+    MvcResult mvcResult = mockMvc
+        .perform(post("/graphql")
+            .header("Authorization", "Bearer " + adminToken)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(graphqlQuery))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    MvcResult result = mockMvc
+        .perform(asyncDispatch(mvcResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.errors").doesNotExist())
+        .andReturn();
+
+    JsonNode opptakList =
+        objectMapper.readTree(result.getResponse().getContentAsString()).get("data").get("alleOpptak");
+    assertThat(opptakList.size()).isGreaterThan(0);
+
+    for (JsonNode opptak : opptakList) {
+      assertThat(opptak.get("administrator").get("id").asText()).isNotBlank();
+      if (opptak.get("id").asText().equals("samordnet-uhg-h25")) {
+        assertThat(opptak.get("tillatteTilgangsorganisasjoner").get(0).get("id").asText())
+            .isEqualTo("uio");
+      } else {
+        assertThat(opptak.get("tillatteTilgangsorganisasjoner").isArray()).isTrue();
+      }
+    }
+  }
+
   @Test
   @DisplayName("Should get specific opptak by ID with admin token")
   void skalHenteSpesifiktOpptakMedAdminToken() throws Exception {
@@ -269,4 +313,38 @@ class OpptakGraphQLIntegrationTest {
         .andExpect(jsonPath("$.data.opptak").doesNotExist())
         .andExpect(jsonPath("$.errors").doesNotExist());
   }
+
+  @Test
+  @DisplayName("Should reject utdanninger from other organisations in batch mutation")
+  void skalAvviseUtdanningerFraAndreOrganisasjonerIBatch() throws Exception {
+    String graphqlMutation = """
+        {
+          "query": "mutation { leggTilUtdanningerIOpptak(input: { opptakId: \\"ntnu-lokalt-v26\\", utdanninger: [{ utdanningId: \\"uio-informatikk-h25\\", antallPlasser: 10 }, { utdanningId: \\"finnes-ikke\\", antallPlasser: 5 }] }) { lagtTil oppdatert avvist avvisteUtdanninger { utdanningId arsak } } }"
+        }
+        """;
+
+    MvcResult mvcResult = mockMvc
+        .perform(post("/graphql")
+            .header("Authorization", "Bearer " + opptakslederToken)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(graphqlMutation))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc
+        .perform(asyncDispatch(mvcResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.errors").doesNotExist())
+        .andExpect(jsonPath("$.data.leggTilUtdanningerIOpptak.lagtTil").value(0))
+        .andExpect(jsonPath("$.data.leggTilUtdanningerIOpptak.avvist").value(2))
+        .andExpect(jsonPath("$.data.leggTilUtdanningerIOpptak.avvisteUtdanninger[0].arsak")
+            .value(containsString("Ingen tilgang")))
+        .andExpect(jsonPath("$.data.leggTilUtdanningerIOpptak.avvisteUtdanninger[1].arsak")
+            .value("Utdanning ikke funnet"));
+
+    Integer antall = jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM utdanning_i_opptak WHERE opptak_id = 'ntnu-lokalt-v26'",
+        Integer.class);
+    assertThat(antall).isZero();
+  }
 }
@@ -0,0 +1,98 @@
+package no.utdanning.opptak.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import no.utdanning.opptak.service.OpptakService;
+import no.utdanning.opptak.service.security.InnloggetBruker;
+import no.utdanning.opptak.service.security.JwtAuthentication;
+import no.utdanning.opptak.service.security.OpptakTilgangIndeks;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Tilgangsindeksen skal følge opptak_tilgang gjennom committede og rullede tilbake endringer. */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("OpptakTilgangIndeks Integration Tests")
+class OpptakTilgangIndeksIntegrationTest {
+
+  private static final String OPPTAK_ID = "samordnet-uhg-h25";
+  private static final String ORGANISASJON_ID = "uio";
+
+  @Autowired private OpptakService opptakService;
+  @Autowired private OpptakTilgangIndeks tilgangIndeks;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @BeforeEach
+  void setUp() {
+    InnloggetBruker admin =
+        new InnloggetBruker(
+            "BRUKER-ADMIN", "admin@strix.no", "Sara Administrator", List.of("ADMINISTRATOR"), null);
+    SecurityContextHolder.getContext().setAuthentication(new JwtAuthentication(admin));
+  }
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("DELETE FROM opptak_tilgang WHERE opptak_id = ?", OPPTAK_ID);
+    tilgangIndeks.avstem();
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  @DisplayName("Should follow committed grants and removals")
+  void skalFolgeCommittedeEndringer() {
+    opptakService.giOrganisasjonTilgang(OPPTAK_ID, ORGANISASJON_ID);
+
+    assertThat(tilgangIndeks.harTilgang(OPPTAK_ID, ORGANISASJON_ID)).isTrue();
+    assertThat(tilgangIndeks.opptakMedTilgang(ORGANISASJON_ID, List.of(OPPTAK_ID, "annet")))
+        .containsExactly(OPPTAK_ID);
+    assertThat(tilgangIndeks.sjekkKonsistens()).isEmpty();
+
+    opptakService.fjernOrganisasjonTilgang(OPPTAK_ID, ORGANISASJON_ID);
+
+    assertThat(tilgangIndeks.harTilgang(OPPTAK_ID, ORGANISASJON_ID)).isFalse();
+    assertThat(tilgangIndeks.sjekkKonsistens()).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Should not change the index when the transaction rolls back")
+  void skalIkkeEndreIndeksenVedRollback() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          opptakService.giOrganisasjonTilgang(OPPTAK_ID, ORGANISASJON_ID);
+          // Ikke synlig før commit
+          assertThat(tilgangIndeks.harTilgang(OPPTAK_ID, ORGANISASJON_ID)).isFalse();
+          status.setRollbackOnly();
+        });
+
+    assertThat(tilgangIndeks.harTilgang(OPPTAK_ID, ORGANISASJON_ID)).isFalse();
+    assertThat(tilgangIndeks.sjekkKonsistens()).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Should detect and repair changes made outside the application")
+  void skalRetteOppEndringerUtenomApplikasjonen() {
+    jdbcTemplate.update(
+        "INSERT INTO opptak_tilgang (id, opptak_id, organisasjon_id) VALUES (?, ?, ?)",
+        "indeks-tilgang-1",
+        OPPTAK_ID,
+        ORGANISASJON_ID);
+
+    assertThat(tilgangIndeks.sjekkKonsistens())
+        .containsExactly("mangler i indeksen: " + OPPTAK_ID + "/" + ORGANISASJON_ID);
+
+    tilgangIndeks.avstem();
+
+    assertThat(tilgangIndeks.sjekkKonsistens()).isEmpty();
+    assertThat(tilgangIndeks.harTilgang(OPPTAK_ID, ORGANISASJON_ID)).isTrue();
+  }
+}
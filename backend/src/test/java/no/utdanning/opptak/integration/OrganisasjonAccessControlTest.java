@@ -7,6 +7,7 @@ import static org.mockito.Mockito.*;
 import java.util.Arrays;
 import no.utdanning.opptak.domain.*;
 import no.utdanning.opptak.graphql.dto.OpprettOrganisasjonInput;
+import no.utdanning.opptak.repository.Projeksjon;
 import no.utdanning.opptak.service.OrganisasjonService;
 import no.utdanning.opptak.graphql.OrganisasjonMutationResolver;
 import no.utdanning.opptak.graphql.OrganisasjonQueryResolver;
@@ -207,15 +208,15 @@ class OrganisasjonAccessControlTest {
     org2.setNavn("Organisasjon 2");
     org2.setAktiv(false);
 
-    when(organisasjonService.findAll(null)).thenReturn(Arrays.asList(org1, org2));
+    when(organisasjonService.findAll(null, null, Projeksjon.alle())).thenReturn(Arrays.asList(org1, org2));
 
     // Act
-    var result = organisasjonQueryResolver.organisasjoner(null);
+    var result = organisasjonQueryResolver.organisasjoner(null, null, null);
 
     // Assert
     assertNotNull(result, "Result should not be null");
     assertEquals(2, result.size(), "Should return all organisations");
-    verify(organisasjonService).findAll(null);
+    verify(organisasjonService).findAll(null, null, Projeksjon.alle());
   }
 
   @Test
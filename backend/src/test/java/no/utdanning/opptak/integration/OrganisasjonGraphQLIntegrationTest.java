@@ -93,6 +93,45 @@ class OrganisasjonGraphQLIntegrationTest {
     }
   }
 
+  @Test
+  @DisplayName("Should limit utdanninger per organisasjon when listing all organisasjoner")
+  void skalBegrenseUtdanningerPerOrganisasjon() throws Exception {
+    String graphqlQuery = """
+        {
+          "query": "query { organisasjoner(page: { size: 100 }) { id alle: utdanninger { id } en: utdanninger(limit: 1) { id } } }"
+        }
+        """;
+
+    MvcResult mvcResult = mockMvc
+        .perform(post("/graphql")
+            .header("Authorization", "Bearer " + adminToken)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(graphqlQuery))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    MvcResult result = mockMvc
+        .perform(asyncDispatch(mvcResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.errors").doesNotExist())
+        .andReturn();
+
+    JsonNode organisasjoner =
+        objectMapper.readTree(result.getResponse().getContentAsString()).get("data").get("organisasjoner");
+
+    boolean minstEnMedFlere = false;
+    for (JsonNode org : organisasjoner) {
+      JsonNode alle = org.get("alle");
+      JsonNode en = org.get("en");
+      assertThat(en.size()).isLessThanOrEqualTo(1);
+      if (alle.size() > 0) {
+        assertThat(en.get(0).get("id").asText()).isEqualTo(alle.get(0).get("id").asText());
+      }
+      minstEnMedFlere |= alle.size() > 1;
+    }
+    assertThat(minstEnMedFlere).isTrue();
+  }
+
   @Test
   @DisplayName("Should get specific organisasjon by ID")
   void skalHenteSpesifikkOrganisasjonMedId() throws Exception {
@@ -441,4 +480,106 @@ class OrganisasjonGraphQLIntegrationTest {
       assertThat(navn).contains("universitet");
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  @DisplayName("Should page filtered organisations sorted by name")
+  void skalPaginereFiltrerteOrganisasjoner() throws Exception {
+    String graphqlQuery = """
+        {
+          "query": "query { organisasjoner(filter: { aktiv: true, organisasjonstype: UNIVERSITET }, page: { size: 1, page: 1 }) { id navn } }"
+        }
+        """;
+
+    MvcResult mvcResult = mockMvc
+        .perform(post("/graphql")
+            .header("Authorization", "Bearer " + adminToken)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(graphqlQuery))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    // Universitetene sortert på navn: NTNU ("Norges ...") før "Universitetet i Oslo"
+    mockMvc
+        .perform(asyncDispatch(mvcResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.errors").doesNotExist())
+        .andExpect(jsonPath("$.data.organisasjoner.length()").value(1))
+        .andExpect(jsonPath("$.data.organisasjoner[0].id").value("uio"));
+  }
+
+  @Test
+  @DisplayName("Should suggest organisations with names starting with the text first")
+  void skalForeslaOrganisasjonerRangertPaaNavn() throws Exception {
+    String graphqlQuery = """
+        {
+          "query": "query { sokOrganisasjoner(tekst: \\"univ\\") { id navn } }"
+        }
+        """;
+
+    MvcResult mvcResult = mockMvc
+        .perform(post("/graphql")
+            .header("Authorization", "Bearer " + sokerToken)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(graphqlQuery))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    // "Universitetet i Oslo" starter med teksten, NTNU har den midt i navnet
+    mockMvc
+        .perform(asyncDispatch(mvcResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.errors").doesNotExist())
+        .andExpect(jsonPath("$.data.sokOrganisasjoner[0].id").value("uio"))
+        .andExpect(jsonPath("$.data.sokOrganisasjoner[1].id").value("ntnu"));
+  }
+
+  @Test
+  @DisplayName("Should reject nested query above the SOKER cost budget before execution")
+  void skalAvviseNostetSporringOverBudsjett() throws Exception {
+    String graphqlQuery = """
+        {
+          "query": "query { organisasjoner { utdanninger { organisasjon { utdanninger { id } } } } }"
+        }
+        """;
+
+    MvcResult mvcResult = mockMvc
+        .perform(post("/graphql")
+            .header("Authorization", "Bearer " + sokerToken)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(graphqlQuery))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc
+        .perform(asyncDispatch(mvcResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data").doesNotExist())
+        .andExpect(jsonPath("$.errors[0].extensions.classification").value("BAD_REQUEST"))
+        .andExpect(jsonPath("$.errors[0].extensions.budsjett").value(5000))
+        .andExpect(jsonPath("$.errors[0].message").value(containsString("for kostbar")));
+  }
+
+  @Test
+  @DisplayName("Should allow the same nested query for ADMINISTRATOR when lists are limited")
+  void skalTillateNostetSporringInnenforBudsjett() throws Exception {
+    String graphqlQuery = """
+        {
+          "query": "query { organisasjoner { utdanninger(limit: 5) { organisasjon { utdanninger(limit: 5) { id } } } } }"
+        }
+        """;
+
+    MvcResult mvcResult = mockMvc
+        .perform(post("/graphql")
+            .header("Authorization", "Bearer " + adminToken)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(graphqlQuery))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc
+        .perform(asyncDispatch(mvcResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.organisasjoner").isArray())
+        .andExpect(jsonPath("$.errors").doesNotExist());
+  }
+}
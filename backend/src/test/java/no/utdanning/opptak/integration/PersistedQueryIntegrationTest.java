@@ -0,0 +1,135 @@
+package no.utdanning.opptak.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import no.utdanning.opptak.service.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Transactional
+@DisplayName("Automatic Persisted Queries and GET Integration Tests")
+class PersistedQueryIntegrationTest {
+
+  @Autowired private MockMvc mockMvc;
+  @Autowired private JwtService jwtService;
+  @Autowired private ObjectMapper objectMapper;
+
+  private String adminToken;
+
+  @BeforeEach
+  void setUp() {
+    adminToken =
+        jwtService.generateToken(
+            "BRUKER-ADMIN", "admin@strix.no", "Sara Administrator", List.of("ADMINISTRATOR"), null);
+  }
+
+  @Test
+  @DisplayName("Should register query by hash and then execute with hash only")
+  void skalRegistrereOgKjorePersistertSporring() throws Exception {
+    // Unik tekst per test, så cachen ikke allerede har dokumentet
+    String query = "query PersistertTest { organisasjoner { id } }";
+    String hash = sha256(query);
+    Map<String, Object> extensions =
+        Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash));
+
+    JsonNode bom = utforPost(Map.of("extensions", extensions));
+    assertThat(bom.at("/errors/0/message").asText()).isEqualTo("PersistedQueryNotFound");
+
+    JsonNode registrert = utforPost(Map.of("query", query, "extensions", extensions));
+    assertThat(registrert.has("errors")).isFalse();
+    assertThat(registrert.at("/data/organisasjoner").isArray()).isTrue();
+
+    JsonNode treff = utforPost(Map.of("extensions", extensions));
+    assertThat(treff.has("errors")).isFalse();
+    assertThat(treff.at("/data/organisasjoner")).isEqualTo(registrert.at("/data/organisasjoner"));
+  }
+
+  @Test
+  @DisplayName("Should reject hash that does not match the query text")
+  void skalAvviseFeilHash() throws Exception {
+    Map<String, Object> extensions =
+        Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", sha256("noe annet")));
+
+    JsonNode svar = utforPost(Map.of("query", "{ organisasjoner { id } }", "extensions", extensions));
+
+    assertThat(svar.at("/errors/0/message").asText()).isEqualTo("PersistedQueryIdInvalid");
+  }
+
+  @Test
+  @DisplayName("Should execute query over GET with private cache headers")
+  void skalKjoreQueryMedGet() throws Exception {
+    MvcResult result =
+        utfor(
+            get("/graphql")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("query", "query($aktiv: Boolean) { organisasjoner(filter: { aktiv: $aktiv }) { id aktiv } }")
+                .param("variables", "{\"aktiv\": true}"));
+
+    assertThat(result.getResponse().getHeader("Cache-Control")).contains("private", "max-age=");
+    assertThat(result.getResponse().getHeaders("Vary")).contains("Authorization");
+    JsonNode svar = objectMapper.readTree(result.getResponse().getContentAsString());
+    assertThat(svar.has("errors")).isFalse();
+    assertThat(svar.at("/data/organisasjoner").size()).isPositive();
+    svar.at("/data/organisasjoner").forEach(org -> assertThat(org.get("aktiv").asBoolean()).isTrue());
+  }
+
+  @Test
+  @DisplayName("Should reject mutations over GET")
+  void skalAvviseMutasjonMedGet() throws Exception {
+    MvcResult result =
+        utfor(
+            get("/graphql")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("query", "mutation { deaktiverOrganisasjon(id: \"uio\") { id aktiv } }"));
+
+    assertThat(result.getResponse().getHeader("Cache-Control")).contains("no-store");
+    JsonNode svar = objectMapper.readTree(result.getResponse().getContentAsString());
+    assertThat(svar.at("/errors/0/message").asText())
+        .isEqualTo("Kun query-operasjoner kan sendes med GET");
+    assertThat(svar.at("/errors/0/extensions/classification").asText()).isEqualTo("BAD_REQUEST");
+  }
+
+  private JsonNode utforPost(Map<String, Object> body) throws Exception {
+    MvcResult result =
+        utfor(
+            post("/graphql")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(body)));
+    return objectMapper.readTree(result.getResponse().getContentAsString());
+  }
+
+  private MvcResult utfor(RequestBuilder request) throws Exception {
+    MvcResult mvcResult = mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+    return mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk()).andReturn();
+  }
+
+  private static String sha256(String tekst) throws Exception {
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    return HexFormat.of().formatHex(digest.digest(tekst.getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -8,7 +8,9 @@ import static org.hamcrest.Matchers.containsString;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import no.utdanning.opptak.service.JwtService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -535,4 +537,117 @@ class UtdanningGraphQLIntegrationTest {
         .andExpect(jsonPath("$.data.utdanning").doesNotExist())
         .andExpect(jsonPath("$.errors").doesNotExist());
   }
-}
\ No newline at end of file
+
+  @Test
+  @DisplayName("Should walk utdanningerConnection with cursor without gaps or duplicates")
+  void skalBlaGjennomUtdanningerConnectionMedCursor() throws Exception {
+    JsonNode totalt = utforQuery(adminToken,
+        "query { utdanninger(page: { page: 0, size: 5 }, filter: { studienivaa: \\\"bachelor\\\" }) { totalElements } }");
+    int forventetAntall = totalt.at("/data/utdanninger/totalElements").asInt();
+    assertThat(forventetAntall).isGreaterThan(3);
+
+    List<String> sett = new ArrayList<>();
+    String after = null;
+    boolean harNeste = true;
+    while (harNeste) {
+      String afterArg = after == null ? "" : ", after: \\\"" + after + "\\\"";
+      JsonNode svar = utforQuery(adminToken,
+          "query { utdanningerConnection(first: 3, filter: { studienivaa: \\\"bachelor\\\" }"
+              + afterArg + ") { edges { cursor node { id } } pageInfo { hasNextPage endCursor } } }");
+      assertThat(svar.has("errors")).isFalse();
+      JsonNode connection = svar.at("/data/utdanningerConnection");
+      for (JsonNode edge : connection.get("edges")) {
+        sett.add(edge.at("/node/id").asText());
+      }
+      harNeste = connection.at("/pageInfo/hasNextPage").asBoolean();
+      after = connection.at("/pageInfo/endCursor").asText();
+      assertThat(sett.size()).isLessThanOrEqualTo(forventetAntall);
+    }
+
+    assertThat(sett).hasSize(forventetAntall).doesNotHaveDuplicates();
+  }
+
+  @Test
+  @DisplayName("Should reject invalid cursor with BAD_REQUEST")
+  void skalAvviseUgyldigCursor() throws Exception {
+    JsonNode svar = utforQuery(adminToken,
+        "query { utdanningerConnection(first: 5, after: \\\"%%%\\\") { edges { cursor } } }");
+
+    assertThat(svar.at("/errors/0/extensions/classification").asText()).isEqualTo("BAD_REQUEST");
+  }
+
+  @Test
+  @DisplayName("Should compute hasNext without totalElements selected")
+  void skalBeregneHasNextUtenTotalElements() throws Exception {
+    JsonNode medTotal = utforQuery(adminToken,
+        "query { utdanninger(page: { page: 0, size: 2 }) { totalElements hasNext content { id } } }");
+    JsonNode utenTotal = utforQuery(adminToken,
+        "query { utdanninger(page: { page: 0, size: 2 }) { hasNext content { id } } }");
+
+    assertThat(medTotal.at("/data/utdanninger/totalElements").asInt()).isGreaterThan(2);
+    assertThat(utenTotal.has("errors")).isFalse();
+    assertThat(utenTotal.at("/data/utdanninger/content")).hasSize(2);
+    assertThat(utenTotal.at("/data/utdanninger/hasNext").asBoolean())
+        .isEqualTo(medTotal.at("/data/utdanninger/hasNext").asBoolean())
+        .isTrue();
+  }
+
+  @Test
+  @DisplayName("Should return selected columns when only some fields are requested")
+  void skalReturnereValgteFelterMedProjeksjon() throws Exception {
+    JsonNode uten = utforQuery(adminToken,
+        "query { utdanninger(page: { page: 0, size: 3 }) { content { id navn organisasjon { id } } } }");
+    JsonNode med = utforQuery(adminToken,
+        "query { utdanninger(page: { page: 0, size: 3 }) { content { id beskrivelse studieform } } }");
+
+    assertThat(uten.has("errors")).isFalse();
+    for (JsonNode utdanning : uten.at("/data/utdanninger/content")) {
+      assertThat(utdanning.get("navn").asText()).isNotBlank();
+      assertThat(utdanning.at("/organisasjon/id").asText()).isNotBlank();
+    }
+    assertThat(med.has("errors")).isFalse();
+    for (JsonNode utdanning : med.at("/data/utdanninger/content")) {
+      assertThat(utdanning.get("beskrivelse").isNull()).isFalse();
+      assertThat(utdanning.get("studieform").asText()).isNotBlank();
+    }
+  }
+
+  @Test
+  @DisplayName("Should rank name search results and limit non-administrators to their organisation")
+  void skalRangereNavnesokOgBegrenseTilEgenOrganisasjon() throws Exception {
+    JsonNode admin = utforQuery(adminToken,
+        "query { sokUtdanninger(tekst: \\\"bachelor i\\\", first: 3) { id navn } }");
+    JsonNode opptaksleder = utforQuery(opptakslederToken,
+        "query { sokUtdanninger(tekst: \\\"informatikk\\\") { id organisasjon { id } } }");
+
+    assertThat(admin.has("errors")).isFalse();
+    assertThat(admin.at("/data/sokUtdanninger")).hasSize(3);
+    for (JsonNode utdanning : admin.at("/data/sokUtdanninger")) {
+      assertThat(utdanning.get("navn").asText()).startsWith("Bachelor i");
+    }
+    assertThat(opptaksleder.has("errors")).isFalse();
+    assertThat(opptaksleder.at("/data/sokUtdanninger").findValuesAsText("id"))
+        .contains("ntnu-informatikk-h25")
+        .doesNotContain("uio-informatikk-h25");
+    for (JsonNode utdanning : opptaksleder.at("/data/sokUtdanninger")) {
+      assertThat(utdanning.at("/organisasjon/id").asText()).isEqualTo("ntnu");
+    }
+  }
+
+  private JsonNode utforQuery(String token, String query) throws Exception {
+    String body = "{ \"query\": \"" + query + "\" }";
+    MvcResult mvcResult = mockMvc
+        .perform(post("/graphql")
+            .header("Authorization", "Bearer " + token)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    MvcResult result = mockMvc
+        .perform(asyncDispatch(mvcResult))
+        .andExpect(status().isOk())
+        .andReturn();
+    return objectMapper.readTree(result.getResponse().getContentAsString());
+  }
+}
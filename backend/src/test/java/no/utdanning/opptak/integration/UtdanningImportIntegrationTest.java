@@ -0,0 +1,139 @@
+package no.utdanning.opptak.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.List;
+import no.utdanning.opptak.service.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DisplayName("Utdanning Import Integration Tests")
+class UtdanningImportIntegrationTest {
+
+  private static final String OVERSKRIFT =
+      "navn,studienivaa,studiepoeng,varighet,studiested,undervisningssprak,starttidspunkt,"
+          + "studieform,organisasjon_id\n";
+
+  @Autowired private MockMvc mockMvc;
+  @Autowired private JwtService jwtService;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("DELETE FROM utdanning WHERE navn LIKE 'Importtest%'");
+  }
+
+  @Test
+  @DisplayName("Should import valid rows and report invalid rows and rows the database rejects")
+  void skalImportereGyldigeRader() throws Exception {
+    String csv =
+        OVERSKRIFT
+            + "Importtest A,bachelor,180,6,Trondheim,norsk,HØST_2025,heltid,ntnu\n"
+            + "Importtest B,master,120,4,Oslo,engelsk,HØST_2025,DELTID,uio\n"
+            + "Importtest C,bachelor,mange,6,Oslo,norsk,HØST_2025,HELTID,uio\n"
+            + "Importtest D,bachelor,180,6,Oslo,norsk,HØST_2025,HELTID,finnes-ikke\n"
+            + "Importtest E,"
+            + "x".repeat(60)
+            + ",180,6,Oslo,norsk,HØST_2025,HELTID,uio\n";
+
+    mockMvc
+        .perform(
+            post("/api/utdanninger/import")
+                .header("Authorization", "Bearer " + token("BRUKER-ADMIN", "ADMINISTRATOR", null))
+                .contentType("text/csv")
+                .content(csv))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.lest").value(5))
+        .andExpect(jsonPath("$.opprettet").value(2))
+        .andExpect(jsonPath("$.feilet").value(3))
+        .andExpect(jsonPath("$.feil[0].linje").value(4))
+        .andExpect(jsonPath("$.feil[0].nokkel").value("Importtest C"))
+        .andExpect(jsonPath("$.feil[1].melding").value("Organisasjon ikke funnet eller ikke aktiv: finnes-ikke"))
+        // For lang verdi avvises av databasen; biten rulles tilbake og lagres rad for rad
+        .andExpect(jsonPath("$.feil[2].linje").value(6))
+        .andExpect(jsonPath("$.feil[2].melding").value("Kunne ikke lagre utdanningen"));
+
+    assertThat(
+            jdbcTemplate.queryForList(
+                "SELECT studieform FROM utdanning WHERE navn LIKE 'Importtest%' ORDER BY navn",
+                String.class))
+        .isEqualTo(List.of("HELTID", "DELTID"));
+  }
+
+  @Test
+  @DisplayName("Should only let opptaksledere import for their own organisation")
+  void skalBegrenseOpptakslederTilEgenOrganisasjon() throws Exception {
+    String ndjson =
+        """
+        {"navn":"Importtest NTNU","studienivaa":"bachelor","studiepoeng":180,"varighet":6,\
+        "studiested":"Trondheim","undervisningssprak":"norsk","starttidspunkt":"HØST_2025",\
+        "studieform":"HELTID","organisasjonId":"ntnu"}
+        {"navn":"Importtest UiO","studienivaa":"bachelor","studiepoeng":180,"varighet":6,\
+        "studiested":"Oslo","undervisningssprak":"norsk","starttidspunkt":"HØST_2025",\
+        "studieform":"HELTID","organisasjonId":"uio"}
+        """;
+
+    mockMvc
+        .perform(
+            post("/api/utdanninger/import")
+                .header(
+                    "Authorization",
+                    "Bearer " + token("BRUKER-OPPTAKSLEDER-NTNU", "OPPTAKSLEDER", "ntnu"))
+                .contentType("application/x-ndjson")
+                .content(ndjson))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.opprettet").value(1))
+        .andExpect(jsonPath("$.feil[0].nokkel").value("Importtest UiO"))
+        .andExpect(
+            jsonPath("$.feil[0].melding")
+                .value("Ingen tilgang til å opprette utdanning for denne organisasjonen"));
+
+    mockMvc
+        .perform(
+            post("/api/utdanninger/import")
+                .header("Authorization", "Bearer " + token("BRUKER-SOKER", "SOKER", null))
+                .contentType("application/x-ndjson")
+                .content(ndjson))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  @DisplayName("Should reject rows for deactivated organisations")
+  void skalAvviseDeaktiverteOrganisasjoner() throws Exception {
+    jdbcTemplate.update("UPDATE organisasjon SET aktiv = FALSE WHERE id = 'hvl'");
+    try {
+      mockMvc
+          .perform(
+              post("/api/utdanninger/import")
+                  .header(
+                      "Authorization", "Bearer " + token("BRUKER-ADMIN", "ADMINISTRATOR", null))
+                  .contentType("text/csv")
+                  .content(
+                      OVERSKRIFT
+                          + "Importtest HVL,bachelor,180,6,Bergen,norsk,HØST_2025,HELTID,hvl\n"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.opprettet").value(0))
+          .andExpect(
+              jsonPath("$.feil[0].melding")
+                  .value("Organisasjon ikke funnet eller ikke aktiv: hvl"));
+    } finally {
+      jdbcTemplate.update("UPDATE organisasjon SET aktiv = TRUE WHERE id = 'hvl'");
+    }
+  }
+
+  private String token(String brukerId, String rolle, String organisasjonId) {
+    return jwtService.generateToken(brukerId, "x@test.no", "X", List.of(rolle), organisasjonId);
+  }
+}
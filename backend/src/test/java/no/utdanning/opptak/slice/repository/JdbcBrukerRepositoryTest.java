@@ -0,0 +1,118 @@
+package no.utdanning.opptak.slice.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import no.utdanning.opptak.domain.BrukerLegitimasjon;
+import no.utdanning.opptak.repository.JdbcBrukerRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+@JdbcTest
+@ActiveProfiles("dev")
+@Import({JdbcBrukerRepository.class})
+@DisplayName("JdbcBrukerRepository - Repository layer testing")
+class JdbcBrukerRepositoryTest {
+
+  @Autowired private JdbcBrukerRepository brukerRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Test
+  @DisplayName("Should update sist_innlogget for several users in one batch")
+  void skalOppdatereSistInnloggetIBatch() {
+    LocalDateTime tidspunkt = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    int antall =
+        brukerRepository.oppdaterSistInnlogget(
+            Map.of("BRUKER-ADMIN", tidspunkt, "BRUKER-OPPTAKSLEDER-NTNU", tidspunkt));
+
+    assertThat(antall).isEqualTo(2);
+    assertThat(sistInnlogget("BRUKER-ADMIN")).isEqualTo(tidspunkt);
+    assertThat(sistInnlogget("BRUKER-OPPTAKSLEDER-NTNU")).isEqualTo(tidspunkt);
+  }
+
+  @Test
+  @DisplayName("Should never move sist_innlogget backwards")
+  void skalIkkeFlytteSistInnloggetBakover() {
+    LocalDateTime nyest = LocalDateTime.of(2030, 1, 1, 12, 0);
+    brukerRepository.oppdaterSistInnlogget(Map.of("BRUKER-ADMIN", nyest));
+
+    int antall = brukerRepository.oppdaterSistInnlogget(Map.of("BRUKER-ADMIN", nyest.minusDays(1)));
+
+    assertThat(antall).isZero();
+    assertThat(sistInnlogget("BRUKER-ADMIN")).isEqualTo(nyest);
+  }
+
+  @Test
+  @DisplayName("Should read credentials and role ids with one query")
+  void skalHenteLegitimasjonMedRoller() {
+    BrukerLegitimasjon legitimasjon =
+        brukerRepository.findLegitimasjonByEmail("opptaksleder@ntnu.no");
+
+    assertThat(legitimasjon).isNotNull();
+    assertThat(legitimasjon.id()).isEqualTo("BRUKER-OPPTAKSLEDER-NTNU");
+    assertThat(legitimasjon.navn()).isEqualTo("Kari Opptaksleder");
+    assertThat(legitimasjon.organisasjonId()).isEqualTo("ntnu");
+    assertThat(legitimasjon.aktiv()).isTrue();
+    assertThat(legitimasjon.passordHash()).startsWith("$2");
+    assertThat(legitimasjon.rolleIds()).containsExactly("OPPTAKSLEDER");
+  }
+
+  @Test
+  @DisplayName("Should return null for unknown email and handle users without roles")
+  void skalHandtereUkjentEmailOgBrukerUtenRoller() {
+    jdbcTemplate.update(
+        "INSERT INTO bruker (id, email, navn, passord_hash, aktiv) VALUES (?, ?, ?, ?, ?)",
+        "BRUKER-UTEN-ROLLER",
+        "uten.roller@example.com",
+        "Uten Roller",
+        "$2a$10$hash",
+        true);
+
+    assertThat(brukerRepository.findLegitimasjonByEmail("finnes.ikke@example.com")).isNull();
+    assertThat(brukerRepository.findLegitimasjonByEmail("uten.roller@example.com").rolleIds())
+        .isEmpty();
+  }
+
+  @Test
+  @DisplayName("Should deactivate user")
+  void skalDeaktivereBruker() {
+    assertThat(brukerRepository.settAktiv("BRUKER-OPPTAKSLEDER-NTNU", false)).isTrue();
+    assertThat(brukerRepository.settAktiv("FINNES-IKKE", false)).isFalse();
+
+    assertThat(brukerRepository.findLegitimasjonByEmail("opptaksleder@ntnu.no").aktiv()).isFalse();
+  }
+
+  @Test
+  @DisplayName("Should create users with roles in batches")
+  void skalOppretteBrukereIBatch() {
+    brukerRepository.opprettBatch(
+        List.of(
+            new BrukerLegitimasjon(
+                "IMPORT-1", "en@ntnu.no", "En", "hash", "ntnu", true, List.of("OPPTAKSLEDER")),
+            new BrukerLegitimasjon(
+                "IMPORT-2", "to@ntnu.no", "To", "hash", null, true, List.of())),
+        "BRUKER-ADMIN");
+
+    assertThat(brukerRepository.findLegitimasjonByEmail("en@ntnu.no").rolleIds())
+        .containsExactly("OPPTAKSLEDER");
+    assertThat(brukerRepository.findLegitimasjonByEmail("to@ntnu.no").organisasjonId()).isNull();
+    assertThat(brukerRepository.finnEksisterendeEmails(List.of("en@ntnu.no", "ny@ntnu.no")))
+        .containsExactly("en@ntnu.no");
+    assertThat(brukerRepository.finnEksisterendeOrganisasjoner(List.of("ntnu", "finnes-ikke")))
+        .containsExactly("ntnu");
+    assertThat(brukerRepository.findAlleRolleIds()).contains("ADMINISTRATOR", "OPPTAKSLEDER");
+  }
+
+  private LocalDateTime sistInnlogget(String brukerId) {
+    return jdbcTemplate.queryForObject(
+        "SELECT sist_innlogget FROM bruker WHERE id = ?", LocalDateTime.class, brukerId);
+  }
+}
@@ -5,10 +5,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import no.utdanning.opptak.domain.*;
 import no.utdanning.opptak.repository.JdbcOpptakRepository;
+import no.utdanning.opptak.repository.JdbcOpptakTilgangRepository;
 import no.utdanning.opptak.repository.JdbcOrganisasjonRepository;
 import no.utdanning.opptak.repository.JdbcUtdanningRepository;
+import no.utdanning.opptak.repository.OpptakRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,12 +23,20 @@ import org.springframework.test.context.ActiveProfiles;
 
 @JdbcTest
 @ActiveProfiles("dev")
-@Import({JdbcOpptakRepository.class, JdbcOrganisasjonRepository.class, JdbcUtdanningRepository.class})
+@Import({
+  JdbcOpptakRepository.class,
+  JdbcOpptakTilgangRepository.class,
+  JdbcOrganisasjonRepository.class,
+  JdbcUtdanningRepository.class,
+  OpptakRepository.class
+})
 class JdbcOpptakRepositoryTest {
 
   @Autowired private JdbcOpptakRepository opptakRepository;
+  @Autowired private JdbcOpptakTilgangRepository tilgangRepository;
   @Autowired private JdbcOrganisasjonRepository organisasjonRepository;
   @Autowired private JdbcUtdanningRepository utdanningRepository;
+  @Autowired private OpptakRepository grafRepository;
   @Autowired private JdbcTemplate jdbcTemplate;
   
   private String testOrgId1 = "test-org-1";
@@ -54,6 +65,7 @@ class JdbcOpptakRepositoryTest {
   void tearDown() {
     // Clean up in reverse order due to foreign keys - only test data
     jdbcTemplate.update("DELETE FROM utdanning_i_opptak WHERE utdanning_id LIKE 'test-%' OR opptak_id LIKE 'test-%'");
+    jdbcTemplate.update("DELETE FROM opptak_tilgang WHERE opptak_id LIKE 'test-%'");
     jdbcTemplate.update("DELETE FROM utdanning WHERE id LIKE 'test-%'");
     jdbcTemplate.update("DELETE FROM opptak WHERE id LIKE 'test-%' OR administrator_organisasjon_id LIKE 'test-%'");
     jdbcTemplate.update("DELETE FROM organisasjon WHERE id LIKE 'test-%'");
@@ -236,4 +248,78 @@ class JdbcOpptakRepositoryTest {
     assertThat(eksisterer).isTrue();
     assertThat(eksistererIkke).isFalse();
   }
-}
\ No newline at end of file
+
+  @Test
+  void skalFinneSynligeOpptakForOrganisasjonIEnSporring() {
+    // testOrgId2 får tilgang til det samordnede opptaket og til et deaktivert opptak
+    createTestOpptak("test-opptak-3", "Deaktivert samordnet", OpptaksType.UHG, testSoOrgId, true);
+    jdbcTemplate.update("UPDATE opptak SET aktiv = false WHERE id = ?", "test-opptak-3");
+    createTestOpptak("test-opptak-4", "UiO eget opptak", OpptaksType.LOKALT, testOrgId2, false);
+    jdbcTemplate.update("UPDATE opptak SET aktiv = false WHERE id = ?", "test-opptak-4");
+    jdbcTemplate.update(
+        "INSERT INTO opptak_tilgang (id, opptak_id, organisasjon_id) VALUES (?, ?, ?)",
+        "test-tilgang-1", testOpptakId1, testOrgId2);
+    jdbcTemplate.update(
+        "INSERT INTO opptak_tilgang (id, opptak_id, organisasjon_id) VALUES (?, ?, ?)",
+        "test-tilgang-2", "test-opptak-3", testOrgId2);
+
+    List<Opptak> synlige = opptakRepository.findSynligeForOrganisasjonId(testOrgId2);
+
+    // Egne opptak tas med uansett status, tildelte opptak kun når de er aktive
+    assertThat(synlige)
+        .extracting(Opptak::getId)
+        .containsExactlyInAnyOrder(testOpptakId1, "test-opptak-4");
+  }
+
+  @Test
+  void skalFinneAdministrerteOpptakUtenTilganger() {
+    List<Opptak> synlige = opptakRepository.findSynligeForOrganisasjonId(testOrgId1);
+
+    assertThat(synlige).extracting(Opptak::getId).containsExactly(testOpptakId2);
+  }
+
+  @Test
+  void skalHenteUtdanningerForFlereOrganisasjonerGruppertMedLimit() {
+    createTestUtdanning("test-utd-3", "Bachelor i økonomi", testOrgId2);
+
+    Map<String, List<Utdanning>> alle =
+        grafRepository.findUtdanningerByOrganisasjonIds(List.of(testOrgId1, testOrgId2, testSoOrgId), 10);
+    Map<String, List<Utdanning>> begrenset =
+        grafRepository.findUtdanningerByOrganisasjonIds(List.of(testOrgId1, testOrgId2), 1);
+
+    assertThat(alle.get(testOrgId1))
+        .extracting(Utdanning::getNavn)
+        .containsExactly("Bachelor i informatikk", "Master i AI");
+    assertThat(alle.get(testOrgId2)).extracting(Utdanning::getId).containsExactly("test-utd-3");
+    assertThat(alle).doesNotContainKey(testSoOrgId);
+
+    // Limit gjelder per organisasjon, ikke for hele resultatet
+    assertThat(begrenset.get(testOrgId1)).extracting(Utdanning::getNavn).containsExactly("Bachelor i informatikk");
+    assertThat(begrenset.get(testOrgId2)).hasSize(1);
+  }
+
+  @Test
+  void skalHenteUtdanningerForFlereOpptakGruppertMedLimit() {
+    jdbcTemplate.update(
+        "INSERT INTO utdanning_i_opptak (id, utdanning_id, opptak_id, antall_plasser) VALUES (?, ?, ?, ?)",
+        "test-uio-1", "test-utd-2", testOpptakId1, 20);
+    jdbcTemplate.update(
+        "INSERT INTO utdanning_i_opptak (id, utdanning_id, opptak_id, antall_plasser) VALUES (?, ?, ?, ?)",
+        "test-uio-2", "test-utd-1", testOpptakId1, 50);
+    jdbcTemplate.update(
+        "INSERT INTO utdanning_i_opptak (id, utdanning_id, opptak_id, antall_plasser) VALUES (?, ?, ?, ?)",
+        "test-uio-3", "test-utd-1", testOpptakId2, 10);
+
+    Map<String, List<UtdanningIOpptak>> alle =
+        grafRepository.findUtdanningerByOpptakIds(List.of(testOpptakId1, testOpptakId2), 10);
+    Map<String, List<UtdanningIOpptak>> begrenset =
+        grafRepository.findUtdanningerByOpptakIds(List.of(testOpptakId1), 1);
+
+    // Sortert på utdanningsnavn innen hvert opptak
+    assertThat(alle.get(testOpptakId1))
+        .extracting(UtdanningIOpptak::getId)
+        .containsExactly("test-uio-2", "test-uio-1");
+    assertThat(alle.get(testOpptakId2)).extracting(UtdanningIOpptak::getId).containsExactly("test-uio-3");
+    assertThat(begrenset.get(testOpptakId1)).extracting(UtdanningIOpptak::getId).containsExactly("test-uio-2");
+  }
+}
@@ -0,0 +1,78 @@
+package no.utdanning.opptak.slice.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import no.utdanning.opptak.domain.UtdanningIOpptak;
+import no.utdanning.opptak.repository.JdbcUtdanningIOpptakRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+@JdbcTest
+@ActiveProfiles("dev")
+@Import({JdbcUtdanningIOpptakRepository.class})
+class JdbcUtdanningIOpptakRepositoryTest {
+
+  private static final String OPPTAK = "samordnet-uhg-h25";
+
+  @Autowired private JdbcUtdanningIOpptakRepository repository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Test
+  void findOrganisasjonIdByUtdanningIds_skalUtelateUkjenteUtdanninger() {
+    Map<String, String> organisasjoner =
+        repository.findOrganisasjonIdByUtdanningIds(
+            List.of("ntnu-informatikk-h25", "uio-informatikk-h25", "finnes-ikke"));
+
+    assertThat(organisasjoner)
+        .containsOnly(
+            Map.entry("ntnu-informatikk-h25", "ntnu"), Map.entry("uio-informatikk-h25", "uio"));
+  }
+
+  @Test
+  void lagreAlle_skalOppdatereEksisterendeOgLeggeTilNye() {
+    JdbcUtdanningIOpptakRepository.Lagret lagret =
+        repository.lagreAlle(
+            OPPTAK,
+            List.of(
+                utdanning("ntnu-informatikk-h25", 130, true),
+                utdanning("fsi-elektro-h25", 10, false)));
+
+    assertThat(lagret).isEqualTo(new JdbcUtdanningIOpptakRepository.Lagret(1, 1));
+
+    // Eksisterende rad beholder id, men får nye verdier
+    Map<String, Object> oppdatert =
+        jdbcTemplate.queryForMap(
+            "SELECT id, antall_plasser FROM utdanning_i_opptak"
+                + " WHERE utdanning_id = 'ntnu-informatikk-h25' AND opptak_id = ?",
+            OPPTAK);
+    assertThat(oppdatert.get("ID")).isEqualTo("ntnu-informatikk-samordnet-h25");
+    assertThat(oppdatert.get("ANTALL_PLASSER")).isEqualTo(130);
+
+    Map<String, Object> ny =
+        jdbcTemplate.queryForMap(
+            "SELECT antall_plasser, aktivt FROM utdanning_i_opptak"
+                + " WHERE utdanning_id = 'fsi-elektro-h25' AND opptak_id = ?",
+            OPPTAK);
+    assertThat(ny.get("ANTALL_PLASSER")).isEqualTo(10);
+    assertThat(ny.get("AKTIVT")).isEqualTo(false);
+
+    Integer antall =
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM utdanning_i_opptak WHERE opptak_id = ?", Integer.class, OPPTAK);
+    assertThat(antall).isEqualTo(5);
+  }
+
+  private static UtdanningIOpptak utdanning(String utdanningId, int plasser, boolean aktivt) {
+    UtdanningIOpptak utdanning = new UtdanningIOpptak();
+    utdanning.setUtdanningId(utdanningId);
+    utdanning.setAntallPlasser(plasser);
+    utdanning.setAktivt(aktivt);
+    return utdanning;
+  }
+}
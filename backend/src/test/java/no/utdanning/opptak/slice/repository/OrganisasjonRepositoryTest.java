@@ -0,0 +1,140 @@
+package no.utdanning.opptak.slice.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import no.utdanning.opptak.domain.Organisasjon;
+import no.utdanning.opptak.domain.OrganisasjonsType;
+import no.utdanning.opptak.repository.JdbcOrganisasjonRepository;
+import no.utdanning.opptak.repository.OrganisasjonRepository;
+import no.utdanning.opptak.repository.Projeksjon;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+@JdbcTest
+@ActiveProfiles("dev")
+@Import({JdbcOrganisasjonRepository.class})
+@DisplayName("OrganisasjonRepository - Repository layer testing")
+class OrganisasjonRepositoryTest {
+
+  @Autowired private OrganisasjonRepository organisasjonRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private String testOrgId1 = "test-org-1";
+  private String testOrgId2 = "test-org-2";
+  private String testOrgId3 = "test-org-3";
+
+  @BeforeEach
+  void setUp() {
+    createTestOrganisasjon(testOrgId1, "NTNU Test", "NTNU", "UNIVERSITET", true);
+    createTestOrganisasjon(testOrgId2, "UiO Test", "UiO", "UNIVERSITET", true);
+    createTestOrganisasjon(testOrgId3, "Fagskole Test", "FT", "FAGSKOLE", false);
+  }
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("DELETE FROM organisasjon WHERE id LIKE 'test-%'");
+  }
+
+  private void createTestOrganisasjon(
+      String id, String navn, String kortNavn, String type, boolean aktiv) {
+    // Use different organisasjonsnummer for each test org to avoid unique constraint violations
+    String orgNummer = "77" + Math.abs(id.hashCode() % 1000000);
+    jdbcTemplate.update(
+      "INSERT INTO organisasjon (id, navn, kort_navn, type, organisasjonsnummer, adresse, nettside, opprettet, aktiv) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+      id, navn, kortNavn, type, orgNummer, "Test adresse", "https://test.no", LocalDateTime.now(), aktiv
+    );
+  }
+
+  // ==================== BATCH LOOKUP TESTING ====================
+
+  @Test
+  @DisplayName("findByIds: Skal hente alle organisasjoner i én spørring")
+  void findByIds_skalHenteAlleOrganisasjoner() {
+    // When
+    List<Organisasjon> funnet =
+        organisasjonRepository.findByIds(Arrays.asList(testOrgId1, testOrgId3));
+
+    // Then
+    assertThat(funnet).extracting(Organisasjon::getId).containsExactlyInAnyOrder(testOrgId1, testOrgId3);
+  }
+
+  @Test
+  @DisplayName("findByIds: Skal slå sammen dupliserte ID-er")
+  void findByIds_skalSlaaSammenDupliserteIder() {
+    // When
+    List<Organisasjon> funnet =
+        organisasjonRepository.findByIds(
+            Arrays.asList(testOrgId1, testOrgId2, testOrgId1, testOrgId1, null));
+
+    // Then
+    assertThat(funnet).hasSize(2);
+    assertThat(funnet).extracting(Organisasjon::getId).containsExactlyInAnyOrder(testOrgId1, testOrgId2);
+  }
+
+  @Test
+  @DisplayName("findByIds: Skal returnere tom liste uten å spørre databasen for tom input")
+  void findByIds_skalReturnereTomListeForTomInput() {
+    // When
+    List<Organisasjon> funnet = organisasjonRepository.findByIds(List.of());
+
+    // Then
+    assertThat(funnet).isEmpty();
+  }
+
+  @Test
+  @DisplayName("findByIds: Skal ignorere ukjente ID-er")
+  void findByIds_skalIgnorereUkjenteIder() {
+    // When
+    List<Organisasjon> funnet =
+        organisasjonRepository.findByIds(Arrays.asList(testOrgId2, "FINNES-IKKE"));
+
+    // Then
+    assertThat(funnet).extracting(Organisasjon::getId).containsExactly(testOrgId2);
+  }
+
+  // ==================== FILTER TESTING ====================
+
+  @Test
+  @DisplayName("findWithFilters: Skal kombinere aktiv, type og navnesøk i én spørring")
+  void findWithFilters_skalKombinereFiltre() {
+    // When
+    List<Organisasjon> aktiveUniversiteter =
+        organisasjonRepository.findWithFilters(
+            true, OrganisasjonsType.UNIVERSITET, "test", null, null, Projeksjon.alle());
+    List<Organisasjon> inaktive =
+        organisasjonRepository.findWithFilters(false, null, "TEST", null, null, Projeksjon.alle());
+
+    // Then
+    assertThat(aktiveUniversiteter)
+        .extracting(Organisasjon::getId)
+        .containsExactly(testOrgId1, testOrgId2);
+    assertThat(inaktive).extracting(Organisasjon::getId).containsExactly(testOrgId3);
+  }
+
+  @Test
+  @DisplayName("findWithFilters: Skal paginere sortert på navn og kun hente valgte kolonner")
+  void findWithFilters_skalPaginereSortertPaaNavn() {
+    // When
+    List<Organisasjon> forsteSide =
+        organisasjonRepository.findWithFilters(
+            null, null, " Test", 2, 0, Projeksjon.av(List.of("id", "navn")));
+    List<Organisasjon> andreSide =
+        organisasjonRepository.findWithFilters(
+            null, null, " Test", 2, 2, Projeksjon.av(List.of("id", "navn")));
+
+    // Then
+    assertThat(forsteSide).extracting(Organisasjon::getNavn).containsExactly("Fagskole Test", "NTNU Test");
+    assertThat(forsteSide.get(0).getType()).isNull();
+    assertThat(andreSide).extracting(Organisasjon::getId).containsExactly(testOrgId2);
+  }
+}
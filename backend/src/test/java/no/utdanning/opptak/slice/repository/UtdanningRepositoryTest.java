@@ -8,6 +8,7 @@ import java.util.List;
 import no.utdanning.opptak.domain.Studieform;
 import no.utdanning.opptak.domain.Utdanning;
 import no.utdanning.opptak.repository.JdbcUtdanningRepository;
+import no.utdanning.opptak.repository.Projeksjon;
 import no.utdanning.opptak.repository.UtdanningRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -371,6 +372,164 @@ class UtdanningRepositoryTest {
     assertThat(count).isGreaterThan(0);
   }
 
+  @Test
+  @DisplayName("findWithFiltersAndCount: Skal gi samme side og antall som separate spørringer")
+  void findWithFiltersAndCount_skalGiSammeSideOgAntall() {
+    // When
+    UtdanningRepository.UtdanningSide side =
+        utdanningRepository.findWithFiltersAndCount(null, "bachelor", null, null, null, null, 100, 0);
+
+    // Then
+    List<Utdanning> forventet =
+        utdanningRepository.findWithFilters(null, "bachelor", null, null, null, null, 100, 0);
+    long forventetAntall =
+        utdanningRepository.countWithFilters(null, "bachelor", null, null, null, null);
+
+    assertThat(side.content())
+        .extracting(Utdanning::getId)
+        .containsExactlyInAnyOrderElementsOf(forventet.stream().map(Utdanning::getId).toList());
+    assertThat(side.totalElements()).isEqualTo(forventetAntall);
+  }
+
+  @Test
+  @DisplayName("findWithFiltersAndCount: Skal gi riktig antall for side forbi siste treff")
+  void findWithFiltersAndCount_skalGiAntallForSideForbiSlutten() {
+    // When
+    UtdanningRepository.UtdanningSide side =
+        utdanningRepository.findWithFiltersAndCount(
+            "Testutdanning", null, null, testOrgId1, null, null, 10, 100);
+
+    // Then
+    assertThat(side.content()).isEmpty();
+    assertThat(side.totalElements())
+        .isEqualTo(
+            utdanningRepository.countWithFilters(
+                "Testutdanning", null, null, testOrgId1, null, null));
+  }
+
+  // ==================== KEYSET PAGINATION TESTING ====================
+
+  @Test
+  @DisplayName("findWithFiltersAfter: Skal gå gjennom alle sider uten duplikater eller hull")
+  void findWithFiltersAfter_skalGaaGjennomAlleSider() {
+    // Given - to utdanninger med samme navn for å teste id som tiebreaker
+    createTestUtdanning("test-utd-5", "Testutdanning i AI", testOrgId1, "master", 120);
+    List<Utdanning> forventet =
+        utdanningRepository.findWithFilters("Testutdanning", null, null, null, null, true, 100, 0);
+
+    // When - hent to og to rader med cursor fra siste rad
+    List<String> besokt = new java.util.ArrayList<>();
+    String afterNavn = null;
+    String afterId = null;
+    List<Utdanning> side;
+    do {
+      side =
+          utdanningRepository.findWithFiltersAfter(
+              "Testutdanning", null, null, null, null, true, afterNavn, afterId, 2);
+      side.forEach(u -> besokt.add(u.getId()));
+      if (!side.isEmpty()) {
+        afterNavn = side.get(side.size() - 1).getNavn();
+        afterId = side.get(side.size() - 1).getId();
+      }
+    } while (side.size() == 2);
+
+    // Then
+    assertThat(besokt).hasSize(3).doesNotHaveDuplicates();
+    assertThat(besokt)
+        .containsExactlyInAnyOrderElementsOf(forventet.stream().map(Utdanning::getId).toList());
+    assertThat(besokt).containsSubsequence("test-utd-2", "test-utd-5");
+  }
+
+  @Test
+  @DisplayName("findWithFiltersAfter: Innsetting før cursor skal ikke forskyve neste side")
+  void findWithFiltersAfter_innsettingForCursorSkalIkkeForskyveNesteSide() {
+    // Given - første side med én rad
+    List<Utdanning> forsteSide =
+        utdanningRepository.findWithFiltersAfter(
+            null, null, null, testOrgId1, null, true, null, null, 1);
+    Utdanning sisteRad = forsteSide.get(0);
+    List<Utdanning> nesteFor =
+        utdanningRepository.findWithFiltersAfter(
+            null, null, null, testOrgId1, null, true, sisteRad.getNavn(), sisteRad.getId(), 1);
+
+    // When - ny rad som sorteres før cursor
+    createTestUtdanning("test-utd-aaa", "AAA Første utdanning", testOrgId1, "bachelor", 180);
+    List<Utdanning> nesteEtter =
+        utdanningRepository.findWithFiltersAfter(
+            null, null, null, testOrgId1, null, true, sisteRad.getNavn(), sisteRad.getId(), 1);
+
+    // Then
+    assertThat(nesteEtter).extracting(Utdanning::getId).isEqualTo(nesteFor.stream().map(Utdanning::getId).toList());
+  }
+
+  // ==================== PROJECTION TESTING ====================
+
+  @Test
+  @DisplayName("findWithFilters: Skal kun fylle ut kolonnene i projeksjonen")
+  void findWithFilters_skalKunFylleUtKolonneneIProjeksjonen() {
+    // Given
+    Projeksjon projeksjon = Projeksjon.av(List.of("id", "navn", "organisasjon_id", "studiepoeng"));
+
+    // When
+    List<Utdanning> result =
+        utdanningRepository.findWithFilters(
+            "Testutdanning", null, null, testOrgId1, null, null, 10, 0, projeksjon);
+
+    // Then
+    assertThat(result).isNotEmpty();
+    assertThat(result)
+        .allSatisfy(
+            utdanning -> {
+              assertThat(utdanning.getId()).isNotNull();
+              assertThat(utdanning.getNavn()).startsWith("Testutdanning");
+              assertThat(utdanning.getOrganisasjonId()).isEqualTo(testOrgId1);
+              assertThat(utdanning.getStudiepoeng()).isPositive();
+              assertThat(utdanning.getBeskrivelse()).isNull();
+              assertThat(utdanning.getStudieform()).isNull();
+            });
+  }
+
+  @Test
+  @DisplayName("findWithFiltersAndCount: Skal telle riktig også med projeksjon")
+  void findWithFiltersAndCount_skalTelleRiktigMedProjeksjon() {
+    // When
+    UtdanningRepository.UtdanningSide side =
+        utdanningRepository.findWithFiltersAndCount(
+            "Testutdanning", null, null, testOrgId1, null, null, 1, 0, Projeksjon.av(List.of("id")));
+
+    // Then
+    assertThat(side.content()).hasSize(1);
+    assertThat(side.content().get(0).getBeskrivelse()).isNull();
+    assertThat(side.totalElements())
+        .isEqualTo(
+            utdanningRepository.countWithFilters(
+                "Testutdanning", null, null, testOrgId1, null, null));
+  }
+
+  @Test
+  @DisplayName("Projeksjon: Skal avvise kolonnenavn som ikke er enkle identifikatorer")
+  void projeksjon_skalAvviseUgyldigeKolonnenavn() {
+    assertThrows(
+        IllegalArgumentException.class, () -> Projeksjon.av(List.of("id", "navn; DROP TABLE x")));
+  }
+
+  @Test
+  @DisplayName("opprettAlle: Skal opprette flere utdanninger i én batch")
+  void opprettAlle_skalOppretteIBatch() {
+    // Given
+    List<Utdanning> nye =
+        List.of(nyUtdanning("Batch A", Studieform.HELTID), nyUtdanning("Batch B", Studieform.DELTID));
+
+    // When
+    utdanningRepository.opprettAlle(nye);
+
+    // Then
+    assertThat(nye).allSatisfy(utdanning -> assertThat(utdanning.getId()).isNotNull());
+    assertThat(utdanningRepository.findByOrganisasjonId(testOrgId2))
+        .extracting(Utdanning::getNavn)
+        .contains("Batch A", "Batch B");
+  }
+
   // ==================== BASIC VALIDATION ====================
 
   @Test
@@ -416,4 +575,18 @@ class UtdanningRepositoryTest {
         .extracting(Utdanning::getId)
         .containsExactlyInAnyOrderElementsOf(result2.stream().map(Utdanning::getId).toList());
   }
+
+  private Utdanning nyUtdanning(String navn, Studieform studieform) {
+    Utdanning utdanning = new Utdanning();
+    utdanning.setNavn(navn);
+    utdanning.setStudienivaa("bachelor");
+    utdanning.setStudiepoeng(180);
+    utdanning.setVarighet(6);
+    utdanning.setStudiested("Oslo");
+    utdanning.setUndervisningssprak("norsk");
+    utdanning.setStarttidspunkt("HØST_2025");
+    utdanning.setStudieform(studieform);
+    utdanning.setOrganisasjonId(testOrgId2);
+    return utdanning;
+  }
 }
@@ -0,0 +1,122 @@
+package no.utdanning.opptak.unit.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import no.utdanning.opptak.service.security.InnloggingOverbelastetException;
+import no.utdanning.opptak.service.security.InnloggingsBegrensning;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("InnloggingsBegrensning Tests")
+class InnloggingsBegrensningTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private long naa = 1_000_000_000L;
+  private InnloggingsBegrensning begrensning;
+
+  @BeforeEach
+  void setUp() {
+    // 3 forsøk per e-post per minutt, 10 per IP per 10 sekunder
+    begrensning = lagBegrensning(100);
+  }
+
+  @Test
+  @DisplayName("Should reject attempts for an email once its bucket is empty")
+  void skalAvviseNaarEmailBottaErTom() {
+    for (int i = 0; i < 3; i++) {
+      begrensning.sjekk("kari@ntnu.no", "10.0.0." + i);
+    }
+
+    assertThatThrownBy(() -> begrensning.sjekk("KARI@ntnu.no", "10.0.0.9"))
+        .isInstanceOf(InnloggingOverbelastetException.class)
+        .satisfies(
+            e ->
+                assertThat(((InnloggingOverbelastetException) e).getProvIgjenEtter())
+                    .isEqualTo(Duration.ofSeconds(21)));
+    assertThat(teller("email")).isEqualTo(1);
+
+    // Ett nytt forsøk er tilgjengelig etter 20 sekunder
+    naa += Duration.ofSeconds(20).toNanos();
+    assertThatCode(() -> begrensning.sjekk("kari@ntnu.no", "10.0.0.9")).doesNotThrowAnyException();
+  }
+
+  @Test
+  @DisplayName("Should reject attempts from an IP across different emails")
+  void skalAvviseNaarIpBottaErTom() {
+    for (int i = 0; i < 10; i++) {
+      begrensning.sjekk("bruker" + i + "@example.com", "10.0.0.1");
+    }
+
+    assertThatThrownBy(() -> begrensning.sjekk("ny@example.com", "10.0.0.1"))
+        .isInstanceOf(InnloggingOverbelastetException.class);
+    assertThat(teller("ip")).isEqualTo(1);
+    assertThatCode(() -> begrensning.sjekk("ny@example.com", "10.0.0.2"))
+        .doesNotThrowAnyException();
+  }
+
+  @Test
+  @DisplayName("Should evict idle buckets and bound the number of buckets")
+  void skalFjerneInaktiveOgBegrenseAntall() {
+    begrensning = lagBegrensning(2);
+    begrensning.sjekk("a@example.com", null);
+    begrensning.sjekk("b@example.com", null);
+    begrensning.sjekk("c@example.com", null);
+
+    // c fikk ingen bøtte siden a og b fortsatt er i bruk
+    assertThat(begrensning.antallBotter()).isEqualTo(2);
+
+    naa += Duration.ofMinutes(1).toNanos();
+    begrensning.fjernInaktive();
+    assertThat(begrensning.antallBotter()).isZero();
+  }
+
+  @Test
+  @DisplayName("Should let new keys log in when the map is full of active buckets")
+  void skalSlippeGjennomNyeNokklerNaarKartetErFullt() {
+    begrensning = lagBegrensning(2);
+    for (int i = 0; i < 3; i++) {
+      begrensning.sjekk("angriper1@example.com", null);
+      begrensning.sjekk("angriper2@example.com", null);
+    }
+
+    // Angriperens bøtter er tomme, men deles ikke med nye nøkler
+    assertThatThrownBy(() -> begrensning.sjekk("angriper1@example.com", null))
+        .isInstanceOf(InnloggingOverbelastetException.class);
+    for (int i = 0; i < 5; i++) {
+      begrensning.sjekk("kari@ntnu.no", null);
+    }
+    assertThat(begrensning.antallBotter()).isEqualTo(2);
+    assertThat(
+            meterRegistry
+                .get("innlogging.begrensning.overlop")
+                .tag("nokkel", "email")
+                .counter()
+                .count())
+        .isEqualTo(5);
+
+    // Når bøttene er fulle igjen, ryddes kartet og nye nøkler får egne bøtter
+    naa += Duration.ofMinutes(1).toNanos();
+    begrensning.sjekk("kari@ntnu.no", null);
+    assertThat(begrensning.antallBotter()).isEqualTo(1);
+  }
+
+  private InnloggingsBegrensning lagBegrensning(int maksAntall) {
+    return new InnloggingsBegrensning(
+        meterRegistry,
+        3,
+        Duration.ofMinutes(1),
+        10,
+        Duration.ofSeconds(10),
+        maksAntall,
+        () -> naa);
+  }
+
+  private double teller(String nokkel) {
+    return meterRegistry.get("innlogging.begrenset").tag("nokkel", nokkel).counter().count();
+  }
+}
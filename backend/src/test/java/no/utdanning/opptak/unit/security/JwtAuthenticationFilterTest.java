@@ -12,7 +12,10 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import no.utdanning.opptak.config.JwtAuthenticationFilter;
+import no.utdanning.opptak.config.Sporringsbudsjett;
 import no.utdanning.opptak.service.JwtService;
+import no.utdanning.opptak.service.security.InnloggetBruker;
+import no.utdanning.opptak.service.security.JwtAuthentication;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -29,6 +32,8 @@ class JwtAuthenticationFilterTest {
 
   @Mock private JwtService jwtService;
 
+  @Mock private Sporringsbudsjett sporringsbudsjett;
+
   @Mock private HttpServletRequest request;
 
   @Mock private HttpServletResponse response;
@@ -51,9 +56,7 @@ class JwtAuthenticationFilterTest {
     List<String> roles = Arrays.asList("ADMINISTRATOR");
 
     when(request.getHeader("Authorization")).thenReturn("Bearer " + validToken);
-    when(jwtService.isTokenValid(validToken)).thenReturn(true);
-    when(jwtService.extractUserId(validToken)).thenReturn(userId);
-    when(jwtService.extractRoles(validToken)).thenReturn(roles);
+    when(jwtService.verifiser(validToken)).thenReturn(bruker(userId, roles, null));
 
     // When
     jwtAuthenticationFilter.doFilter(request, response, filterChain);
@@ -77,7 +80,7 @@ class JwtAuthenticationFilterTest {
     String invalidToken = "invalid.jwt.token";
 
     when(request.getHeader("Authorization")).thenReturn("Bearer " + invalidToken);
-    when(jwtService.isTokenValid(invalidToken)).thenReturn(false);
+    when(jwtService.verifiser(invalidToken)).thenThrow(new SecurityException("Ugyldig JWT token"));
 
     // When
     jwtAuthenticationFilter.doFilter(request, response, filterChain);
@@ -86,8 +89,6 @@ class JwtAuthenticationFilterTest {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
     assertThat(authentication).isNull();
 
-    verify(jwtService, never()).extractUserId(anyString());
-    verify(jwtService, never()).extractRoles(anyString());
     verify(filterChain).doFilter(request, response);
   }
 
@@ -105,7 +106,7 @@ class JwtAuthenticationFilterTest {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
     assertThat(authentication).isNull();
 
-    verify(jwtService, never()).isTokenValid(anyString());
+    verify(jwtService, never()).verifiser(anyString());
     verify(filterChain).doFilter(request, response);
   }
 
@@ -123,7 +124,7 @@ class JwtAuthenticationFilterTest {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
     assertThat(authentication).isNull();
 
-    verify(jwtService, never()).isTokenValid(anyString());
+    verify(jwtService, never()).verifiser(anyString());
     verify(filterChain).doFilter(request, response);
   }
 
@@ -134,7 +135,8 @@ class JwtAuthenticationFilterTest {
     String malformedToken = "malformed.jwt.token";
 
     when(request.getHeader("Authorization")).thenReturn("Bearer " + malformedToken);
-    when(jwtService.isTokenValid(malformedToken)).thenReturn(false);
+    when(jwtService.verifiser(malformedToken))
+        .thenThrow(new SecurityException("Ugyldig JWT token: malformed"));
 
     // When
     jwtAuthenticationFilter.doFilter(request, response, filterChain);
@@ -155,9 +157,7 @@ class JwtAuthenticationFilterTest {
     List<String> roles = Arrays.asList("OPPTAKSLEDER", "SOKNADSBEHANDLER");
 
     when(request.getHeader("Authorization")).thenReturn("Bearer " + validToken);
-    when(jwtService.isTokenValid(validToken)).thenReturn(true);
-    when(jwtService.extractUserId(validToken)).thenReturn(userId);
-    when(jwtService.extractRoles(validToken)).thenReturn(roles);
+    when(jwtService.verifiser(validToken)).thenReturn(bruker(userId, roles, null));
 
     // When
     jwtAuthenticationFilter.doFilter(request, response, filterChain);
@@ -173,4 +173,50 @@ class JwtAuthenticationFilterTest {
 
     verify(filterChain).doFilter(request, response);
   }
+
+  @Test
+  @DisplayName("Should attach query cost budget for the user's roles to the request")
+  void skalLeggeSporringsbudsjettPaaRequest() throws ServletException, IOException {
+    // Given
+    String validToken = "valid.jwt.token";
+    List<String> roles = Arrays.asList("SOKER");
+
+    when(request.getHeader("Authorization")).thenReturn("Bearer " + validToken);
+    when(jwtService.verifiser(validToken)).thenReturn(bruker("BRUKER-SOKER", roles, null));
+    when(sporringsbudsjett.forRoller(roles)).thenReturn(5000);
+
+    // When
+    jwtAuthenticationFilter.doFilter(request, response, filterChain);
+
+    // Then
+    verify(request).setAttribute(Sporringsbudsjett.REQUEST_ATTRIBUTT, 5000);
+    verify(filterChain).doFilter(request, response);
+  }
+
+  @Test
+  @DisplayName("Should verify token once and expose claims through InnloggetBruker principal")
+  void skalVerifisereTokenEnGangOgLeggeClaimsIPrincipal() throws ServletException, IOException {
+    // Given
+    String validToken = "valid.jwt.token";
+    InnloggetBruker bruker = bruker("BRUKER-OPPTAKSLEDER-UIO", List.of("OPPTAKSLEDER"), "uio");
+
+    when(request.getHeader("Authorization")).thenReturn("Bearer " + validToken);
+    when(jwtService.verifiser(validToken)).thenReturn(bruker);
+
+    // When
+    jwtAuthenticationFilter.doFilter(request, response, filterChain);
+
+    // Then
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    assertThat(authentication).isInstanceOf(JwtAuthentication.class);
+    assertThat(authentication.getPrincipal()).isEqualTo(bruker);
+    assertThat(InnloggetBruker.gjeldende().organisasjonId()).isEqualTo("uio");
+
+    verify(jwtService, times(1)).verifiser(validToken);
+    verifyNoMoreInteractions(jwtService);
+  }
+
+  private static InnloggetBruker bruker(String userId, List<String> roles, String organisasjonId) {
+    return new InnloggetBruker(userId, userId + "@test.no", "Test", roles, organisasjonId);
+  }
 }
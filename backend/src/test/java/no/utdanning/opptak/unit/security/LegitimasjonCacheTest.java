@@ -0,0 +1,96 @@
+package no.utdanning.opptak.unit.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import no.utdanning.opptak.domain.BrukerLegitimasjon;
+import no.utdanning.opptak.repository.JdbcBrukerRepository;
+import no.utdanning.opptak.service.security.LegitimasjonCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("LegitimasjonCache Tests")
+class LegitimasjonCacheTest {
+
+  private static final String EMAIL = "opptaksleder@ntnu.no";
+  private static final Instant START = Instant.parse("2025-06-20T09:00:00Z");
+
+  @Mock private JdbcBrukerRepository brukerRepository;
+  @Mock private Clock clock;
+
+  private LegitimasjonCache cache;
+  private final BrukerLegitimasjon kari =
+      new BrukerLegitimasjon(
+          "BRUKER-1", EMAIL, "Kari", "$2a$hash", "ntnu", true, List.of("OPPTAKSLEDER"));
+
+  @BeforeEach
+  void setUp() {
+    cache =
+        new LegitimasjonCache(
+            brukerRepository, new SimpleMeterRegistry(), Duration.ofSeconds(30), 100, clock);
+  }
+
+  @Test
+  @DisplayName("Should serve repeated lookups from the cache until the TTL expires")
+  void skalBrukeCachenInntilTtlErUte() {
+    when(clock.instant()).thenReturn(START, START.plusSeconds(29), START.plusSeconds(31));
+    when(brukerRepository.findLegitimasjonByEmail(EMAIL)).thenReturn(kari);
+
+    assertThat(cache.hent(EMAIL)).isEqualTo(kari);
+    assertThat(cache.hent(EMAIL)).isEqualTo(kari);
+    verify(brukerRepository, times(1)).findLegitimasjonByEmail(EMAIL);
+
+    cache.hent(EMAIL);
+    verify(brukerRepository, times(2)).findLegitimasjonByEmail(EMAIL);
+  }
+
+  @Test
+  @DisplayName("Should evict a user when it is forgotten")
+  void skalGlemmeBruker() {
+    when(clock.instant()).thenReturn(START);
+    when(brukerRepository.findLegitimasjonByEmail(EMAIL)).thenReturn(kari);
+    cache.hent(EMAIL);
+
+    cache.glem("BRUKER-1");
+
+    assertThat(cache.size()).isZero();
+    cache.hent(EMAIL);
+    verify(brukerRepository, times(2)).findLegitimasjonByEmail(EMAIL);
+  }
+
+  @Test
+  @DisplayName("Should not cache a lookup that raced with forgetting the user")
+  void skalIkkeCacheOppslagSomKrysserGlem() {
+    when(clock.instant()).thenReturn(START);
+    when(brukerRepository.findLegitimasjonByEmail(EMAIL))
+        .thenAnswer(
+            invocation -> {
+              // Brukeren deaktiveres etter at oppslaget har lest den gamle raden
+              cache.glem("BRUKER-1");
+              return kari;
+            });
+
+    assertThat(cache.hent(EMAIL)).isEqualTo(kari);
+
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  @DisplayName("Should not cache unknown emails")
+  void skalIkkeCacheUkjenteEmailer() {
+    when(clock.instant()).thenReturn(START);
+
+    assertThat(cache.hent("ukjent@example.com")).isNull();
+    assertThat(cache.size()).isZero();
+  }
+}
@@ -0,0 +1,59 @@
+package no.utdanning.opptak.unit.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import no.utdanning.opptak.domain.OpptakTilgang;
+import no.utdanning.opptak.repository.JdbcOpptakTilgangRepository;
+import no.utdanning.opptak.service.security.OpptakTilgangIndeks;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OpptakTilgangIndeks Tests")
+class OpptakTilgangIndeksTest {
+
+  @Mock private JdbcOpptakTilgangRepository tilgangRepository;
+
+  private OpptakTilgangIndeks indeks;
+
+  @BeforeEach
+  void setUp() {
+    indeks = new OpptakTilgangIndeks(tilgangRepository, new SimpleMeterRegistry());
+  }
+
+  @Test
+  @DisplayName("Should load in one attempt on first use even when changes are committed meanwhile")
+  void skalLasteIEttForsokSelvOmEndringerCommittesSamtidig() throws Exception {
+    AtomicReference<CompletableFuture<Void>> samtidig = new AtomicReference<>();
+    when(tilgangRepository.findAll())
+        .thenAnswer(
+            invocation -> {
+              // En annen tråd committer en tilgang mens tabellen leses
+              samtidig.set(
+                  CompletableFuture.runAsync(() -> indeks.tilgangGitt("opptak-2", "uio")));
+              try {
+                samtidig.get().get(200, TimeUnit.MILLISECONDS);
+              } catch (TimeoutException e) {
+                // Venter på låsen til lastingen er ferdig
+              }
+              return List.of(new OpptakTilgang("t-1", "opptak-1", "uio", null, null));
+            });
+
+    assertThat(indeks.harTilgang("opptak-1", "uio")).isTrue();
+
+    samtidig.get().get(5, TimeUnit.SECONDS);
+    assertThat(indeks.harTilgang("opptak-2", "uio")).isTrue();
+    verify(tilgangRepository, times(1)).findAll();
+  }
+}
@@ -0,0 +1,123 @@
+package no.utdanning.opptak.unit.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import no.utdanning.opptak.service.security.InnloggingOverbelastetException;
+import no.utdanning.opptak.service.security.PassordVerifisering;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+@DisplayName("PassordVerifisering Tests")
+class PassordVerifiseringTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final CountDownLatch slipp = new CountDownLatch(1);
+  private PassordVerifisering verifisering;
+
+  @AfterEach
+  void tearDown() {
+    slipp.countDown();
+    if (verifisering != null) {
+      verifisering.stopp();
+    }
+  }
+
+  @Test
+  @DisplayName("Should verify and hash passwords on the BCrypt pool")
+  void skalVerifiserePassord() {
+    verifisering =
+        new PassordVerifisering(
+            new BCryptPasswordEncoder(4), 1, 10, Duration.ofSeconds(5), meterRegistry);
+
+    String hash = verifisering.hash("Test123!");
+
+    assertThat(verifisering.matches("Test123!", hash)).isTrue();
+    assertThat(verifisering.matches("feil", hash)).isFalse();
+    assertThat(meterRegistry.get("passord.bcrypt").timer().count()).isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName("Should reject immediately with a retry hint when the queue is full")
+  void skalAvviseStraksNaarKoenErFull() throws Exception {
+    verifisering =
+        new PassordVerifisering(
+            blokkerendeEncoder(), 1, 1, Duration.ofSeconds(30), meterRegistry);
+    CompletableFuture<Boolean> kjorer =
+        CompletableFuture.supplyAsync(() -> verifisering.matches("a", "hash"));
+    ventTil(() -> meterRegistry.get("passord.bcrypt.aktive").gauge().value() == 1);
+    CompletableFuture<Boolean> iKo =
+        CompletableFuture.supplyAsync(() -> verifisering.matches("b", "hash"));
+    ventTil(() -> meterRegistry.get("passord.bcrypt.ko").gauge().value() == 1);
+
+    long start = System.nanoTime();
+    assertThatThrownBy(() -> verifisering.matches("c", "hash"))
+        .isInstanceOf(InnloggingOverbelastetException.class)
+        .satisfies(
+            e ->
+                assertThat(((InnloggingOverbelastetException) e).getProvIgjenEtter())
+                    .isGreaterThanOrEqualTo(Duration.ofSeconds(1)));
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+    assertThat(meterRegistry.get("passord.bcrypt.avvist").counter().count()).isEqualTo(1);
+
+    slipp.countDown();
+    assertThat(kjorer.get(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(iKo.get(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  @DisplayName("Should give up and free the queue slot when waiting too long")
+  void skalAvviseNaarVentetidenErForLang() throws Exception {
+    verifisering =
+        new PassordVerifisering(blokkerendeEncoder(), 1, 1, Duration.ofMillis(100), meterRegistry);
+    CompletableFuture<Boolean> kjorer =
+        CompletableFuture.supplyAsync(() -> verifisering.matches("a", "hash"));
+    ventTil(() -> meterRegistry.get("passord.bcrypt.aktive").gauge().value() == 1);
+
+    assertThatThrownBy(() -> verifisering.matches("b", "hash"))
+        .isInstanceOf(InnloggingOverbelastetException.class);
+    assertThat(meterRegistry.get("passord.bcrypt.ko").gauge().value()).isZero();
+
+    // Den første gir også opp mens encoderen fortsatt holdes, uansett hvor raskt b ble avvist
+    assertThatThrownBy(() -> kjorer.get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(InnloggingOverbelastetException.class);
+    slipp.countDown();
+  }
+
+  /** Encoder som holder tråden til testen slipper den, for å fylle poolen og køen */
+  private PasswordEncoder blokkerendeEncoder() {
+    return new PasswordEncoder() {
+      @Override
+      public String encode(CharSequence passord) {
+        return "hash";
+      }
+
+      @Override
+      public boolean matches(CharSequence passord, String hash) {
+        try {
+          slipp.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return true;
+      }
+    };
+  }
+
+  private static void ventTil(BooleanSupplier betingelse) throws InterruptedException {
+    long frist = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!betingelse.getAsBoolean()) {
+      assertThat(System.nanoTime()).as("venter på betingelse").isLessThan(frist);
+      Thread.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package no.utdanning.opptak.unit.security;
+
+import static no.utdanning.opptak.service.security.Rolletype.ADMINISTRATOR;
+import static no.utdanning.opptak.service.security.Rolletype.OPPTAKSLEDER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import no.utdanning.opptak.config.TilgangAspect;
+import no.utdanning.opptak.service.security.InnloggetBruker;
+import no.utdanning.opptak.service.security.JwtAuthentication;
+import no.utdanning.opptak.service.security.Rolletype;
+import no.utdanning.opptak.service.security.Tilgang;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+@DisplayName("TilgangAspect Tests")
+class TilgangAspectTest {
+
+  private Resolver resolver;
+
+  @BeforeEach
+  void setUp() {
+    AspectJProxyFactory factory = new AspectJProxyFactory(new Resolver());
+    factory.setProxyTargetClass(true);
+    factory.addAspect(new TilgangAspect());
+    resolver = factory.getProxy();
+  }
+
+  @AfterEach
+  void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  @DisplayName("Should check method roles against the role mask of the JWT user")
+  void skalSjekkeRollemaske() {
+    loggInn("OPPTAKSLEDER");
+
+    assertThat(resolver.forLedere()).isEqualTo("ok");
+    assertThat(resolver.forInnlogget()).isEqualTo("ok");
+    assertThatThrownBy(() -> resolver.forAdministrator())
+        .isInstanceOf(AccessDeniedException.class)
+        .hasMessage("Access Denied");
+  }
+
+  @Test
+  @DisplayName("Should deny all methods without authentication")
+  void skalAvviseUtenInnlogging() {
+    assertThatThrownBy(() -> resolver.forInnlogget()).isInstanceOf(AccessDeniedException.class);
+    assertThatThrownBy(() -> resolver.forLedere()).isInstanceOf(AccessDeniedException.class);
+  }
+
+  @Test
+  @DisplayName("Should fall back to authorities for other authentication types")
+  void skalBrukeAuthoritiesForAndreAutentiseringer() {
+    SecurityContextHolder.getContext()
+        .setAuthentication(
+            new UsernamePasswordAuthenticationToken(
+                "bruker", null, List.of(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"))));
+
+    assertThat(resolver.forAdministrator()).isEqualTo("ok");
+    assertThat(resolver.forLedere()).isEqualTo("ok");
+  }
+
+  @Test
+  @DisplayName("Should compute role mask once per user and ignore unknown roles")
+  void skalBeregneRollemaske() {
+    InnloggetBruker bruker =
+        new InnloggetBruker("B1", "b@x.no", "B", List.of("OPPTAKSLEDER", "UKJENT"), "ntnu");
+
+    assertThat(bruker.rolleMaske()).isEqualTo(OPPTAKSLEDER.bit());
+    assertThat(bruker.harRolle(OPPTAKSLEDER)).isTrue();
+    assertThat(bruker.harRolle(ADMINISTRATOR)).isFalse();
+    assertThat(Rolletype.maske(List.of("ADMINISTRATOR", "SOKER")))
+        .isEqualTo(Rolletype.maske(ADMINISTRATOR, Rolletype.SOKER));
+  }
+
+  private static void loggInn(String... roller) {
+    SecurityContextHolder.getContext()
+        .setAuthentication(
+            new JwtAuthentication(
+                new InnloggetBruker("B1", "b@x.no", "B", List.of(roller), "ntnu")));
+  }
+
+  @Tilgang
+  static class Resolver {
+
+    public String forInnlogget() {
+      return "ok";
+    }
+
+    @Tilgang({ADMINISTRATOR, OPPTAKSLEDER})
+    public String forLedere() {
+      return "ok";
+    }
+
+    @Tilgang(ADMINISTRATOR)
+    public String forAdministrator() {
+      return "ok";
+    }
+  }
+}
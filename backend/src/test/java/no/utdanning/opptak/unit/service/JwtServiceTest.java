@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
 import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -19,7 +20,7 @@ class JwtServiceTest {
 
   @BeforeEach
   void setUp() {
-    jwtService = new JwtService();
+    jwtService = new JwtService(new SimpleMeterRegistry(), 10_000);
   }
 
   @Test
@@ -0,0 +1,141 @@
+package no.utdanning.opptak.unit.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import no.utdanning.opptak.service.JwtService;
+import no.utdanning.opptak.service.security.InnloggetBruker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("JwtService verified-token cache Tests")
+class JwtTokenCacheTest {
+
+  private MeterRegistry meterRegistry;
+  private FlyttbarKlokke klokke;
+  private JwtService jwtService;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    klokke = new FlyttbarKlokke(Instant.parse("2025-01-15T10:00:00Z"));
+    jwtService = new JwtService(meterRegistry, 2, klokke);
+  }
+
+  private String token(String brukerId) {
+    return jwtService.generateToken(brukerId, brukerId + "@test.no", "Test", List.of("SOKER"), null);
+  }
+
+  private double teller(String resultat) {
+    return meterRegistry.get("jwt.token.cache").tag("resultat", resultat).counter().count();
+  }
+
+  @Test
+  @DisplayName("Should verify once and serve repeated tokens from the cache")
+  void skalServereGjentatteTokensFraCache() {
+    String token = token("BRUKER-001");
+
+    InnloggetBruker forste = jwtService.verifiser(token);
+    InnloggetBruker andre = jwtService.verifiser(token);
+
+    assertThat(andre).isSameAs(forste);
+    assertThat(andre.brukerId()).isEqualTo("BRUKER-001");
+    assertThat(teller("bom")).isEqualTo(1);
+    assertThat(teller("treff")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should not cache tokens that fail verification")
+  void skalIkkeCacheUgyldigeTokens() {
+    String token = token("BRUKER-001");
+    String manipulert = token.substring(0, token.length() - 2) + "xx";
+
+    assertThrows(SecurityException.class, () -> jwtService.verifiser(manipulert));
+    assertThrows(SecurityException.class, () -> jwtService.verifiser(manipulert));
+
+    assertThat(jwtService.cacheStorrelse()).isZero();
+    assertThat(teller("treff")).isZero();
+  }
+
+  @Test
+  @DisplayName("Should reject cached token after it expires")
+  void skalAvviseCachetTokenEtterUtlop() {
+    String token = token("BRUKER-001");
+    jwtService.verifiser(token);
+
+    klokke.flytt(Duration.ofHours(25));
+
+    assertThrows(SecurityException.class, () -> jwtService.verifiser(token));
+    assertThat(jwtService.cacheStorrelse()).isZero();
+  }
+
+  @Test
+  @DisplayName("Should remove expired tokens that are never presented again")
+  void skalFjerneUtlopteTokensSomIkkeBrukesIgjen() {
+    jwtService.verifiser(token("BRUKER-001"));
+    klokke.flytt(Duration.ofHours(12));
+    jwtService.verifiser(token("BRUKER-002"));
+
+    klokke.flytt(Duration.ofHours(13));
+    jwtService.fjernUtlopte();
+
+    assertThat(jwtService.cacheStorrelse()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should evict least recently used token when full")
+  void skalFjerneMinstNyligBrukteNaarFull() {
+    String a = token("A");
+    String b = token("B");
+    String c = token("C");
+
+    jwtService.verifiser(a);
+    jwtService.verifiser(b);
+    jwtService.verifiser(a); // a er nå sist brukt
+    jwtService.verifiser(c); // b fjernes
+
+    assertThat(jwtService.cacheStorrelse()).isEqualTo(2);
+    double bomFor = teller("bom");
+    jwtService.verifiser(a);
+    assertThat(teller("bom")).isEqualTo(bomFor);
+    jwtService.verifiser(b);
+    assertThat(teller("bom")).isEqualTo(bomFor + 1);
+  }
+
+  /** Klokke som kan flyttes fremover i testene */
+  private static final class FlyttbarKlokke extends Clock {
+    private Instant naa;
+
+    FlyttbarKlokke(Instant naa) {
+      this.naa = naa;
+    }
+
+    void flytt(Duration varighet) {
+      naa = naa.plus(varighet);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return naa;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package no.utdanning.opptak.unit.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import no.utdanning.opptak.domain.Utdanning;
+import no.utdanning.opptak.repository.OrganisasjonRepository;
+import no.utdanning.opptak.repository.Projeksjon;
+import no.utdanning.opptak.repository.UtdanningRepository;
+import no.utdanning.opptak.service.sok.NavneIndeks;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NavneIndeks Tests")
+class NavneIndeksTest {
+
+  @Mock private UtdanningRepository utdanningRepository;
+  @Mock private OrganisasjonRepository organisasjonRepository;
+
+  private NavneIndeks indeks;
+
+  @BeforeEach
+  void setUp() {
+    indeks =
+        new NavneIndeks(
+            utdanningRepository, organisasjonRepository, new SimpleMeterRegistry(), 1000);
+  }
+
+  @Test
+  @DisplayName("Should load in one attempt on first use even when changes are committed meanwhile")
+  void skalLasteIEttForsokSelvOmEndringerCommittesSamtidig() throws Exception {
+    AtomicReference<CompletableFuture<Void>> samtidig = new AtomicReference<>();
+    when(utdanningRepository.findWithFilters(
+            any(), any(), any(), any(), any(), any(), any(), any(), any(Projeksjon.class)))
+        .thenAnswer(
+            invocation -> {
+              // En annen tråd committer en utdanning mens tabellen leses
+              samtidig.set(
+                  CompletableFuture.runAsync(
+                      () -> indeks.utdanningEndret(utdanning("u-2", "Master i geofysikk"))));
+              try {
+                samtidig.get().get(200, TimeUnit.MILLISECONDS);
+              } catch (TimeoutException e) {
+                // Venter på låsen til lastingen er ferdig
+              }
+              return List.of(utdanning("u-1", "Bachelor i geologi"));
+            });
+    when(organisasjonRepository.findAll(any(Projeksjon.class))).thenReturn(List.of());
+
+    assertThat(indeks.sokUtdanninger("geolog", 10, null)).containsExactly("u-1");
+
+    samtidig.get().get(5, TimeUnit.SECONDS);
+    assertThat(indeks.sokUtdanninger("geofys", 10, null)).containsExactly("u-2");
+    verify(utdanningRepository, times(1))
+        .findWithFilters(
+            any(), any(), any(), any(), any(), any(), any(), any(), any(Projeksjon.class));
+  }
+
+  private static Utdanning utdanning(String id, String navn) {
+    Utdanning utdanning = new Utdanning();
+    utdanning.setId(id);
+    utdanning.setNavn(navn);
+    utdanning.setAktiv(true);
+    utdanning.setOrganisasjonId("uio");
+    return utdanning;
+  }
+}
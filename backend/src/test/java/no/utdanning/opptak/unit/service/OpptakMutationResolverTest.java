@@ -172,7 +172,7 @@ class OpptakMutationResolverTest {
 
   @Test
   void skalKalleOpptakServiceVedOpprettOpptak() {
-    // Note: Security testing (@PreAuthorize) happens in integration tests
+    // Note: Security testing (@Tilgang) happens in integration tests
     // Arrange
     OpprettOpptakInput input = new OpprettOpptakInput();
     input.setNavn("Nytt Opptak");
@@ -214,7 +214,7 @@ class OpptakMutationResolverTest {
 
   @Test
   void skalKalleOpptakServiceVedEndreOpptaksStatus() {
-    // Note: Security testing (@PreAuthorize) happens in integration tests
+    // Note: Security testing (@Tilgang) happens in integration tests
     // Arrange
     EndreOpptaksStatusInput input = new EndreOpptaksStatusInput();
     input.setOpptakId("opptak-1");
@@ -5,7 +5,9 @@ import static org.mockito.Mockito.*;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import no.utdanning.opptak.domain.*;
+import no.utdanning.opptak.repository.Projeksjon;
 import no.utdanning.opptak.service.OpptakService;
 import no.utdanning.opptak.graphql.OpptakQueryResolver;
 import org.junit.jupiter.api.BeforeEach;
@@ -33,14 +35,14 @@ class OpptakQueryResolverTest {
   void skalHenteAlleOpptakMedGyldigRolle() {
     // Arrange
     List<Opptak> opptak = Arrays.asList(createOpptak("1"), createOpptak("2"));
-    when(opptakService.findAll()).thenReturn(opptak);
+    when(opptakService.findAll(Projeksjon.alle())).thenReturn(opptak);
 
     // Act
-    List<Opptak> result = queryResolver.alleOpptak();
+    List<Opptak> result = queryResolver.alleOpptak(null);
 
     // Assert
     assertThat(result).hasSize(2);
-    verify(opptakService).findAll();
+    verify(opptakService).findAll(Projeksjon.alle());
   }
 
   @Test
@@ -113,15 +115,16 @@ class OpptakQueryResolverTest {
     Organisasjon org = new Organisasjon();
     org.setId("ntnu");
     org.setNavn("NTNU");
-    when(opptakService.getAdministratorOrganisasjon(opptak)).thenReturn(org);
+    List<Opptak> opptakListe = List.of(opptak);
+    when(opptakService.getAdministratorOrganisasjoner(opptakListe)).thenReturn(Map.of(opptak, org));
 
     // Act
-    Organisasjon result = queryResolver.administrator(opptak);
+    Map<Opptak, Organisasjon> result = queryResolver.administrator(opptakListe);
 
     // Assert
-    assertThat(result).isNotNull();
-    assertThat(result.getId()).isEqualTo("ntnu");
-    verify(opptakService).getAdministratorOrganisasjon(opptak);
+    assertThat(result.get(opptak)).isNotNull();
+    assertThat(result.get(opptak).getId()).isEqualTo("ntnu");
+    verify(opptakService).getAdministratorOrganisasjoner(opptakListe);
   }
 
   @Test
@@ -133,14 +136,17 @@ class OpptakQueryResolverTest {
     Organisasjon org2 = new Organisasjon();
     org2.setId("hvl");
     List<Organisasjon> orgs = Arrays.asList(org1, org2);
-    when(opptakService.getTillateTilgangsorganisasjoner(opptak)).thenReturn(orgs);
+    List<Opptak> opptakListe = List.of(opptak);
+    when(opptakService.getTillateTilgangsorganisasjoner(opptakListe))
+        .thenReturn(Map.of(opptak, orgs));
 
     // Act
-    List<Organisasjon> result = queryResolver.tillatteTilgangsorganisasjoner(opptak);
+    Map<Opptak, List<Organisasjon>> result =
+        queryResolver.tillatteTilgangsorganisasjoner(opptakListe);
 
     // Assert
-    assertThat(result).hasSize(2);
-    verify(opptakService).getTillateTilgangsorganisasjoner(opptak);
+    assertThat(result.get(opptak)).hasSize(2);
+    verify(opptakService).getTillateTilgangsorganisasjoner(opptakListe);
   }
 
 
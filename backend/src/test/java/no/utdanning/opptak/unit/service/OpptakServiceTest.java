@@ -7,13 +7,19 @@ import static org.mockito.Mockito.*;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import no.utdanning.opptak.domain.*;
 import no.utdanning.opptak.graphql.dto.EndreOpptaksStatusInput;
+import no.utdanning.opptak.graphql.dto.LeggTilUtdanningerInput;
+import no.utdanning.opptak.graphql.dto.LeggTilUtdanningerResultat;
 import no.utdanning.opptak.graphql.dto.OppdaterOpptakInput;
 import no.utdanning.opptak.graphql.dto.OpprettOpptakInput;
+import no.utdanning.opptak.graphql.dto.UtdanningPlasserInput;
 import no.utdanning.opptak.repository.JdbcOpptakRepository;
 import no.utdanning.opptak.repository.JdbcOpptakTilgangRepository;
 import no.utdanning.opptak.repository.JdbcOrganisasjonRepository;
+import no.utdanning.opptak.repository.JdbcUtdanningIOpptakRepository;
+import no.utdanning.opptak.repository.Projeksjon;
 import no.utdanning.opptak.service.OpptakService;
 import no.utdanning.opptak.service.security.OpptakSecurityService;
 import org.junit.jupiter.api.BeforeEach;
@@ -28,6 +34,7 @@ class OpptakServiceTest {
   @Mock private JdbcOpptakRepository opptakRepository;
   @Mock private JdbcOpptakTilgangRepository tilgangRepository;
   @Mock private JdbcOrganisasjonRepository organisasjonRepository;
+  @Mock private JdbcUtdanningIOpptakRepository utdanningIOpptakRepository;
   @Mock private OpptakSecurityService securityService;
 
   private OpptakService opptakService;
@@ -35,7 +42,13 @@ class OpptakServiceTest {
   @BeforeEach
   void setUp() {
     opptakService =
-        new OpptakService(opptakRepository, tilgangRepository, organisasjonRepository, securityService);
+        new OpptakService(
+            opptakRepository,
+            tilgangRepository,
+            organisasjonRepository,
+            utdanningIOpptakRepository,
+            securityService,
+            3);
   }
 
   @Test
@@ -43,14 +56,14 @@ class OpptakServiceTest {
     // Arrange
     List<Opptak> alleOpptak = Arrays.asList(createOpptak("1"), createOpptak("2"));
     when(securityService.isAdministrator()).thenReturn(true);
-    when(opptakRepository.findByAktiv(true)).thenReturn(alleOpptak);
+    when(opptakRepository.findByAktiv(true, Projeksjon.alle())).thenReturn(alleOpptak);
 
     // Act
     List<Opptak> result = opptakService.findAll();
 
     // Assert
     assertThat(result).hasSize(2);
-    verify(opptakRepository).findByAktiv(true);
+    verify(opptakRepository).findByAktiv(true, Projeksjon.alle());
   }
 
   @Test
@@ -60,14 +73,16 @@ class OpptakServiceTest {
     List<Opptak> adminOpptak = Arrays.asList(createOpptak("1"));
     when(securityService.isAdministrator()).thenReturn(false);
     when(securityService.getCurrentUserOrganisasjonId()).thenReturn(orgId);
-    when(opptakRepository.findByAdministratorOrganisasjonId(orgId)).thenReturn(adminOpptak);
-    when(tilgangRepository.findByOrganisasjonId(orgId)).thenReturn(Arrays.asList());
+    when(opptakRepository.findSynligeForOrganisasjonId(orgId, Projeksjon.alle()))
+        .thenReturn(adminOpptak);
 
     // Act
     List<Opptak> result = opptakService.findAll();
 
     // Assert
     assertThat(result).hasSize(1);
+    verify(opptakRepository, never()).findById(anyString());
+    verifyNoInteractions(tilgangRepository);
   }
 
   @Test
@@ -135,7 +150,7 @@ class OpptakServiceTest {
     eksisterende.setNavn("Gammelt Navn");
 
     when(opptakRepository.findById(opptakId)).thenReturn(eksisterende);
-    when(securityService.canManageOpptak(opptakId)).thenReturn(true);
+    when(securityService.canManageOpptak(eksisterende)).thenReturn(true);
     when(opptakRepository.existsByNavnAndIdNot("Oppdatert Navn", opptakId)).thenReturn(false);
     when(opptakRepository.save(any(Opptak.class))).thenAnswer(i -> i.getArgument(0));
 
@@ -160,7 +175,7 @@ class OpptakServiceTest {
     opptak.setStatus(OpptaksStatus.FREMTIDIG);
 
     when(opptakRepository.findById(opptakId)).thenReturn(opptak);
-    when(securityService.canManageOpptak(opptakId)).thenReturn(true);
+    when(securityService.canManageOpptak(opptak)).thenReturn(true);
     when(opptakRepository.save(any(Opptak.class))).thenAnswer(i -> i.getArgument(0));
 
     // Act
@@ -168,6 +183,9 @@ class OpptakServiceTest {
 
     // Assert
     assertThat(result.getStatus()).isEqualTo(OpptaksStatus.APENT);
+    // Tilgangen sjekkes mot opptaket som allerede er hentet, uten nytt oppslag
+    verify(opptakRepository, times(1)).findById(opptakId);
+    verify(securityService, never()).canManageOpptak(anyString());
   }
 
   @Test
@@ -180,7 +198,7 @@ class OpptakServiceTest {
 
     Opptak opptak = createOpptak(opptakId);
     when(opptakRepository.findById(opptakId)).thenReturn(opptak);
-    when(securityService.canManageOpptak(opptakId)).thenReturn(false);
+    when(securityService.canManageOpptak(opptak)).thenReturn(false);
 
     // Act & Assert
     assertThatThrownBy(() -> opptakService.endreStatus(input))
@@ -196,7 +214,7 @@ class OpptakServiceTest {
     opptak.setAktiv(true);
 
     when(opptakRepository.findById(opptakId)).thenReturn(opptak);
-    when(securityService.canManageOpptak(opptakId)).thenReturn(true);
+    when(securityService.canManageOpptak(opptak)).thenReturn(true);
     when(opptakRepository.save(any(Opptak.class))).thenAnswer(i -> i.getArgument(0));
 
     // Act
@@ -220,7 +238,7 @@ class OpptakServiceTest {
     org.setNavn("UiO");
 
     when(opptakRepository.findById(opptakId)).thenReturn(opptak);
-    when(securityService.canManageOpptak(opptakId)).thenReturn(true);
+    when(securityService.canManageOpptak(opptak)).thenReturn(true);
     when(organisasjonRepository.findById(organisasjonId)).thenReturn(org);
     when(tilgangRepository.hasAccess(opptakId, organisasjonId)).thenReturn(false);
     when(securityService.getCurrentUserId()).thenReturn("user-1");
@@ -231,6 +249,7 @@ class OpptakServiceTest {
     // Assert
     assertThat(result).isNotNull();
     verify(tilgangRepository).save(any(OpptakTilgang.class));
+    verify(securityService).tilgangGitt(opptakId, organisasjonId);
   }
 
   @Test
@@ -250,6 +269,110 @@ class OpptakServiceTest {
         .hasMessageContaining("samordnede opptak");
   }
 
+  @Test
+  void skalHenteTillateTilgangsorganisasjonerForAlleOpptakIEnSporring() {
+    // Arrange
+    Opptak samordnet = createOpptak("opptak-1");
+    Opptak lokalt = createOpptak("opptak-2");
+    Organisasjon uio = new Organisasjon();
+    uio.setId("uio");
+
+    when(tilgangRepository.findOrganisasjonerByOpptakIds(List.of("opptak-1", "opptak-2")))
+        .thenReturn(Map.of("opptak-1", List.of(uio)));
+
+    // Act
+    Map<Opptak, List<Organisasjon>> result =
+        opptakService.getTillateTilgangsorganisasjoner(List.of(samordnet, lokalt));
+
+    // Assert
+    assertThat(result.get(samordnet)).containsExactly(uio);
+    assertThat(result.get(lokalt)).isEmpty();
+    verify(tilgangRepository, times(1)).findOrganisasjonerByOpptakIds(any());
+    verifyNoInteractions(organisasjonRepository);
+  }
+
+  @Test
+  void skalLeggeTilUtdanningerMedEnBatchOgSjekkeTilgangEnGangPerOrganisasjon() {
+    // Arrange
+    Opptak opptak = createOpptak("opptak-1");
+    when(opptakRepository.findById("opptak-1")).thenReturn(opptak);
+    when(utdanningIOpptakRepository.findOrganisasjonIdByUtdanningIds(any()))
+        .thenReturn(Map.of("ntnu-a", "ntnu", "ntnu-b", "ntnu", "uio-a", "uio"));
+    when(securityService.kanLeggeTilUtdanningerFra(opptak, "ntnu")).thenReturn(true);
+    when(securityService.kanLeggeTilUtdanningerFra(opptak, "uio")).thenReturn(false);
+    when(utdanningIOpptakRepository.lagreAlle(eq("opptak-1"), any()))
+        .thenReturn(new JdbcUtdanningIOpptakRepository.Lagret(1, 1));
+
+    LeggTilUtdanningerInput input = new LeggTilUtdanningerInput();
+    input.setOpptakId("opptak-1");
+    input.setUtdanninger(
+        List.of(
+            new UtdanningPlasserInput("ntnu-a", 50),
+            new UtdanningPlasserInput("ntnu-b", 20),
+            new UtdanningPlasserInput("uio-a", 10)));
+
+    // Act
+    LeggTilUtdanningerResultat resultat = opptakService.leggTilUtdanninger(input);
+
+    // Assert
+    assertThat(resultat.getLagtTil()).isEqualTo(1);
+    assertThat(resultat.getOppdatert()).isEqualTo(1);
+    assertThat(resultat.getAvvist()).isEqualTo(1);
+    assertThat(resultat.getAvvisteUtdanninger().get(0).getUtdanningId()).isEqualTo("uio-a");
+    verify(securityService, times(1)).kanLeggeTilUtdanningerFra(opptak, "ntnu");
+    verify(utdanningIOpptakRepository)
+        .lagreAlle(eq("opptak-1"), argThat(rader -> rader.size() == 2));
+  }
+
+  @Test
+  void skalAvviseUkjenteDupliserteOgNegativeUtdanninger() {
+    // Arrange
+    Opptak opptak = createOpptak("opptak-1");
+    when(opptakRepository.findById("opptak-1")).thenReturn(opptak);
+    when(utdanningIOpptakRepository.findOrganisasjonIdByUtdanningIds(any()))
+        .thenReturn(Map.of("ntnu-a", "ntnu"));
+    when(securityService.kanLeggeTilUtdanningerFra(opptak, "ntnu")).thenReturn(true);
+    when(utdanningIOpptakRepository.lagreAlle(eq("opptak-1"), any()))
+        .thenReturn(new JdbcUtdanningIOpptakRepository.Lagret(1, 0));
+
+    LeggTilUtdanningerInput input = new LeggTilUtdanningerInput();
+    input.setOpptakId("opptak-1");
+    input.setUtdanninger(
+        List.of(
+            new UtdanningPlasserInput("ntnu-a", 50),
+            new UtdanningPlasserInput("ntnu-a", 60),
+            new UtdanningPlasserInput("finnes-ikke", 10)));
+
+    // Act
+    LeggTilUtdanningerResultat resultat = opptakService.leggTilUtdanninger(input);
+
+    // Assert
+    assertThat(resultat.getLagtTil()).isEqualTo(1);
+    assertThat(resultat.getAvvisteUtdanninger())
+        .extracting(a -> a.getArsak())
+        .containsExactly("Utdanningen finnes flere ganger i listen", "Utdanning ikke funnet");
+  }
+
+  @Test
+  void skalAvviseForMangeUtdanningerPerKall() {
+    // Arrange
+    when(opptakRepository.findById("opptak-1")).thenReturn(createOpptak("opptak-1"));
+    LeggTilUtdanningerInput input = new LeggTilUtdanningerInput();
+    input.setOpptakId("opptak-1");
+    input.setUtdanninger(
+        List.of(
+            new UtdanningPlasserInput("a", 1),
+            new UtdanningPlasserInput("b", 1),
+            new UtdanningPlasserInput("c", 1),
+            new UtdanningPlasserInput("d", 1)));
+
+    // Act & Assert
+    assertThatThrownBy(() -> opptakService.leggTilUtdanninger(input))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("maks 3");
+    verifyNoInteractions(utdanningIOpptakRepository);
+  }
+
   private Opptak createOpptak(String id) {
     Opptak opptak = new Opptak();
     opptak.setId(id);
@@ -3,23 +3,35 @@ package no.utdanning.opptak.unit.service;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
 import no.utdanning.opptak.domain.Bruker;
 import no.utdanning.opptak.domain.BrukerRolle;
+import no.utdanning.opptak.domain.BrukerLegitimasjon;
 import no.utdanning.opptak.repository.BrukerRepository;
+import no.utdanning.opptak.repository.JdbcBrukerRepository;
 import no.utdanning.opptak.service.JwtService;
 import no.utdanning.opptak.service.AuthService;
+import no.utdanning.opptak.service.SistInnloggetBuffer;
+import no.utdanning.opptak.service.security.InnloggingOverbelastetException;
+import no.utdanning.opptak.service.security.InnloggingsBegrensning;
+import no.utdanning.opptak.service.security.LegitimasjonCache;
+import no.utdanning.opptak.service.security.PassordVerifisering;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
@@ -31,6 +43,19 @@ class SimpleAuthServiceTest {
 
   @Mock private JwtService jwtService;
 
+  @Mock private SistInnloggetBuffer sistInnloggetBuffer;
+
+  @Mock private LegitimasjonCache legitimasjonCache;
+
+  @Mock private JdbcBrukerRepository jdbcBrukerRepository;
+
+  @Mock private InnloggingsBegrensning innloggingsBegrensning;
+
+  @Spy
+  private PassordVerifisering passordVerifisering =
+      new PassordVerifisering(
+          new BCryptPasswordEncoder(), 1, 10, Duration.ofSeconds(5), new SimpleMeterRegistry());
+
   @InjectMocks private AuthService authService;
 
   private Bruker testBruker;
@@ -65,8 +90,7 @@ class SimpleAuthServiceTest {
     String hashedPassword = encoder.encode(password);
     testBruker.setPassordHash(hashedPassword);
 
-    when(brukerRepository.findByEmail(email)).thenReturn(Optional.of(testBruker));
-    when(brukerRepository.save(any(Bruker.class))).thenReturn(testBruker);
+    when(legitimasjonCache.hent(email)).thenAnswer(invocation -> legitimasjon());
     when(jwtService.generateToken(anyString(), anyString(), anyString(), any(), anyString()))
         .thenReturn(expectedToken);
 
@@ -75,8 +99,8 @@ class SimpleAuthServiceTest {
 
     // Assert
     assertEquals(expectedToken, token);
-    verify(brukerRepository).findByEmail(email);
-    verify(brukerRepository).save(any(Bruker.class));
+    verify(legitimasjonCache).hent(email);
+    verify(brukerRepository, never()).save(any(Bruker.class));
   }
 
   @Test
@@ -86,36 +110,71 @@ class SimpleAuthServiceTest {
     String email = "notfound@example.com";
     String password = "Test123!";
 
-    when(brukerRepository.findByEmail(email)).thenReturn(Optional.empty());
+    when(legitimasjonCache.hent(email)).thenReturn(null);
 
     // Act & Assert
     SecurityException exception =
         assertThrows(SecurityException.class, () -> authService.login(email, password));
 
     assertEquals("Ugyldig email eller passord", exception.getMessage());
-    verify(brukerRepository).findByEmail(email);
+    verify(legitimasjonCache).hent(email);
     verify(brukerRepository, never()).save(any());
+    // Ukjente adresser koster like mye BCrypt-tid som kjente
+    verify(passordVerifisering).matchesFalskHash(password);
+  }
+
+  @Test
+  @DisplayName("Should reject throttled login before lookup and password hashing")
+  void testLoginThrottled() {
+    // Arrange
+    String email = "test@example.com";
+    doThrow(new InnloggingOverbelastetException(Duration.ofSeconds(10)))
+        .when(innloggingsBegrensning)
+        .sjekk(eq(email), any());
+
+    // Act & Assert
+    assertThrows(InnloggingOverbelastetException.class, () -> authService.login(email, "x"));
+    verifyNoInteractions(legitimasjonCache, passordVerifisering);
   }
 
   @Test
-  @DisplayName("Should throw exception for inactive user")
+  @DisplayName("Should throw exception for inactive user with correct password")
   void testLoginInactiveUser() {
     // Arrange
     String email = "test@example.com";
     String password = "Test123!";
     testBruker.setAktiv(false);
+    testBruker.setPassordHash(new BCryptPasswordEncoder().encode(password));
 
-    when(brukerRepository.findByEmail(email)).thenReturn(Optional.of(testBruker));
+    when(legitimasjonCache.hent(email)).thenAnswer(invocation -> legitimasjon());
 
     // Act & Assert
     SecurityException exception =
         assertThrows(SecurityException.class, () -> authService.login(email, password));
 
     assertEquals("Brukeren er deaktivert", exception.getMessage());
-    verify(brukerRepository).findByEmail(email);
+    verify(legitimasjonCache).hent(email);
     verify(brukerRepository, never()).save(any());
   }
 
+  @Test
+  @DisplayName("Should not reveal an inactive user to a wrong password")
+  void testLoginInactiveUserWrongPassword() {
+    // Arrange
+    String email = "test@example.com";
+    testBruker.setAktiv(false);
+    testBruker.setPassordHash(new BCryptPasswordEncoder().encode("CorrectPassword"));
+
+    when(legitimasjonCache.hent(email)).thenAnswer(invocation -> legitimasjon());
+
+    // Act & Assert
+    SecurityException exception =
+        assertThrows(SecurityException.class, () -> authService.login(email, "WrongPassword"));
+
+    assertEquals("Ugyldig email eller passord", exception.getMessage());
+    verify(passordVerifisering).matches(eq("WrongPassword"), anyString());
+  }
+
   @Test
   @DisplayName("Should throw exception for wrong password")
   void testLoginWrongPassword() {
@@ -128,14 +187,14 @@ class SimpleAuthServiceTest {
     String hashedPassword = encoder.encode("CorrectPassword");
     testBruker.setPassordHash(hashedPassword);
 
-    when(brukerRepository.findByEmail(email)).thenReturn(Optional.of(testBruker));
+    when(legitimasjonCache.hent(email)).thenAnswer(invocation -> legitimasjon());
 
     // Act & Assert
     SecurityException exception =
         assertThrows(SecurityException.class, () -> authService.login(email, wrongPassword));
 
     assertEquals("Ugyldig email eller passord", exception.getMessage());
-    verify(brukerRepository).findByEmail(email);
+    verify(legitimasjonCache).hent(email);
     verify(brukerRepository, never()).save(any());
   }
 
@@ -204,7 +263,7 @@ class SimpleAuthServiceTest {
   }
 
   @Test
-  @DisplayName("Should update last login time on successful login")
+  @DisplayName("Should buffer last login time on successful login")
   void testLoginUpdatesLastLoginTime() {
     // Arrange
     String email = "test@example.com";
@@ -216,15 +275,7 @@ class SimpleAuthServiceTest {
 
     LocalDateTime beforeLogin = LocalDateTime.now();
 
-    when(brukerRepository.findByEmail(email)).thenReturn(Optional.of(testBruker));
-    when(brukerRepository.save(any(Bruker.class)))
-        .thenAnswer(
-            invocation -> {
-              Bruker savedUser = invocation.getArgument(0);
-              assertNotNull(savedUser.getSistInnlogget());
-              assertTrue(savedUser.getSistInnlogget().isAfter(beforeLogin));
-              return savedUser;
-            });
+    when(legitimasjonCache.hent(email)).thenAnswer(invocation -> legitimasjon());
     when(jwtService.generateToken(anyString(), anyString(), anyString(), any(), anyString()))
         .thenReturn("token");
 
@@ -232,6 +283,35 @@ class SimpleAuthServiceTest {
     authService.login(email, password);
 
     // Assert
-    verify(brukerRepository).save(any(Bruker.class));
+    ArgumentCaptor<LocalDateTime> tidspunkt = ArgumentCaptor.forClass(LocalDateTime.class);
+    verify(sistInnloggetBuffer).registrer(eq("BRUKER-123"), tidspunkt.capture());
+    assertFalse(tidspunkt.getValue().isBefore(beforeLogin));
+  }
+
+  @Test
+  @DisplayName("Should deactivate user and evict cached credentials")
+  void testDeaktiverBruker() {
+    // Arrange
+    when(jdbcBrukerRepository.settAktiv("BRUKER-123", false)).thenReturn(true);
+    when(brukerRepository.findById("BRUKER-123")).thenReturn(Optional.of(testBruker));
+
+    // Act
+    Bruker resultat = authService.deaktiverBruker("BRUKER-123");
+
+    // Assert
+    assertEquals(testBruker, resultat);
+    verify(legitimasjonCache).glem("BRUKER-123");
+  }
+
+  /** Legitimasjon slik JdbcBrukerRepository ville lest den for testBruker */
+  private BrukerLegitimasjon legitimasjon() {
+    return new BrukerLegitimasjon(
+        testBruker.getId(),
+        testBruker.getEmail(),
+        testBruker.getNavn(),
+        testBruker.getPassordHash(),
+        testBruker.getOrganisasjonId(),
+        testBruker.getAktiv(),
+        testBruker.getRoller().stream().map(BrukerRolle::getRolleId).toList());
   }
 }
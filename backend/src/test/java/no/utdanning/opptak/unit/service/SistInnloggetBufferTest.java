@@ -0,0 +1,73 @@
+package no.utdanning.opptak.unit.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.Map;
+import no.utdanning.opptak.repository.JdbcBrukerRepository;
+import no.utdanning.opptak.service.SistInnloggetBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SistInnloggetBuffer Tests")
+class SistInnloggetBufferTest {
+
+  private static final LocalDateTime T1 = LocalDateTime.of(2025, 6, 20, 9, 0, 0);
+  private static final LocalDateTime T2 = T1.plusSeconds(5);
+
+  @Mock private JdbcBrukerRepository brukerRepository;
+
+  private SistInnloggetBuffer buffer;
+
+  @BeforeEach
+  void setUp() {
+    buffer = new SistInnloggetBuffer(brukerRepository, new SimpleMeterRegistry());
+  }
+
+  @Test
+  @DisplayName("Should collapse several logins by the same user into one write")
+  void skalSlaaSammenInnloggingerForSammeBruker() {
+    buffer.registrer("BRUKER-1", T2);
+    buffer.registrer("BRUKER-1", T1);
+    buffer.registrer("BRUKER-2", T1);
+
+    buffer.tom();
+
+    verify(brukerRepository, times(1))
+        .oppdaterSistInnlogget(Map.of("BRUKER-1", T2, "BRUKER-2", T1));
+    assertThat(buffer.antallVentende()).isZero();
+  }
+
+  @Test
+  @DisplayName("Should not touch the database when nothing is buffered")
+  void skalIkkeSkriveNaarBufferenErTom() {
+    buffer.tom();
+
+    verifyNoInteractions(brukerRepository);
+  }
+
+  @Test
+  @DisplayName("Should keep the timestamps for the next flush when the write fails")
+  void skalBeholdeTidspunkterNaarSkrivingFeiler() {
+    when(brukerRepository.oppdaterSistInnlogget(anyMap()))
+        .thenThrow(new DataAccessResourceFailureException("nede"))
+        .thenReturn(1);
+    buffer.registrer("BRUKER-1", T1);
+
+    buffer.tom();
+    assertThat(buffer.antallVentende()).isEqualTo(1);
+
+    buffer.tomVedNedstenging();
+    verify(brukerRepository, times(2)).oppdaterSistInnlogget(Map.of("BRUKER-1", T1));
+    assertThat(buffer.antallVentende()).isZero();
+  }
+}
@@ -0,0 +1,33 @@
+package no.utdanning.opptak.unit.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.function.Function;
+import no.utdanning.opptak.service.sok.Sokeforslag;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Sokeforslag Tests")
+class SokeforslagTest {
+
+  @Test
+  @DisplayName("Should use the schema default without first and cap large values")
+  void skalBrukeStandardOgMaksAntall() {
+    assertThat(Sokeforslag.antall(null)).isEqualTo(10);
+    assertThat(Sokeforslag.antall(0)).isEqualTo(10);
+    assertThat(Sokeforslag.antall(5)).isEqualTo(5);
+    assertThat(Sokeforslag.antall(1000)).isEqualTo(100);
+  }
+
+  @Test
+  @DisplayName("Should keep the index ranking and skip ids without a row")
+  void skalBeholdeRangeringen() {
+    List<String> rader = List.of("b", "a", "c");
+
+    List<String> ids = List.of("c", "slettet", "a", "b");
+
+    assertThat(Sokeforslag.iRekkefolge(ids, rader, Function.identity()))
+        .containsExactly("c", "a", "b");
+  }
+}
@@ -0,0 +1,126 @@
+package no.utdanning.opptak.unit.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import graphql.execution.CoercedVariables;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeDefinitionRegistry;
+import graphql.schema.idl.UnExecutableSchemaGenerator;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import no.utdanning.opptak.graphql.Sporringskostnad;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+@DisplayName("Sporringskostnad - static query cost")
+class SporringskostnadTest {
+
+  private static GraphQLSchema schema;
+
+  @BeforeAll
+  static void lastSkjema() throws IOException {
+    TypeDefinitionRegistry registry = new TypeDefinitionRegistry();
+    Resource[] filer =
+        new PathMatchingResourcePatternResolver().getResources("classpath:graphql/*.graphqls");
+    for (Resource fil : filer) {
+      try (InputStreamReader reader =
+          new InputStreamReader(fil.getInputStream(), StandardCharsets.UTF_8)) {
+        registry.merge(new SchemaParser().parse(reader));
+      }
+    }
+    schema = UnExecutableSchemaGenerator.makeUnExecutableSchema(registry);
+  }
+
+  private long kostnad(String query) {
+    return kostnad(query, Map.of());
+  }
+
+  private long kostnad(String query, Map<String, Object> variabler) {
+    return Sporringskostnad.beregn(
+        schema, Parser.parse(query), null, CoercedVariables.of(variabler));
+  }
+
+  @Test
+  @DisplayName("Skalarfelter på ett objekt koster 1")
+  void skalGiKostnadEnForEttObjekt() {
+    assertThat(kostnad("{ utdanning(id: \"x\") { id navn beskrivelse } }")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Lister uten størrelsesargument regnes med standard listestørrelse")
+  void skalBrukeStandardListestorrelse() {
+    assertThat(kostnad("{ testBrukere { email } }")).isEqualTo(20);
+  }
+
+  @Test
+  @DisplayName("Lister som returnerer alle radene regnes med maks listestørrelse")
+  void skalRegneUbegrensedeListerMedMaksStorrelse() {
+    assertThat(kostnad("{ alleOpptak { id navn } }")).isEqualTo(500);
+    assertThat(kostnad("{ opptakForAdministrator(organisasjonId: \"uio\") { id } }"))
+        .isEqualTo(500);
+    assertThat(kostnad("{ tilgjengeligeOpptakForOrganisasjon(organisasjonId: \"uio\") { id } }"))
+        .isEqualTo(500);
+    assertThat(kostnad("{ opptak(id: \"x\") { tillatteTilgangsorganisasjoner { id } } }"))
+        .isEqualTo(1 + 500);
+    assertThat(kostnad("{ organisasjon(id: \"x\") { administrerteOpptak { id } } }"))
+        .isEqualTo(1 + 500);
+  }
+
+  @Test
+  @DisplayName("organisasjoner uten page henter alle og regnes med maks listestørrelse")
+  void skalRegneOrganisasjonerUtenPageSomUbegrenset() {
+    assertThat(kostnad("{ organisasjoner { id navn } }")).isEqualTo(500);
+    assertThat(kostnad("{ organisasjoner(page: { size: 10 }) { id navn } }")).isEqualTo(10);
+  }
+
+  @Test
+  @DisplayName("page.size multipliserer content-listen i UtdanningPage")
+  void skalBrukePageSizeForContent() {
+    assertThat(kostnad("{ utdanninger(page: { size: 50 }) { content { id } } }"))
+        .isEqualTo(1 + 50);
+    assertThat(kostnad("{ utdanninger { content { id } } }")).isEqualTo(1 + 20);
+  }
+
+  @Test
+  @DisplayName("first multipliserer edges i UtdanningConnection, også fra variabler")
+  void skalBrukeFirstForEdges() {
+    String query =
+        "query($n: Int) { utdanningerConnection(first: $n) { edges { node { id } } pageInfo { hasNextPage } } }";
+
+    assertThat(kostnad(query, Map.of("n", 10))).isEqualTo(1 + 10 * (1 + 1) + 1);
+  }
+
+  @Test
+  @DisplayName("Nøstede lister multipliseres, slik at rekursive spørringer blir dyre")
+  void skalMultiplisereNostedeLister() {
+    long enkel = kostnad("{ organisasjoner { utdanninger(limit: 10) { id } } }");
+    long nostet =
+        kostnad(
+            "{ organisasjoner { utdanninger { organisasjon { utdanninger { organisasjon { id } } } } } }");
+
+    assertThat(enkel).isEqualTo(500 * (1 + 10));
+    assertThat(nostet).isEqualTo(500 * (1 + 500 * (1 + 1 + 500 * (1 + 1))));
+  }
+
+  @Test
+  @DisplayName("totalElements har egen vekt fordi den krever telling")
+  void skalVekteTotalElements() {
+    long uten = kostnad("{ utdanninger { content { id } } }");
+    long med = kostnad("{ utdanninger { totalElements content { id } } }");
+
+    assertThat(med - uten).isEqualTo(5);
+  }
+
+  @Test
+  @DisplayName("Introspeksjon regnes ikke med")
+  void skalIkkeRegneMedIntrospeksjon() {
+    assertThat(kostnad("{ __schema { types { name fields { name } } } }")).isZero();
+  }
+}
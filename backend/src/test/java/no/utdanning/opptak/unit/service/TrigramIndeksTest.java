@@ -0,0 +1,128 @@
+package no.utdanning.opptak.unit.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import no.utdanning.opptak.service.sok.TrigramIndeks;
+import no.utdanning.opptak.service.sok.TrigramIndeks.Dokument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("TrigramIndeks Tests")
+class TrigramIndeksTest {
+
+  private TrigramIndeks indeks;
+
+  @BeforeEach
+  void setUp() {
+    indeks = new TrigramIndeks();
+    indeks.erstattAlle(
+        List.of(
+            new Dokument("1", "Bachelor i informatikk H25", true, "ntnu"),
+            new Dokument("2", "Master i informatikk", true, "uio"),
+            new Dokument("3", "Informatikk: design, bruk, interaksjon", true, "uio"),
+            new Dokument("4", "Bioinformatikk", true, "uib"),
+            new Dokument("5", "Bachelor i sykepleie H25", false, "hvl")));
+  }
+
+  private static List<String> ids(List<Dokument> dokumenter) {
+    return dokumenter.stream().map(Dokument::id).toList();
+  }
+
+  @Test
+  @DisplayName("Should find exactly the names containing the text, ignoring case")
+  void skalFinneNavnSomInneholderTeksten() {
+    assertThat(indeks.inneholder("INFORMATIKK")).containsExactlyInAnyOrder("1", "2", "3", "4");
+    assertThat(indeks.inneholder("i informatikk")).containsExactlyInAnyOrder("1", "2");
+    // Alle trigrammene finnes, men ikke i samme navn
+    assertThat(indeks.inneholder("master i sykepleie")).isEmpty();
+    assertThat(indeks.inneholder("farmasi")).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Should scan all names for texts shorter than a trigram")
+  void skalSkanneForKorteSok() {
+    assertThat(indeks.inneholder("h2")).containsExactlyInAnyOrder("1", "5");
+    assertThat(indeks.inneholder("")).hasSize(5);
+  }
+
+  @Test
+  @DisplayName("Should rank prefix matches, then word starts, then shorter names")
+  void skalRangereTreff() {
+    List<Dokument> treff = indeks.sok("info", 10, dokument -> true);
+
+    // Prefiks (3), ordstart (2 før 1, kortere navn), midt i et ord (4)
+    assertThat(ids(treff)).containsExactly("3", "2", "1", "4");
+  }
+
+  @Test
+  @DisplayName("Should keep only the best matches that pass the filter")
+  void skalBegrenseOgFiltrere() {
+    assertThat(ids(indeks.sok("info", 2, dokument -> true))).containsExactly("3", "2");
+    assertThat(ids(indeks.sok("informatikk", 10, dokument -> "uio".equals(dokument.gruppe()))))
+        .containsExactly("3", "2");
+    assertThat(ids(indeks.sok("bachelor", 10, Dokument::aktiv))).containsExactly("1");
+  }
+
+  @Test
+  @DisplayName("Should follow renames and removals")
+  void skalFolgeEndringer() {
+    indeks.leggTil(new Dokument("2", "Master i datateknologi", true, "uio"));
+    indeks.fjern("4");
+
+    assertThat(indeks.inneholder("informatikk")).containsExactlyInAnyOrder("1", "3");
+    assertThat(indeks.inneholder("datatek")).containsExactly("2");
+    assertThat(indeks.antall()).isEqualTo(4);
+  }
+
+  @Test
+  @DisplayName("Should never return wrong matches while names are changed concurrently")
+  void skalAldriGiFeilTreffUnderSamtidigeEndringer() throws Exception {
+    AtomicBoolean ferdig = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Future<?> skriver =
+          executor.submit(
+              () -> {
+                for (int i = 0; i < 20_000; i++) {
+                  String navn = i % 2 == 0 ? "Master i matematikk" : "Master i fysikk";
+                  indeks.leggTil(new Dokument("skiftende", navn, true, null));
+                  indeks.leggTil(new Dokument("ny-" + i, "Emne " + i, true, null));
+                }
+                ferdig.set(true);
+              });
+      List<Future<Integer>> lesere =
+          List.of(
+              executor.submit(() -> les(ferdig, "matematikk")),
+              executor.submit(() -> les(ferdig, "fysikk")));
+
+      skriver.get(30, TimeUnit.SECONDS);
+      for (Future<Integer> leser : lesere) {
+        assertThat(leser.get(30, TimeUnit.SECONDS)).isPositive();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(indeks.antall()).isEqualTo(20_006);
+    assertThat(indeks.inneholder("fysikk")).containsExactly("skiftende");
+  }
+
+  /** Søker til skriveren er ferdig og sjekker at hvert treff faktisk inneholder teksten */
+  private int les(AtomicBoolean ferdig, String sok) {
+    int antall = 0;
+    do {
+      for (Dokument treff : indeks.sok(sok, 10, dokument -> true)) {
+        assertThat(treff.tekst().toLowerCase(Locale.ROOT)).contains(sok);
+      }
+      antall++;
+    } while (!ferdig.get());
+    return antall;
+  }
+}